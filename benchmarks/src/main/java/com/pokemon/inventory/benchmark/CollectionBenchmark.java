@@ -0,0 +1,46 @@
+package com.pokemon.inventory.benchmark;
+
+import com.pokemon.inventory.dto.CollectionPage;
+import com.pokemon.inventory.dto.CollectionSearchHit;
+import com.pokemon.inventory.model.Card;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code CardService} collection reads: the whole collection sorted, a filtered and
+ * searched subset, the first keyset page, and ranked typo-tolerant search (the portable
+ * in-memory scoring here; PostgreSQL uses the pg_trgm index instead).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollectionBenchmark {
+
+    @Param({"createdAt", "name", "price"})
+    public String sort;
+
+    @Benchmark
+    public List<Card> sortedCollection(SeededCollection app) {
+        return app.cards.getCollection(SeededCollection.USER, null, null, null, null, null, sort, "desc");
+    }
+
+    @Benchmark
+    public List<Card> filteredCollection(SeededCollection app) {
+        return app.cards.getCollection(SeededCollection.USER, "base-set", null, "Pokemon", "Fire", "char", sort, "asc");
+    }
+
+    @Benchmark
+    public CollectionPage firstPage(SeededCollection app) {
+        return app.cards.getCollectionPage(SeededCollection.USER, null, null, null, null, null, sort, "desc", 50, null);
+    }
+
+    @Benchmark
+    public List<CollectionSearchHit> search(SeededCollection app) {
+        return app.cards.searchCollection(SeededCollection.USER, "charzard", 20);
+    }
+}
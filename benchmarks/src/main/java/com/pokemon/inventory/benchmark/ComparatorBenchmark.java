@@ -0,0 +1,48 @@
+package com.pokemon.inventory.benchmark;
+
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.repository.CollectionSort;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory {@link CollectionSort} comparators, sorting a 10k-card collection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparatorBenchmark {
+
+    @Param({"CREATED_AT", "NAME", "SET_NAME", "RARITY", "QUANTITY", "PRICE"})
+    public CollectionSort sort;
+
+    @Param({"asc", "desc"})
+    public String order;
+
+    private List<Card> cards;
+
+    @Setup
+    public void generate() {
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 12, 0);
+        cards = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            cards.add(SeededCollection.card(SeededCollection.USER, i, base, random));
+        }
+    }
+
+    @Benchmark
+    public List<Card> sortCollection() {
+        List<Card> copy = new ArrayList<>(cards);
+        copy.sort(sort.comparator(order));
+        return copy;
+    }
+}
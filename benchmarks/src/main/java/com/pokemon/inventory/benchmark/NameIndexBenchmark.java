@@ -0,0 +1,68 @@
+package com.pokemon.inventory.benchmark;
+
+import com.pokemon.inventory.service.CardNameIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code CardNameIndex} over a generated catalog about the size of TCGdex (~20k distinct
+ * names): building the index, and suggestions for a short, a mid-length and a
+ * multi-word prefix. The index's estimated heap footprint is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NameIndexBenchmark {
+
+    private static final String[] SYLLABLES = {"char", "pi", "ka", "chu", "bul", "ba", "saur", "mew", "ee", "vee",
+            "zard", "flare", "on", "squir", "tle", "gen", "gar", "dra", "go", "nite", "sly", "ma", "chop", "lu"};
+    private static final String[] PREFIXES = {"", "", "", "Dark ", "Mega ", "Team Rocket's ", "Radiant "};
+    private static final String[] SUFFIXES = {"", "", "", " ex", " V", " VMAX", " GX", " δ"};
+
+    @Param({"c", "char", "dark chu"})
+    public String prefix;
+
+    private Map<String, Integer> names;
+    private CardNameIndex index;
+
+    @Setup(Level.Trial)
+    public void build() {
+        names = generate(20_000);
+        index = CardNameIndex.build(names);
+        System.out.println("Card name index: " + index.size() + " names, " + index.entryCount()
+                + " entries, ~" + index.estimatedBytes() / 1024 + " KB");
+    }
+
+    @Benchmark
+    public List<String> suggest() {
+        return index.suggest(prefix, 10);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CardNameIndex rebuild() {
+        return CardNameIndex.build(names);
+    }
+
+    private static Map<String, Integer> generate(int count) {
+        Random random = new Random(42);
+        Map<String, Integer> generated = new HashMap<>();
+        while (generated.size() < count) {
+            StringBuilder base = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int i = 0; i < syllables; i++) base.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            base.setCharAt(0, Character.toUpperCase(base.charAt(0)));
+            String name = PREFIXES[random.nextInt(PREFIXES.length)] + base + SUFFIXES[random.nextInt(SUFFIXES.length)];
+            generated.merge(name, 1 + random.nextInt(5), Integer::sum);
+        }
+        return generated;
+    }
+}
@@ -0,0 +1,47 @@
+package com.pokemon.inventory.benchmark;
+
+import com.pokemon.inventory.dto.DailyPrice;
+import com.pokemon.inventory.dto.ValuePoint;
+import com.pokemon.inventory.service.PriceHistoryService.Interval;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Price history over a year for 50k cards: a collection's value over the year read from
+ * the daily rollup (daily and weekly points), one card's price history, re-rolling a day
+ * of about 5,000 snapshots, and appending one refresh chunk of snapshots.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceHistoryBenchmark {
+
+    @Benchmark
+    public List<ValuePoint> valueHistoryDaily(SeededHistory app) {
+        return app.history.valueHistory(SeededHistory.USER, SeededHistory.FIRST_DAY, SeededHistory.LAST_DAY, Interval.DAY);
+    }
+
+    @Benchmark
+    public List<ValuePoint> valueHistoryWeekly(SeededHistory app) {
+        return app.history.valueHistory(SeededHistory.USER, SeededHistory.FIRST_DAY, SeededHistory.LAST_DAY, Interval.WEEK);
+    }
+
+    @Benchmark
+    public List<DailyPrice> cardPriceHistory(SeededHistory app) {
+        return app.history.priceHistory("set-7", SeededHistory.FIRST_DAY, SeededHistory.LAST_DAY);
+    }
+
+    @Benchmark
+    public void rollupDay(SeededHistory app) {
+        app.history.rollup(SeededHistory.LAST_DAY.atTime(23, 30));
+    }
+
+    @Benchmark
+    public void appendChunk(SeededHistory app) {
+        app.appendChunk();
+    }
+}
@@ -0,0 +1,96 @@
+package com.pokemon.inventory.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.pokemon.inventory.service.*;
+import com.pokemon.inventory.support.StubTcgdexServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code TcgdexApiService.searchCards} for a 20-card page against the in-process stub
+ * TCGdex server, with the catalog mirror cold. {@code cache=cold} refetches every card's
+ * details; {@code cache=warm} serves them from the card cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"cold", "warm"})
+    public String cache;
+
+    private StubTcgdexServer stub;
+    private FanOutExecutor fanOut;
+    private OutboundHttp http;
+    private TcgdexApiService service;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        stub = new StubTcgdexServer();
+        String recorded = StubTcgdexServer.readFixture("/cards/base2-60");
+        List<String> summaries = new ArrayList<>();
+        for (int i = 1; i <= PAGE_SIZE; i++) {
+            String id = "base2-" + (100 + i);
+            summaries.add("{\"id\":\"" + id + "\",\"localId\":\"" + (100 + i) + "\",\"name\":\"Pikachu\"}");
+            stub.json("/cards/" + id, recorded.replace("base2-60", id));
+        }
+        stub.json("/cards", "[" + String.join(",", summaries) + "]");
+
+        Duration ttl = "warm".equals(cache) ? Duration.ofHours(1) : Duration.ZERO;
+        TcgdexCardCache cardCache = new TcgdexCardCache(new SimpleMeterRegistry(), 20_000, ttl);
+        fanOut = new FanOutExecutor(32, 4);
+        http = new OutboundHttp(new SimpleMeterRegistry(), 100, 32, "", Duration.ofSeconds(5),
+                Duration.ofSeconds(10), Duration.ofSeconds(30));
+        CatalogMirror cold = new CatalogMirror(null, null) {
+            @Override
+            public boolean isWarm() {
+                return false;
+            }
+        };
+        service = new TcgdexApiService(http, fanOut, cardCache, cold,
+                new TcgdexResilience(new SimpleMeterRegistry(), 50, Duration.ofSeconds(5), 20, 10, Duration.ofSeconds(30), 64, 16, Duration.ofSeconds(5), 1_000),
+                new HedgedRequests(new SimpleMeterRegistry(), false, 0.95, 0.05, 50, Duration.ofMillis(50), 4),
+                Duration.ofSeconds(30));
+        set("baseUrl", stub.baseUrl());
+        set("detailConcurrency", 8);
+        set("pageDeadlineMs", 10_000L);
+
+        // searchCards logs each request to stdout; keep it out of the benchmark output
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        System.setOut(stdout);
+        stub.close();
+        fanOut.shutdown();
+        http.close();
+    }
+
+    @Benchmark
+    public JsonNode searchPage() {
+        return service.searchCards("pikachu", null, null, null, null, 1, PAGE_SIZE);
+    }
+
+    private void set(String name, Object value) {
+        Field field = ReflectionUtils.findField(TcgdexApiService.class, name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, service, value);
+    }
+}
@@ -0,0 +1,110 @@
+package com.pokemon.inventory.benchmark;
+
+import com.pokemon.inventory.InventoryApplication;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.repository.CardRepository;
+import com.pokemon.inventory.service.CardService;
+import com.pokemon.inventory.service.CollectionStatsService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The full application on an in-memory H2 database, with one user's collection of
+ * {@code size} generated cards (plus a smaller second user, so queries must filter).
+ * Shared by the collection and stats benchmarks; booted once per fork.
+ */
+@State(Scope.Benchmark)
+public class SeededCollection {
+
+    public static final long USER = 1L;
+
+    private static final String[] NAMES = {"Pikachu", "Charizard", "Bulbasaur", "Mew", "Mewtwo", "Eevee", "Flareon", "Switch"};
+    private static final String[] SETS = {"Base Set", "Jungle", "Fossil", "Team Rocket", null};
+    private static final String[] RARITIES = {"Common", "Uncommon", "Rare", "Rare Holo", null};
+    private static final String[] TYPES = {"[\"Fire\"]", "[\"Lightning\"]", "[\"Grass\",\"Psychic\"]", "[]"};
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    ConfigurableApplicationContext context;
+    CardService cards;
+    CardRepository repo;
+    CollectionStatsService stats;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = boot("bench");
+        cards = context.getBean(CardService.class);
+        repo = context.getBean(CardRepository.class);
+        stats = context.getBean(CollectionStatsService.class);
+
+        Random random = new Random(42);
+        seed(USER, size, random);
+        seed(2L, Math.max(1, size / 10), random);
+        stats.rebuild(USER);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    /**
+     * The application on a fresh in-memory H2 database, with every background job off.
+     * Also used by the price history benchmark.
+     */
+    static ConfigurableApplicationContext boot(String database) {
+        return new SpringApplicationBuilder(InventoryApplication.class)
+                .bannerMode(Banner.Mode.OFF)
+                // Command-line arguments, so they win over application.properties
+                .run("--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--server.port=0",
+                        "--claude.api.key=unused",
+                        "--catalog.names.refresh-enabled=false",
+                        "--scan.catalog-index.refresh-enabled=false",
+                        "--reference.refresh-enabled=false",
+                        "--prices.global.refresh-enabled=false",
+                        "--prices.history.rollup-enabled=false",
+                        "--logging.level.root=WARN");
+    }
+
+    private void seed(long userId, int count, Random random) {
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 12, 0);
+        List<Card> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            batch.add(card(userId, i, base, random));
+            if (batch.size() == 1000) {
+                repo.saveAll(batch);
+                batch.clear();
+            }
+        }
+        repo.saveAll(batch);
+    }
+
+    /** A generated card; also used by the in-memory comparator benchmark. */
+    static Card card(long userId, int i, LocalDateTime base, Random random) {
+        Card card = new Card();
+        card.setUserId(userId);
+        card.setCardId("set-" + i);
+        card.setName(NAMES[random.nextInt(NAMES.length)]);
+        card.setSetName(SETS[random.nextInt(SETS.length)]);
+        card.setSetId(card.getSetName() == null ? null : card.getSetName().toLowerCase().replace(' ', '-'));
+        card.setRarity(RARITIES[random.nextInt(RARITIES.length)]);
+        card.setTypes(TYPES[random.nextInt(TYPES.length)]);
+        card.setCategory(random.nextBoolean() ? "Pokemon" : "Trainer");
+        card.setQuantity(1 + random.nextInt(4));
+        card.setPriceMid(random.nextInt(4) == 0 ? null : random.nextInt(2000) / 4.0);
+        card.setCreatedAt(base.plusSeconds(random.nextInt(86_400 * 365)));
+        return card;
+    }
+}
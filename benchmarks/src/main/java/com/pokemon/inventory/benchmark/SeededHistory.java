@@ -0,0 +1,117 @@
+package com.pokemon.inventory.benchmark;
+
+import com.pokemon.inventory.dto.TcgdexPrice;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.repository.CardRepository;
+import com.pokemon.inventory.service.CollectionStatsService;
+import com.pokemon.inventory.service.PriceHistoryService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * The full application on an in-memory H2 database with a year of price history for
+ * {@code cards} cards: each day about a tenth of them change price, and those prices are
+ * appended as snapshots and the day rolled up, as refreshes and the scheduled rollup
+ * would. One user owns the first 2,000 cards. Booted and seeded once per fork.
+ */
+@State(Scope.Benchmark)
+public class SeededHistory {
+
+    public static final long USER = 1L;
+    public static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+    public static final LocalDate LAST_DAY = FIRST_DAY.plusDays(364);
+
+    private static final int OWNED = 2_000;
+    private static final double DAILY_CHANGE = 0.1;
+    private static final int CHUNK = 200;
+
+    @Param({"50000"})
+    public int cards;
+
+    ConfigurableApplicationContext context;
+    PriceHistoryService history;
+
+    private final Map<String, TcgdexPrice> chunk = new LinkedHashMap<>();
+    private long appended;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = SeededCollection.boot("history");
+        history = context.getBean(PriceHistoryService.class);
+        CardRepository repo = context.getBean(CardRepository.class);
+        CollectionStatsService stats = context.getBean(CollectionStatsService.class);
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        Random random = new Random(42);
+        double[] mids = new double[cards];
+        for (int i = 0; i < cards; i++) {
+            mids[i] = 0.25 + random.nextInt(2000) / 4.0;
+        }
+        List<Card> owned = new ArrayList<>();
+        for (int i = 0; i < OWNED; i++) {
+            Card card = SeededCollection.card(USER, i, FIRST_DAY.atStartOfDay(), random);
+            card.setQuantity(1);
+            card.setPriceMid(mids[i]);
+            owned.add(card);
+        }
+        repo.saveAll(owned);
+        stats.rebuild(USER);
+
+        // The rollup logs every run to stdout; keep it out of the benchmark output
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        for (LocalDate day = FIRST_DAY; !day.isAfter(LAST_DAY); day = day.plusDays(1)) {
+            Map<String, TcgdexPrice> changed = new LinkedHashMap<>();
+            double ownedDelta = 0;
+            for (int i = 0; i < cards; i++) {
+                if (random.nextDouble() >= DAILY_CHANGE) continue;
+                double mid = Math.max(0.25, mids[i] * (0.9 + 0.2 * random.nextDouble()));
+                if (i < OWNED) ownedDelta += mid - mids[i];
+                mids[i] = mid;
+                changed.put("set-" + i, price(mid));
+            }
+            history.recordPrices(changed, day.atTime(12, 0));
+            double delta = ownedDelta;
+            tx.executeWithoutResult(status -> stats.valueChanged(USER, delta));
+            history.rollup(day.atTime(23, 0));
+        }
+
+        for (int i = 0; i < CHUNK; i++) {
+            chunk.put("set-" + i, price(mids[i]));
+        }
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        stdout.println("Seeded price history: " + count(jdbc, "price_snapshots") + " snapshots, "
+                + count(jdbc, "price_daily") + " daily card prices, "
+                + count(jdbc, "collection_value_daily") + " daily collection values");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        System.setOut(stdout);
+        context.close();
+    }
+
+    /** Append one refresh chunk of snapshots, each time at a new instant after the seeded year. */
+    void appendChunk() {
+        LocalDateTime at = LAST_DAY.plusDays(1).atStartOfDay().plusNanos(1_000 * ++appended);
+        history.recordPrices(chunk, at);
+    }
+
+    private static TcgdexPrice price(double mid) {
+        return new TcgdexPrice(mid * 0.8, mid, mid * 1.5, mid * 0.95, null);
+    }
+
+    private static long count(JdbcTemplate jdbc, String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+}
@@ -0,0 +1,35 @@
+package com.pokemon.inventory.benchmark;
+
+import com.pokemon.inventory.dto.StatsRollup;
+import com.pokemon.inventory.model.CollectionStats;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collection stats: reading the maintained summary row, against aggregating the cards
+ * table in one statement and a full rebuild of the row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatsBenchmark {
+
+    @Benchmark
+    public Map<String, Object> summary(SeededCollection app) {
+        return app.stats.getStats(SeededCollection.USER);
+    }
+
+    @Benchmark
+    public StatsRollup aggregate(SeededCollection app) {
+        return app.repo.computeStats(SeededCollection.USER);
+    }
+
+    @Benchmark
+    public CollectionStats rebuild(SeededCollection app) {
+        return app.stats.rebuild(SeededCollection.USER);
+    }
+}
@@ -0,0 +1,106 @@
+package com.pokemon.inventory.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pokemon.inventory.dto.TcgdexCard;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.service.TcgdexCardMapper;
+import com.pokemon.inventory.support.StubTcgdexServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a recorded TCGdex card response into a {@link Card}: the old path (body to
+ * String, String to tree, walk the tree) against streaming into {@link TcgdexCard}, and
+ * the price refresh's decode-and-{@code mapPricing} onto an existing row.
+ * Add {@code -prof gc} to see allocation per decode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TcgdexDecodeBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Param({"base1-4", "base2-60", "base1-95"})
+    public String cardId;
+
+    private byte[] body;
+    private final Card existing = new Card();
+
+    @Setup
+    public void load() {
+        body = StubTcgdexServer.readFixture("/cards/" + cardId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Card tree() throws Exception {
+        InputStream in = new ByteArrayInputStream(body);
+        String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        return TreeMapping.mapToEntity(mapper.readTree(text));
+    }
+
+    @Benchmark
+    public Card streaming() throws Exception {
+        return TcgdexCardMapper.mapToEntity(mapper.readValue(new ByteArrayInputStream(body), TcgdexCard.class));
+    }
+
+    @Benchmark
+    public boolean pricing() throws Exception {
+        return TcgdexCardMapper.mapPricing(mapper.readValue(new ByteArrayInputStream(body), TcgdexCard.class), existing);
+    }
+
+    /** The tree-walking mapper the streaming decoder replaced, kept as the baseline. */
+    static final class TreeMapping {
+
+        static Card mapToEntity(JsonNode data) {
+            Card card = new Card();
+            card.setCardId(text(data, "id"));
+            card.setName(text(data, "name"));
+            card.setCategory(text(data, "category"));
+            card.setRarity(text(data, "rarity"));
+            card.setHp(data.has("hp") ? data.get("hp").asInt() : null);
+            card.setTypes(data.has("types") ? data.get("types").toString() : "[]");
+            card.setSubtypes(data.has("stage") ? "[\"" + data.get("stage").asText() + "\"]" : "[]");
+            JsonNode set = data.get("set");
+            if (set != null) {
+                card.setSetId(text(set, "id"));
+                card.setSetName(text(set, "name"));
+            }
+            String image = text(data, "image");
+            if (image != null) {
+                card.setImageSmall(image + "/low.webp");
+                card.setImageLarge(image + "/high.webp");
+            }
+
+            JsonNode tcgplayer = data.path("pricing").path("tcgplayer");
+            for (String key : new String[]{"normal", "holofoil", "reverse-holofoil"}) {
+                JsonNode variant = tcgplayer.get(key);
+                if (variant != null && !variant.isNull()) {
+                    card.setPriceLow(number(variant, "lowPrice"));
+                    card.setPriceMid(number(variant, "midPrice"));
+                    card.setPriceHigh(number(variant, "highPrice"));
+                    card.setPriceMarket(number(variant, "marketPrice"));
+                    card.setPriceUpdatedAt(text(tcgplayer, "updated"));
+                    break;
+                }
+            }
+            return card;
+        }
+
+        private static Double number(JsonNode node, String field) {
+            return node.has(field) && !node.get(field).isNull() ? node.get(field).asDouble() : null;
+        }
+
+        private static String text(JsonNode node, String field) {
+            return node.has(field) && !node.get(field).isNull() ? node.get(field).asText() : null;
+        }
+    }
+}
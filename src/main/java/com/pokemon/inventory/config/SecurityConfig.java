@@ -1,5 +1,6 @@
 package com.pokemon.inventory.config;
 
+import com.pokemon.inventory.service.TcgdexResilience;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -44,9 +45,12 @@ public class SecurityConfig {
                     "/api/rarities",
                     "/api/types",
                     "/api/categories",
-                    "/api/u/**"
+                    "/api/u/**",
+                    "/actuator/health"
                 ).permitAll()
-                .requestMatchers("/api/collection/**", "/api/scan").authenticated()
+                .requestMatchers("/api/collection/**", "/api/jobs/**", "/api/jobs", "/api/scan").authenticated()
+                // Metrics expose traffic and upstream health: signed-in sessions only
+                .requestMatchers("/actuator/**").authenticated()
                 .anyRequest().permitAll()
             )
             .exceptionHandling(ex -> ex
@@ -88,6 +92,8 @@ public class SecurityConfig {
         config.setAllowedOrigins(List.of("http://localhost:5173"));
         config.setAllowedMethods(List.of("GET", "POST", "PATCH", "DELETE", "OPTIONS"));
         config.setAllowedHeaders(List.of("*"));
+        // Readable by the frontend, which flags catalog data served stale
+        config.setExposedHeaders(List.of(TcgdexResilience.STALE_HEADER));
         config.setAllowCredentials(true);
         config.setMaxAge(3600L);
 
@@ -2,17 +2,37 @@ package com.pokemon.inventory.controller;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.pokemon.inventory.dto.AddCardRequest;
+import com.pokemon.inventory.dto.CollectionPage;
+import com.pokemon.inventory.dto.CollectionSearchHit;
 import com.pokemon.inventory.dto.UpdateCardRequest;
 import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.model.Job;
+import com.pokemon.inventory.service.CardNameSuggestService;
 import com.pokemon.inventory.service.CardService;
+import com.pokemon.inventory.service.CollectionImportService;
+import com.pokemon.inventory.service.CollectionStreamWriter;
+import com.pokemon.inventory.service.PriceHistoryService;
+import com.pokemon.inventory.service.ReferenceDataStore;
 import com.pokemon.inventory.service.TcgdexApiService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import com.pokemon.inventory.service.ClaudeVisionService;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.pokemon.inventory.service.CardScanService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api")
@@ -20,12 +40,28 @@ public class CardController {
 
     private final CardService cardService;
     private final TcgdexApiService tcgdex;
-    private final ClaudeVisionService claudeVision;
+    private final CardScanService cardScan;
+    private final CollectionStreamWriter collectionStream;
+    private final CardNameSuggestService nameSuggest;
+    private final CollectionImportService importer;
+    private final ReferenceDataStore referenceData;
+    private final PriceHistoryService priceHistory;
 
-    public CardController(CardService cardService, TcgdexApiService tcgdex, ClaudeVisionService claudeVision) {
+    @Value("${http.cache.reference-data:public, max-age=300}")
+    private String referenceCacheControl;
+
+    public CardController(CardService cardService, TcgdexApiService tcgdex, CardScanService cardScan,
+                          CollectionStreamWriter collectionStream, CardNameSuggestService nameSuggest,
+                          CollectionImportService importer, ReferenceDataStore referenceData,
+                          PriceHistoryService priceHistory) {
         this.cardService = cardService;
         this.tcgdex = tcgdex;
-        this.claudeVision = claudeVision;
+        this.cardScan = cardScan;
+        this.collectionStream = collectionStream;
+        this.nameSuggest = nameSuggest;
+        this.importer = importer;
+        this.referenceData = referenceData;
+        this.priceHistory = priceHistory;
     }
 
     private Long getUserId(HttpSession session) {
@@ -51,6 +87,18 @@ public class CardController {
         }
     }
 
+    @GetMapping("/search/suggest")
+    public ResponseEntity<?> suggestCardNames(@RequestParam(required = false) String q,
+                                              @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(Map.of("suggestions", nameSuggest.suggest(q, limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to suggest card names"));
+        }
+    }
+
     @GetMapping("/search/{cardId}")
     public ResponseEntity<?> getCardFromApi(@PathVariable String cardId) {
         try {
@@ -61,16 +109,26 @@ public class CardController {
         }
     }
 
-    @GetMapping("/sets")
-    public ResponseEntity<?> getSets() {
+    @GetMapping("/search/{cardId}/price-history")
+    public ResponseEntity<?> getPriceHistory(@PathVariable String cardId,
+                                             @RequestParam(required = false) String from,
+                                             @RequestParam(required = false) String to) {
         try {
-            JsonNode result = tcgdex.getSets();
-            return ResponseEntity.ok(result);
+            LocalDate end = to != null ? LocalDate.parse(to) : LocalDate.now();
+            LocalDate start = from != null ? LocalDate.parse(from) : end.minusYears(1);
+            return ResponseEntity.ok(Map.of("cardId", cardId, "prices", priceHistory.priceHistory(cardId, start, end)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("error", "Failed to fetch sets"));
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to fetch price history"));
         }
     }
 
+    @GetMapping("/sets")
+    public ResponseEntity<?> getSets(WebRequest request) {
+        return referenceData(ReferenceDataStore.SETS, request);
+    }
+
     @GetMapping("/sets/{setId}")
     public ResponseEntity<?> getSet(@PathVariable String setId) {
         try {
@@ -82,30 +140,44 @@ public class CardController {
     }
 
     @GetMapping("/rarities")
-    public ResponseEntity<?> getRarities() {
-        try {
-            return ResponseEntity.ok(tcgdex.getRarities());
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("error", "Failed to fetch rarities"));
-        }
+    public ResponseEntity<?> getRarities(WebRequest request) {
+        return referenceData(ReferenceDataStore.RARITIES, request);
     }
 
     @GetMapping("/types")
-    public ResponseEntity<?> getTypes() {
-        try {
-            return ResponseEntity.ok(tcgdex.getTypes());
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("error", "Failed to fetch types"));
-        }
+    public ResponseEntity<?> getTypes(WebRequest request) {
+        return referenceData(ReferenceDataStore.TYPES, request);
     }
 
     @GetMapping("/categories")
-    public ResponseEntity<?> getCategories() {
+    public ResponseEntity<?> getCategories(WebRequest request) {
+        return referenceData(ReferenceDataStore.CATEGORIES, request);
+    }
+
+    /**
+     * Serve a reference list's precomputed bytes: 304 for a matching If-None-Match,
+     * otherwise the gzipped copy to clients that accept it and plain JSON to the rest.
+     * The two are different bytes, so the gzipped copy's strong ETag carries a -gz suffix.
+     */
+    private ResponseEntity<?> referenceData(String name, WebRequest request) {
+        ReferenceDataStore.Snapshot snapshot;
         try {
-            return ResponseEntity.ok(tcgdex.getCategories());
+            snapshot = referenceData.get(name);
         } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("error", "Failed to fetch categories"));
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to fetch " + name));
         }
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        // Quoted: the suffix goes inside the closing quote
+        String etag = gzip ? snapshot.etag().substring(0, snapshot.etag().length() - 1) + "-gz\"" : snapshot.etag();
+        HttpStatus status = request.checkNotModified(etag) ? HttpStatus.NOT_MODIFIED : HttpStatus.OK;
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status)
+                .eTag(etag)
+                .header(HttpHeaders.CACHE_CONTROL, referenceCacheControl)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (status == HttpStatus.NOT_MODIFIED) return response.build();
+        if (gzip) response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return response.contentType(MediaType.APPLICATION_JSON).body(gzip ? snapshot.gzipped() : snapshot.json());
     }
 
     // ── Collection CRUD Routes ────────────────────────────
@@ -132,15 +204,107 @@ public class CardController {
             @RequestParam(required = false) String q,
             @RequestParam(defaultValue = "createdAt") String sort,
             @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean stream,
             HttpSession session) {
+        // Whole collection written as it is read; same JSON, bounded memory
+        if (stream && limit == null) {
+            Long userId = getUserId(session);
+            StreamingResponseBody body = out -> collectionStream.write(userId, set, rarity, category, type, q,
+                    sort, order, out);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        }
         try {
-            List<Card> cards = cardService.getCollection(getUserId(session), set, rarity, category, type, q, sort, order);
-            return ResponseEntity.ok(Map.of("cards", cards, "total", cards.size()));
+            CollectionPage page = cardService.getCollectionPage(getUserId(session), set, rarity, category, type, q,
+                    sort, order, limit, cursor);
+            return ResponseEntity.ok(collectionBody(page, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", "Failed to fetch collection"));
         }
     }
 
+    /**
+     * {cards, total} as before; paginated requests also get nextCursor (null on the last page).
+     */
+    static Map<String, Object> collectionBody(CollectionPage page, Integer limit) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("cards", page.getCards());
+        body.put("total", limit == null ? page.getCards().size() : page.getTotal());
+        if (limit != null) body.put("nextCursor", page.getNextCursor());
+        return body;
+    }
+
+    /**
+     * Bulk add from a CSV ({@code text/csv}) or JSON ({@code application/json}) body, read
+     * as it arrives. Responds with the number imported and an error for each rejected row.
+     */
+    @PostMapping(value = "/collection/import", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> importCollection(HttpServletRequest request, HttpSession session) {
+        boolean csv = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.parseMediaType("text/csv"));
+        try (InputStream body = request.getInputStream()) {
+            Long userId = getUserId(session);
+            return ResponseEntity.ok(csv ? importer.importCsv(userId, body) : importer.importJson(userId, body));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to import collection"));
+        }
+    }
+
+    /** The whole collection as a CSV or JSON download, streamed with bounded memory. */
+    @GetMapping("/collection/export")
+    public ResponseEntity<?> exportCollection(@RequestParam(defaultValue = "json") String format, HttpSession session) {
+        Long userId = getUserId(session);
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if ("csv".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = out -> collectionStream.writeCsv(userId, out);
+            return ok.contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"collection.csv\"")
+                    .body(body);
+        }
+        if ("json".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = out -> collectionStream.write(userId, null, null, null, null, null,
+                    "createdAt", "asc", out);
+            return ok.contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"collection.json\"")
+                    .body(body);
+        }
+        return ResponseEntity.badRequest().body(Map.of("error", "format must be csv or json"));
+    }
+
+    @GetMapping("/collection/search")
+    public ResponseEntity<?> searchCollection(@RequestParam(required = false) String q,
+                                              @RequestParam(defaultValue = "20") int limit,
+                                              HttpSession session) {
+        try {
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (CollectionSearchHit hit : cardService.searchCollection(getUserId(session), q, limit)) {
+                results.add(Map.of("card", hit.card(), "score", hit.score()));
+            }
+            return ResponseEntity.ok(Map.of("results", results));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to search collection"));
+        }
+    }
+
+    @GetMapping("/collection/suggest")
+    public ResponseEntity<?> suggestCollection(@RequestParam(required = false) String prefix,
+                                               @RequestParam(defaultValue = "10") int limit,
+                                               HttpSession session) {
+        try {
+            return ResponseEntity.ok(Map.of("suggestions", cardService.suggestNames(getUserId(session), prefix, limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to suggest names"));
+        }
+    }
+
     @GetMapping("/collection/stats")
     public ResponseEntity<?> getStats(HttpSession session) {
         try {
@@ -150,6 +314,35 @@ public class CardController {
         }
     }
 
+    @GetMapping("/collection/value-history")
+    public ResponseEntity<?> getValueHistory(@RequestParam(required = false) String from,
+                                             @RequestParam(required = false) String to,
+                                             @RequestParam(defaultValue = "day") String interval,
+                                             HttpSession session) {
+        try {
+            PriceHistoryService.Interval resolution = PriceHistoryService.Interval.parse(interval);
+            LocalDate end = to != null ? LocalDate.parse(to) : LocalDate.now();
+            LocalDate start = from != null ? LocalDate.parse(from) : end.minusYears(1);
+            return ResponseEntity.ok(Map.of(
+                    "interval", resolution.name().toLowerCase(Locale.ROOT),
+                    "points", priceHistory.valueHistory(getUserId(session), start, end, resolution)
+            ));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to fetch value history"));
+        }
+    }
+
+    @PostMapping("/collection/stats/rebuild")
+    public ResponseEntity<?> rebuildStats(HttpSession session) {
+        try {
+            return ResponseEntity.ok(cardService.rebuildStats(getUserId(session)));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to rebuild stats"));
+        }
+    }
+
     @PatchMapping("/collection/{id}")
     public ResponseEntity<?> updateCard(@PathVariable Long id, @RequestBody UpdateCardRequest request, HttpSession session) {
         try {
@@ -157,6 +350,9 @@ public class CardController {
             return ResponseEntity.ok(Map.of("message", "Card updated"));
         } catch (NoSuchElementException e) {
             return ResponseEntity.status(404).body(Map.of("error", "Card not found"));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent add created the target condition's row after the merge check
+            return ResponseEntity.status(409).body(Map.of("error", "Card already held in that condition, try again"));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", "Failed to update card"));
         }
@@ -177,30 +373,32 @@ public class CardController {
     @PostMapping("/collection/refresh-prices")
     public ResponseEntity<?> refreshPrices(HttpSession session) {
         try {
-            int updated = cardService.refreshPrices(getUserId(session));
-            return ResponseEntity.ok(Map.of("message", "Prices refreshed", "updated", updated));
+            Job job = cardService.refreshPrices(getUserId(session));
+            return ResponseEntity.accepted().location(URI.create("/api/jobs/" + job.getId())).body(Map.of(
+                    "message", "Price refresh " + job.getStatus().toLowerCase(),
+                    "jobId", job.getId(),
+                    "status", job.getStatus()
+            ));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(503).body(Map.of("error", "Too many jobs queued, try again later"));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", "Failed to refresh prices"));
         }
     }
 
+    /**
+     * Identify a card photo sent as {@code {"image": "<base64 or data URL>"}}. The body is
+     * streamed to the scanner; one declaring more than the upload limit is refused unread.
+     */
     @PostMapping("/scan")
-    public ResponseEntity<?> scanCard(@RequestBody Map<String, String> request) {
-        try {
-            String base64Image = request.get("image");
-            String mediaType = request.getOrDefault("mediaType", "image/png");
-
-            // Strip data URL prefix if present (e.g. "data:image/png;base64,")
-            if (base64Image.contains(",")) {
-                String[] parts = base64Image.split(",");
-                if (parts[0].contains("image/")) {
-                    mediaType = parts[0].split(":")[1].split(";")[0];
-                }
-                base64Image = parts[1];
-            }
-
-            var result = claudeVision.identifyCard(base64Image, mediaType);
-            return ResponseEntity.ok(result);
+    public ResponseEntity<?> scanCard(HttpServletRequest request) {
+        if (request.getContentLengthLong() > cardScan.maxRequestBytes()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", "Image is too large"));
+        }
+        try (InputStream body = request.getInputStream()) {
+            return ResponseEntity.ok(cardScan.scanRequest(body));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", "Failed to scan card: " + e.getMessage()));
         }
@@ -0,0 +1,55 @@
+package com.pokemon.inventory.controller;
+
+import com.pokemon.inventory.service.JobService;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final JobService jobService;
+
+    public JobController(JobService jobService) {
+        this.jobService = jobService;
+    }
+
+    private Long getUserId(HttpSession session) {
+        return (Long) session.getAttribute("userId");
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getJobs(HttpSession session) {
+        try {
+            return ResponseEntity.ok(jobService.getJobs(getUserId(session)).stream()
+                    .map(jobService::toStatus).toList());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to fetch jobs"));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getJob(@PathVariable String id, HttpSession session) {
+        try {
+            return jobService.getJob(getUserId(session), id)
+                    .<ResponseEntity<?>>map(job -> ResponseEntity.ok(jobService.toStatus(job)))
+                    .orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "Job not found")));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to fetch job"));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> cancelJob(@PathVariable String id, HttpSession session) {
+        try {
+            return jobService.cancel(getUserId(session), id)
+                    .<ResponseEntity<?>>map(job -> ResponseEntity.ok(jobService.toStatus(job)))
+                    .orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "Job not found")));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to cancel job"));
+        }
+    }
+}
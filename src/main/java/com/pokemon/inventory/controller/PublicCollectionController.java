@@ -1,11 +1,18 @@
 package com.pokemon.inventory.controller;
 
+import com.pokemon.inventory.model.CollectionStats;
 import com.pokemon.inventory.model.User;
 import com.pokemon.inventory.repository.UserRepository;
 import com.pokemon.inventory.service.CardService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Map;
 
 @RestController
@@ -15,11 +22,40 @@ public class PublicCollectionController {
     private final UserRepository userRepo;
     private final CardService cardService;
 
+    @Value("${http.cache.public-collection:public, max-age=60, must-revalidate}")
+    private String cacheControl;
+
     public PublicCollectionController(UserRepository userRepo, CardService cardService) {
         this.userRepo = userRepo;
         this.cardService = cardService;
     }
 
+    /**
+     * Validators come from the user's collection version, which every write bumps, and the
+     * time the profile (display name) last changed, so a conditional GET is answered with
+     * 304 before any card is loaded.
+     */
+    private record Validators(String etag, long lastModified) {}
+
+    private Validators validators(User user) {
+        CollectionStats version = cardService.getCollectionVersion(user.getId());
+        long collectionModified = epochMillis(version.getUpdatedAt());
+        long profileModified = epochMillis(user.getProfileUpdatedAt());
+        return new Validators("\"" + user.getId() + "." + version.getVersion() + "." + profileModified + "\"",
+                Math.max(collectionModified, profileModified));
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private ResponseEntity.BodyBuilder cached(HttpStatus status, Validators validators) {
+        return ResponseEntity.status(status)
+                .eTag(validators.etag())
+                .lastModified(validators.lastModified())
+                .header(HttpHeaders.CACHE_CONTROL, cacheControl);
+    }
+
     @GetMapping("/collection")
     public ResponseEntity<?> getPublicCollection(
             @PathVariable String username,
@@ -29,26 +65,40 @@ public class PublicCollectionController {
             @RequestParam(required = false) String type,
             @RequestParam(required = false) String q,
             @RequestParam(defaultValue = "createdAt") String sort,
-            @RequestParam(defaultValue = "desc") String order) {
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
         return userRepo.findByUsername(username.toLowerCase())
                 .map(user -> {
-                    var cards = cardService.getCollection(user.getId(), set, rarity, category, type, q, sort, order);
-                    return ResponseEntity.ok((Object) Map.of(
-                            "cards", cards,
-                            "total", cards.size(),
-                            "displayName", user.getDisplayName() != null ? user.getDisplayName() : user.getUsername()
-                    ));
+                    Validators validators = validators(user);
+                    if (request.checkNotModified(validators.etag(), validators.lastModified())) {
+                        return cached(HttpStatus.NOT_MODIFIED, validators).build();
+                    }
+                    try {
+                        var page = cardService.getCollectionPage(user.getId(), set, rarity, category, type, q,
+                                sort, order, limit, cursor);
+                        Map<String, Object> body = CardController.collectionBody(page, limit);
+                        body.put("displayName", user.getDisplayName() != null ? user.getDisplayName() : user.getUsername());
+                        return cached(HttpStatus.OK, validators).body((Object) body);
+                    } catch (IllegalArgumentException e) {
+                        return ResponseEntity.badRequest().body((Object) Map.of("error", e.getMessage()));
+                    }
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/stats")
-    public ResponseEntity<?> getPublicStats(@PathVariable String username) {
+    public ResponseEntity<?> getPublicStats(@PathVariable String username, WebRequest request) {
         return userRepo.findByUsername(username.toLowerCase())
                 .map(user -> {
+                    Validators validators = validators(user);
+                    if (request.checkNotModified(validators.etag(), validators.lastModified())) {
+                        return cached(HttpStatus.NOT_MODIFIED, validators).build();
+                    }
                     var stats = cardService.getStats(user.getId());
                     stats.put("displayName", user.getDisplayName() != null ? user.getDisplayName() : user.getUsername());
-                    return ResponseEntity.ok((Object) stats);
+                    return cached(HttpStatus.OK, validators).body((Object) stats);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
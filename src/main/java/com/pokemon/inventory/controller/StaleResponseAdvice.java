@@ -0,0 +1,37 @@
+package com.pokemon.inventory.controller;
+
+import com.pokemon.inventory.service.TcgdexResilience;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds {@value TcgdexResilience#STALE_HEADER} (age in seconds) to responses built from
+ * a last good TCGdex response because upstream was failing, so clients can say the data
+ * may be out of date. Runs before the body is written, while headers can still be set.
+ */
+@RestControllerAdvice
+public class StaleResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                  Class<? extends HttpMessageConverter<?>> converterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servlet
+                && servlet.getServletRequest().getAttribute(TcgdexResilience.STALE_SINCE_ATTRIBUTE) instanceof Long since) {
+            long age = Math.max(0, (System.currentTimeMillis() - since) / 1000);
+            response.getHeaders().set(TcgdexResilience.STALE_HEADER, Long.toString(age));
+        }
+        return body;
+    }
+}
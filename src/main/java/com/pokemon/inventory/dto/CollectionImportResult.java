@@ -0,0 +1,14 @@
+package com.pokemon.inventory.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: rows imported, rows rejected, and why each was rejected.
+ * {@code row} is the spreadsheet row for CSV (the header is row 1) and the 1-based
+ * array position for JSON.
+ */
+public record CollectionImportResult(int imported, int failed, List<RowError> errors) {
+
+    public record RowError(int row, String cardId, String error) {
+    }
+}
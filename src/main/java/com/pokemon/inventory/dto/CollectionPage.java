@@ -0,0 +1,21 @@
+package com.pokemon.inventory.dto;
+
+import com.pokemon.inventory.model.Card;
+
+import java.util.List;
+
+public class CollectionPage {
+    private final List<Card> cards;
+    private final long total;
+    private final String nextCursor;
+
+    public CollectionPage(List<Card> cards, long total, String nextCursor) {
+        this.cards = cards;
+        this.total = total;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Card> getCards() { return cards; }
+    public long getTotal() { return total; }
+    public String getNextCursor() { return nextCursor; }
+}
@@ -0,0 +1,9 @@
+package com.pokemon.inventory.dto;
+
+import com.pokemon.inventory.model.Card;
+
+/**
+ * One ranked collection search result; {@code score} is in [0, 1], higher is better.
+ */
+public record CollectionSearchHit(Card card, double score) {
+}
@@ -0,0 +1,7 @@
+package com.pokemon.inventory.dto;
+
+import java.time.LocalDate;
+
+/** A card's last TCGPlayer prices on {@code date}, from the daily rollup. */
+public record DailyPrice(LocalDate date, Double low, Double mid, Double high, Double market) {
+}
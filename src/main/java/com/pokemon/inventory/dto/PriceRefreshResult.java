@@ -0,0 +1,17 @@
+package com.pokemon.inventory.dto;
+
+public class PriceRefreshResult {
+    private final int updated;
+    private final int failed;
+    private final int skipped;
+
+    public PriceRefreshResult(int updated, int failed, int skipped) {
+        this.updated = updated;
+        this.failed = failed;
+        this.skipped = skipped;
+    }
+
+    public int getUpdated() { return updated; }
+    public int getFailed() { return failed; }
+    public int getSkipped() { return skipped; }
+}
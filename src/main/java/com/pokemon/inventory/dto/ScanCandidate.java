@@ -0,0 +1,8 @@
+package com.pokemon.inventory.dto;
+
+/**
+ * A catalog card that may be the one in a scanned photo; {@code score} is in [0, 1],
+ * higher is better, and 1 means name, set and number all matched exactly.
+ */
+public record ScanCandidate(String cardId, String name, String setId, String setName, String localId, double score) {
+}
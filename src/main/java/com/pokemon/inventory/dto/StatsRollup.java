@@ -0,0 +1,34 @@
+package com.pokemon.inventory.dto;
+
+import java.util.List;
+
+/**
+ * All collection stats for one user from a single query. {@code bySet} rows are
+ * {setName, setId, cards, total} and {@code byRarity} rows are {rarity, cards, total},
+ * the same shapes as the per-breakdown queries, ordered by total quantity descending.
+ */
+public class StatsRollup {
+    private final long uniqueCards;
+    private final long totalCards;
+    private final long totalSets;
+    private final double totalValue;
+    private final List<Object[]> bySet;
+    private final List<Object[]> byRarity;
+
+    public StatsRollup(long uniqueCards, long totalCards, long totalSets, double totalValue,
+                       List<Object[]> bySet, List<Object[]> byRarity) {
+        this.uniqueCards = uniqueCards;
+        this.totalCards = totalCards;
+        this.totalSets = totalSets;
+        this.totalValue = totalValue;
+        this.bySet = bySet;
+        this.byRarity = byRarity;
+    }
+
+    public long getUniqueCards() { return uniqueCards; }
+    public long getTotalCards() { return totalCards; }
+    public long getTotalSets() { return totalSets; }
+    public double getTotalValue() { return totalValue; }
+    public List<Object[]> getBySet() { return bySet; }
+    public List<Object[]> getByRarity() { return byRarity; }
+}
@@ -0,0 +1,27 @@
+package com.pokemon.inventory.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import java.util.List;
+
+/**
+ * The fields of a TCGdex card response that the app uses, decoded straight from the
+ * response stream. Everything else in the payload (attacks, illustrator, ...) is skipped.
+ * {@code pricing} is reduced to the preferred TCGPlayer variant while decoding.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TcgdexCard(
+        String id,
+        String localId,
+        String name,
+        String category,
+        String rarity,
+        Integer hp,
+        List<String> types,
+        String stage,
+        String image,
+        TcgdexSetRef set,
+        @JsonProperty("pricing") @JsonDeserialize(using = TcgdexPrice.Decoder.class) TcgdexPrice price) {
+}
@@ -0,0 +1,95 @@
+package com.pokemon.inventory.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * TCGPlayer prices for one card: the first variant present out of normal, holofoil
+ * and reverse-holofoil, plus the time TCGdex last updated them.
+ */
+public record TcgdexPrice(Double low, Double mid, Double high, Double market, String updated) {
+
+    /** Variant preference, best first. */
+    public static final List<String> VARIANTS = List.of("normal", "holofoil", "reverse-holofoil");
+
+    /** Whether these are the prices already held, whatever the update time. */
+    public boolean sameAs(Double low, Double mid, Double high, Double market) {
+        return Objects.equals(this.low, low) && Objects.equals(this.mid, mid)
+                && Objects.equals(this.high, high) && Objects.equals(this.market, market);
+    }
+
+    /**
+     * Decodes a card's {@code pricing} object token by token, keeping only the preferred
+     * TCGPlayer variant. Yields null when there is no usable variant (or no TCGPlayer block).
+     */
+    public static class Decoder extends StdDeserializer<TcgdexPrice> {
+        public Decoder() {
+            super(TcgdexPrice.class);
+        }
+
+        @Override
+        public TcgdexPrice deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != JsonToken.START_OBJECT) {
+                p.skipChildren();
+                return null;
+            }
+            TcgdexPrice price = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("tcgplayer".equals(field) && value == JsonToken.START_OBJECT) price = readTcgplayer(p);
+                else p.skipChildren();
+            }
+            return price;
+        }
+
+        private static TcgdexPrice readTcgplayer(JsonParser p) throws IOException {
+            Double[][] variants = new Double[VARIANTS.size()][];
+            String updated = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                int rank = VARIANTS.indexOf(field);
+                if (rank >= 0 && value == JsonToken.START_OBJECT) {
+                    variants[rank] = readVariant(p);
+                } else if ("updated".equals(field) && value.isScalarValue()) {
+                    updated = p.getValueAsString();
+                } else {
+                    p.skipChildren();
+                }
+            }
+            for (Double[] v : variants) {
+                if (v != null) return new TcgdexPrice(v[0], v[1], v[2], v[3], updated);
+            }
+            return null;
+        }
+
+        /** {lowPrice, midPrice, highPrice, marketPrice}; numeric strings are accepted. */
+        private static Double[] readVariant(JsonParser p) throws IOException {
+            Double[] prices = new Double[4];
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                int slot = switch (field) {
+                    case "lowPrice" -> 0;
+                    case "midPrice" -> 1;
+                    case "highPrice" -> 2;
+                    case "marketPrice" -> 3;
+                    default -> -1;
+                };
+                if (slot >= 0 && value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                    prices[slot] = p.getValueAsDouble();
+                } else {
+                    p.skipChildren();
+                }
+            }
+            return prices;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.pokemon.inventory.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * The set summary embedded in a TCGdex card. {@code series} may arrive as a plain
+ * string or as an object with a name; both decode to the name.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TcgdexSetRef(
+        String id,
+        String name,
+        @JsonDeserialize(using = TcgdexSetRef.SeriesName.class) String series) {
+
+    static class SeriesName extends StdDeserializer<String> {
+        SeriesName() {
+            super(String.class);
+        }
+
+        @Override
+        public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != JsonToken.START_OBJECT) return p.getValueAsString();
+            String name = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                if ("name".equals(field)) name = p.getValueAsString();
+                else p.skipChildren();
+            }
+            return name;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.pokemon.inventory.dto;
+
+import java.time.LocalDate;
+
+/**
+ * A collection's value and size at the end of {@code date} (or of the bucket starting
+ * there, when downsampled to weeks or months).
+ */
+public record ValuePoint(LocalDate date, double totalValue, long totalCards) {
+}
@@ -1,7 +1,14 @@
 package com.pokemon.inventory.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 @Entity
 @Table(name = "cards", indexes = {
@@ -9,10 +16,14 @@ import java.time.LocalDateTime;
         @Index(name = "idx_name", columnList = "name"),
         @Index(name = "idx_set_id", columnList = "setId"),
         @Index(name = "idx_rarity", columnList = "rarity"),
-        @Index(name = "idx_user_id", columnList = "userId")
+        @Index(name = "idx_user_id", columnList = "userId"),
+        // One row per copy kind; adding more copies increments quantity (see CardBatchWriter.upsertAll)
+        @Index(name = "uk_cards_user_card_condition", columnList = "userId, cardId, condition", unique = true)
 })
 public class Card {
 
+    private static final ObjectMapper JSON = new ObjectMapper();
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -30,6 +41,21 @@ public class Card {
     private String types;
     private String subtypes;
     private String category;
+
+    // Normalized copies of types/subtypes, one row per value, so type filters are exact
+    // matches in SQL. Kept in step by setTypes/setSubtypes; not part of the API response.
+    @ElementCollection
+    @CollectionTable(name = "card_types", joinColumns = @JoinColumn(name = "card_id"),
+            indexes = @Index(name = "idx_card_types_type", columnList = "type_name, card_id"))
+    @Column(name = "type_name", nullable = false)
+    private Set<String> typeValues = new LinkedHashSet<>();
+
+    @ElementCollection
+    @CollectionTable(name = "card_subtypes", joinColumns = @JoinColumn(name = "card_id"),
+            indexes = @Index(name = "idx_card_subtypes_subtype", columnList = "subtype_name, card_id"))
+    @Column(name = "subtype_name", nullable = false)
+    private Set<String> subtypeValues = new LinkedHashSet<>();
+
     private Integer hp;
     private String imageSmall;
     private String imageLarge;
@@ -50,6 +76,9 @@ public class Card {
     private Double priceMarket;
     private String priceUpdatedAt;
 
+    // When prices were last fetched for this row, changed or not; drives the background refresh order
+    private LocalDateTime pricesCheckedAt;
+
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -71,9 +100,19 @@ public class Card {
     public String getRarity() { return rarity; }
     public void setRarity(String rarity) { this.rarity = rarity; }
     public String getTypes() { return types; }
-    public void setTypes(String types) { this.types = types; }
+    public void setTypes(String types) {
+        this.types = types;
+        replace(typeValues, types);
+    }
     public String getSubtypes() { return subtypes; }
-    public void setSubtypes(String subtypes) { this.subtypes = subtypes; }
+    public void setSubtypes(String subtypes) {
+        this.subtypes = subtypes;
+        replace(subtypeValues, subtypes);
+    }
+    @JsonIgnore
+    public Set<String> getTypeValues() { return Collections.unmodifiableSet(typeValues); }
+    @JsonIgnore
+    public Set<String> getSubtypeValues() { return Collections.unmodifiableSet(subtypeValues); }
     public String getCategory() { return category; }
     public void setCategory(String category) { this.category = category; }
     public Integer getHp() { return hp; }
@@ -100,8 +139,24 @@ public class Card {
     public void setPriceMarket(Double priceMarket) { this.priceMarket = priceMarket; }
     public String getPriceUpdatedAt() { return priceUpdatedAt; }
     public void setPriceUpdatedAt(String priceUpdatedAt) { this.priceUpdatedAt = priceUpdatedAt; }
+    @JsonIgnore
+    public LocalDateTime getPricesCheckedAt() { return pricesCheckedAt; }
+    public void setPricesCheckedAt(LocalDateTime pricesCheckedAt) { this.pricesCheckedAt = pricesCheckedAt; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
-}
\ No newline at end of file
+
+    /** Replace a normalized set with the values of a JSON string array; malformed input clears it. */
+    private static void replace(Set<String> values, String jsonArray) {
+        values.clear();
+        if (jsonArray == null || jsonArray.isBlank()) return;
+        try {
+            for (String value : JSON.readValue(jsonArray, new TypeReference<List<String>>() {})) {
+                if (value != null) values.add(value);
+            }
+        } catch (Exception e) {
+            // Leave it empty; the raw string is still stored
+        }
+    }
+}
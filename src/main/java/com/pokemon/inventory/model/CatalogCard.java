@@ -0,0 +1,57 @@
+package com.pokemon.inventory.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Local mirror of a TCGdex card. Filterable fields are copied into columns;
+ * {@code payload} holds the full card body as returned by {@code /cards/{id}}.
+ */
+@Entity
+@Table(name = "catalog_cards", indexes = {
+        @Index(name = "idx_catalog_card_set_id", columnList = "setId"),
+        @Index(name = "idx_catalog_card_name", columnList = "name"),
+        @Index(name = "idx_catalog_card_rarity", columnList = "rarity")
+})
+public class CatalogCard {
+
+    @Id
+    private String id;
+
+    private String localId;
+
+    @Column(nullable = false)
+    private String name;
+
+    private String setId;
+    private String setName;
+    private String rarity;
+    private String category;
+    private String types;
+
+    @Column(columnDefinition = "text")
+    private String payload;
+
+    private LocalDateTime syncedAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getLocalId() { return localId; }
+    public void setLocalId(String localId) { this.localId = localId; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public String getSetId() { return setId; }
+    public void setSetId(String setId) { this.setId = setId; }
+    public String getSetName() { return setName; }
+    public void setSetName(String setName) { this.setName = setName; }
+    public String getRarity() { return rarity; }
+    public void setRarity(String rarity) { this.rarity = rarity; }
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+    public String getTypes() { return types; }
+    public void setTypes(String types) { this.types = types; }
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+    public LocalDateTime getSyncedAt() { return syncedAt; }
+    public void setSyncedAt(LocalDateTime syncedAt) { this.syncedAt = syncedAt; }
+}
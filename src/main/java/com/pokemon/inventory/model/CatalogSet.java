@@ -0,0 +1,51 @@
+package com.pokemon.inventory.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Local mirror of a TCGdex set. {@code payload} holds the full set body as returned
+ * by {@code /sets/{id}}; {@code syncedAt} is null until the set's cards have been mirrored.
+ */
+@Entity
+@Table(name = "catalog_sets")
+public class CatalogSet {
+
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private String name;
+
+    private String logo;
+    private String symbol;
+    private Integer cardCountTotal;
+    private Integer cardCountOfficial;
+
+    // Position in the upstream set list, used to keep /sets in release order
+    private int position;
+
+    @Column(columnDefinition = "text")
+    private String payload;
+
+    private LocalDateTime syncedAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public String getLogo() { return logo; }
+    public void setLogo(String logo) { this.logo = logo; }
+    public String getSymbol() { return symbol; }
+    public void setSymbol(String symbol) { this.symbol = symbol; }
+    public Integer getCardCountTotal() { return cardCountTotal; }
+    public void setCardCountTotal(Integer cardCountTotal) { this.cardCountTotal = cardCountTotal; }
+    public Integer getCardCountOfficial() { return cardCountOfficial; }
+    public void setCardCountOfficial(Integer cardCountOfficial) { this.cardCountOfficial = cardCountOfficial; }
+    public int getPosition() { return position; }
+    public void setPosition(int position) { this.position = position; }
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+    public LocalDateTime getSyncedAt() { return syncedAt; }
+    public void setSyncedAt(LocalDateTime syncedAt) { this.syncedAt = syncedAt; }
+}
@@ -0,0 +1,44 @@
+package com.pokemon.inventory.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Precomputed stats for one user's collection, kept current by every card write.
+ * {@code breakdown} holds the by-set and by-rarity groups as JSON; {@code version}
+ * goes up by one on every change.
+ */
+@Entity
+@Table(name = "collection_stats")
+public class CollectionStats {
+
+    @Id
+    private Long userId;
+
+    private long uniqueCards;
+    private long totalCards;
+    private double totalValue;
+
+    @Column(columnDefinition = "text")
+    private String breakdown;
+
+    private long version;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public long getUniqueCards() { return uniqueCards; }
+    public void setUniqueCards(long uniqueCards) { this.uniqueCards = uniqueCards; }
+    public long getTotalCards() { return totalCards; }
+    public void setTotalCards(long totalCards) { this.totalCards = totalCards; }
+    public double getTotalValue() { return totalValue; }
+    public void setTotalValue(double totalValue) { this.totalValue = totalValue; }
+    public String getBreakdown() { return breakdown; }
+    public void setBreakdown(String breakdown) { this.breakdown = breakdown; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,54 @@
+package com.pokemon.inventory.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * A user's collection value and size on one day, copied from {@link CollectionStats} by
+ * every rollup, so the day's row ends up holding its last value. Rows older than
+ * {@code prices.history.daily-retention} are thinned to the last one of each month.
+ */
+@Entity
+@Table(name = "collection_value_daily",
+        indexes = @Index(name = "idx_collection_value_daily_date", columnList = "valueDate"))
+@IdClass(CollectionValueDaily.Key.class)
+public class CollectionValueDaily {
+
+    public static class Key implements Serializable {
+        private Long userId;
+        private LocalDate valueDate;
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Objects.equals(userId, k.userId) && Objects.equals(valueDate, k.valueDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, valueDate);
+        }
+    }
+
+    @Id
+    private Long userId;
+
+    @Id
+    private LocalDate valueDate;
+
+    private double totalValue;
+    private long totalCards;
+    private long uniqueCards;
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public LocalDate getValueDate() { return valueDate; }
+    public void setValueDate(LocalDate valueDate) { this.valueDate = valueDate; }
+    public double getTotalValue() { return totalValue; }
+    public void setTotalValue(double totalValue) { this.totalValue = totalValue; }
+    public long getTotalCards() { return totalCards; }
+    public void setTotalCards(long totalCards) { this.totalCards = totalCards; }
+    public long getUniqueCards() { return uniqueCards; }
+    public void setUniqueCards(long uniqueCards) { this.uniqueCards = uniqueCards; }
+}
@@ -0,0 +1,84 @@
+package com.pokemon.inventory.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A long-running background operation (e.g. a collection price refresh) and its progress.
+ */
+@Entity
+@Table(name = "jobs", indexes = {
+        @Index(name = "idx_job_user_type_status", columnList = "userId, type, status"),
+        @Index(name = "idx_job_status", columnList = "status")
+})
+public class Job {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+    public static final String CANCELLED = "CANCELLED";
+
+    /** Longest message stored; longer ones (e.g. exception text with SQL) are cut. */
+    public static final int MESSAGE_LENGTH = 255;
+
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String type;
+
+    @Column(nullable = false)
+    private String status = QUEUED;
+
+    private int processed;
+    private int total;
+    private int errors;
+    private boolean cancelRequested;
+
+    @Column(length = MESSAGE_LENGTH)
+    private String message;
+
+    @Column(columnDefinition = "text")
+    private String result;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public boolean isActive() {
+        return QUEUED.equals(status) || RUNNING.equals(status);
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public int getProcessed() { return processed; }
+    public void setProcessed(int processed) { this.processed = processed; }
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+    public int getErrors() { return errors; }
+    public void setErrors(int errors) { this.errors = errors; }
+    public boolean isCancelRequested() { return cancelRequested; }
+    public void setCancelRequested(boolean cancelRequested) { this.cancelRequested = cancelRequested; }
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+    public String getResult() { return result; }
+    public void setResult(String result) { this.result = result; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+}
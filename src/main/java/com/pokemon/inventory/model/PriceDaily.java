@@ -0,0 +1,66 @@
+package com.pokemon.inventory.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * A card's prices for one day, rolled up from {@link PriceSnapshot}: the last price seen
+ * that day, plus the range and number of mid prices seen. There is only a row for days
+ * the price changed; it holds until the next row. Rows older than
+ * {@code prices.history.daily-retention} are thinned to the last one of each month.
+ */
+@Entity
+@Table(name = "price_daily", indexes = @Index(name = "idx_price_daily_date", columnList = "priceDate"))
+@IdClass(PriceDaily.Key.class)
+public class PriceDaily {
+
+    public static class Key implements Serializable {
+        private String cardId;
+        private LocalDate priceDate;
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Objects.equals(cardId, k.cardId) && Objects.equals(priceDate, k.priceDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(cardId, priceDate);
+        }
+    }
+
+    @Id
+    private String cardId;
+
+    @Id
+    private LocalDate priceDate;
+
+    private Double priceLow;
+    private Double priceMid;
+    private Double priceHigh;
+    private Double priceMarket;
+    private Double midMin;
+    private Double midMax;
+    private int samples;
+
+    public String getCardId() { return cardId; }
+    public void setCardId(String cardId) { this.cardId = cardId; }
+    public LocalDate getPriceDate() { return priceDate; }
+    public void setPriceDate(LocalDate priceDate) { this.priceDate = priceDate; }
+    public Double getPriceLow() { return priceLow; }
+    public void setPriceLow(Double priceLow) { this.priceLow = priceLow; }
+    public Double getPriceMid() { return priceMid; }
+    public void setPriceMid(Double priceMid) { this.priceMid = priceMid; }
+    public Double getPriceHigh() { return priceHigh; }
+    public void setPriceHigh(Double priceHigh) { this.priceHigh = priceHigh; }
+    public Double getPriceMarket() { return priceMarket; }
+    public void setPriceMarket(Double priceMarket) { this.priceMarket = priceMarket; }
+    public Double getMidMin() { return midMin; }
+    public void setMidMin(Double midMin) { this.midMin = midMin; }
+    public Double getMidMax() { return midMax; }
+    public void setMidMax(Double midMax) { this.midMax = midMax; }
+    public int getSamples() { return samples; }
+    public void setSamples(int samples) { this.samples = samples; }
+}
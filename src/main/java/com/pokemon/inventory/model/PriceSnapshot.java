@@ -0,0 +1,59 @@
+package com.pokemon.inventory.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * One observed TCGPlayer price for a card, appended whenever a refresh writes a changed
+ * price and never updated. Only the last {@code prices.history.raw-retention} is kept:
+ * daily rollups ({@link PriceDaily}) are what gets read. On PostgreSQL the table is
+ * range-partitioned by month on {@code capturedAt}, so old months are dropped whole
+ * (see PriceHistoryStore).
+ */
+@Entity
+@Table(name = "price_snapshots",
+        indexes = @Index(name = "idx_price_snapshots_captured", columnList = "capturedAt"))
+@IdClass(PriceSnapshot.Key.class)
+public class PriceSnapshot {
+
+    public static class Key implements Serializable {
+        private String cardId;
+        private LocalDateTime capturedAt;
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Objects.equals(cardId, k.cardId) && Objects.equals(capturedAt, k.capturedAt);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(cardId, capturedAt);
+        }
+    }
+
+    @Id
+    private String cardId;
+
+    @Id
+    private LocalDateTime capturedAt;
+
+    private Double priceLow;
+    private Double priceMid;
+    private Double priceHigh;
+    private Double priceMarket;
+
+    public String getCardId() { return cardId; }
+    public void setCardId(String cardId) { this.cardId = cardId; }
+    public LocalDateTime getCapturedAt() { return capturedAt; }
+    public void setCapturedAt(LocalDateTime capturedAt) { this.capturedAt = capturedAt; }
+    public Double getPriceLow() { return priceLow; }
+    public void setPriceLow(Double priceLow) { this.priceLow = priceLow; }
+    public Double getPriceMid() { return priceMid; }
+    public void setPriceMid(Double priceMid) { this.priceMid = priceMid; }
+    public Double getPriceHigh() { return priceHigh; }
+    public void setPriceHigh(Double priceHigh) { this.priceHigh = priceHigh; }
+    public Double getPriceMarket() { return priceMarket; }
+    public void setPriceMarket(Double priceMarket) { this.priceMarket = priceMarket; }
+}
@@ -0,0 +1,232 @@
+package com.pokemon.inventory.repository;
+
+import com.pokemon.inventory.model.Card;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * JDBC writes for adding cards to collections. Hibernate cannot batch inserts into an
+ * IDENTITY table (it needs every generated id as soon as the entity is persisted), and
+ * has no "insert or add to the quantity" statement.
+ */
+@Repository
+public class CardBatchWriter {
+
+    private static final String COLUMNS = "card_id, name, set_id, set_name, series, rarity, types, subtypes, "
+            + "category, hp, image_small, image_large, quantity, condition, notes, user_id, price_low, price_mid, "
+            + "price_high, price_market, price_updated_at, created_at, updated_at";
+    private static final int COLUMN_COUNT = 23;
+    private static final String ROW = "(" + String.join(", ", Collections.nCopies(COLUMN_COUNT, "?")) + ")";
+    private static final String INSERT_CARD = "INSERT INTO cards (" + COLUMNS + ") VALUES " + ROW;
+    private static final String INSERT_TYPE = "INSERT INTO card_types (card_id, type_name) VALUES (?, ?)";
+    private static final String INSERT_SUBTYPE = "INSERT INTO card_subtypes (card_id, subtype_name) VALUES (?, ?)";
+
+    // xmax is 0 on a row version this statement inserted, and set on one it updated
+    static final String ON_CONFLICT = " ON CONFLICT (user_id, card_id, condition) DO UPDATE"
+            + " SET quantity = cards.quantity + EXCLUDED.quantity, updated_at = EXCLUDED.updated_at"
+            + " RETURNING id, card_id, condition, quantity, set_id, set_name, rarity, price_mid, (xmax = 0) AS inserted";
+
+    private static final String STORED = "SELECT id, card_id, condition, quantity, set_id, set_name, rarity, price_mid "
+            + "FROM cards WHERE user_id = ? AND card_id = ? AND condition = ? FOR UPDATE";
+    private static final String ADD_QUANTITY = "UPDATE cards SET quantity = quantity + ?, updated_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbc;
+    private volatile Boolean postgres;
+
+    public CardBatchWriter(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** {@link #upsertAll} for one card. */
+    public CardUpsert upsert(Card card) {
+        return upsertAll(List.of(card)).get(0);
+    }
+
+    /**
+     * Add the cards to their owners' collections. A card whose (userId, cardId, condition)
+     * already has a row is merged into it with an atomic {@code quantity = quantity + n};
+     * the rest are inserted, with their type rows. Safe against concurrent adds of the same
+     * card (the unique index decides). The cards must have distinct keys. Afterwards each
+     * card carries the stored row's id and quantity, and a merged card also the stored
+     * set, rarity and price. Joins the caller's transaction.
+     */
+    public List<CardUpsert> upsertAll(List<Card> cards) {
+        if (cards.isEmpty()) return List.of();
+        int[] added = cards.stream().mapToInt(Card::getQuantity).toArray();
+        boolean[] inserted = isPostgres() ? upsertReturning(cards) : upsertEach(cards);
+
+        List<Card> created = new ArrayList<>();
+        List<CardUpsert> result = new ArrayList<>(cards.size());
+        for (int i = 0; i < cards.size(); i++) {
+            if (inserted[i]) created.add(cards.get(i));
+            result.add(new CardUpsert(cards.get(i), added[i], inserted[i]));
+        }
+        insertTypeRows(created);
+        return result;
+    }
+
+    // ── PostgreSQL: one INSERT ... ON CONFLICT for the whole list ──
+
+    private boolean[] upsertReturning(List<Card> cards) {
+        Map<String, Integer> positions = new HashMap<>();
+        StringBuilder sql = new StringBuilder("INSERT INTO cards (" + COLUMNS + ") VALUES ");
+        for (int i = 0; i < cards.size(); i++) {
+            if (positions.put(key(cards.get(i).getCardId(), cards.get(i).getCondition()), i) != null) {
+                throw new IllegalArgumentException("Duplicate card in one upsert: " + cards.get(i).getCardId());
+            }
+            sql.append(i == 0 ? "" : ", ").append(ROW);
+        }
+        sql.append(ON_CONFLICT);
+
+        boolean[] inserted = new boolean[cards.size()];
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString());
+            for (int i = 0; i < cards.size(); i++) bind(ps, i * COLUMN_COUNT, cards.get(i));
+            return ps;
+        }, (ResultSet rs) -> {
+            // RETURNING order is not guaranteed, so match rows back by key
+            int i = positions.get(key(rs.getString("card_id"), rs.getString("condition")));
+            inserted[i] = rs.getBoolean("inserted");
+            applyStored(rs, cards.get(i), inserted[i]);
+        });
+        return inserted;
+    }
+
+    // ── Elsewhere: lock the existing row and add to it, or insert ──
+
+    private boolean[] upsertEach(List<Card> cards) {
+        boolean[] inserted = new boolean[cards.size()];
+        for (int i = 0; i < cards.size(); i++) {
+            inserted[i] = upsertOne(cards.get(i));
+        }
+        return inserted;
+    }
+
+    private boolean upsertOne(Card card) {
+        for (int attempt = 0; ; attempt++) {
+            if (addToStored(card)) return false;
+            try {
+                insert(List.of(card));
+                return true;
+            } catch (DuplicateKeyException e) {
+                // Inserted by a concurrent add since the lookup; add to that row instead
+                if (attempt > 0) throw e;
+            }
+        }
+    }
+
+    private boolean addToStored(Card card) {
+        int added = card.getQuantity();
+        Boolean found = jdbc.query(STORED, rs -> {
+            if (!rs.next()) return false;
+            applyStored(rs, card, false);
+            return true;
+        }, card.getUserId(), card.getCardId(), card.getCondition());
+        if (!Boolean.TRUE.equals(found)) return false;
+        // The row is locked until commit, so the quantity read plus added is what gets stored
+        jdbc.update(ADD_QUANTITY, added, Timestamp.valueOf(card.getUpdatedAt()), card.getId());
+        card.setQuantity(card.getQuantity() + added);
+        return true;
+    }
+
+    // ── Plain inserts ─────────────────────────────────────
+
+    private void insert(List<Card> cards) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.batchUpdate(con -> con.prepareStatement(INSERT_CARD, new String[]{"id"}), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                bind(ps, 0, cards.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return cards.size();
+            }
+        }, keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() != cards.size()) {
+            throw new IllegalStateException("Expected " + cards.size() + " generated ids, got " + generated.size());
+        }
+        for (int i = 0; i < cards.size(); i++) {
+            // The key column is "id" on PostgreSQL and "ID" on H2
+            cards.get(i).setId(((Number) generated.get(i).values().iterator().next()).longValue());
+        }
+    }
+
+    private void insertTypeRows(List<Card> cards) {
+        List<Object[]> types = new ArrayList<>();
+        List<Object[]> subtypes = new ArrayList<>();
+        for (Card card : cards) {
+            for (String type : card.getTypeValues()) types.add(new Object[]{card.getId(), type});
+            for (String subtype : card.getSubtypeValues()) subtypes.add(new Object[]{card.getId(), subtype});
+        }
+        if (!types.isEmpty()) jdbc.batchUpdate(INSERT_TYPE, types);
+        if (!subtypes.isEmpty()) jdbc.batchUpdate(INSERT_SUBTYPE, subtypes);
+    }
+
+    // ── Helpers ───────────────────────────────────────────
+
+    /** Copy the stored row's id and quantity (and, for a merge, its stats fields) onto the card. */
+    private static void applyStored(ResultSet rs, Card card, boolean inserted) throws SQLException {
+        card.setId(rs.getLong("id"));
+        card.setQuantity(rs.getInt("quantity"));
+        if (!inserted) {
+            card.setSetId(rs.getString("set_id"));
+            card.setSetName(rs.getString("set_name"));
+            card.setRarity(rs.getString("rarity"));
+            card.setPriceMid(rs.getObject("price_mid") == null ? null : rs.getDouble("price_mid"));
+        }
+    }
+
+    private static void bind(PreparedStatement ps, int offset, Card card) throws SQLException {
+        ps.setString(offset + 1, card.getCardId());
+        ps.setString(offset + 2, card.getName());
+        ps.setString(offset + 3, card.getSetId());
+        ps.setString(offset + 4, card.getSetName());
+        ps.setString(offset + 5, card.getSeries());
+        ps.setString(offset + 6, card.getRarity());
+        ps.setString(offset + 7, card.getTypes());
+        ps.setString(offset + 8, card.getSubtypes());
+        ps.setString(offset + 9, card.getCategory());
+        ps.setObject(offset + 10, card.getHp(), Types.INTEGER);
+        ps.setString(offset + 11, card.getImageSmall());
+        ps.setString(offset + 12, card.getImageLarge());
+        ps.setInt(offset + 13, card.getQuantity());
+        ps.setString(offset + 14, card.getCondition());
+        ps.setString(offset + 15, card.getNotes());
+        ps.setObject(offset + 16, card.getUserId(), Types.BIGINT);
+        ps.setObject(offset + 17, card.getPriceLow(), Types.DOUBLE);
+        ps.setObject(offset + 18, card.getPriceMid(), Types.DOUBLE);
+        ps.setObject(offset + 19, card.getPriceHigh(), Types.DOUBLE);
+        ps.setObject(offset + 20, card.getPriceMarket(), Types.DOUBLE);
+        ps.setString(offset + 21, card.getPriceUpdatedAt());
+        ps.setTimestamp(offset + 22, Timestamp.valueOf(card.getCreatedAt()));
+        ps.setTimestamp(offset + 23, Timestamp.valueOf(card.getUpdatedAt()));
+    }
+
+    private static String key(String cardId, String condition) {
+        return cardId + '\u0000' + condition;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbc.execute((ConnectionCallback<Boolean>) con ->
+                    "PostgreSQL".equals(con.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+}
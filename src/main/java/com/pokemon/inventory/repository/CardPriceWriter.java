@@ -0,0 +1,77 @@
+package com.pokemon.inventory.repository;
+
+import com.pokemon.inventory.dto.TcgdexPrice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Set-based JDBC price writes for the background refresh: one UPDATE per cardId covers
+ * every row that owns it, whoever the owner, instead of loading and saving each row.
+ */
+@Repository
+public class CardPriceWriter {
+
+    private static final String LOCK_OWNED = "SELECT user_id, card_id, quantity, price_low, price_mid, price_high, "
+            + "price_market FROM cards WHERE user_id IS NOT NULL AND card_id IN (%s) ORDER BY id FOR UPDATE";
+    // price_updated_at keeps its value when TCGdex gives none, as TcgdexCardMapper.mapPricing does
+    private static final String SET_PRICES = "UPDATE cards SET price_low = ?, price_mid = ?, price_high = ?, "
+            + "price_market = ?, price_updated_at = COALESCE(?, price_updated_at), prices_checked_at = ?, updated_at = ? "
+            + "WHERE card_id = ? AND user_id IS NOT NULL";
+    private static final String MARK_CHECKED = "UPDATE cards SET prices_checked_at = ? "
+            + "WHERE card_id = ? AND user_id IS NOT NULL";
+
+    /** One owned row's current prices. */
+    public record OwnedPrices(long userId, String cardId, int quantity,
+                              Double low, Double mid, Double high, Double market) {
+
+        public boolean differsFrom(TcgdexPrice price) {
+            return !price.sameAs(low, mid, high, market);
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+
+    public CardPriceWriter(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Every owned row of these cardIds, locked until commit (in id order, so concurrent
+     * lockers cannot deadlock). Must run in a transaction.
+     */
+    public List<OwnedPrices> lockOwned(Collection<String> cardIds) {
+        if (cardIds.isEmpty()) return List.of();
+        String sql = String.format(LOCK_OWNED, String.join(", ", Collections.nCopies(cardIds.size(), "?")));
+        return jdbc.query(sql, (ResultSet rs, int n) -> new OwnedPrices(rs.getLong("user_id"), rs.getString("card_id"),
+                rs.getInt("quantity"), nullableDouble(rs, "price_low"), nullableDouble(rs, "price_mid"),
+                nullableDouble(rs, "price_high"), nullableDouble(rs, "price_market")), cardIds.toArray());
+    }
+
+    /** Write new prices to every owned row of each cardId, as one JDBC batch. */
+    public void setPrices(Map<String, TcgdexPrice> pricesByCardId, LocalDateTime now) {
+        if (pricesByCardId.isEmpty()) return;
+        Timestamp at = Timestamp.valueOf(now);
+        List<Object[]> args = new ArrayList<>(pricesByCardId.size());
+        pricesByCardId.forEach((cardId, price) -> args.add(new Object[]{
+                price.low(), price.mid(), price.high(), price.market(), price.updated(), at, at, cardId}));
+        jdbc.batchUpdate(SET_PRICES, args);
+    }
+
+    /** Record that these cardIds were checked, leaving their prices and updated_at alone. */
+    public void markChecked(Collection<String> cardIds, LocalDateTime now) {
+        if (cardIds.isEmpty()) return;
+        Timestamp at = Timestamp.valueOf(now);
+        jdbc.batchUpdate(MARK_CHECKED, cardIds.stream().map(id -> new Object[]{at, id}).toList());
+    }
+
+    private static Double nullableDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+}
@@ -1,22 +1,74 @@
 package com.pokemon.inventory.repository;
 
 import com.pokemon.inventory.model.Card;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CardRepository extends JpaRepository<Card, Long> {
+public interface CardRepository extends JpaRepository<Card, Long>, CardRepositoryCustom {
 
     List<Card> findByUserIdAndCardId(Long userId, String cardId);
     List<Card> findByUserId(Long userId);
     Optional<Card> findByIdAndUserId(Long id, Long userId);
 
+    /** The user's row by id, locked until the transaction ends. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id = :id AND c.userId = :userId")
+    Optional<Card> findByIdAndUserIdForUpdate(@Param("id") Long id, @Param("userId") Long userId);
+
+    /** The user's row for a card in one condition, locked until the transaction ends. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.userId = :userId AND c.cardId = :cardId AND c.condition = :condition")
+    Optional<Card> findForUpdate(@Param("userId") Long userId, @Param("cardId") String cardId,
+                                 @Param("condition") String condition);
+
+    /** Rows by id, locked until the transaction ends; in id order, so concurrent lockers cannot deadlock. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id IN :ids ORDER BY c.id")
+    List<Card> findAllForUpdate(@Param("ids") Collection<Long> ids);
+
     List<Card> findByUserIdIsNull();
 
+    /**
+     * Cards whose JSON types or subtypes have no normalized rows yet (stored before the
+     * card_types/card_subtypes tables existed), in id order after {@code after}.
+     */
+    @Query("SELECT c FROM Card c WHERE c.id > :after AND ("
+            + "(c.types IS NOT NULL AND c.types <> '[]' AND c.typeValues IS EMPTY) OR "
+            + "(c.subtypes IS NOT NULL AND c.subtypes <> '[]' AND c.subtypeValues IS EMPTY)) ORDER BY c.id")
+    List<Card> findNeedingTypeBackfill(@Param("after") long after, Pageable page);
+
+    /** (userId, cardId, condition) keys held by more than one row, from before adds merged quantities. */
+    @Query("SELECT c.userId, c.cardId, c.condition FROM Card c WHERE c.userId IS NOT NULL "
+            + "GROUP BY c.userId, c.cardId, c.condition HAVING COUNT(c) > 1")
+    List<Object[]> findDuplicateKeys();
+
+    @Query("SELECT c.id, c.cardId FROM Card c WHERE c.userId = :userId")
+    List<Object[]> findIdAndCardIdByUserId(@Param("userId") Long userId);
+
+    /**
+     * Distinct owned cardIds whose prices were not checked since {@code checkedBefore}:
+     * never-checked first, then the longest unchecked. The number of owned rows only
+     * breaks ties between equally stale cardIds; it never puts a popular card ahead of
+     * a staler one.
+     */
+    @Query("SELECT c.cardId FROM Card c WHERE c.userId IS NOT NULL GROUP BY c.cardId "
+            + "HAVING MIN(c.pricesCheckedAt) IS NULL OR MIN(c.pricesCheckedAt) < :checkedBefore "
+            + "ORDER BY MIN(c.pricesCheckedAt) ASC NULLS FIRST, COUNT(c) DESC, c.cardId")
+    List<String> findCardIdsDueForPriceCheck(@Param("checkedBefore") LocalDateTime checkedBefore, Pageable page);
+
+    @Query("SELECT DISTINCT c.userId FROM Card c WHERE c.userId IS NOT NULL")
+    List<Long> findDistinctUserIds();
+
     @Query("SELECT COALESCE(SUM(c.quantity), 0) FROM Card c WHERE c.userId = :userId")
     int getTotalCards(@Param("userId") Long userId);
 
@@ -0,0 +1,68 @@
+package com.pokemon.inventory.repository;
+
+import com.pokemon.inventory.dto.CollectionPage;
+import com.pokemon.inventory.dto.CollectionSearchHit;
+import com.pokemon.inventory.dto.StatsRollup;
+import com.pokemon.inventory.model.Card;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface CardRepositoryCustom {
+
+    /**
+     * Filter and sort a user's cards in the database.
+     *
+     * With a {@code limit}, returns at most that many cards plus an opaque cursor for the
+     * next page (null on the last page) and the total number of matching cards. Without a
+     * limit, returns every matching card and {@code total} is the list size.
+     *
+     * {@code after} (nullable) must have been issued for the same sort and order.
+     */
+    CollectionPage findCollection(Long userId, CollectionFilter filter, CollectionSort sort, boolean ascending,
+                                  Integer limit, CollectionCursor after);
+
+    /**
+     * Every matching card in sort order, read through a database cursor. Cards are
+     * detached as they are read so the persistence context stays small. Must be called
+     * inside a transaction, and the stream must be closed.
+     */
+    Stream<Card> streamCollection(Long userId, CollectionFilter filter, CollectionSort sort, boolean ascending);
+
+    /**
+     * Totals plus by-set and by-rarity breakdowns in one round trip: GROUPING SETS on
+     * PostgreSQL, an equivalent UNION ALL elsewhere (H2 in tests).
+     */
+    StatsRollup computeStats(Long userId);
+
+    /**
+     * The user's cards best matching {@code q} across name, set name, series and notes,
+     * best first. Tolerates typos and partial words ("charzard", "pika"). Uses pg_trgm
+     * on PostgreSQL and an equivalent in-memory trigram score elsewhere.
+     */
+    List<CollectionSearchHit> searchCollection(Long userId, String q, int limit);
+
+    /**
+     * Distinct card names in the user's collection starting with {@code prefix}
+     * (case-insensitive), most-owned first.
+     */
+    List<String> suggestNames(Long userId, String prefix, int limit);
+
+    /**
+     * Create the pg_trgm extension and search indexes if missing. Returns whether
+     * trigram search is available (always false off PostgreSQL). Needs a transaction.
+     */
+    boolean ensureSearchIndexes();
+
+    /**
+     * The stored card, re-read even when this persistence context already holds an older
+     * copy (e.g. after {@link CardBatchWriter} merged into the row). Null if missing.
+     */
+    Card reload(Long id);
+
+    /**
+     * Create the unique (user_id, card_id, condition) index if missing. Fails while
+     * duplicate rows remain. Needs a transaction.
+     */
+    void ensureCardKeyIndex();
+}
@@ -0,0 +1,373 @@
+package com.pokemon.inventory.repository;
+
+import com.pokemon.inventory.dto.CollectionPage;
+import com.pokemon.inventory.dto.CollectionSearchHit;
+import com.pokemon.inventory.dto.StatsRollup;
+import com.pokemon.inventory.model.Card;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Criteria-based collection query: filters and sort keys are translated to SQL, and
+ * pages are keyset-paginated on (sort key, id) so deep pages cost the same as the first.
+ * Also hosts the single-statement stats query and the ranked collection search, both
+ * native SQL on PostgreSQL with a portable fallback.
+ */
+public class CardRepositoryCustomImpl implements CardRepositoryCustom {
+
+    // Row kinds in the stats query: grand total, one set group, one rarity group
+    private static final int TOTALS = 0;
+    private static final int SET = 1;
+    private static final int RARITY = 2;
+
+    static final String STATS_GROUPING_SETS =
+            "SELECT CASE WHEN GROUPING(c.set_id) = 0 THEN 1 WHEN GROUPING(c.rarity) = 0 THEN 2 ELSE 0 END, " +
+            "c.set_name, c.set_id, c.rarity, COUNT(*), COALESCE(SUM(c.quantity), 0), " +
+            "COALESCE(SUM(c.price_mid * c.quantity), 0), COUNT(DISTINCT c.set_id) " +
+            "FROM cards c WHERE c.user_id = :userId " +
+            "GROUP BY GROUPING SETS ((), (c.set_id, c.set_name), (c.rarity))";
+
+    static final String STATS_UNION =
+            "SELECT 0, CAST(NULL AS VARCHAR(255)), CAST(NULL AS VARCHAR(255)), CAST(NULL AS VARCHAR(255)), " +
+            "COUNT(*), COALESCE(SUM(c.quantity), 0), COALESCE(SUM(c.price_mid * c.quantity), 0), COUNT(DISTINCT c.set_id) " +
+            "FROM cards c WHERE c.user_id = :userId " +
+            "UNION ALL SELECT 1, c.set_name, c.set_id, NULL, COUNT(*), SUM(c.quantity), NULL, NULL " +
+            "FROM cards c WHERE c.user_id = :userId GROUP BY c.set_id, c.set_name " +
+            "UNION ALL SELECT 2, NULL, NULL, c.rarity, COUNT(*), SUM(c.quantity), NULL, NULL " +
+            "FROM cards c WHERE c.user_id = :userId AND c.rarity IS NOT NULL GROUP BY c.rarity";
+
+    // Rows per round trip when streaming; PostgreSQL only uses a cursor when this is set
+    private static final int STREAM_FETCH_SIZE = 200;
+
+    // Text searched by the collection search. The search query must use this exact
+    // expression for PostgreSQL to use the trigram index built on it.
+    static final String SEARCH_DOCUMENT =
+            "lower(coalesce(c.name, '') || ' ' || coalesce(c.set_name, '') || ' ' || " +
+            "coalesce(c.series, '') || ' ' || coalesce(c.notes, ''))";
+
+    static final List<String> SEARCH_INDEXES = List.of(
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE INDEX IF NOT EXISTS idx_cards_search_trgm ON cards USING gin ((" +
+                    SEARCH_DOCUMENT.replace("c.", "") + ") gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_cards_user_name_prefix ON cards (user_id, lower(name) text_pattern_ops)");
+
+    // Backs the unique @Index on Card, which schema update adds as a constraint and cannot add while duplicates remain
+    static final String CARD_KEY_INDEX =
+            "CREATE UNIQUE INDEX IF NOT EXISTS uk_cards_user_card_condition ON cards (user_id, card_id, condition)";
+
+    // pg_trgm word_similarity_threshold default, used by the <% operator; the fallback uses the same cut-off
+    private static final double MATCH_THRESHOLD = 0.6;
+    // A match in the name outranks the same match in set, series or notes
+    private static final double OTHER_FIELD_WEIGHT = 0.8;
+
+    static final String SEARCH_TRIGRAM =
+            "SELECT c.id, GREATEST(word_similarity(:q, lower(c.name)), " + OTHER_FIELD_WEIGHT +
+            " * word_similarity(:q, " + SEARCH_DOCUMENT + ")) AS score " +
+            "FROM cards c WHERE c.user_id = :userId AND :q <% " + SEARCH_DOCUMENT + " " +
+            "ORDER BY score DESC, c.id LIMIT :limit";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private volatile Boolean postgres;
+    private volatile Boolean trigramSearch;
+
+    /**
+     * One ORDER BY term, together with the value the cursor holds for it.
+     * {@code nullTarget} is set for the value term of a nullable column, where a null
+     * cursor value means "the cursor row had no value".
+     */
+    private record SortKey(Expression<?> expr, boolean ascending, Object cursorValue, Expression<?> nullTarget) {}
+
+    @Override
+    public CollectionPage findCollection(Long userId, CollectionFilter filter, CollectionSort sort, boolean ascending,
+                                         Integer limit, CollectionCursor after) {
+        TypedQuery<Card> query = collectionQuery(userId, filter, sort, ascending, after);
+        if (limit == null) {
+            List<Card> cards = query.getResultList();
+            return new CollectionPage(cards, cards.size(), null);
+        }
+
+        // Fetch one extra row to find out whether there is a next page
+        List<Card> cards = query.setMaxResults(limit + 1).getResultList();
+        String next = null;
+        if (cards.size() > limit) {
+            cards = new ArrayList<>(cards.subList(0, limit));
+            next = CollectionCursor.after(sort, ascending, cards.get(limit - 1)).encode();
+        }
+        return new CollectionPage(cards, count(userId, filter), next);
+    }
+
+    @Override
+    public Stream<Card> streamCollection(Long userId, CollectionFilter filter, CollectionSort sort, boolean ascending) {
+        return collectionQuery(userId, filter, sort, ascending, null)
+                .setHint("org.hibernate.fetchSize", STREAM_FETCH_SIZE)
+                .setHint("org.hibernate.readOnly", true)
+                .getResultStream()
+                .peek(em::detach);
+    }
+
+    private TypedQuery<Card> collectionQuery(Long userId, CollectionFilter filter, CollectionSort sort,
+                                             boolean ascending, CollectionCursor after) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Card> cq = cb.createQuery(Card.class);
+        Root<Card> root = cq.from(Card.class);
+
+        List<Predicate> where = filters(cb, cq, root, userId, filter);
+        List<SortKey> keys = sortKeys(cb, root, sort, ascending, after);
+        if (after != null) where.add(after(cb, keys));
+
+        cq.select(root).where(where.toArray(new Predicate[0]));
+        List<Order> orders = new ArrayList<>();
+        for (SortKey key : keys) {
+            orders.add(key.ascending() ? cb.asc(key.expr()) : cb.desc(key.expr()));
+        }
+        cq.orderBy(orders);
+        return em.createQuery(cq);
+    }
+
+    private long count(Long userId, CollectionFilter filter) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<Card> root = cq.from(Card.class);
+        cq.select(cb.count(root)).where(filters(cb, cq, root, userId, filter).toArray(new Predicate[0]));
+        return em.createQuery(cq).getSingleResult();
+    }
+
+    private List<Predicate> filters(CriteriaBuilder cb, AbstractQuery<?> query, Root<Card> root,
+                                    Long userId, CollectionFilter filter) {
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.equal(root.get("userId"), userId));
+        if (filter.set() != null) where.add(cb.equal(root.get("setId"), filter.set()));
+        if (filter.rarity() != null) where.add(cb.equal(root.get("rarity"), filter.rarity()));
+        if (filter.category() != null) where.add(cb.equal(root.get("category"), filter.category()));
+        if (filter.type() != null) {
+            // Exact match against the normalized card_types rows (indexed on type_name)
+            Subquery<Integer> typed = query.subquery(Integer.class);
+            Join<Card, String> type = typed.correlate(root).join("typeValues");
+            typed.select(cb.literal(1)).where(cb.equal(type, filter.type()));
+            where.add(cb.exists(typed));
+        }
+        if (filter.q() != null) {
+            where.add(cb.like(cb.lower(root.get("name")), "%" + escapeLike(filter.q().toLowerCase()) + "%", '\\'));
+        }
+        return where;
+    }
+
+    // ── Sorting and keyset pagination ─────────────────────
+
+    private List<SortKey> sortKeys(CriteriaBuilder cb, Root<Card> root, CollectionSort sort, boolean ascending, CollectionCursor after) {
+        Path<Object> column = root.get(sort.attribute());
+        Object value = after != null ? after.value() : null;
+        List<SortKey> keys = new ArrayList<>();
+
+        if (sort.nullable()) {
+            // Nulls last when ascending, first when descending (same as the in-memory comparator)
+            Expression<Integer> isNull = cb.<Integer>selectCase().when(cb.isNull(column), 1).otherwise(0);
+            keys.add(new SortKey(isNull, ascending, value == null ? 1 : 0, null));
+        }
+        if (sort.text()) {
+            Expression<String> lowered = cb.lower(root.get(sort.attribute()));
+            Object cursorValue = value != null ? cb.lower(cb.literal((String) value)) : null;
+            keys.add(new SortKey(lowered, ascending, cursorValue, sort.nullable() ? column : null));
+        } else {
+            keys.add(new SortKey(column, ascending, value, sort.nullable() ? column : null));
+        }
+        // Tie-break on id so every row has a unique position
+        keys.add(new SortKey(root.get("id"), true, after != null ? after.id() : null, null));
+        return keys;
+    }
+
+    /**
+     * Rows strictly after the cursor: (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ...
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate after(CriteriaBuilder cb, List<SortKey> keys) {
+        List<Predicate> terms = new ArrayList<>();
+        List<Predicate> equalSoFar = new ArrayList<>();
+        for (SortKey key : keys) {
+            Expression expr = key.expr();
+            Object value = key.cursorValue();
+
+            // Within the null group every row ties on this key, so only later keys can advance
+            if (value != null) {
+                Predicate strict;
+                if (value instanceof Expression<?> valueExpr) {
+                    strict = key.ascending() ? cb.greaterThan(expr, (Expression) valueExpr) : cb.lessThan(expr, (Expression) valueExpr);
+                } else {
+                    strict = key.ascending() ? cb.greaterThan(expr, (Comparable) value) : cb.lessThan(expr, (Comparable) value);
+                }
+                List<Predicate> term = new ArrayList<>(equalSoFar);
+                term.add(strict);
+                terms.add(cb.and(term.toArray(new Predicate[0])));
+            }
+
+            if (value == null) {
+                equalSoFar.add(cb.isNull(key.nullTarget() != null ? key.nullTarget() : expr));
+            } else if (value instanceof Expression<?> valueExpr) {
+                equalSoFar.add(cb.equal(expr, valueExpr));
+            } else {
+                equalSoFar.add(cb.equal(expr, value));
+            }
+        }
+        return cb.or(terms.toArray(new Predicate[0]));
+    }
+
+    // ── Stats ─────────────────────────────────────────────
+
+    @Override
+    public StatsRollup computeStats(Long userId) {
+        return computeStats(userId, isPostgres());
+    }
+
+    @SuppressWarnings("unchecked")
+    private StatsRollup computeStats(Long userId, boolean useGroupingSets) {
+        List<Object[]> rows = em.createNativeQuery(useGroupingSets ? STATS_GROUPING_SETS : STATS_UNION)
+                .setParameter("userId", userId)
+                .getResultList();
+
+        long unique = 0, total = 0, sets = 0;
+        double value = 0;
+        List<Object[]> bySet = new ArrayList<>();
+        List<Object[]> byRarity = new ArrayList<>();
+        for (Object[] row : rows) {
+            long cards = ((Number) row[4]).longValue();
+            long quantity = ((Number) row[5]).longValue();
+            switch (((Number) row[0]).intValue()) {
+                case TOTALS -> {
+                    unique = cards;
+                    total = quantity;
+                    value = ((Number) row[6]).doubleValue();
+                    sets = ((Number) row[7]).longValue();
+                }
+                case SET -> bySet.add(new Object[]{row[1], row[2], cards, quantity});
+                case RARITY -> {
+                    // The rarity breakdown leaves out cards without a rarity
+                    if (row[3] != null) byRarity.add(new Object[]{row[3], cards, quantity});
+                }
+                default -> throw new IllegalStateException("Unexpected stats row kind " + row[0]);
+            }
+        }
+        bySet.sort(Comparator.comparingLong((Object[] r) -> (long) r[3]).reversed());
+        byRarity.sort(Comparator.comparingLong((Object[] r) -> (long) r[2]).reversed());
+        return new StatsRollup(unique, total, sets, value, bySet, byRarity);
+    }
+
+    // ── Search ────────────────────────────────────────────
+
+    @Override
+    public boolean ensureSearchIndexes() {
+        if (!isPostgres()) return false;
+        trigramSearch = null;
+        for (String ddl : SEARCH_INDEXES) {
+            em.createNativeQuery(ddl).executeUpdate();
+        }
+        return hasTrigramSearch();
+    }
+
+    @Override
+    public Card reload(Long id) {
+        Card card = em.find(Card.class, id);
+        if (card != null) em.refresh(card);
+        return card;
+    }
+
+    @Override
+    public void ensureCardKeyIndex() {
+        em.createNativeQuery(CARD_KEY_INDEX).executeUpdate();
+    }
+
+    @Override
+    public List<CollectionSearchHit> searchCollection(Long userId, String q, int limit) {
+        String query = q.toLowerCase(Locale.ROOT);
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        if (hasTrigramSearch()) {
+            @SuppressWarnings("unchecked")
+            List<Object[]> rows = em.createNativeQuery(SEARCH_TRIGRAM)
+                    .setParameter("q", query)
+                    .setParameter("userId", userId)
+                    .setParameter("limit", limit)
+                    .getResultList();
+            for (Object[] row : rows) {
+                scores.put(((Number) row[0]).longValue(), ((Number) row[1]).doubleValue());
+            }
+        } else {
+            scoreInMemory(userId, query, limit, scores);
+        }
+        if (scores.isEmpty()) return List.of();
+
+        Map<Long, Card> cards = em.createQuery("SELECT c FROM Card c WHERE c.id IN :ids", Card.class)
+                .setParameter("ids", scores.keySet())
+                .getResultStream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+        List<CollectionSearchHit> hits = new ArrayList<>();
+        scores.forEach((id, score) -> {
+            Card card = cards.get(id);
+            if (card != null) hits.add(new CollectionSearchHit(card, score));
+        });
+        return hits;
+    }
+
+    /**
+     * Portable search: the same scoring as the trigram SQL, computed over a projection
+     * of the user's cards. Linear in collection size; PostgreSQL uses the GIN index instead.
+     */
+    private void scoreInMemory(Long userId, String query, int limit, Map<Long, Double> scores) {
+        Set<String> wanted = Trigrams.of(query);
+        List<Object[]> rows = em.createQuery(
+                        "SELECT c.id, c.name, c.setName, c.series, c.notes FROM Card c WHERE c.userId = :userId", Object[].class)
+                .setParameter("userId", userId)
+                .getResultList();
+        List<Map.Entry<Long, Double>> matches = new ArrayList<>();
+        for (Object[] row : rows) {
+            double name = Trigrams.wordSimilarity(wanted, Trigrams.of((String) row[1]));
+            double document = Trigrams.wordSimilarity(wanted,
+                    Trigrams.of(row[1] + " " + row[2] + " " + row[3] + " " + row[4]));
+            if (document >= MATCH_THRESHOLD) {
+                matches.add(Map.entry((Long) row[0], Math.max(name, OTHER_FIELD_WEIGHT * document)));
+            }
+        }
+        matches.sort(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        matches.stream().limit(limit).forEach(e -> scores.put(e.getKey(), e.getValue()));
+    }
+
+    @Override
+    public List<String> suggestNames(Long userId, String prefix, int limit) {
+        // Served by idx_cards_user_name_prefix on PostgreSQL
+        return em.createQuery("SELECT c.name FROM Card c WHERE c.userId = :userId AND LOWER(c.name) LIKE :prefix ESCAPE '\\' " +
+                        "GROUP BY c.name ORDER BY COUNT(c) DESC, c.name", String.class)
+                .setParameter("userId", userId)
+                .setParameter("prefix", escapeLike(prefix.toLowerCase(Locale.ROOT)) + "%")
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private boolean hasTrigramSearch() {
+        if (trigramSearch == null) {
+            trigramSearch = isPostgres() && !em.createNativeQuery(
+                    "SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm'").getResultList().isEmpty();
+        }
+        return trigramSearch;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+        }
+        return postgres;
+    }
+
+    private String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
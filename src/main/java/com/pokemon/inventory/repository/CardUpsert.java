@@ -0,0 +1,11 @@
+package com.pokemon.inventory.repository;
+
+import com.pokemon.inventory.model.Card;
+
+/**
+ * One card written by {@link CardBatchWriter#upsertAll}: {@code added} copies were either
+ * inserted as a new row or merged into the existing row. {@code card} carries the stored
+ * row's id and quantity afterwards.
+ */
+public record CardUpsert(Card card, int added, boolean inserted) {
+}
@@ -0,0 +1,30 @@
+package com.pokemon.inventory.repository;
+
+import com.pokemon.inventory.model.CatalogCard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CatalogCardRepository extends JpaRepository<CatalogCard, String>, JpaSpecificationExecutor<CatalogCard> {
+
+    List<CatalogCard> findBySetId(String setId);
+
+    /** Distinct card names with the number of printings of each, as [name, count] rows. */
+    @Query("SELECT c.name, COUNT(c) FROM CatalogCard c GROUP BY c.name")
+    List<Object[]> countByName();
+
+    /** Every card as [id, localId, name, setId] rows, without the payload. */
+    @Query("SELECT c.id, c.localId, c.name, c.setId FROM CatalogCard c")
+    List<Object[]> findIndexRows();
+
+    @Modifying
+    @Query("DELETE FROM CatalogCard c WHERE c.setId = :setId AND c.id NOT IN :keep")
+    int deleteBySetIdAndIdNotIn(@Param("setId") String setId, @Param("keep") Collection<String> keep);
+}
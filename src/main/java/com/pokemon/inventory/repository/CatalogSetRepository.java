@@ -0,0 +1,22 @@
+package com.pokemon.inventory.repository;
+
+import com.pokemon.inventory.model.CatalogSet;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CatalogSetRepository extends JpaRepository<CatalogSet, String> {
+
+    List<CatalogSet> findAllByOrderByPositionAsc();
+
+    List<CatalogSet> findBySyncedAtIsNotNullOrderBySyncedAtAsc();
+
+    long countBySyncedAtIsNull();
+
+    /** Every set as [id, name, cardCountOfficial] rows, without the payload. */
+    @Query("SELECT s.id, s.name, s.cardCountOfficial FROM CatalogSet s")
+    List<Object[]> findIndexRows();
+}
@@ -0,0 +1,74 @@
+package com.pokemon.inventory.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pokemon.inventory.model.Card;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of the last card on a collection page: its sort-key value and id.
+ * Serialized as an opaque URL-safe token that is only valid for the same sort and order.
+ */
+public record CollectionCursor(CollectionSort sort, boolean ascending, Object value, long id) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static CollectionCursor after(CollectionSort sort, boolean ascending, Card last) {
+        return new CollectionCursor(sort, ascending, sort.valueOf(last), last.getId());
+    }
+
+    public String encode() {
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("s", sort.param());
+        node.put("o", ascending ? "asc" : "desc");
+        if (value == null) node.putNull("v");
+        else if (value instanceof Integer i) node.put("v", i);
+        else if (value instanceof Double d) node.put("v", d);
+        else node.put("v", value.toString());
+        node.put("id", id);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(node.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token is malformed or was issued for a different sort
+     */
+    public static CollectionCursor decode(String token, CollectionSort sort, boolean ascending) {
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (node == null || !node.path("id").canConvertToLong()) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (!sort.param().equals(node.path("s").asText())
+                || !(ascending ? "asc" : "desc").equals(node.path("o").asText())) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+
+        JsonNode v = node.get("v");
+        Object value;
+        if (v == null || v.isNull()) {
+            if (!sort.nullable()) throw new IllegalArgumentException("Invalid cursor");
+            value = null;
+        } else {
+            try {
+                value = switch (sort) {
+                    case CREATED_AT -> LocalDateTime.parse(v.asText());
+                    case QUANTITY -> v.asInt();
+                    case PRICE -> v.asDouble();
+                    default -> v.asText();
+                };
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        return new CollectionCursor(sort, ascending, value, node.get("id").asLong());
+    }
+}
@@ -0,0 +1,17 @@
+package com.pokemon.inventory.repository;
+
+/**
+ * Optional filters for a user's collection. A null field means "no filter".
+ *
+ * @param set      exact set id
+ * @param rarity   exact rarity
+ * @param category exact category
+ * @param type     exact card type, e.g. "Fire"
+ * @param q        case-insensitive substring of the card name
+ */
+public record CollectionFilter(String set, String rarity, String category, String type, String q) {
+
+    public static CollectionFilter none() {
+        return new CollectionFilter(null, null, null, null, null);
+    }
+}
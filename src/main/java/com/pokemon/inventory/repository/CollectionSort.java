@@ -0,0 +1,80 @@
+package com.pokemon.inventory.repository;
+
+import com.pokemon.inventory.model.Card;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Sort keys accepted by the collection endpoints ({@code sort=name|set_name|rarity|quantity|price|createdAt}).
+ *
+ * Each key knows the entity attribute it orders by in SQL and the equivalent in-memory
+ * comparator. Nulls sort last in ascending order (and therefore first in descending order);
+ * text keys compare case-insensitively.
+ */
+public enum CollectionSort {
+
+    CREATED_AT("createdAt", "createdAt", false, false,
+            Comparator.comparing(Card::getCreatedAt, Comparator.nullsLast(LocalDateTime::compareTo))),
+    NAME("name", "name", false, true,
+            Comparator.comparing(Card::getName, Comparator.nullsLast(String::compareToIgnoreCase))),
+    SET_NAME("set_name", "setName", true, true,
+            Comparator.comparing(Card::getSetName, Comparator.nullsLast(String::compareToIgnoreCase))),
+    RARITY("rarity", "rarity", true, true,
+            Comparator.comparing(Card::getRarity, Comparator.nullsLast(String::compareToIgnoreCase))),
+    QUANTITY("quantity", "quantity", false, false,
+            Comparator.comparingInt(Card::getQuantity)),
+    PRICE("price", "priceMid", true, false,
+            Comparator.comparing(Card::getPriceMid, Comparator.nullsLast(Double::compareTo)));
+
+    private final String param;
+    private final String attribute;
+    private final boolean nullable;
+    private final boolean text;
+    private final Comparator<Card> comparator;
+
+    CollectionSort(String param, String attribute, boolean nullable, boolean text, Comparator<Card> comparator) {
+        this.param = param;
+        this.attribute = attribute;
+        this.nullable = nullable;
+        this.text = text;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Resolve a request parameter; anything unrecognised sorts by creation date, as before.
+     */
+    public static CollectionSort fromParam(String sort) {
+        for (CollectionSort s : values()) {
+            if (s.param.equals(sort)) return s;
+        }
+        return CREATED_AT;
+    }
+
+    public static boolean isAscending(String order) {
+        return "asc".equalsIgnoreCase(order);
+    }
+
+    public Comparator<Card> comparator(String order) {
+        return isAscending(order) ? comparator : comparator.reversed();
+    }
+
+    public String param() { return param; }
+    public String attribute() { return attribute; }
+    public boolean nullable() { return nullable; }
+    public boolean text() { return text; }
+
+    /**
+     * The value this key sorts on, as stored in a cursor.
+     */
+    public Object valueOf(Card card) {
+        return switch (this) {
+            case CREATED_AT -> card.getCreatedAt();
+            case NAME -> card.getName();
+            case SET_NAME -> card.getSetName();
+            case RARITY -> card.getRarity();
+            case QUANTITY -> card.getQuantity();
+            case PRICE -> card.getPriceMid();
+        };
+    }
+}
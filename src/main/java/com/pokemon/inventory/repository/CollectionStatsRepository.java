@@ -0,0 +1,24 @@
+package com.pokemon.inventory.repository;
+
+import com.pokemon.inventory.model.CollectionStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CollectionStatsRepository extends JpaRepository<CollectionStats, Long>, CollectionStatsRepositoryCustom {
+
+    /** Row lock so concurrent writes for one user apply their deltas one after another. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CollectionStats s WHERE s.userId = :userId")
+    Optional<CollectionStats> findForUpdate(@Param("userId") Long userId);
+
+    @Query("SELECT s.userId FROM CollectionStats s")
+    List<Long> findAllUserIds();
+}
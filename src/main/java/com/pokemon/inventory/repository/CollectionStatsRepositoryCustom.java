@@ -0,0 +1,12 @@
+package com.pokemon.inventory.repository;
+
+public interface CollectionStatsRepositoryCustom {
+
+    /**
+     * Create the user's stats row, zeroed, unless it already exists. Of concurrent calls for
+     * one user exactly one creates it; the others wait for that insert to commit instead of
+     * failing on the primary key. Returns whether this call created it. Joins the caller's
+     * transaction.
+     */
+    boolean insertIfAbsent(Long userId);
+}
@@ -0,0 +1,51 @@
+package com.pokemon.inventory.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Race-free creation of stats rows, in JDBC so that a duplicate key on the portable path
+ * fails only the statement, not the caller's JPA transaction.
+ */
+public class CollectionStatsRepositoryCustomImpl implements CollectionStatsRepositoryCustom {
+
+    private static final String COLUMNS = "user_id, unique_cards, total_cards, total_value, version, updated_at";
+    private static final String INSERT_ON_CONFLICT = "INSERT INTO collection_stats (" + COLUMNS + ") "
+            + "VALUES (?, 0, 0, 0, 0, ?) ON CONFLICT (user_id) DO NOTHING";
+    private static final String INSERT_MISSING = "INSERT INTO collection_stats (" + COLUMNS + ") "
+            + "SELECT ?, 0, 0, 0, 0, ? WHERE NOT EXISTS (SELECT 1 FROM collection_stats WHERE user_id = ?)";
+
+    private final JdbcTemplate jdbc;
+    private volatile Boolean postgres;
+
+    public CollectionStatsRepositoryCustomImpl(DataSource dataSource) {
+        this.jdbc = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public boolean insertIfAbsent(Long userId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (isPostgres()) {
+            return jdbc.update(INSERT_ON_CONFLICT, userId, now) > 0;
+        }
+        try {
+            return jdbc.update(INSERT_MISSING, userId, now, userId) > 0;
+        } catch (DuplicateKeyException e) {
+            // Inserted by a concurrent call since the NOT EXISTS check
+            return false;
+        }
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbc.execute((ConnectionCallback<Boolean>) con ->
+                    "PostgreSQL".equals(con.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,60 @@
+package com.pokemon.inventory.repository;
+
+import com.pokemon.inventory.model.Job;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Jobs are updated from both the worker thread and request threads (cancel), so
+ * status changes go through conditional UPDATEs instead of saving a loaded entity.
+ */
+@Repository
+public interface JobRepository extends JpaRepository<Job, String> {
+
+    Optional<Job> findFirstByUserIdAndTypeAndStatusIn(Long userId, String type, Collection<String> statuses);
+
+    List<Job> findByStatusInOrderByCreatedAtAsc(Collection<String> statuses);
+
+    List<Job> findTop20ByUserIdOrderByCreatedAtDesc(Long userId);
+
+    Optional<Job> findByIdAndUserId(String id, Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Job j SET j.status = 'RUNNING', j.startedAt = :now WHERE j.id = :id AND j.status = 'QUEUED'")
+    int markRunning(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Job j SET j.total = :total, j.processed = :processed, j.errors = :errors WHERE j.id = :id")
+    int updateProgress(@Param("id") String id, @Param("total") int total,
+                       @Param("processed") int processed, @Param("errors") int errors);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Job j SET j.status = 'CANCELLED', j.cancelRequested = true, j.finishedAt = :now, " +
+           "j.message = 'Cancelled before it started' WHERE j.id = :id AND j.status = 'QUEUED'")
+    int cancelQueued(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Job j SET j.cancelRequested = true WHERE j.id = :id AND j.status = 'RUNNING'")
+    int requestCancel(@Param("id") String id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Job j SET j.status = :status, j.message = COALESCE(:message, j.message), j.result = :result, " +
+           "j.total = :total, j.processed = :processed, j.errors = :errors, j.finishedAt = :now WHERE j.id = :id")
+    int finish(@Param("id") String id, @Param("status") String status, @Param("message") String message,
+               @Param("result") String result, @Param("total") int total, @Param("processed") int processed,
+               @Param("errors") int errors, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,252 @@
+package com.pokemon.inventory.repository;
+
+import com.pokemon.inventory.dto.DailyPrice;
+import com.pokemon.inventory.dto.TcgdexPrice;
+import com.pokemon.inventory.dto.ValuePoint;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Set-based JDBC writes and reads for the price history tables (mapped by PriceSnapshot,
+ * PriceDaily and CollectionValueDaily): appending snapshots, rolling a day of them up,
+ * and keeping storage bounded.
+ *
+ * On PostgreSQL, price_snapshots is range-partitioned by month on captured_at, so
+ * retention drops whole partitions instead of deleting rows, and a day's rollup only
+ * reads one partition. Schema update creates it as a plain table; {@link #preparePartitions}
+ * swaps that for the partitioned one while it is still empty. Elsewhere (H2) it stays a
+ * plain table and old rows are deleted.
+ *
+ * Rollups are upserts (ON CONFLICT on PostgreSQL, MERGE elsewhere), so instances or
+ * restarts rolling up the same day at once cannot collide on the daily tables' keys.
+ */
+@Repository
+public class PriceHistoryStore {
+
+    /** A daily table that is thinned: its key column and its date column. */
+    public enum Rollup {
+        PRICES("price_daily", "card_id", "price_date"),
+        VALUES("collection_value_daily", "user_id", "value_date");
+
+        private final String table;
+        private final String key;
+        private final String date;
+
+        Rollup(String table, String key, String date) {
+            this.table = table;
+            this.key = key;
+            this.date = date;
+        }
+    }
+
+    private static final String INSERT_SNAPSHOT = "INSERT INTO price_snapshots "
+            + "(card_id, captured_at, price_low, price_mid, price_high, price_market) VALUES (?, ?, ?, ?, ?, ?)";
+
+    // A snapshot for a card that has no price history yet; typed, as PostgreSQL cannot infer select-list parameters
+    private static final String SEED_SNAPSHOT = "INSERT INTO price_snapshots "
+            + "(card_id, captured_at, price_low, price_mid, price_high, price_market) "
+            + "SELECT CAST(? AS varchar(255)), CAST(? AS timestamp), CAST(? AS double precision), "
+            + "CAST(? AS double precision), CAST(? AS double precision), CAST(? AS double precision) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM price_snapshots WHERE card_id = ?) "
+            + "AND NOT EXISTS (SELECT 1 FROM price_daily WHERE card_id = ?)";
+
+    private static final String PRICE_DAY_COLUMNS = "price_daily (card_id, price_date, price_low, price_mid, price_high, "
+            + "price_market, mid_min, mid_max, samples) ";
+    // Each card's last snapshot of the day, with the range and number of its mid prices
+    private static final String ROLLUP_PRICE_DAY = "SELECT s.card_id, ?, s.price_low, s.price_mid, s.price_high, s.price_market, "
+            + "d.mid_min, d.mid_max, d.samples "
+            + "FROM price_snapshots s JOIN (SELECT card_id, MAX(captured_at) AS last_at, MIN(price_mid) AS mid_min, "
+            + "MAX(price_mid) AS mid_max, COUNT(*) AS samples FROM price_snapshots "
+            + "WHERE captured_at >= ? AND captured_at < ? GROUP BY card_id) d "
+            + "ON s.card_id = d.card_id AND s.captured_at = d.last_at "
+            + "WHERE s.captured_at >= ? AND s.captured_at < ?";
+    private static final String UPSERT_PRICE_DAY = "INSERT INTO " + PRICE_DAY_COLUMNS + ROLLUP_PRICE_DAY
+            + " ON CONFLICT (card_id, price_date) DO UPDATE SET price_low = EXCLUDED.price_low, "
+            + "price_mid = EXCLUDED.price_mid, price_high = EXCLUDED.price_high, price_market = EXCLUDED.price_market, "
+            + "mid_min = EXCLUDED.mid_min, mid_max = EXCLUDED.mid_max, samples = EXCLUDED.samples";
+    private static final String MERGE_PRICE_DAY = "MERGE INTO " + PRICE_DAY_COLUMNS + "KEY (card_id, price_date) " + ROLLUP_PRICE_DAY;
+
+    private static final String VALUE_DAY_COLUMNS = "collection_value_daily (user_id, value_date, total_value, total_cards, unique_cards) ";
+    private static final String RECORD_VALUES = "SELECT user_id, ?, total_value, total_cards, unique_cards FROM collection_stats";
+    private static final String UPSERT_VALUES = "INSERT INTO " + VALUE_DAY_COLUMNS + RECORD_VALUES
+            + " ON CONFLICT (user_id, value_date) DO UPDATE SET total_value = EXCLUDED.total_value, "
+            + "total_cards = EXCLUDED.total_cards, unique_cards = EXCLUDED.unique_cards";
+    private static final String MERGE_VALUES = "MERGE INTO " + VALUE_DAY_COLUMNS + "KEY (user_id, value_date) " + RECORD_VALUES;
+
+    // Deletes every row of the month that has a later row for the same key in that month
+    private static final String THIN_MONTH = "DELETE FROM %1$s t WHERE t.%3$s >= ? AND t.%3$s < ? AND EXISTS "
+            + "(SELECT 1 FROM %1$s later WHERE later.%2$s = t.%2$s AND later.%3$s > t.%3$s AND later.%3$s < ?)";
+    private static final String OLDEST = "SELECT MIN(%s) FROM %s";
+
+    private static final String VALUES = "SELECT value_date, total_value, total_cards FROM collection_value_daily "
+            + "WHERE user_id = ? AND value_date >= ? AND value_date <= ? ORDER BY value_date";
+    // Rows only exist for days the price changed, so the range opens with the row in force on "from"
+    private static final String PRICES = "SELECT price_date, price_low, price_mid, price_high, price_market "
+            + "FROM price_daily WHERE card_id = ? AND price_date <= ? AND price_date >= COALESCE("
+            + "(SELECT MAX(price_date) FROM price_daily WHERE card_id = ? AND price_date <= ?), ?) ORDER BY price_date";
+
+    // ── PostgreSQL partitioning ──
+    private static final String RELKIND = "SELECT relkind FROM pg_class WHERE oid = to_regclass('price_snapshots')";
+    private static final List<String> PARTITIONED_TABLE = List.of(
+            "DROP TABLE price_snapshots",
+            "CREATE TABLE price_snapshots (card_id varchar(255) NOT NULL, captured_at timestamp(6) NOT NULL, "
+                    + "price_low float(53), price_mid float(53), price_high float(53), price_market float(53), "
+                    + "PRIMARY KEY (card_id, captured_at)) PARTITION BY RANGE (captured_at)",
+            "CREATE INDEX idx_price_snapshots_captured ON price_snapshots (captured_at)");
+    private static final String PARTITION = "CREATE TABLE IF NOT EXISTS %s PARTITION OF price_snapshots "
+            + "FOR VALUES FROM ('%s') TO ('%s')";
+    private static final String PARTITIONS = "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+            + "WHERE i.inhparent = to_regclass('price_snapshots')";
+    private static final String PARTITION_PREFIX = "price_snapshots_p";
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String DELETE_SNAPSHOTS = "DELETE FROM price_snapshots WHERE captured_at < ?";
+
+    private final JdbcTemplate jdbc;
+    private volatile Boolean postgres;
+
+    public PriceHistoryStore(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Append one snapshot per cardId, all captured at {@code at}, as one JDBC batch. */
+    public void append(Map<String, TcgdexPrice> pricesByCardId, LocalDateTime at) {
+        if (pricesByCardId.isEmpty()) return;
+        Timestamp capturedAt = Timestamp.valueOf(at);
+        List<Object[]> args = new ArrayList<>(pricesByCardId.size());
+        pricesByCardId.forEach((cardId, price) -> args.add(new Object[]{
+                cardId, capturedAt, price.low(), price.mid(), price.high(), price.market()}));
+        jdbc.batchUpdate(INSERT_SNAPSHOT, args);
+    }
+
+    /**
+     * Append a snapshot, captured at {@code at}, for each cardId that has no price history
+     * yet (no snapshot and no daily row), as one JDBC batch.
+     */
+    public void seed(Map<String, TcgdexPrice> pricesByCardId, LocalDateTime at) {
+        if (pricesByCardId.isEmpty()) return;
+        Timestamp capturedAt = Timestamp.valueOf(at);
+        List<Object[]> args = new ArrayList<>(pricesByCardId.size());
+        pricesByCardId.forEach((cardId, price) -> args.add(new Object[]{
+                cardId, capturedAt, price.low(), price.mid(), price.high(), price.market(), cardId, cardId}));
+        jdbc.batchUpdate(SEED_SNAPSHOT, args);
+    }
+
+    /** Upsert the day's price_daily rows from its snapshots. Returns the number of cards. */
+    public int rollupPrices(LocalDate day) {
+        Date date = Date.valueOf(day);
+        Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        return jdbc.update(isPostgres() ? UPSERT_PRICE_DAY : MERGE_PRICE_DAY, date, from, to, from, to);
+    }
+
+    /** Upsert the day's collection_value_daily rows from every collection's current stats. Returns the number of users. */
+    public int recordCollectionValues(LocalDate day) {
+        return jdbc.update(isPostgres() ? UPSERT_VALUES : MERGE_VALUES, Date.valueOf(day));
+    }
+
+    /** Keep only each key's last row in the month. Returns the number of rows deleted. */
+    public int thinMonth(Rollup rollup, YearMonth month) {
+        Date next = Date.valueOf(month.plusMonths(1).atDay(1));
+        return jdbc.update(String.format(THIN_MONTH, rollup.table, rollup.key, rollup.date),
+                Date.valueOf(month.atDay(1)), next, next);
+    }
+
+    /** Month of the oldest row, or null when there are none. */
+    public YearMonth oldestMonth(Rollup rollup) {
+        Date oldest = jdbc.queryForObject(String.format(OLDEST, rollup.date, rollup.table), Date.class);
+        return oldest == null ? null : YearMonth.from(oldest.toLocalDate());
+    }
+
+    public List<ValuePoint> collectionValues(long userId, LocalDate from, LocalDate to) {
+        return jdbc.query(VALUES, (ResultSet rs, int n) -> new ValuePoint(rs.getDate("value_date").toLocalDate(),
+                rs.getDouble("total_value"), rs.getLong("total_cards")), userId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    public List<DailyPrice> cardPrices(String cardId, LocalDate from, LocalDate to) {
+        return jdbc.query(PRICES, (ResultSet rs, int n) -> new DailyPrice(rs.getDate("price_date").toLocalDate(),
+                nullableDouble(rs, "price_low"), nullableDouble(rs, "price_mid"), nullableDouble(rs, "price_high"),
+                nullableDouble(rs, "price_market")), cardId, Date.valueOf(to), cardId, Date.valueOf(from), Date.valueOf(from));
+    }
+
+    // ── Snapshot storage ──────────────────────────────────
+
+    /**
+     * On PostgreSQL, partition price_snapshots if it is still an empty plain table, and
+     * make sure this month's and next month's partitions exist, so appends always have
+     * one. Returns whether the table is partitioned.
+     */
+    public boolean preparePartitions(LocalDate today) {
+        if (!isPostgres()) return false;
+        String kind = relkind();
+        if ("r".equals(kind)) {
+            Boolean empty = jdbc.queryForObject("SELECT NOT EXISTS (SELECT 1 FROM price_snapshots)", Boolean.class);
+            // Left as it is when it already holds rows; retention then deletes rows
+            if (!Boolean.TRUE.equals(empty)) return false;
+            PARTITIONED_TABLE.forEach(jdbc::execute);
+        } else if (!"p".equals(kind)) {
+            return false;
+        }
+        YearMonth month = YearMonth.from(today);
+        createPartition(month);
+        createPartition(month.plusMonths(1));
+        return true;
+    }
+
+    /**
+     * Remove snapshots captured before {@code cutoff}: whole monthly partitions ending by
+     * then when partitioned, otherwise the rows. Returns partitions dropped or rows deleted.
+     */
+    public int dropSnapshotsBefore(LocalDateTime cutoff) {
+        if (!isPostgres() || !"p".equals(relkind())) {
+            return jdbc.update(DELETE_SNAPSHOTS, Timestamp.valueOf(cutoff));
+        }
+        int dropped = 0;
+        for (String partition : jdbc.queryForList(PARTITIONS, String.class)) {
+            if (!partition.startsWith(PARTITION_PREFIX)) continue;
+            YearMonth month = YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_MONTH);
+            if (!month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                // IF EXISTS: another instance may be applying retention at the same time
+                jdbc.execute("DROP TABLE IF EXISTS " + partition);
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    private void createPartition(YearMonth month) {
+        jdbc.execute(String.format(PARTITION, PARTITION_PREFIX + month.format(PARTITION_MONTH),
+                month.atDay(1), month.plusMonths(1).atDay(1)));
+    }
+
+    private String relkind() {
+        List<String> kinds = jdbc.queryForList(RELKIND, String.class);
+        return kinds.isEmpty() ? null : kinds.get(0);
+    }
+
+    // ── Helpers ───────────────────────────────────────────
+
+    private static Double nullableDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbc.execute((ConnectionCallback<Boolean>) con ->
+                    "PostgreSQL".equals(con.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+}
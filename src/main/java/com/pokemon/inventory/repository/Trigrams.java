@@ -0,0 +1,56 @@
+package com.pokemon.inventory.repository;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Trigram matching with the same tokenisation as PostgreSQL's pg_trgm (lowercased
+ * alphanumeric words, padded with two spaces in front and one behind). Used where
+ * pg_trgm is not available, so search ranks the same way on H2, and for matching scan
+ * results against the catalog.
+ */
+public final class Trigrams {
+
+    private Trigrams() {}
+
+    public static Set<String> of(String text) {
+        Set<String> trigrams = new HashSet<>();
+        if (text == null) return trigrams;
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(padded.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+
+    /**
+     * Share of the query's trigrams found in the text, in [0, 1]. Close to pg_trgm's
+     * {@code word_similarity(query, text)}, which also scores a query against the best
+     * matching part of a longer text, so typos and partial words still match.
+     */
+    public static double wordSimilarity(Set<String> query, Set<String> text) {
+        if (query.isEmpty()) return 0;
+        int shared = 0;
+        for (String trigram : query) {
+            if (text.contains(trigram)) shared++;
+        }
+        return (double) shared / query.size();
+    }
+
+    /**
+     * Shared trigrams over all distinct trigrams of both, in [0, 1], like pg_trgm's
+     * {@code similarity}: unlike word similarity, extra words in the text lower the score.
+     */
+    public static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) return 0;
+        int shared = 0;
+        for (String trigram : a) {
+            if (b.contains(trigram)) shared++;
+        }
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+}
@@ -0,0 +1,266 @@
+package com.pokemon.inventory.service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable prefix index over distinct catalog card names.
+ *
+ * Names are packed back to back into one {@code char[]} (plus a case- and accent-folded
+ * copy with the same offsets), so the index is a handful of primitive arrays rather than
+ * one object per name or node. Every word start inside a name is an entry, sorted by the
+ * folded text from there to the end of the name; a lookup is two binary searches over the
+ * entries plus a scan of the matching range. "char" finds "Charizard" and "Dark Charizard".
+ */
+public final class CardNameIndex {
+
+    private static final String SNAPSHOT_HEADER = "# card-names v1";
+
+    public static final CardNameIndex EMPTY = build(Map.of());
+
+    private final char[] chars;
+    private final char[] folded;
+    private final int[] starts;
+    private final int[] printings;
+    private final int[] entries;
+
+    private CardNameIndex(char[] chars, char[] folded, int[] starts, int[] printings, int[] entries) {
+        this.chars = chars;
+        this.folded = folded;
+        this.starts = starts;
+        this.printings = printings;
+        this.entries = entries;
+    }
+
+    /**
+     * Build from card name → number of printings of that name (used to rank suggestions).
+     */
+    public static CardNameIndex build(Map<String, Integer> nameCounts) {
+        Map<String, Integer> merged = new HashMap<>();
+        nameCounts.forEach((name, count) -> {
+            String clean = clean(name);
+            if (!clean.isEmpty()) merged.merge(clean, Math.max(count, 1), Integer::sum);
+        });
+        Map<String, String> sortKeys = new HashMap<>();
+        for (String name : merged.keySet()) sortKeys.put(name, fold(name));
+        List<String> names = new ArrayList<>(merged.keySet());
+        names.sort(Comparator.comparing((String name) -> sortKeys.get(name)).thenComparing(Comparator.naturalOrder()));
+
+        int length = 0;
+        for (String name : names) length += name.length();
+        char[] chars = new char[length];
+        char[] folded = new char[length];
+        int[] starts = new int[names.size() + 1];
+        int[] printings = new int[names.size()];
+        int wordStarts = 0;
+        int pos = 0;
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            starts[i] = pos;
+            printings[i] = merged.get(name);
+            for (int j = 0; j < name.length(); j++, pos++) {
+                chars[pos] = name.charAt(j);
+                folded[pos] = fold(name.charAt(j));
+                if (isWordStart(folded, starts[i], pos)) wordStarts++;
+            }
+        }
+        starts[names.size()] = pos;
+
+        // End of the owning name per position, only needed while sorting
+        int[] ends = new int[length];
+        Integer[] order = new Integer[wordStarts];
+        int e = 0;
+        for (int i = 0; i < names.size(); i++) {
+            for (int p = starts[i]; p < starts[i + 1]; p++) {
+                ends[p] = starts[i + 1];
+                if (isWordStart(folded, starts[i], p)) order[e++] = p;
+            }
+        }
+        Arrays.sort(order, (a, b) -> compareSuffixes(folded, a, ends[a], b, ends[b]));
+        int[] entries = new int[wordStarts];
+        for (int i = 0; i < wordStarts; i++) entries[i] = order[i];
+        return new CardNameIndex(chars, folded, starts, printings, entries);
+    }
+
+    // ── Lookup ────────────────────────────────────────────
+
+    /**
+     * Names with a word starting with {@code prefix} (case- and accent-insensitive).
+     * Names that start with the prefix come first, then names with more printings.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String query = prefix == null ? "" : fold(prefix.strip());
+        if (query.isEmpty() || limit <= 0) return List.of();
+
+        int from = bound(query, false);
+        int to = bound(query, true);
+        if (from == to) return List.of();
+
+        // Keep the best `limit` distinct names by rank key: whole-name match, then
+        // printings, then alphabetical. A bounded insertion beats sorting the whole range.
+        int[] top = new int[limit];
+        long[] keys = new long[limit];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int name = nameAt(entries[i]);
+            long whole = entries[i] == starts[name] ? 1L : 0L;
+            long key = whole << 62 | (long) printings[name] << 31 | (Integer.MAX_VALUE - name);
+            int slot = indexOf(top, count, name);
+            if (slot >= 0) {
+                if (keys[slot] >= key) continue;
+                // Same name reached through a better entry: drop it and re-insert below
+                System.arraycopy(top, slot + 1, top, slot, count - slot - 1);
+                System.arraycopy(keys, slot + 1, keys, slot, count - slot - 1);
+                count--;
+            } else if (count == limit && keys[count - 1] >= key) {
+                continue;
+            }
+            int at = Math.min(count, limit - 1);
+            while (at > 0 && keys[at - 1] < key) {
+                top[at] = top[at - 1];
+                keys[at] = keys[at - 1];
+                at--;
+            }
+            top[at] = name;
+            keys[at] = key;
+            if (count < limit) count++;
+        }
+
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) result.add(name(top[i]));
+        return result;
+    }
+
+    public int size() {
+        return printings.length;
+    }
+
+    public int entryCount() {
+        return entries.length;
+    }
+
+    /**
+     * Approximate retained heap: the arrays plus object headers, assuming compressed oops.
+     */
+    public long estimatedBytes() {
+        return 16 + 4L * 5
+                + array(chars.length, 2) + array(folded.length, 2)
+                + array(starts.length, 4) + array(printings.length, 4) + array(entries.length, 4);
+    }
+
+    // ── Snapshot file ─────────────────────────────────────
+
+    /**
+     * Gzipped text, one {@code printings<TAB>name} line per name.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+        writer.write(SNAPSHOT_HEADER);
+        writer.write('\n');
+        for (int i = 0; i < size(); i++) {
+            writer.write(Integer.toString(printings[i]));
+            writer.write('\t');
+            writer.write(chars, starts[i], starts[i + 1] - starts[i]);
+            writer.write('\n');
+        }
+        writer.flush();
+        gzip.finish();
+    }
+
+    public static CardNameIndex readFrom(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(in), StandardCharsets.UTF_8));
+        if (!SNAPSHOT_HEADER.equals(reader.readLine())) {
+            throw new IOException("Not a card name snapshot");
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int tab = line.indexOf('\t');
+            if (tab <= 0) throw new IOException("Malformed card name snapshot line");
+            counts.put(line.substring(tab + 1), Integer.parseInt(line.substring(0, tab)));
+        }
+        return build(counts);
+    }
+
+    // ── Internals ─────────────────────────────────────────
+
+    /** Entries whose suffix sorts before the query, or (upper) also those starting with it. */
+    private int bound(String query, boolean upper) {
+        int lo = 0;
+        int hi = entries.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = comparePrefix(entries[mid], query);
+            if (cmp < 0 || (upper && cmp == 0)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Compare the entry's folded suffix, cut to the query length, with the query. */
+    private int comparePrefix(int pos, String query) {
+        int end = starts[nameAt(pos) + 1];
+        for (int i = 0; i < query.length(); i++, pos++) {
+            if (pos == end) return -1;
+            int diff = folded[pos] - query.charAt(i);
+            if (diff != 0) return diff;
+        }
+        return 0;
+    }
+
+    private static int compareSuffixes(char[] folded, int a, int endA, int b, int endB) {
+        while (a < endA && b < endB) {
+            int diff = folded[a++] - folded[b++];
+            if (diff != 0) return diff;
+        }
+        return (endA - a) - (endB - b);
+    }
+
+    private int nameAt(int pos) {
+        // Names are never empty, so starts is strictly increasing
+        int i = Arrays.binarySearch(starts, pos);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    private String name(int i) {
+        return new String(chars, starts[i], starts[i + 1] - starts[i]);
+    }
+
+    private static boolean isWordStart(char[] folded, int nameStart, int pos) {
+        return Character.isLetterOrDigit(folded[pos])
+                && (pos == nameStart || !Character.isLetterOrDigit(folded[pos - 1]));
+    }
+
+    private static int indexOf(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) return i;
+        }
+        return -1;
+    }
+
+    private static long array(int length, int width) {
+        return (16 + (long) length * width + 7) & ~7L;
+    }
+
+    private static String clean(String name) {
+        return name == null ? "" : name.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ').strip();
+    }
+
+    /** Lowercase and drop accents one char at a time, so folded text keeps the original offsets. */
+    static String fold(String text) {
+        char[] out = new char[text.length()];
+        for (int i = 0; i < out.length; i++) out[i] = fold(text.charAt(i));
+        return new String(out);
+    }
+
+    private static char fold(char c) {
+        if (c < 128) return Character.toLowerCase(c);
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        return Character.toLowerCase(decomposed.charAt(0));
+    }
+}
@@ -0,0 +1,118 @@
+package com.pokemon.inventory.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog-wide card name autocomplete, served from an in-memory {@link CardNameIndex}.
+ *
+ * On startup the index is loaded from the snapshot file so suggestions work without
+ * waiting on TCGdex. A background refresh rebuilds it from the catalog mirror (or the
+ * live card list while the mirror is cold), swaps it in and rewrites the snapshot.
+ */
+@Service
+public class CardNameSuggestService {
+
+    public static final int MAX_SUGGESTIONS = 50;
+
+    private final TcgdexApiService tcgdex;
+    private final CatalogMirror mirror;
+    private final Timer buildTimer;
+
+    @Value("${catalog.names.snapshot-file:data/card-names.tsv.gz}")
+    private Path snapshotFile;
+
+    @Value("${catalog.names.refresh-enabled:true}")
+    private boolean refreshEnabled;
+
+    private volatile CardNameIndex index = CardNameIndex.EMPTY;
+
+    public CardNameSuggestService(TcgdexApiService tcgdex, CatalogMirror mirror, MeterRegistry meters) {
+        this.tcgdex = tcgdex;
+        this.mirror = mirror;
+        this.buildTimer = Timer.builder("catalog.names.build").register(meters);
+        Gauge.builder("catalog.names.size", this, s -> s.index.size()).register(meters);
+        Gauge.builder("catalog.names.heap", this, s -> s.index.estimatedBytes()).baseUnit("bytes").register(meters);
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SUGGESTIONS);
+        }
+        return index.suggest(prefix, limit);
+    }
+
+    public CardNameIndex getIndex() {
+        return index;
+    }
+
+    // ── Loading ───────────────────────────────────────────
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSnapshot() {
+        if (!Files.isRegularFile(snapshotFile)) {
+            System.out.println("No card name snapshot at " + snapshotFile + "; waiting for the first refresh");
+            return;
+        }
+        long start = System.nanoTime();
+        try (InputStream in = Files.newInputStream(snapshotFile)) {
+            install(CardNameIndex.readFrom(in), "snapshot", System.nanoTime() - start);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Failed to load card name snapshot: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${catalog.names.initial-delay:PT30S}", fixedDelayString = "${catalog.names.interval:PT24H}")
+    public void refresh() {
+        if (!refreshEnabled) return;
+        try {
+            boolean fromMirror = mirror.isWarm();
+            Map<String, Integer> counts = fromMirror ? mirror.countCardNames() : tcgdex.fetchCardNameCounts();
+            long start = System.nanoTime();
+            CardNameIndex rebuilt = CardNameIndex.build(counts);
+            install(rebuilt, fromMirror ? "catalog mirror" : "TCGdex", System.nanoTime() - start);
+            saveSnapshot(rebuilt);
+        } catch (Exception e) {
+            System.out.println("Card name index refresh failed: " + e.getMessage());
+        }
+    }
+
+    private void install(CardNameIndex built, String source, long buildNanos) {
+        index = built;
+        buildTimer.record(buildNanos, TimeUnit.NANOSECONDS);
+        System.out.println("Card name index from " + source + ": " + built.size() + " names, "
+                + built.entryCount() + " entries, ~" + built.estimatedBytes() / 1024 + " KB heap, built in "
+                + TimeUnit.NANOSECONDS.toMillis(buildNanos) + " ms");
+    }
+
+    /** Write to a temp file next to the snapshot and move it into place, so readers never see half a file. */
+    private void saveSnapshot(CardNameIndex built) throws IOException {
+        Path dir = snapshotFile.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "card-names", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                built.writeTo(out);
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Card photo identification: decode the upload once, downscale it to a bounded size and
+ * re-encode it as JPEG, and only send that compact image to the vision model. What the
+ * model read is matched against the local catalog by {@link CatalogCardResolver}.
+ *
+ * The upload's dimensions are read from its header before any pixels are decoded, so a
+ * small file declaring a huge image (a decompression bomb) is rejected, and large photos
+ * are decoded subsampled to about twice the target size instead of at full resolution.
+ * Request bodies are read as a stream and the {@code image} field is cut off once it
+ * exceeds the upload limit, so an oversized upload is never buffered whole.
+ *
+ * Results are cached by a 64-bit difference hash (dHash) of the image, so rescanning the
+ * same photo is answered without a vision call. Two different cards in the same frame can
+ * hash alike, so a hit only counts when a 32x32 greyscale thumbnail of the cached image
+ * also agrees with the new one cell by cell. Hashes up to {@code scan.cache.max-distance}
+ * bits apart are tried as well (off by default). Only successful identifications are cached.
+ */
+@Service
+public class CardScanService {
+
+    private final ClaudeVisionService vision;
+    private final CatalogCardResolver resolver;
+    private final ObjectMapper mapper = new ObjectMapper();
+    // A cached identification and the thumbnail it was made from
+    private record Scanned(JsonNode result, byte[] thumbnail) {}
+
+    static final int THUMBNAIL_SIZE = 32;
+    // Largest luma difference of any thumbnail cell for a hit: re-encoding moves cells by a
+    // few levels, a different name, number or artwork in the same frame by far more
+    static final int THUMBNAIL_TOLERANCE = 24;
+
+    private final Cache<Long, Scanned> results;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Value("${scan.max-upload-bytes:15000000}")
+    private int maxUploadBytes;
+
+    @Value("${scan.max-pixels:40000000}")
+    private long maxPixels;
+
+    @Value("${scan.max-dimension:1024}")
+    private int maxDimension;
+
+    @Value("${scan.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${scan.cache.max-distance:0}")
+    private int maxDistance;
+
+    @Value("${scan.max-candidates:5}")
+    private int maxCandidates;
+
+    public CardScanService(ClaudeVisionService vision, CatalogCardResolver resolver, MeterRegistry meters,
+                           @Value("${scan.cache.max-entries:2000}") long maxEntries,
+                           @Value("${scan.cache.ttl:PT24H}") Duration ttl) {
+        this.vision = vision;
+        this.resolver = resolver;
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+        this.hits = Counter.builder("scan.cache.requests").tag("result", "hit").register(meters);
+        this.misses = Counter.builder("scan.cache.requests").tag("result", "miss").register(meters);
+        Gauge.builder("scan.cache.size", results, Cache::estimatedSize).register(meters);
+    }
+
+    /**
+     * Largest request body worth reading: the upload limit base64-encoded (4/3), with
+     * room for MIME line breaks, a data URL prefix and the JSON around it.
+     */
+    public long maxRequestBytes() {
+        return (long) maxUploadBytes * 3 / 2 + 1024;
+    }
+
+    /**
+     * Identify the card in a {@code {"image": "..."}} request body, read as it arrives.
+     * The parser stops with IllegalArgumentException as soon as the image string passes
+     * {@link #maxRequestBytes()}; other fields are skipped.
+     */
+    public JsonNode scanRequest(InputStream body) throws IOException {
+        JsonFactory factory = JsonFactory.builder()
+                .streamReadConstraints(StreamReadConstraints.builder()
+                        .maxStringLength((int) Math.min(Integer.MAX_VALUE, maxRequestBytes()))
+                        .build())
+                .build();
+        String image = null;
+        try (JsonParser parser = factory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected a JSON object with an image field");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() == JsonToken.VALUE_STRING && "image".equals(field)) {
+                    image = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (StreamConstraintsException e) {
+            throw new IllegalArgumentException("Image is larger than " + maxUploadBytes + " bytes");
+        }
+        return scan(image);
+    }
+
+    /**
+     * Identify the card in a base64 image, optionally a data URL
+     * ({@code data:image/png;base64,...}). Returns what the model read plus
+     * {@code candidates}: matching catalog cards, best first. Throws
+     * IllegalArgumentException for an upload that is too large or not a readable image.
+     */
+    public JsonNode scan(String image) {
+        JsonNode identified = identify(image);
+        if (!identified.isObject() || identified.has("error")) return identified;
+        // Resolved on every scan, cached or not, so candidates follow catalog updates
+        ObjectNode response = ((ObjectNode) identified).deepCopy();
+        response.set("candidates", mapper.valueToTree(resolver.resolve(identified, maxCandidates)));
+        return response;
+    }
+
+    private JsonNode identify(String image) {
+        BufferedImage decoded = decode(image);
+        BufferedImage scaled = downscale(decoded, maxDimension);
+        long hash = dHash(scaled);
+        byte[] thumbnail = thumbnail(scaled);
+
+        JsonNode cached = lookup(hash, thumbnail);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        JsonNode result = vision.identifyCard(Base64.getEncoder().encodeToString(encodeJpeg(scaled)), "image/jpeg");
+        if (!result.has("error")) results.put(hash, new Scanned(result, thumbnail));
+        return result;
+    }
+
+    // ── Pipeline stages ───────────────────────────────────
+
+    private BufferedImage decode(String image) {
+        if (image == null || image.isBlank()) {
+            throw new IllegalArgumentException("image is required");
+        }
+        // A data URL's media type is not needed: ImageIO detects the format from the bytes
+        int comma = image.startsWith("data:") ? image.indexOf(',') : -1;
+        int base64Length = image.length() - comma - 1;
+        if ((long) base64Length * 3 / 4 > maxUploadBytes) {
+            throw new IllegalArgumentException("Image is larger than " + maxUploadBytes + " bytes");
+        }
+        // Decoded as ImageIO reads, without copying the base64 text or the decoded bytes
+        InputStream bytes = Base64.getMimeDecoder().wrap(chars(image, comma + 1));
+        try (ImageInputStream in = ImageIO.createImageInputStream(bytes)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) throw new IllegalArgumentException("Unsupported image format");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                // Header only: nothing is allocated for pixels until the size is known to be sane
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IllegalArgumentException("Image is larger than " + maxPixels + " pixels");
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = subsampling(width, height, maxDimension);
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unreadable image: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Decode every {@code step}th pixel of images over twice {@code maxDimension}, keeping
+     * at least that much so the halving downscale still has pixels to average.
+     */
+    static int subsampling(int width, int height, int maxDimension) {
+        return Math.max(1, Math.max(width, height) / (maxDimension * 2));
+    }
+
+    /**
+     * Scale so the longer edge is at most {@code maxDimension}, halving in steps so
+     * bilinear sampling does not alias, and flatten to RGB (JPEG has no alpha).
+     */
+    static BufferedImage downscale(BufferedImage image, int maxDimension) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = image;
+        while (width >= targetWidth * 2 && height >= targetHeight * 2) {
+            width /= 2;
+            height /= 2;
+            current = resize(current, width, height);
+        }
+        if (current != image && width == targetWidth && height == targetHeight) return current;
+        return resize(current, targetWidth, targetHeight);
+    }
+
+    /**
+     * Difference hash: shrink to 9x8 greyscale and record whether each pixel is brighter
+     * than its right neighbour. Robust to scaling, re-encoding and small edits.
+     */
+    static long dHash(BufferedImage image) {
+        BufferedImage small = resize(image, 9, 8);
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                hash = (hash << 1) | (luma(small.getRGB(x, y)) > luma(small.getRGB(x + 1, y)) ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    /** A THUMBNAIL_SIZE square of luma values, compared cell by cell to confirm a cache hit. */
+    static byte[] thumbnail(BufferedImage image) {
+        BufferedImage small = resize(image, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+        byte[] cells = new byte[THUMBNAIL_SIZE * THUMBNAIL_SIZE];
+        for (int y = 0; y < THUMBNAIL_SIZE; y++) {
+            for (int x = 0; x < THUMBNAIL_SIZE; x++) {
+                cells[y * THUMBNAIL_SIZE + x] = (byte) luma(small.getRGB(x, y));
+            }
+        }
+        return cells;
+    }
+
+    static boolean sameImage(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (Math.abs((a[i] & 0xFF) - (b[i] & 0xFF)) > THUMBNAIL_TOLERANCE) return false;
+        }
+        return true;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // ── Cache ─────────────────────────────────────────────
+
+    /**
+     * The cached result for this hash, or for the nearest hash within {@code maxDistance}
+     * bits, provided its thumbnail confirms it is the same image.
+     */
+    private JsonNode lookup(long hash, byte[] thumbnail) {
+        Scanned exact = results.getIfPresent(hash);
+        if (exact != null && sameImage(exact.thumbnail(), thumbnail)) return exact.result();
+        if (maxDistance == 0) return null;
+        JsonNode nearest = null;
+        int best = maxDistance + 1;
+        // Bounded by the cache size: a few thousand XOR/popcounts, and a thumbnail
+        // comparison only for the few within distance
+        for (Map.Entry<Long, Scanned> entry : results.asMap().entrySet()) {
+            int distance = Long.bitCount(entry.getKey() ^ hash);
+            if (distance > 0 && distance < best && sameImage(entry.getValue().thumbnail(), thumbnail)) {
+                best = distance;
+                nearest = entry.getValue().result();
+            }
+        }
+        return nearest;
+    }
+
+    // ── Helpers ───────────────────────────────────────────
+
+    /** The string's characters from {@code offset} as bytes, read in place (base64 is ASCII). */
+    private static InputStream chars(String text, int offset) {
+        return new InputStream() {
+            private int position = offset;
+
+            @Override
+            public int read() {
+                return position < text.length() ? text.charAt(position++) & 0xFF : -1;
+            }
+        };
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = resized.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            g.dispose();
+        }
+        return resized;
+    }
+
+    private static int luma(int rgb) {
+        return (((rgb >> 16) & 0xFF) * 299 + ((rgb >> 8) & 0xFF) * 587 + (rgb & 0xFF) * 114) / 1000;
+    }
+}
@@ -1,11 +1,21 @@
 package com.pokemon.inventory.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.pokemon.inventory.dto.AddCardRequest;
+import com.pokemon.inventory.dto.CollectionPage;
+import com.pokemon.inventory.dto.CollectionSearchHit;
 import com.pokemon.inventory.dto.UpdateCardRequest;
 import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.model.CollectionStats;
+import com.pokemon.inventory.model.Job;
+import com.pokemon.inventory.repository.CardBatchWriter;
 import com.pokemon.inventory.repository.CardRepository;
+import com.pokemon.inventory.repository.CardUpsert;
+import com.pokemon.inventory.repository.CollectionCursor;
+import com.pokemon.inventory.repository.CollectionFilter;
+import com.pokemon.inventory.repository.CollectionSort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -13,176 +23,157 @@ import java.util.*;
 @Service
 public class CardService {
 
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_SEARCH_RESULTS = 100;
+    public static final String REFRESH_PRICES_JOB = "refresh-prices";
+
     private final CardRepository repo;
+    private final CardBatchWriter writer;
     private final TcgdexApiService tcgdex;
+    private final JobService jobs;
+    private final CollectionStatsService stats;
+    private final TransactionTemplate tx;
 
-    public CardService(CardRepository repo, TcgdexApiService tcgdex) {
+    public CardService(CardRepository repo, CardBatchWriter writer, TcgdexApiService tcgdex,
+                       PriceRefreshService priceRefresh, JobService jobs, CollectionStatsService stats,
+                       PlatformTransactionManager transactionManager) {
         this.repo = repo;
+        this.writer = writer;
         this.tcgdex = tcgdex;
+        this.jobs = jobs;
+        this.stats = stats;
+        this.tx = new TransactionTemplate(transactionManager);
+        jobs.register(REFRESH_PRICES_JOB, priceRefresh::refresh);
     }
 
     public Card addCard(Long userId, AddCardRequest request) {
-        JsonNode data = tcgdex.getCard(request.getCardId());
-        Card card = mapToEntity(data);
+        Card card = TcgdexCardMapper.mapToEntity(tcgdex.getCardRecord(request.getCardId()));
         card.setUserId(userId);
         card.setQuantity(request.getQuantity());
-        card.setCondition(request.getCondition());
+        card.setCondition(request.getCondition() != null ? request.getCondition() : "NM");
         card.setNotes(request.getNotes());
-        return repo.save(card);
+        // TCGdex lookup stays outside the transaction; the upsert and stats delta commit together
+        return tx.execute(status -> {
+            CardUpsert upsert = writer.upsert(card);
+            stats.cardsUpserted(userId, List.of(upsert));
+            // A merge returns the existing row, with its own notes and added quantity
+            return upsert.inserted() ? card : repo.reload(card.getId());
+        });
     }
 
     public List<Card> getCollection(Long userId, String set, String rarity, String category,
                                     String type, String q, String sort, String order) {
-        List<Card> cards = repo.findByUserId(userId);
-        return cards.stream()
-                .filter(c -> set == null || set.equals(c.getSetId()))
-                .filter(c -> rarity == null || rarity.equals(c.getRarity()))
-                .filter(c -> category == null || category.equals(c.getCategory()))
-                .filter(c -> type == null || (c.getTypes() != null && c.getTypes().contains(type)))
-                .filter(c -> q == null || c.getName().toLowerCase().contains(q.toLowerCase()))
-                .sorted(getComparator(sort, order))
-                .toList();
+        return getCollectionPage(userId, set, rarity, category, type, q, sort, order, null, null).getCards();
     }
 
-    public Map<String, Object> getStats(Long userId) {
-        Map<String, Object> stats = new LinkedHashMap<>();
-        stats.put("unique_cards", repo.countByUserId(userId));
-        stats.put("total_cards", repo.getTotalCards(userId));
-        stats.put("total_sets", repo.getTotalSets(userId));
-        stats.put("total_value", repo.getTotalValue(userId));
-
-        List<Map<String, Object>> bySet = new ArrayList<>();
-        for (Object[] row : repo.getStatsBySet(userId)) {
-            bySet.add(Map.of(
-                    "set_name", row[0] != null ? row[0] : "Unknown",
-                    "set_id", row[1] != null ? row[1] : "",
-                    "cards", row[2],
-                    "total", row[3]
-            ));
-        }
-        stats.put("bySet", bySet);
-
-        List<Map<String, Object>> byRarity = new ArrayList<>();
-        for (Object[] row : repo.getStatsByRarity(userId)) {
-            byRarity.add(Map.of(
-                    "rarity", row[0] != null ? row[0] : "Unknown",
-                    "cards", row[1],
-                    "total", row[2]
-            ));
+    /**
+     * Filtered, sorted collection; filtering and sorting run in the database.
+     * Pass a {@code limit} to get one keyset page and a cursor for the next.
+     */
+    public CollectionPage getCollectionPage(Long userId, String set, String rarity, String category,
+                                            String type, String q, String sort, String order,
+                                            Integer limit, String cursor) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
         }
-        stats.put("byRarity", byRarity);
-        return stats;
+        CollectionSort sortKey = CollectionSort.fromParam(sort);
+        boolean ascending = CollectionSort.isAscending(order);
+        CollectionCursor after = cursor != null && !cursor.isBlank()
+                ? CollectionCursor.decode(cursor, sortKey, ascending) : null;
+        return repo.findCollection(userId, new CollectionFilter(set, rarity, category, type, q),
+                sortKey, ascending, limit, after);
     }
 
-    public Card updateCard(Long userId, Long id, UpdateCardRequest request) {
-        Card card = repo.findByIdAndUserId(id, userId)
-                .orElseThrow(() -> new NoSuchElementException("Card not found"));
-        if (request.getQuantity() != null) card.setQuantity(request.getQuantity());
-        if (request.getCondition() != null) card.setCondition(request.getCondition());
-        if (request.getNotes() != null) card.setNotes(request.getNotes());
-        card.setUpdatedAt(LocalDateTime.now());
-        return repo.save(card);
+    /** Ranked, typo-tolerant search over the user's cards (name, set, series, notes). */
+    public List<CollectionSearchHit> searchCollection(Long userId, String q, int limit) {
+        if (q == null || q.isBlank()) throw new IllegalArgumentException("q is required");
+        checkSearchLimit(limit);
+        return repo.searchCollection(userId, q.trim(), limit);
     }
 
-    public void deleteCard(Long userId, Long id) {
-        Card card = repo.findByIdAndUserId(id, userId)
-                .orElseThrow(() -> new NoSuchElementException("Card not found"));
-        repo.delete(card);
+    /** Card names in the user's collection completing {@code prefix}, for the search box. */
+    public List<String> suggestNames(Long userId, String prefix, int limit) {
+        checkSearchLimit(limit);
+        if (prefix == null || prefix.isBlank()) return List.of();
+        return repo.suggestNames(userId, prefix.trim(), limit);
     }
 
-    public int refreshPrices(Long userId) {
-        List<Card> cards = repo.findByUserId(userId);
-        int updated = 0;
-        for (Card card : cards) {
-            try {
-                JsonNode data = tcgdex.getCard(card.getCardId());
-                mapPricing(data, card);
-                card.setUpdatedAt(LocalDateTime.now());
-                repo.save(card);
-                updated++;
-            } catch (Exception e) {
-                // skip cards that fail
-            }
+    private static void checkSearchLimit(int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SEARCH_RESULTS);
         }
-        return updated;
     }
 
-    // ── Map TCGdex response to Card entity ───────────────
-
-    private Card mapToEntity(JsonNode data) {
-        Card card = new Card();
-        card.setCardId(textOrNull(data, "id"));
-        card.setName(textOrNull(data, "name"));
-        card.setCategory(textOrNull(data, "category"));
-        card.setRarity(textOrNull(data, "rarity"));
-        card.setHp(data.has("hp") ? data.get("hp").asInt() : null);
-        card.setTypes(data.has("types") ? data.get("types").toString() : "[]");
-        card.setSubtypes(data.has("stage") ? "[\"" + data.get("stage").asText() + "\"]" : "[]");
-
-        // Set info
-        JsonNode set = data.get("set");
-        if (set != null) {
-            card.setSetId(textOrNull(set, "id"));
-            card.setSetName(textOrNull(set, "name"));
-            JsonNode series = set.get("series");
-            if (series != null) {
-                card.setSeries(series.isObject() ? textOrNull(series, "name") : series.asText());
-            }
-        }
+    public Map<String, Object> getStats(Long userId) {
+        return stats.getStats(userId);
+    }
 
-        // Images: TCGdex gives a base URL, append quality suffix
-        String imageBase = textOrNull(data, "image");
-        if (imageBase != null) {
-            card.setImageSmall(imageBase + "/low.webp");
-            card.setImageLarge(imageBase + "/high.webp");
-        }
+    /** Version and last-modified time of the user's collection, for HTTP cache validation. */
+    public CollectionStats getCollectionVersion(Long userId) {
+        return stats.getSummary(userId);
+    }
 
-        mapPricing(data, card);
-        return card;
+    /** Recompute the user's stats from their cards, discarding any drift. */
+    public Map<String, Object> rebuildStats(Long userId) {
+        stats.rebuild(userId);
+        return stats.getStats(userId);
     }
 
-    private void mapPricing(JsonNode data, Card card) {
-        JsonNode pricing = data.get("pricing");
-        if (pricing == null || pricing.isNull()) return;
-        JsonNode tcgplayer = pricing.get("tcgplayer");
-        if (tcgplayer == null || tcgplayer.isNull()) return;
-
-        // Prefer normal, fall back to holo, then reverse
-        JsonNode variant = null;
-        for (String key : new String[]{"normal", "holofoil", "reverse-holofoil"}) {
-            if (tcgplayer.has(key) && !tcgplayer.get(key).isNull()) {
-                variant = tcgplayer.get(key);
-                break;
+    /**
+     * Change a row's quantity, condition or notes. Moving it to a condition the user already
+     * holds for that card merges it into that row (quantities add up, notes are kept unless
+     * given) and deletes it; the merged row is returned.
+     *
+     * The row is locked before it is read: adds merge into it with
+     * {@code quantity = quantity + n} and price refreshes rewrite it, and saving a stale copy
+     * would undo those and skew the stats delta.
+     */
+    public Card updateCard(Long userId, Long id, UpdateCardRequest request) {
+        return tx.execute(status -> {
+            Card card = repo.findByIdAndUserIdForUpdate(id, userId)
+                    .orElseThrow(() -> new NoSuchElementException("Card not found"));
+            String condition = request.getCondition();
+            if (condition != null && !condition.equals(card.getCondition())) {
+                Optional<Card> held = repo.findForUpdate(userId, card.getCardId(), condition);
+                if (held.isPresent()) return mergeInto(held.get(), card, request);
             }
-        }
-        if (variant == null) return;
-
-        card.setPriceLow(doubleOrNull(variant, "lowPrice"));
-        card.setPriceMid(doubleOrNull(variant, "midPrice"));
-        card.setPriceHigh(doubleOrNull(variant, "highPrice"));
-        card.setPriceMarket(doubleOrNull(variant, "marketPrice"));
-
-        if (tcgplayer.has("updated") && !tcgplayer.get("updated").isNull()) {
-            card.setPriceUpdatedAt(tcgplayer.get("updated").asText());
-        }
+            CollectionStatsService.Contribution before = CollectionStatsService.Contribution.of(card);
+            if (request.getQuantity() != null) card.setQuantity(request.getQuantity());
+            if (request.getCondition() != null) card.setCondition(request.getCondition());
+            if (request.getNotes() != null) card.setNotes(request.getNotes());
+            card.setUpdatedAt(LocalDateTime.now());
+            Card saved = repo.save(card);
+            stats.cardChanged(before, saved);
+            return saved;
+        });
     }
 
-    private Double doubleOrNull(JsonNode node, String field) {
-        return node.has(field) && !node.get(field).isNull() ? node.get(field).asDouble() : null;
+    private Card mergeInto(Card held, Card card, UpdateCardRequest request) {
+        CollectionStatsService.Contribution before = CollectionStatsService.Contribution.of(held);
+        held.setQuantity(held.getQuantity() + (request.getQuantity() != null ? request.getQuantity() : card.getQuantity()));
+        if (request.getNotes() != null) held.setNotes(request.getNotes());
+        held.setUpdatedAt(LocalDateTime.now());
+        repo.delete(card);
+        stats.cardRemoved(card);
+        Card saved = repo.save(held);
+        stats.cardChanged(before, saved);
+        return saved;
     }
 
-    private String textOrNull(JsonNode node, String field) {
-        return node.has(field) && !node.get(field).isNull() ? node.get(field).asText() : null;
+    /** Delete a row; it is locked first so the stats subtract the quantity actually removed. */
+    public void deleteCard(Long userId, Long id) {
+        tx.executeWithoutResult(status -> {
+            Card card = repo.findByIdAndUserIdForUpdate(id, userId)
+                    .orElseThrow(() -> new NoSuchElementException("Card not found"));
+            repo.delete(card);
+            stats.cardRemoved(card);
+        });
     }
 
-    private Comparator<Card> getComparator(String sort, String order) {
-        Comparator<Card> comp;
-        if ("name".equals(sort)) comp = Comparator.comparing(Card::getName, Comparator.nullsLast(String::compareToIgnoreCase));
-        else if ("set_name".equals(sort)) comp = Comparator.comparing(Card::getSetName, Comparator.nullsLast(String::compareToIgnoreCase));
-        else if ("rarity".equals(sort)) comp = Comparator.comparing(Card::getRarity, Comparator.nullsLast(String::compareToIgnoreCase));
-        else if ("quantity".equals(sort)) comp = Comparator.comparingInt(Card::getQuantity);
-        else if ("price".equals(sort)) comp = Comparator.comparing(Card::getPriceMid, Comparator.nullsLast(Double::compareTo));
-        else comp = Comparator.comparing(Card::getCreatedAt, Comparator.nullsLast(LocalDateTime::compareTo));
-        return "asc".equalsIgnoreCase(order) ? comp : comp.reversed();
+    /**
+     * Start a background price refresh, or return the one already queued or running.
+     */
+    public Job refreshPrices(Long userId) {
+        return jobs.submit(userId, REFRESH_PRICES_JOB);
     }
 }
@@ -0,0 +1,249 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.dto.ScanCandidate;
+import com.pokemon.inventory.repository.Trigrams;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable in-memory index of the mirrored catalog, for turning what the vision model
+ * read off a card (name, set name, a number like "025/102") into TCGdex card ids
+ * without a network call.
+ *
+ * Candidates come from an exact lookup on the card's number within its set and from a
+ * trigram → name inverted index, so a misread name ("Charizrd") still finds its
+ * printings. Each candidate is then scored on name, set and number together.
+ */
+public final class CatalogCardIndex {
+
+    public static final CatalogCardIndex EMPTY = build(List.of(), List.of());
+
+    /** One mirrored card, as read from catalog_cards. */
+    public record CardRow(String id, String localId, String name, String setId) {
+    }
+
+    /** One mirrored set; {@code official} is its printed size (the "102" in "4/102"), or null. */
+    public record SetRow(String id, String name, Integer official) {
+    }
+
+    // Names less similar than this are not looked at; of the rest, only the closest few
+    private static final double MIN_NAME_SIMILARITY = 0.3;
+    private static final int MAX_NAMES = 20;
+    private static final double MIN_SCORE = 0.4;
+    private static final double NAME_WEIGHT = 0.5;
+    private static final double SET_WEIGHT = 0.25;
+    private static final double NUMBER_WEIGHT = 0.25;
+    // Several sets share a printed size, so it is weaker evidence than the set's name
+    private static final double SET_SIZE_MATCH = 0.5;
+
+    // "025", "TG05", "SWSH020", "H1": letters, zero-padded digits, optional letter suffix
+    private static final Pattern NUMBER = Pattern.compile("([a-z]*)0*(\\d+)([a-z]*)");
+
+    private final String[] cardIds;
+    private final String[] cardNames;
+    private final String[] cardLocalIds;
+    private final String[] cardNumbers;
+    private final int[] cardSet;
+    private final int[] cardName;
+
+    private final String[] setIds;
+    private final String[] setNames;
+    private final int[] setOfficial;
+    private final List<Set<String>> setTrigrams;
+
+    private final int[] nameTrigramCounts;
+    private final int[][] namePrintings;
+    private final Map<String, int[]> trigramNames;
+    private final Map<String, int[]> numberCards;
+
+    private CatalogCardIndex(String[] cardIds, String[] cardNames, String[] cardLocalIds, String[] cardNumbers,
+                             int[] cardSet, int[] cardName, String[] setIds, String[] setNames, int[] setOfficial,
+                             List<Set<String>> setTrigrams, int[] nameTrigramCounts, int[][] namePrintings,
+                             Map<String, int[]> trigramNames, Map<String, int[]> numberCards) {
+        this.cardIds = cardIds;
+        this.cardNames = cardNames;
+        this.cardLocalIds = cardLocalIds;
+        this.cardNumbers = cardNumbers;
+        this.cardSet = cardSet;
+        this.cardName = cardName;
+        this.setIds = setIds;
+        this.setNames = setNames;
+        this.setOfficial = setOfficial;
+        this.setTrigrams = setTrigrams;
+        this.nameTrigramCounts = nameTrigramCounts;
+        this.namePrintings = namePrintings;
+        this.trigramNames = trigramNames;
+        this.numberCards = numberCards;
+    }
+
+    public static CatalogCardIndex build(List<CardRow> cards, List<SetRow> sets) {
+        int setCount = sets.size();
+        String[] setIds = new String[setCount];
+        String[] setNames = new String[setCount];
+        int[] setOfficial = new int[setCount];
+        List<Set<String>> setTrigrams = new ArrayList<>(setCount);
+        Map<String, Integer> setIndex = new HashMap<>();
+        for (int s = 0; s < setCount; s++) {
+            SetRow set = sets.get(s);
+            setIds[s] = set.id();
+            setNames[s] = set.name();
+            setOfficial[s] = set.official() != null ? set.official() : 0;
+            setTrigrams.add(Trigrams.of(CardNameIndex.fold(set.name() != null ? set.name() : "")));
+            setIndex.put(set.id(), s);
+        }
+
+        int cardCount = cards.size();
+        String[] cardIds = new String[cardCount];
+        String[] cardNames = new String[cardCount];
+        String[] cardLocalIds = new String[cardCount];
+        String[] cardNumbers = new String[cardCount];
+        int[] cardSet = new int[cardCount];
+        int[] cardName = new int[cardCount];
+        Map<String, Integer> nameIndex = new HashMap<>();
+        List<List<Integer>> printings = new ArrayList<>();
+        Map<String, List<Integer>> numbers = new HashMap<>();
+        for (int c = 0; c < cardCount; c++) {
+            CardRow card = cards.get(c);
+            cardIds[c] = card.id();
+            cardNames[c] = card.name();
+            cardLocalIds[c] = card.localId();
+            cardNumbers[c] = numberKey(card.localId());
+            cardSet[c] = setIndex.getOrDefault(card.setId(), -1);
+            String folded = CardNameIndex.fold(card.name() != null ? card.name() : "");
+            int n = nameIndex.computeIfAbsent(folded, k -> {
+                printings.add(new ArrayList<>());
+                return printings.size() - 1;
+            });
+            cardName[c] = n;
+            printings.get(n).add(c);
+            if (cardNumbers[c] != null) numbers.computeIfAbsent(cardNumbers[c], k -> new ArrayList<>()).add(c);
+        }
+
+        int[] nameTrigramCounts = new int[nameIndex.size()];
+        Map<String, List<Integer>> postings = new HashMap<>();
+        nameIndex.forEach((name, n) -> {
+            Set<String> trigrams = Trigrams.of(name);
+            nameTrigramCounts[n] = trigrams.size();
+            for (String trigram : trigrams) postings.computeIfAbsent(trigram, k -> new ArrayList<>()).add(n);
+        });
+
+        int[][] namePrintings = new int[printings.size()][];
+        for (int n = 0; n < namePrintings.length; n++) namePrintings[n] = toArray(printings.get(n));
+        Map<String, int[]> trigramNames = new HashMap<>();
+        postings.forEach((trigram, names) -> trigramNames.put(trigram, toArray(names)));
+        Map<String, int[]> numberCards = new HashMap<>();
+        numbers.forEach((number, matches) -> numberCards.put(number, toArray(matches)));
+
+        return new CatalogCardIndex(cardIds, cardNames, cardLocalIds, cardNumbers, cardSet, cardName, setIds,
+                setNames, setOfficial, setTrigrams, nameTrigramCounts, namePrintings, trigramNames, numberCards);
+    }
+
+    public int size() {
+        return cardIds.length;
+    }
+
+    /**
+     * Catalog cards best matching what was read off a card, best first. Any of the three
+     * may be null; a number may carry the set size ("025/102") or not ("SWSH020").
+     */
+    public List<ScanCandidate> resolve(String name, String setName, String cardNumber, int limit) {
+        Set<String> nameQuery = name == null ? Set.of() : Trigrams.of(CardNameIndex.fold(name));
+        Set<String> setQuery = setName == null ? Set.of() : Trigrams.of(CardNameIndex.fold(setName));
+        String number = null;
+        int setSize = 0;
+        if (cardNumber != null && !cardNumber.isBlank()) {
+            int slash = cardNumber.indexOf('/');
+            number = numberKey(slash < 0 ? cardNumber : cardNumber.substring(0, slash));
+            if (slash >= 0) {
+                String total = cardNumber.substring(slash + 1).strip();
+                if (total.matches("\\d{1,4}")) setSize = Integer.parseInt(total);
+            }
+        }
+
+        // Trigrams shared with each name, counted through the inverted index
+        int[] shared = new int[nameTrigramCounts.length];
+        for (String trigram : nameQuery) {
+            int[] names = trigramNames.get(trigram);
+            if (names != null) for (int n : names) shared[n]++;
+        }
+
+        Set<Integer> pool = new LinkedHashSet<>();
+        if (number != null) {
+            for (int c : numberCards.getOrDefault(number, new int[0])) pool.add(c);
+        }
+        for (int n : closestNames(shared, nameQuery.size())) {
+            for (int c : namePrintings[n]) pool.add(c);
+        }
+        if (pool.isEmpty()) return List.of();
+
+        boolean setKnown = !setQuery.isEmpty() || setSize > 0;
+        double[] setScores = setKnown ? setScores(setQuery, setName, setSize) : null;
+        List<ScanCandidate> candidates = new ArrayList<>();
+        for (int c : pool) {
+            double weight = 0;
+            double score = 0;
+            if (!nameQuery.isEmpty()) {
+                weight += NAME_WEIGHT;
+                score += NAME_WEIGHT * similarity(shared, cardName[c], nameQuery.size());
+            }
+            if (setKnown) {
+                weight += SET_WEIGHT;
+                score += SET_WEIGHT * (cardSet[c] >= 0 ? setScores[cardSet[c]] : 0);
+            }
+            if (number != null) {
+                weight += NUMBER_WEIGHT;
+                score += NUMBER_WEIGHT * (number.equals(cardNumbers[c]) ? 1 : 0);
+            }
+            score /= weight;
+            if (score < MIN_SCORE) continue;
+            int s = cardSet[c];
+            candidates.add(new ScanCandidate(cardIds[c], cardNames[c], s >= 0 ? setIds[s] : null,
+                    s >= 0 ? setNames[s] : null, cardLocalIds[c], score));
+        }
+        candidates.sort(Comparator.comparingDouble(ScanCandidate::score).reversed()
+                .thenComparing(ScanCandidate::cardId));
+        return candidates.size() > limit ? List.copyOf(candidates.subList(0, limit)) : candidates;
+    }
+
+    private List<Integer> closestNames(int[] shared, int queryTrigrams) {
+        if (queryTrigrams == 0) return List.of();
+        List<Integer> names = new ArrayList<>();
+        for (int n = 0; n < shared.length; n++) {
+            if (shared[n] > 0 && similarity(shared, n, queryTrigrams) >= MIN_NAME_SIMILARITY) names.add(n);
+        }
+        names.sort(Comparator.comparingDouble((Integer n) -> similarity(shared, n, queryTrigrams)).reversed());
+        return names.size() > MAX_NAMES ? names.subList(0, MAX_NAMES) : names;
+    }
+
+    /** Same measure as {@link Trigrams#similarity}, from the shared counts. */
+    private double similarity(int[] shared, int name, int queryTrigrams) {
+        int common = shared[name];
+        return common == 0 ? 0 : (double) common / (queryTrigrams + nameTrigramCounts[name] - common);
+    }
+
+    private double[] setScores(Set<String> setQuery, String setName, int setSize) {
+        double[] scores = new double[setIds.length];
+        for (int s = 0; s < scores.length; s++) {
+            double score = Trigrams.similarity(setQuery, setTrigrams.get(s));
+            // The model sometimes reads the set code instead of its name
+            if (setName != null && setName.strip().equalsIgnoreCase(setIds[s])) score = 1;
+            if (setSize > 0 && setOfficial[s] == setSize) score = Math.max(score, SET_SIZE_MATCH);
+            scores[s] = score;
+        }
+        return scores;
+    }
+
+    /** Card number without zero padding or case: "025" → "25", "TG05" → "tg5". Null if blank. */
+    static String numberKey(String number) {
+        if (number == null || number.isBlank()) return null;
+        String key = number.strip().toLowerCase(Locale.ROOT);
+        Matcher m = NUMBER.matcher(key);
+        return m.matches() ? m.group(1) + m.group(2) + m.group(3) : key;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
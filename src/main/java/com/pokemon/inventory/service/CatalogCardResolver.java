@@ -0,0 +1,72 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.pokemon.inventory.dto.ScanCandidate;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves vision output to catalog card ids from an in-memory {@link CatalogCardIndex},
+ * so a scan answers with candidates and the client needs no follow-up search.
+ *
+ * The index is rebuilt from the catalog mirror after each catalog sync and on a timer as a
+ * backstop. Until the mirror is warm (fully loaded) there are no candidates and the client
+ * falls back to {@code /api/search}.
+ */
+@Service
+public class CatalogCardResolver {
+
+    private final CatalogMirror mirror;
+    private final Timer buildTimer;
+
+    @Value("${scan.catalog-index.refresh-enabled:true}")
+    private boolean refreshEnabled;
+
+    private volatile CatalogCardIndex index = CatalogCardIndex.EMPTY;
+
+    public CatalogCardResolver(CatalogMirror mirror, MeterRegistry meters) {
+        this.mirror = mirror;
+        this.buildTimer = Timer.builder("scan.catalog-index.build").register(meters);
+        Gauge.builder("scan.catalog-index.size", this, r -> r.index.size()).register(meters);
+    }
+
+    /** Candidates for the {@code cardName}, {@code setName} and {@code cardNumber} the model read. */
+    public List<ScanCandidate> resolve(JsonNode identified, int limit) {
+        return index.resolve(text(identified, "cardName"), text(identified, "setName"),
+                text(identified, "cardNumber"), limit);
+    }
+
+    public CatalogCardIndex getIndex() {
+        return index;
+    }
+
+    @Scheduled(initialDelayString = "${scan.catalog-index.initial-delay:PT45S}",
+            fixedDelayString = "${scan.catalog-index.interval:PT6H}")
+    public synchronized void refresh() {
+        // A partial mirror would drop candidates until the next rebuild, hours away
+        if (!refreshEnabled || !mirror.isWarm()) return;
+        try {
+            long start = System.nanoTime();
+            CatalogCardIndex rebuilt = mirror.buildCardIndex();
+            long nanos = System.nanoTime() - start;
+            index = rebuilt;
+            buildTimer.record(nanos, TimeUnit.NANOSECONDS);
+            System.out.println("Scan catalog index: " + rebuilt.size() + " cards, built in "
+                    + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+        } catch (Exception e) {
+            System.out.println("Scan catalog index refresh failed: " + e.getMessage());
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() || value.asText().isBlank() ? null : value.asText();
+    }
+}
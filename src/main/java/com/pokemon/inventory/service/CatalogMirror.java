@@ -0,0 +1,246 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pokemon.inventory.model.CatalogCard;
+import com.pokemon.inventory.model.CatalogSet;
+import com.pokemon.inventory.repository.CatalogCardRepository;
+import com.pokemon.inventory.repository.CatalogSetRepository;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Read/write access to the local copy of the TCGdex catalog (catalog_sets / catalog_cards).
+ *
+ * The mirror is "warm" once every known set has been synced; until then
+ * {@link TcgdexApiService} keeps going to the live API.
+ */
+@Component
+public class CatalogMirror {
+
+    private final CatalogSetRepository setRepo;
+    private final CatalogCardRepository cardRepo;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private volatile Boolean warm;
+
+    public CatalogMirror(CatalogSetRepository setRepo, CatalogCardRepository cardRepo) {
+        this.setRepo = setRepo;
+        this.cardRepo = cardRepo;
+    }
+
+    public boolean isWarm() {
+        Boolean w = warm;
+        if (w == null) {
+            w = refreshWarmState();
+        }
+        return w;
+    }
+
+    public boolean refreshWarmState() {
+        boolean w = setRepo.count() > 0 && setRepo.countBySyncedAtIsNull() == 0;
+        warm = w;
+        return w;
+    }
+
+    // ── Reads ─────────────────────────────────────────────
+
+    /** The mirrored card row: its payload as text, and when it was synced. */
+    public Optional<CatalogCard> findCardRecord(String cardId) {
+        return cardRepo.findById(cardId);
+    }
+
+    /** Card name → number of mirrored printings with that name. */
+    public Map<String, Integer> countCardNames() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Object[] row : cardRepo.countByName()) {
+            counts.put((String) row[0], ((Number) row[1]).intValue());
+        }
+        return counts;
+    }
+
+    /** Index of every mirrored card for resolving scans; empty until sets are synced. */
+    public CatalogCardIndex buildCardIndex() {
+        List<CatalogCardIndex.SetRow> sets = new ArrayList<>();
+        for (Object[] row : setRepo.findIndexRows()) {
+            sets.add(new CatalogCardIndex.SetRow((String) row[0], (String) row[1], (Integer) row[2]));
+        }
+        List<CatalogCardIndex.CardRow> cards = new ArrayList<>();
+        for (Object[] row : cardRepo.findIndexRows()) {
+            cards.add(new CatalogCardIndex.CardRow((String) row[0], (String) row[1], (String) row[2], (String) row[3]));
+        }
+        return CatalogCardIndex.build(cards, sets);
+    }
+
+    public Optional<JsonNode> findSet(String setId) {
+        return setRepo.findById(setId)
+                .filter(s -> s.getPayload() != null)
+                .map(s -> parse(s.getPayload()));
+    }
+
+    /**
+     * Set list in the same brief shape as TCGdex {@code /sets}.
+     */
+    public JsonNode getSets() {
+        ArrayNode sets = mapper.createArrayNode();
+        for (CatalogSet s : setRepo.findAllByOrderByPositionAsc()) {
+            ObjectNode brief = sets.addObject();
+            brief.put("id", s.getId());
+            brief.put("name", s.getName());
+            if (s.getLogo() != null) brief.put("logo", s.getLogo());
+            if (s.getSymbol() != null) brief.put("symbol", s.getSymbol());
+            ObjectNode count = brief.putObject("cardCount");
+            count.put("total", s.getCardCountTotal());
+            count.put("official", s.getCardCountOfficial());
+        }
+        return sets;
+    }
+
+    /**
+     * Same filters and response shape as {@link TcgdexApiService#searchCards}.
+     * Name and type use TCGdex's case-insensitive "contains" matching.
+     */
+    public JsonNode searchCards(String q, String set, String rarity, String type, String category,
+                                int page, int pageSize) {
+        Specification<CatalogCard> spec = (root, query, cb) -> {
+            List<Predicate> where = new ArrayList<>();
+            if (q != null && !q.isBlank()) {
+                where.add(cb.like(cb.lower(root.get("name")), "%" + q.toLowerCase() + "%"));
+            }
+            if (set != null && !set.isBlank()) where.add(cb.equal(root.get("setId"), set));
+            if (rarity != null && !rarity.isBlank()) where.add(cb.equal(root.get("rarity"), rarity));
+            if (category != null && !category.isBlank()) where.add(cb.equal(root.get("category"), category));
+            if (type != null && !type.isBlank()) {
+                where.add(cb.like(cb.lower(root.get("types")), "%" + type.toLowerCase() + "%"));
+            }
+            return cb.and(where.toArray(new Predicate[0]));
+        };
+        Page<CatalogCard> result = cardRepo.findAll(spec,
+                PageRequest.of(Math.max(page - 1, 0), Math.max(pageSize, 1), Sort.by("id")));
+
+        ArrayNode data = mapper.createArrayNode();
+        result.forEach(c -> data.add(parse(c.getPayload())));
+
+        ObjectNode response = mapper.createObjectNode();
+        response.set("data", data);
+        response.put("page", page);
+        response.put("pageSize", pageSize);
+        response.put("totalCount", result.getTotalElements());
+        return response;
+    }
+
+    public Optional<CatalogSet> findSetRecord(String setId) {
+        return setRepo.findById(setId);
+    }
+
+    /**
+     * Sets ordered from least to most recently synced.
+     */
+    public List<CatalogSet> setsBySyncAge() {
+        return setRepo.findBySyncedAtIsNotNullOrderBySyncedAtAsc();
+    }
+
+    // ── Writes (used by CatalogSyncService) ──────────────
+
+    /**
+     * Record the upstream set list without touching cards. With {@code includeNew},
+     * sets not yet mirrored are added unsynced, which keeps the mirror cold until each
+     * of them has been loaded; otherwise only existing sets are updated (name, position).
+     */
+    @Transactional
+    public void saveSetBriefs(JsonNode briefs, boolean includeNew) {
+        int position = 0;
+        for (JsonNode brief : briefs) {
+            String id = brief.get("id").asText();
+            CatalogSet set = setRepo.findById(id).orElse(null);
+            if (set == null && includeNew) {
+                set = new CatalogSet();
+                set.setId(id);
+            }
+            if (set != null) {
+                Integer syncedTotal = set.getCardCountTotal();
+                applyBrief(set, brief, position);
+                // Keep the synced card count so a changed set is still detected as changed
+                if (set.getSyncedAt() != null) set.setCardCountTotal(syncedTotal);
+                setRepo.save(set);
+            }
+            position++;
+        }
+        if (includeNew) warm = null;
+    }
+
+    /**
+     * Replace a set and all of its cards with freshly fetched bodies.
+     */
+    @Transactional
+    public void saveSet(JsonNode setBody, List<JsonNode> cardBodies, int position) {
+        LocalDateTime now = LocalDateTime.now();
+        String setId = setBody.get("id").asText();
+
+        // Cards listed by the set but missing from cardBodies (failed fetch) keep their old row
+        List<String> ids = new ArrayList<>();
+        setBody.path("cards").forEach(brief -> ids.add(brief.get("id").asText()));
+        List<CatalogCard> rows = new ArrayList<>();
+        for (JsonNode body : cardBodies) {
+            CatalogCard card = new CatalogCard();
+            card.setId(body.get("id").asText());
+            card.setLocalId(text(body, "localId"));
+            card.setName(text(body, "name"));
+            card.setSetId(setId);
+            card.setSetName(text(setBody, "name"));
+            card.setRarity(text(body, "rarity"));
+            card.setCategory(text(body, "category"));
+            card.setTypes(body.has("types") ? body.get("types").toString() : "[]");
+            card.setPayload(body.toString());
+            card.setSyncedAt(now);
+            rows.add(card);
+        }
+        cardRepo.saveAll(rows);
+        if (ids.isEmpty()) {
+            cardRepo.deleteAll(cardRepo.findBySetId(setId));
+        } else {
+            cardRepo.deleteBySetIdAndIdNotIn(setId, ids);
+        }
+
+        CatalogSet set = setRepo.findById(setId).orElseGet(CatalogSet::new);
+        set.setId(setId);
+        applyBrief(set, setBody, position);
+        set.setPayload(setBody.toString());
+        set.setSyncedAt(now);
+        setRepo.save(set);
+    }
+
+    private void applyBrief(CatalogSet set, JsonNode brief, int position) {
+        set.setName(text(brief, "name"));
+        set.setLogo(text(brief, "logo"));
+        set.setSymbol(text(brief, "symbol"));
+        set.setPosition(position);
+        JsonNode count = brief.get("cardCount");
+        if (count != null) {
+            set.setCardCountTotal(count.has("total") ? count.get("total").asInt() : null);
+            set.setCardCountOfficial(count.has("official") ? count.get("official").asInt() : null);
+        }
+    }
+
+    private JsonNode parse(String payload) {
+        try {
+            return mapper.readTree(payload);
+        } catch (Exception e) {
+            throw new RuntimeException("Corrupt catalog payload", e);
+        }
+    }
+
+    private String text(JsonNode node, String field) {
+        return node.has(field) && !node.get(field).isNull() ? node.get(field).asText() : null;
+    }
+}
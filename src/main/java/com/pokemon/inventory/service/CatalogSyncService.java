@@ -0,0 +1,136 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.pokemon.inventory.model.CatalogSet;
+import com.pokemon.inventory.service.TcgdexResilience.Traffic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Keeps the local catalog mirror in step with TCGdex.
+ *
+ * The first run does a full load of every set and card. Later runs are incremental:
+ * new sets and sets whose card count changed are reloaded, plus a few of the
+ * least recently synced sets to pick up edits to existing cards. Each successful run
+ * rebuilds the scan index in {@link CatalogCardResolver} so scans see the new cards.
+ */
+@Service
+@ConditionalOnProperty(name = "catalog.sync.enabled", havingValue = "true")
+public class CatalogSyncService {
+
+    private final TcgdexApiService tcgdex;
+    private final CatalogMirror mirror;
+    private final FanOutExecutor fanOut;
+    private final CatalogCardResolver resolver;
+
+    @Value("${catalog.sync.concurrency:4}")
+    private int concurrency;
+
+    @Value("${catalog.sync.refresh-per-cycle:2}")
+    private int refreshPerCycle;
+
+    public CatalogSyncService(TcgdexApiService tcgdex, CatalogMirror mirror, FanOutExecutor fanOut,
+                              CatalogCardResolver resolver) {
+        this.tcgdex = tcgdex;
+        this.mirror = mirror;
+        this.fanOut = fanOut;
+        this.resolver = resolver;
+    }
+
+    @Scheduled(initialDelayString = "${catalog.sync.initial-delay:PT10S}", fixedDelayString = "${catalog.sync.interval:PT6H}")
+    public void sync() {
+        try {
+            if (mirror.isWarm()) {
+                int refreshed = incrementalSync();
+                System.out.println("Catalog sync: refreshed " + refreshed + " set(s)");
+            } else {
+                int loaded = fullLoad();
+                System.out.println("Catalog sync: full load of " + loaded + " set(s)");
+            }
+            resolver.refresh();
+        } catch (Exception e) {
+            System.out.println("Catalog sync failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Mirror every set. Sets already synced by an earlier, interrupted load are skipped.
+     */
+    public int fullLoad() {
+        JsonNode briefs = tcgdex.fetchSets();
+        mirror.saveSetBriefs(briefs, true);
+
+        int loaded = 0;
+        int position = 0;
+        for (JsonNode brief : briefs) {
+            String setId = brief.get("id").asText();
+            boolean done = mirror.findSetRecord(setId).map(s -> s.getSyncedAt() != null).orElse(false);
+            if (!done) {
+                syncSet(setId, position);
+                loaded++;
+            }
+            position++;
+        }
+        mirror.refreshWarmState();
+        return loaded;
+    }
+
+    /**
+     * Reload new or changed sets, then the {@code refreshPerCycle} stalest ones.
+     */
+    public int incrementalSync() {
+        JsonNode briefs = tcgdex.fetchSets();
+        mirror.saveSetBriefs(briefs, false);
+        Set<String> refreshed = new HashSet<>();
+
+        int position = 0;
+        for (JsonNode brief : briefs) {
+            String setId = brief.get("id").asText();
+            Integer upstreamTotal = brief.has("cardCount") ? brief.get("cardCount").path("total").asInt() : null;
+            CatalogSet local = mirror.findSetRecord(setId).orElse(null);
+            if (local == null || local.getSyncedAt() == null
+                    || !Objects.equals(local.getCardCountTotal(), upstreamTotal)) {
+                syncSet(setId, position);
+                refreshed.add(setId);
+            }
+            position++;
+        }
+
+        int budget = refreshPerCycle;
+        for (CatalogSet stale : mirror.setsBySyncAge()) {
+            if (budget <= 0) break;
+            if (refreshed.add(stale.getId())) {
+                syncSet(stale.getId(), stale.getPosition());
+                budget--;
+            }
+        }
+        mirror.refreshWarmState();
+        return refreshed.size();
+    }
+
+    /**
+     * Fetch one set and the full body of each of its cards, then replace it in the mirror.
+     * Cards whose detail fetch fails keep their previous mirrored body until the next refresh.
+     */
+    public void syncSet(String setId, int position) {
+        JsonNode set = tcgdex.fetchSet(setId);
+        List<JsonNode> briefs = new ArrayList<>();
+        set.path("cards").forEach(briefs::add);
+
+        List<JsonNode> bodies = fanOut.map(Traffic.BACKGROUND, briefs, concurrency, Duration.ofMinutes(5),
+                brief -> tcgdex.fetchCard(brief.get("id").asText()),
+                (brief, error) -> null);
+        List<JsonNode> cards = bodies.stream().filter(Objects::nonNull).toList();
+
+        mirror.saveSet(set, cards, position);
+    }
+}
@@ -9,20 +9,26 @@ import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Service
 public class ClaudeVisionService {
 
     @Value("${claude.api.key}")
     private String apiKey;
 
+    @Value("${claude.api.url:https://api.anthropic.com/v1/messages}")
+    private String apiUrl;
+
+    @Value("${claude.api.model:claude-sonnet-4-20250514}")
+    private String model;
+
     private final RestTemplate restTemplate;
     private final ObjectMapper mapper = new ObjectMapper();
 
-    public ClaudeVisionService() {
-        var factory = new org.springframework.http.client.SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(15000);
-        factory.setReadTimeout(30000);
-        this.restTemplate = new RestTemplate(factory);
+    public ClaudeVisionService(OutboundHttp http,
+                               @Value("${claude.http.response-timeout:PT30S}") Duration responseTimeout) {
+        this.restTemplate = http.restTemplate(responseTimeout);
     }
 
     /**
@@ -33,7 +39,7 @@ public class ClaudeVisionService {
         try {
             // Build the request body
             ObjectNode body = mapper.createObjectNode();
-            body.put("model", "claude-sonnet-4-20250514");
+            body.put("model", model);
             body.put("max_tokens", 300);
 
             // System prompt
@@ -88,7 +94,7 @@ public class ClaudeVisionService {
             HttpEntity<String> entity = new HttpEntity<>(mapper.writeValueAsString(body), headers);
 
             ResponseEntity<String> response = restTemplate.exchange(
-                    "https://api.anthropic.com/v1/messages",
+                    apiUrl,
                     HttpMethod.POST,
                     entity,
                     String.class
@@ -0,0 +1,273 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pokemon.inventory.dto.CollectionImportResult;
+import com.pokemon.inventory.dto.CollectionImportResult.RowError;
+import com.pokemon.inventory.dto.TcgdexCard;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.repository.CardBatchWriter;
+import com.pokemon.inventory.service.TcgdexResilience.Traffic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bulk import of cards from CSV or JSON.
+ *
+ * The upload is parsed as it streams in and handled in chunks: the chunk's distinct card
+ * ids not seen earlier in the import are looked up once each, in parallel, and the chunk's
+ * valid rows are upserted together with one stats update, one transaction per chunk: a
+ * card the user already has in that condition gains the row's quantity rather than a
+ * second row. Bad rows are reported and skipped; chunks already written stay written.
+ */
+@Service
+public class CollectionImportService {
+
+    private final TcgdexApiService tcgdex;
+    private final FanOutExecutor fanOut;
+    private final CardBatchWriter writer;
+    private final CollectionStatsService stats;
+    private final TransactionTemplate tx;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Value("${collection.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${collection.import.concurrency:6}")
+    private int concurrency;
+
+    @Value("${collection.import.max-rows:20000}")
+    private int maxRows;
+
+    @Value("${collection.import.lookup-deadline:PT2M}")
+    private Duration lookupDeadline;
+
+    public CollectionImportService(TcgdexApiService tcgdex, FanOutExecutor fanOut, CardBatchWriter writer,
+                                   CollectionStatsService stats, PlatformTransactionManager transactionManager) {
+        this.tcgdex = tcgdex;
+        this.fanOut = fanOut;
+        this.writer = writer;
+        this.stats = stats;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    /** One parsed row: either a request to add, or the reason it cannot be added. */
+    private record Row(int number, String cardId, Integer quantity, String condition, String notes, String error) {
+        static Row invalid(int number, String cardId, String error) {
+            return new Row(number, cardId, null, null, null, error);
+        }
+    }
+
+    /** Result of looking up one card id: the card, or why it could not be found. */
+    private record Lookup(TcgdexCard card, String error) {
+    }
+
+    private interface RowSource {
+        /** The next row, or null at end of input. */
+        Row next() throws IOException;
+    }
+
+    // ── Formats ───────────────────────────────────────────
+
+    /**
+     * CSV with a header row naming at least a {@code cardId} column; {@code quantity},
+     * {@code condition} and {@code notes} are optional and other columns are ignored, so
+     * a CSV export can be imported as is.
+     */
+    public CollectionImportResult importCsv(Long userId, InputStream body) throws IOException {
+        CsvReader csv = new CsvReader(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        List<String> header = csv.next();
+        Map<String, Integer> columns = new HashMap<>();
+        if (header != null) {
+            for (int i = 0; i < header.size(); i++) {
+                columns.putIfAbsent(header.get(i).toLowerCase(Locale.ROOT).replaceAll("[^a-z]", ""), i);
+            }
+        }
+        Integer cardIdColumn = columns.containsKey("cardid") ? columns.get("cardid") : columns.get("id");
+        if (cardIdColumn == null) {
+            throw new IllegalArgumentException("CSV header must include a cardId column");
+        }
+        Integer quantityColumn = columns.containsKey("quantity") ? columns.get("quantity") : columns.get("qty");
+        Integer conditionColumn = columns.get("condition");
+        Integer notesColumn = columns.get("notes");
+
+        return run(userId, () -> {
+            List<String> fields;
+            while ((fields = csv.next()) != null) {
+                if (fields.stream().allMatch(String::isBlank)) continue;
+                return parse(csv.record(), field(fields, cardIdColumn), field(fields, quantityColumn),
+                        field(fields, conditionColumn), field(fields, notesColumn));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * A JSON array of {@code {cardId, quantity, condition, notes}} objects, or the
+     * {@code {"cards": [...]}} shape of the JSON export.
+     */
+    public CollectionImportResult importJson(Long userId, InputStream body) throws IOException {
+        JsonParser parser = mapper.getFactory().createParser(body);
+        JsonToken first = parser.nextToken();
+        if (first == JsonToken.START_OBJECT) {
+            // Skip to the "cards" array of an export
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && "cards".equals(field)) break;
+                parser.skipChildren();
+            }
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("Expected a JSON array of cards");
+        }
+
+        int[] position = {0};
+        return run(userId, () -> {
+            if (parser.nextToken() == JsonToken.END_ARRAY) return null;
+            int number = ++position[0];
+            JsonNode node = mapper.readTree(parser);
+            if (!node.isObject()) return Row.invalid(number, null, "Expected an object");
+            JsonNode quantity = node.get("quantity");
+            String quantityText = quantity == null || quantity.isNull() ? null : quantity.asText();
+            return parse(number, text(node, "cardId"), quantityText, text(node, "condition"), text(node, "notes"));
+        });
+    }
+
+    // ── Import pipeline ───────────────────────────────────
+
+    private CollectionImportResult run(Long userId, RowSource source) {
+        List<RowError> errors = new ArrayList<>();
+        Map<String, Lookup> lookups = new HashMap<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        int imported = 0;
+        int read = 0;
+        int lastNumber = 0;
+        while (true) {
+            Row row;
+            try {
+                row = source.next();
+            } catch (IOException e) {
+                // The rest of the upload cannot be read; keep what was already imported
+                errors.add(new RowError(lastNumber + 1, null, "Malformed input: " + message(e)));
+                break;
+            }
+            if (row == null) break;
+            lastNumber = row.number();
+            if (read == maxRows) {
+                errors.add(new RowError(row.number(), null,
+                        "Import is limited to " + maxRows + " rows; this and later rows were not imported"));
+                break;
+            }
+            read++;
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                imported += writeChunk(userId, chunk, lookups, errors);
+                chunk.clear();
+            }
+        }
+        imported += writeChunk(userId, chunk, lookups, errors);
+        // Every row read was either imported or reported
+        return new CollectionImportResult(imported, read - imported, errors);
+    }
+
+    private int writeChunk(Long userId, List<Row> chunk, Map<String, Lookup> lookups, List<RowError> errors) {
+        // Each card id is looked up once per import, however many rows reference it
+        List<String> missing = chunk.stream()
+                .filter(row -> row.error() == null)
+                .map(Row::cardId)
+                .filter(id -> !lookups.containsKey(id))
+                .distinct()
+                .toList();
+        List<Lookup> found = fanOut.map(Traffic.BACKGROUND, missing, concurrency, lookupDeadline,
+                id -> new Lookup(tcgdex.getCardRecord(id, Traffic.BACKGROUND), null),
+                (id, error) -> new Lookup(null, lookupError(error)));
+        for (int i = 0; i < missing.size(); i++) {
+            lookups.put(missing.get(i), found.get(i));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        // Rows for the same card and condition become one upsert of their summed quantity
+        Map<String, Card> cards = new LinkedHashMap<>();
+        int valid = 0;
+        for (Row row : chunk) {
+            String error = row.error() != null ? row.error() : lookups.get(row.cardId()).error();
+            if (error != null) {
+                errors.add(new RowError(row.number(), row.cardId(), error));
+                continue;
+            }
+            valid++;
+            Card merged = cards.get(row.cardId() + '\u0000' + row.condition());
+            if (merged != null) {
+                merged.setQuantity(merged.getQuantity() + row.quantity());
+                if (merged.getNotes() == null) merged.setNotes(row.notes());
+                continue;
+            }
+            Card card = TcgdexCardMapper.mapToEntity(lookups.get(row.cardId()).card());
+            card.setUserId(userId);
+            card.setQuantity(row.quantity());
+            card.setCondition(row.condition());
+            card.setNotes(row.notes());
+            card.setCreatedAt(now);
+            card.setUpdatedAt(now);
+            cards.put(row.cardId() + '\u0000' + row.condition(), card);
+        }
+        if (cards.isEmpty()) return 0;
+        tx.executeWithoutResult(status ->
+                stats.cardsUpserted(userId, writer.upsertAll(new ArrayList<>(cards.values()))));
+        return valid;
+    }
+
+    // ── Row parsing ───────────────────────────────────────
+
+    private static Row parse(int number, String cardId, String quantity, String condition, String notes) {
+        cardId = cardId == null ? "" : cardId.strip();
+        if (cardId.isEmpty()) return Row.invalid(number, null, "cardId is required");
+        int parsedQuantity = 1;
+        if (quantity != null && !quantity.isBlank()) {
+            try {
+                parsedQuantity = Integer.parseInt(quantity.strip());
+            } catch (NumberFormatException e) {
+                parsedQuantity = 0;
+            }
+            if (parsedQuantity < 1) return Row.invalid(number, cardId, "quantity must be a whole number of at least 1");
+        }
+        condition = condition == null || condition.isBlank() ? "NM" : condition.strip();
+        notes = notes == null || notes.isBlank() ? null : notes;
+        if (notes != null && notes.startsWith("'") && CollectionStreamWriter.isFormula(notes.substring(1))) {
+            notes = notes.substring(1);
+        }
+        return new Row(number, cardId, parsedQuantity, condition, notes, null);
+    }
+
+    private static String field(List<String> fields, Integer column) {
+        return column != null && column < fields.size() ? fields.get(column) : null;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static String lookupError(Throwable error) {
+        if (error instanceof HttpClientErrorException.NotFound) return "Unknown card id";
+        if (error instanceof TimeoutException) return "Card lookup timed out";
+        return "Card lookup failed";
+    }
+
+    private static String message(IOException e) {
+        return e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage();
+    }
+}
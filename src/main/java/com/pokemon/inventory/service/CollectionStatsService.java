@@ -0,0 +1,285 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pokemon.inventory.dto.StatsRollup;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.model.CollectionStats;
+import com.pokemon.inventory.repository.CardRepository;
+import com.pokemon.inventory.repository.CardUpsert;
+import com.pokemon.inventory.repository.CollectionStatsRepository;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Per-user collection stats, served from one precomputed row.
+ *
+ * Card writes apply their delta to the user's {@code collection_stats} row inside the
+ * same transaction, under a row lock. A missing row is rebuilt from the cards table on
+ * first use; {@link #rebuild} (also run by {@code --rebuild-stats} at startup and
+ * {@code POST /api/collection/stats/rebuild}) recomputes it from scratch to fix drift.
+ *
+ * The total value is summed in decimal and stored rounded to {@value #VALUE_SCALE} places,
+ * so applying many price deltas does not accumulate binary floating-point error.
+ */
+@Service
+public class CollectionStatsService implements CommandLineRunner {
+
+    static final int VALUE_SCALE = 4;
+
+    private final CollectionStatsRepository statsRepo;
+    private final CardRepository cardRepo;
+    private final TransactionTemplate tx;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public CollectionStatsService(CollectionStatsRepository statsRepo, CardRepository cardRepo,
+                                  PlatformTransactionManager transactionManager) {
+        this.statsRepo = statsRepo;
+        this.cardRepo = cardRepo;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * What a card contributes to the stats, captured before a change so it can be subtracted.
+     */
+    public record Contribution(String setId, String setName, String rarity, int quantity, Double priceMid) {
+        public static Contribution of(Card card) {
+            return new Contribution(card.getSetId(), card.getSetName(), card.getRarity(),
+                    card.getQuantity(), card.getPriceMid());
+        }
+
+        BigDecimal value() {
+            return priceMid != null ? BigDecimal.valueOf(priceMid).multiply(BigDecimal.valueOf(quantity)) : BigDecimal.ZERO;
+        }
+    }
+
+    @Override
+    public void run(String... args) {
+        if (Arrays.asList(args).contains("--rebuild-stats")) {
+            int users = rebuildAll();
+            System.out.println("Rebuilt collection stats for " + users + " users");
+        }
+    }
+
+    /** Same keys and shapes as the original six-query implementation. */
+    public Map<String, Object> getStats(Long userId) {
+        CollectionStats stats = statsRepo.findById(userId).orElseGet(() -> rebuild(userId));
+        return Tally.from(stats, mapper).toMap();
+    }
+
+    /**
+     * The user's stats row; its {@code version} and {@code updatedAt} change with every
+     * collection write, so they double as the collection's cache validators.
+     */
+    public CollectionStats getSummary(Long userId) {
+        return statsRepo.findById(userId).orElseGet(() -> rebuild(userId));
+    }
+
+    // ── Incremental updates (call inside the card write's transaction) ──
+    // Every update bumps the version, even when no total changes (e.g. edited notes).
+
+    /**
+     * One stats update for a batch of adds, all owned by {@code userId}: an inserted row
+     * counts in full, a merged row only for the copies it gained.
+     */
+    public void cardsUpserted(Long userId, List<CardUpsert> upserts) {
+        apply(userId, t -> upserts.forEach(upsert -> {
+            Contribution after = Contribution.of(upsert.card());
+            if (!upsert.inserted()) {
+                t.add(new Contribution(after.setId(), after.setName(), after.rarity(),
+                        after.quantity() - upsert.added(), after.priceMid()), -1);
+            }
+            t.add(after, 1);
+        }));
+    }
+
+    public void cardRemoved(Card card) {
+        apply(card.getUserId(), t -> t.add(Contribution.of(card), -1));
+    }
+
+    public void cardChanged(Contribution before, Card after) {
+        Contribution now = Contribution.of(after);
+        apply(after.getUserId(), t -> {
+            t.add(before, -1);
+            t.add(now, 1);
+        });
+    }
+
+    public void valueChanged(Long userId, double delta) {
+        apply(userId, t -> t.totalValue = t.totalValue.add(BigDecimal.valueOf(delta)));
+    }
+
+    private void apply(Long userId, Consumer<Tally> change) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Stats updates must run in the card write's transaction");
+        }
+        Optional<CollectionStats> locked = statsRepo.findForUpdate(userId);
+        if (locked.isEmpty()) {
+            // The card change is already visible in this transaction, so a rebuild includes it
+            rebuild(userId);
+            return;
+        }
+        CollectionStats stats = locked.get();
+        Tally tally = Tally.from(stats, mapper);
+        change.accept(tally);
+        tally.writeTo(stats, mapper);
+        statsRepo.save(stats);
+    }
+
+    // ── Rebuild ───────────────────────────────────────────
+
+    /** Recompute one user's stats from the cards table in a single query. */
+    public CollectionStats rebuild(Long userId) {
+        return tx.execute(status -> {
+            // Create and lock the row before reading the cards: concurrent first writes queue
+            // up here, and each one's rebuild counts the cards the others have committed
+            statsRepo.insertIfAbsent(userId);
+            CollectionStats stats = statsRepo.findForUpdate(userId).orElseThrow();
+
+            StatsRollup rollup = cardRepo.computeStats(userId);
+            Tally tally = new Tally();
+            tally.uniqueCards = rollup.getUniqueCards();
+            tally.totalCards = rollup.getTotalCards();
+            tally.totalValue = BigDecimal.valueOf(rollup.getTotalValue());
+            for (Object[] row : rollup.getBySet()) {
+                tally.sets.put(Arrays.asList((String) row[1], (String) row[0]), new long[]{(long) row[2], (long) row[3]});
+            }
+            for (Object[] row : rollup.getByRarity()) {
+                tally.rarities.put((String) row[0], new long[]{(long) row[1], (long) row[2]});
+            }
+            tally.writeTo(stats, mapper);
+            return statsRepo.save(stats);
+        });
+    }
+
+    /** Rebuild every user that has cards or a stats row; returns the number of users. */
+    public int rebuildAll() {
+        Set<Long> userIds = new TreeSet<>(cardRepo.findDistinctUserIds());
+        userIds.addAll(statsRepo.findAllUserIds());
+        for (Long userId : userIds) {
+            rebuild(userId);
+        }
+        return userIds.size();
+    }
+
+    /**
+     * Mutable working copy of one stats row. Sets are keyed by (setId, setName) like the
+     * original GROUP BY; each group holds {cards, total quantity}.
+     */
+    static class Tally {
+        long uniqueCards;
+        long totalCards;
+        BigDecimal totalValue = BigDecimal.ZERO;
+        final Map<List<String>, long[]> sets = new LinkedHashMap<>();
+        final Map<String, long[]> rarities = new LinkedHashMap<>();
+
+        void add(Contribution c, int sign) {
+            uniqueCards += sign;
+            totalCards += (long) sign * c.quantity();
+            totalValue = sign > 0 ? totalValue.add(c.value()) : totalValue.subtract(c.value());
+            bump(sets, Arrays.asList(c.setId(), c.setName()), c.quantity(), sign);
+            if (c.rarity() != null) bump(rarities, c.rarity(), c.quantity(), sign);
+        }
+
+        private static <K> void bump(Map<K, long[]> groups, K key, int quantity, int sign) {
+            long[] group = groups.computeIfAbsent(key, k -> new long[2]);
+            group[0] += sign;
+            group[1] += (long) sign * quantity;
+            if (group[0] <= 0) groups.remove(key);
+        }
+
+        static Tally from(CollectionStats stats, ObjectMapper mapper) {
+            Tally tally = new Tally();
+            tally.uniqueCards = stats.getUniqueCards();
+            tally.totalCards = stats.getTotalCards();
+            tally.totalValue = BigDecimal.valueOf(stats.getTotalValue());
+            if (stats.getBreakdown() == null) return tally;
+            try {
+                JsonNode root = mapper.readTree(stats.getBreakdown());
+                for (JsonNode set : root.path("sets")) {
+                    tally.sets.put(Arrays.asList(text(set, "set_id"), text(set, "set_name")),
+                            new long[]{set.path("cards").asLong(), set.path("total").asLong()});
+                }
+                for (JsonNode rarity : root.path("rarities")) {
+                    tally.rarities.put(text(rarity, "rarity"),
+                            new long[]{rarity.path("cards").asLong(), rarity.path("total").asLong()});
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException("Corrupt stats breakdown for user " + stats.getUserId(), e);
+            }
+            return tally;
+        }
+
+        void writeTo(CollectionStats stats, ObjectMapper mapper) {
+            ObjectNode root = mapper.createObjectNode();
+            ArrayNode setNodes = root.putArray("sets");
+            sets.forEach((key, group) -> setNodes.addObject()
+                    .put("set_id", key.get(0))
+                    .put("set_name", key.get(1))
+                    .put("cards", group[0])
+                    .put("total", group[1]));
+            ArrayNode rarityNodes = root.putArray("rarities");
+            rarities.forEach((rarity, group) -> rarityNodes.addObject()
+                    .put("rarity", rarity)
+                    .put("cards", group[0])
+                    .put("total", group[1]));
+
+            stats.setUniqueCards(uniqueCards);
+            stats.setTotalCards(totalCards);
+            stats.setTotalValue(roundedValue());
+            stats.setBreakdown(root.toString());
+            stats.setVersion(stats.getVersion() + 1);
+            stats.setUpdatedAt(LocalDateTime.now());
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("unique_cards", uniqueCards);
+            stats.put("total_cards", totalCards);
+            stats.put("total_sets", sets.keySet().stream().map(k -> k.get(0)).filter(Objects::nonNull).distinct().count());
+            stats.put("total_value", roundedValue());
+
+            List<Map<String, Object>> bySet = new ArrayList<>();
+            sets.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]))
+                    .forEach(e -> bySet.add(Map.of(
+                            "set_name", e.getKey().get(1) != null ? e.getKey().get(1) : "Unknown",
+                            "set_id", e.getKey().get(0) != null ? e.getKey().get(0) : "",
+                            "cards", e.getValue()[0],
+                            "total", e.getValue()[1]
+                    )));
+            stats.put("bySet", bySet);
+
+            List<Map<String, Object>> byRarity = new ArrayList<>();
+            rarities.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]))
+                    .forEach(e -> byRarity.add(Map.of(
+                            "rarity", e.getKey(),
+                            "cards", e.getValue()[0],
+                            "total", e.getValue()[1]
+                    )));
+            stats.put("byRarity", byRarity);
+            return stats;
+        }
+
+        double roundedValue() {
+            return totalValue.setScale(VALUE_SCALE, RoundingMode.HALF_UP).doubleValue();
+        }
+
+        private static String text(JsonNode node, String field) {
+            JsonNode value = node.get(field);
+            return value == null || value.isNull() ? null : value.asText();
+        }
+    }
+}
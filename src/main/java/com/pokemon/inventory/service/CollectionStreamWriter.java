@@ -0,0 +1,125 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.repository.CardRepository;
+import com.pokemon.inventory.repository.CollectionFilter;
+import com.pokemon.inventory.repository.CollectionSort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes a whole collection as {@code {"cards":[...],"total":n}}, or as CSV, while the
+ * cards are read from the database, one at a time. Memory use does not depend on collection size:
+ * cards are detached after reading and serialized straight to the response stream.
+ */
+@Service
+public class CollectionStreamWriter {
+
+    private static final List<String> CSV_COLUMNS = List.of("cardId", "name", "setId", "setName", "rarity",
+            "quantity", "condition", "notes", "priceMid", "createdAt");
+    private static final CollectionFilter NO_FILTER = new CollectionFilter(null, null, null, null, null);
+
+    private final CardRepository repo;
+    private final ObjectMapper mapper;
+    private final ObjectWriter cardWriter;
+    private final TransactionTemplate tx;
+
+    public CollectionStreamWriter(CardRepository repo, ObjectMapper mapper, PlatformTransactionManager transactionManager) {
+        this.repo = repo;
+        this.mapper = mapper;
+        // Let the generator's buffer decide when to flush, rather than once per card
+        this.cardWriter = mapper.writerFor(Card.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.tx = new TransactionTemplate(transactionManager);
+        this.tx.setReadOnly(true);
+    }
+
+    /** Same filters, sort and JSON shape as the unpaginated {@code GET /api/collection}. */
+    public void write(Long userId, String set, String rarity, String category, String type, String q,
+                      String sort, String order, OutputStream out) throws IOException {
+        CollectionFilter filter = new CollectionFilter(set, rarity, category, type, q);
+        CollectionSort sortKey = CollectionSort.fromParam(sort);
+        boolean ascending = CollectionSort.isAscending(order);
+
+        try (JsonGenerator json = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("cards");
+            // The cursor needs an open transaction for as long as rows are being read
+            long total = tx.execute(status -> {
+                long count = 0;
+                try (Stream<Card> cards = repo.streamCollection(userId, filter, sortKey, ascending)) {
+                    for (Card card : (Iterable<Card>) cards::iterator) {
+                        cardWriter.writeValue(json, card);
+                        count++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            });
+            json.writeEndArray();
+            json.writeNumberField("total", total);
+            json.writeEndObject();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The whole collection as CSV, oldest first. The columns are a superset of what
+     * {@code POST /api/collection/import} reads, so an export can be imported again.
+     */
+    public void writeCsv(Long userId, OutputStream out) throws IOException {
+        Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        csv.write(String.join(",", CSV_COLUMNS));
+        csv.write("\r\n");
+        try {
+            tx.executeWithoutResult(status -> {
+                try (Stream<Card> cards = repo.streamCollection(userId, NO_FILTER, CollectionSort.CREATED_AT, true)) {
+                    for (Card card : (Iterable<Card>) cards::iterator) {
+                        writeCsvRow(csv, card.getCardId(), card.getName(), card.getSetId(), card.getSetName(),
+                                card.getRarity(), card.getQuantity(), card.getCondition(), card.getNotes(),
+                                card.getPriceMid(), card.getCreatedAt());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        csv.flush();
+    }
+
+    private static void writeCsvRow(Writer csv, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) csv.write(',');
+            if (values[i] == null) continue;
+            String value = values[i].toString();
+            // Text a spreadsheet would run as a formula is prefixed with ' (the importer drops it)
+            if (values[i] instanceof String && isFormula(value)) value = "'" + value;
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                csv.write('"');
+                csv.write(value.replace("\"", "\"\""));
+                csv.write('"');
+            } else {
+                csv.write(value);
+            }
+        }
+        csv.write("\r\n");
+    }
+
+    static boolean isFormula(String value) {
+        return !value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0;
+    }
+}
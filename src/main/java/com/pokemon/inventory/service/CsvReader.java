@@ -0,0 +1,88 @@
+package com.pokemon.inventory.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 reader: comma separated, fields optionally in double quotes (with ""
+ * as an escaped quote and line breaks allowed inside), CRLF or LF line endings. Reads
+ * one record at a time, so a large upload is never held in memory.
+ */
+class CsvReader {
+
+    private final Reader in;
+    private int record;
+    private int pending = -2;
+
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /** Number of the record last returned, starting at 1 (spreadsheet row numbers). */
+    int record() {
+        return record;
+    }
+
+    /** The next record's fields, or null at end of input. */
+    List<String> next() throws IOException {
+        int c = read();
+        if (c == -1) return null;
+        // A byte order mark from spreadsheet exports is not part of the first field
+        if (record == 0 && c == '\uFEFF') c = read();
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while (true) {
+            if (c == -1) {
+                if (quoted) throw new IOException("Unterminated quoted field in row " + (record + 1));
+                break;
+            }
+            if (quoted) {
+                if (c == '"') {
+                    int d = read();
+                    if (d == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = d;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int d = read();
+                    if (d != '\n') pending = d;
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+        fields.add(field.toString());
+        record++;
+        return fields;
+    }
+
+    private int read() throws IOException {
+        if (pending != -2) {
+            int c = pending;
+            pending = -2;
+            return c;
+        }
+        return in.read();
+    }
+}
@@ -5,10 +5,13 @@ import com.pokemon.inventory.model.User;
 import com.pokemon.inventory.repository.CardRepository;
 import com.pokemon.inventory.repository.UserRepository;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
+import java.util.*;
 
 @Service
 public class DataMigrationService implements CommandLineRunner {
@@ -16,15 +19,41 @@ public class DataMigrationService implements CommandLineRunner {
     private final CardRepository cardRepo;
     private final UserRepository userRepo;
     private final PasswordEncoder passwordEncoder;
+    private final CollectionStatsService stats;
+    private final TransactionTemplate tx;
 
-    public DataMigrationService(CardRepository cardRepo, UserRepository userRepo, PasswordEncoder passwordEncoder) {
+    public DataMigrationService(CardRepository cardRepo, UserRepository userRepo, PasswordEncoder passwordEncoder,
+                                CollectionStatsService stats, PlatformTransactionManager transactionManager) {
         this.cardRepo = cardRepo;
         this.userRepo = userRepo;
         this.passwordEncoder = passwordEncoder;
+        this.stats = stats;
+        this.tx = new TransactionTemplate(transactionManager);
     }
 
     @Override
     public void run(String... args) {
+        migrateOrphans();
+        int compacted = compactDuplicates();
+        if (compacted > 0) System.out.println("Merged " + compacted + " duplicate card rows into existing rows");
+        tx.executeWithoutResult(status -> cardRepo.ensureCardKeyIndex());
+        int backfilled = backfillTypes();
+        if (backfilled > 0) System.out.println("Backfilled card_types/card_subtypes for " + backfilled + " cards");
+        ensureSearchIndexes();
+    }
+
+    private void ensureSearchIndexes() {
+        try {
+            if (Boolean.TRUE.equals(tx.execute(status -> cardRepo.ensureSearchIndexes()))) {
+                System.out.println("Collection search using pg_trgm indexes");
+            }
+        } catch (RuntimeException e) {
+            // e.g. no permission to create the extension; search falls back to in-memory scoring
+            System.out.println("Could not create collection search indexes: " + e.getMessage());
+        }
+    }
+
+    private void migrateOrphans() {
         List<Card> orphans = cardRepo.findByUserIdIsNull();
         if (orphans.isEmpty()) return;
 
@@ -41,7 +70,69 @@ public class DataMigrationService implements CommandLineRunner {
             card.setUserId(chris.getId());
             cardRepo.save(card);
         }
+        stats.rebuild(chris.getId());
 
         System.out.println("Migrated " + orphans.size() + " orphan cards to user 'chris'");
     }
+
+    /**
+     * Merge rows sharing a (userId, cardId, condition), left from before adds merged
+     * quantities: the oldest row keeps the summed quantity and every distinct note, the
+     * rest are deleted. One transaction per key; affected users' stats are rebuilt.
+     * Returns the number of rows deleted.
+     */
+    public int compactDuplicates() {
+        int deleted = 0;
+        Set<Long> users = new TreeSet<>();
+        for (Object[] key : cardRepo.findDuplicateKeys()) {
+            Long userId = (Long) key[0];
+            String cardId = (String) key[1];
+            String condition = (String) key[2];
+            deleted += tx.execute(status -> {
+                List<Card> rows = cardRepo.findByUserIdAndCardId(userId, cardId).stream()
+                        .filter(card -> Objects.equals(card.getCondition(), condition))
+                        .sorted(Comparator.comparing(Card::getId))
+                        .toList();
+                Card kept = rows.get(0);
+                Set<String> notes = new LinkedHashSet<>();
+                int quantity = 0;
+                for (Card card : rows) {
+                    quantity += card.getQuantity();
+                    if (card.getNotes() != null && !card.getNotes().isBlank()) notes.add(card.getNotes());
+                }
+                kept.setQuantity(quantity);
+                kept.setNotes(notes.isEmpty() ? null : String.join("\n", notes));
+                cardRepo.deleteAll(rows.subList(1, rows.size()));
+                cardRepo.save(kept);
+                return rows.size() - 1;
+            });
+            users.add(userId);
+        }
+        users.forEach(stats::rebuild);
+        return deleted;
+    }
+
+    /**
+     * Fill the normalized type tables from the JSON type strings of cards saved before
+     * they existed, 500 cards per transaction. Returns the number of cards visited.
+     */
+    public int backfillTypes() {
+        int total = 0;
+        long after = 0;
+        while (true) {
+            long from = after;
+            List<Long> ids = tx.execute(status -> {
+                List<Card> chunk = cardRepo.findNeedingTypeBackfill(from, PageRequest.of(0, 500));
+                for (Card card : chunk) {
+                    // Re-setting derives the normalized rows; they are inserted on commit
+                    card.setTypes(card.getTypes());
+                    card.setSubtypes(card.getSubtypes());
+                }
+                return chunk.stream().map(Card::getId).toList();
+            });
+            if (ids.isEmpty()) return total;
+            total += ids.size();
+            after = ids.get(ids.size() - 1);
+        }
+    }
 }
@@ -0,0 +1,171 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.service.TcgdexResilience.Traffic;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Shared, bounded thread pools for fanning out independent outbound calls
+ * (e.g. one TCGdex detail fetch per search result).
+ *
+ * Interactive requests and background work (price refreshes, imports, catalog sync)
+ * get separate pools, so a large background run queues behind its own work rather
+ * than ahead of a user's search.
+ *
+ * Each call to {@link #map} is capped at its own concurrency limit so one
+ * large request cannot take over the whole pool, and is bounded by a deadline
+ * after which unfinished items are replaced by their fallback.
+ *
+ * Interrupting a worker does not unblock a socket read, so tasks that make blocking
+ * calls register how to abort them with {@link #onAbort}; at the deadline every
+ * registered abort is run.
+ */
+@Component
+public class FanOutExecutor {
+
+    // Abort hooks of the map call the current worker thread is running a task for
+    private static final ThreadLocal<Aborts> ABORTS = new ThreadLocal<>();
+
+    private final ExecutorService pool;
+    private final ExecutorService background;
+
+    public FanOutExecutor(@Value("${fanout.pool-size:32}") int poolSize,
+                          @Value("${fanout.background-pool-size:16}") int backgroundPoolSize) {
+        this.pool = newPool(poolSize, "fanout-");
+        this.background = newPool(backgroundPoolSize, "fanout-bg-");
+    }
+
+    private static ExecutorService newPool(int size, String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(size, r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Apply {@code task} to every input with at most {@code maxConcurrency} in flight.
+     * Results keep the order of {@code inputs}. An item whose task throws, or that has
+     * not finished when {@code deadline} expires, is replaced by {@code fallback(input, error)}.
+     */
+    public <T, R> List<R> map(List<T> inputs, int maxConcurrency, Duration deadline,
+                              Function<T, R> task, BiFunction<T, Throwable, R> fallback) {
+        return map(Traffic.INTERACTIVE, inputs, maxConcurrency, deadline, task, fallback);
+    }
+
+    /** {@link #map}, on the pool for {@code traffic}. */
+    public <T, R> List<R> map(Traffic traffic, List<T> inputs, int maxConcurrency, Duration deadline,
+                              Function<T, R> task, BiFunction<T, Throwable, R> fallback) {
+        ExecutorService pool = traffic == Traffic.BACKGROUND ? background : this.pool;
+        int n = inputs.size();
+        if (n == 0) return List.of();
+
+        AtomicReferenceArray<Object> results = new AtomicReferenceArray<>(n);
+        AtomicReferenceArray<Throwable> errors = new AtomicReferenceArray<>(n);
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(n);
+        Aborts aborts = new Aborts();
+
+        // Start at most maxConcurrency workers; each pulls the next index until the list is drained
+        int workers = Math.max(1, Math.min(maxConcurrency, n));
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            futures.add(pool.submit(() -> {
+                ABORTS.set(aborts);
+                try {
+                    int i;
+                    while ((i = next.getAndIncrement()) < n) {
+                        if (Thread.currentThread().isInterrupted()) return;
+                        try {
+                            results.set(i, task.apply(inputs.get(i)));
+                        } catch (Throwable e) {
+                            errors.set(i, e);
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                } finally {
+                    ABORTS.remove();
+                }
+            }));
+        }
+
+        boolean finished;
+        try {
+            finished = done.await(deadline.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finished = false;
+        }
+        if (!finished) {
+            // Stop handing out new items, interrupt whatever is still in flight and abort its calls
+            next.set(n);
+            futures.forEach(f -> f.cancel(true));
+            aborts.abortAll();
+        }
+
+        List<R> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Throwable error = errors.get(i);
+            @SuppressWarnings("unchecked")
+            R value = (R) results.get(i);
+            if (error != null) {
+                out.add(fallback.apply(inputs.get(i), error));
+            } else if (value == null && !finished) {
+                out.add(fallback.apply(inputs.get(i), new TimeoutException("Deadline exceeded")));
+            } else {
+                out.add(value);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Register how to abort a blocking call the current task is about to make, e.g. an
+     * HTTP request's {@code cancel()}. If the task's map call hits its deadline, the abort
+     * runs (at once, if that already happened). Returns a handle that unregisters it, to
+     * run once the call is over. Outside a map task this does nothing.
+     */
+    public static Runnable onAbort(Runnable abort) {
+        Aborts aborts = ABORTS.get();
+        if (aborts == null) return () -> {};
+        return aborts.add(abort);
+    }
+
+    private static final class Aborts {
+        private final Set<Runnable> hooks = ConcurrentHashMap.newKeySet();
+        private volatile boolean aborted;
+
+        Runnable add(Runnable abort) {
+            hooks.add(abort);
+            // A call registered after the deadline's pass is aborted here instead
+            if (aborted && hooks.remove(abort)) abort.run();
+            return () -> hooks.remove(abort);
+        }
+
+        void abortAll() {
+            aborted = true;
+            for (Runnable abort : hooks) {
+                if (hooks.remove(abort)) abort.run();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+        background.shutdownNow();
+    }
+}
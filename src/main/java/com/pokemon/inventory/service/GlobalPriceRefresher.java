@@ -0,0 +1,177 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.dto.PriceRefreshResult;
+import com.pokemon.inventory.dto.TcgdexPrice;
+import com.pokemon.inventory.repository.CardPriceWriter;
+import com.pokemon.inventory.repository.CardPriceWriter.OwnedPrices;
+import com.pokemon.inventory.repository.CardRepository;
+import com.pokemon.inventory.service.TcgdexResilience.Traffic;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background price refresh across all collections.
+ *
+ * Each run takes the owned cardIds not checked within {@code prices.global.max-age}
+ * (never-checked first, then stalest, then most owned), fetches each one once with
+ * bounded parallelism, and fans the prices out to every owning row with one set-based
+ * UPDATE per cardId. Upstream calls therefore scale with the number of distinct cards,
+ * not with rows or users. Owners' collection values are adjusted in the same transaction.
+ */
+@Service
+public class GlobalPriceRefresher {
+
+    private final CardRepository repo;
+    private final CardPriceWriter writer;
+    private final TcgdexApiService tcgdex;
+    private final FanOutExecutor fanOut;
+    private final CollectionStatsService stats;
+    private final PriceHistoryService history;
+    private final TransactionTemplate tx;
+
+    private final Counter cardsUpdated;
+    private final Counter cardsUnchanged;
+    private final Counter cardsFailed;
+    private final Counter rowsUpdated;
+    private final Timer runTimer;
+
+    @Value("${prices.global.refresh-enabled:true}")
+    private boolean refreshEnabled;
+
+    @Value("${prices.global.max-age:PT6H}")
+    private Duration maxAge;
+
+    @Value("${prices.global.max-cards-per-run:2000}")
+    private int maxCardsPerRun;
+
+    @Value("${prices.global.concurrency:6}")
+    private int concurrency;
+
+    @Value("${prices.global.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${prices.global.deadline:PT10M}")
+    private Duration deadline;
+
+    public GlobalPriceRefresher(CardRepository repo, CardPriceWriter writer, TcgdexApiService tcgdex,
+                                FanOutExecutor fanOut, CollectionStatsService stats, PriceHistoryService history,
+                                PlatformTransactionManager transactionManager, MeterRegistry meters) {
+        this.repo = repo;
+        this.writer = writer;
+        this.tcgdex = tcgdex;
+        this.fanOut = fanOut;
+        this.stats = stats;
+        this.history = history;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.cardsUpdated = Counter.builder("prices.global.cards").tag("result", "updated").register(meters);
+        this.cardsUnchanged = Counter.builder("prices.global.cards").tag("result", "unchanged").register(meters);
+        this.cardsFailed = Counter.builder("prices.global.cards").tag("result", "failed").register(meters);
+        this.rowsUpdated = Counter.builder("prices.global.rows-updated").register(meters);
+        this.runTimer = Timer.builder("prices.global.run").register(meters);
+    }
+
+    @Scheduled(initialDelayString = "${prices.global.initial-delay:PT2M}",
+            fixedDelayString = "${prices.global.interval:PT15M}")
+    public void scheduledRefresh() {
+        if (!refreshEnabled) return;
+        try {
+            refreshDue();
+        } catch (Exception e) {
+            System.out.println("Global price refresh failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * One pass over the cards due for a price check. Counts are distinct cardIds:
+     * updated (new prices written), failed (fetch failed; retried next run) and skipped
+     * (prices unchanged, or none on TCGdex).
+     */
+    public PriceRefreshResult refreshDue() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        List<String> due = repo.findCardIdsDueForPriceCheck(now.minus(maxAge), PageRequest.of(0, maxCardsPerRun));
+        if (due.isEmpty()) return new PriceRefreshResult(0, 0, 0);
+
+        // Empty = fetched but no TCGPlayer price; null = failed
+        List<Optional<TcgdexPrice>> fetched = fanOut.map(Traffic.BACKGROUND, due, concurrency, deadline,
+                id -> Optional.ofNullable(tcgdex.getLiveCardRecord(id).price()),
+                (id, error) -> error instanceof HttpClientErrorException ? Optional.empty() : null);
+
+        int updated = 0;
+        int failed = 0;
+        int skipped = 0;
+        for (int from = 0; from < due.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, due.size());
+            Map<String, TcgdexPrice> prices = new LinkedHashMap<>();
+            List<String> checked = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                Optional<TcgdexPrice> price = fetched.get(i);
+                if (price == null) {
+                    failed++;
+                } else if (price.isPresent()) {
+                    prices.put(due.get(i), price.get());
+                } else {
+                    checked.add(due.get(i));
+                }
+            }
+            int written = tx.execute(status -> writeChunk(prices, checked, now));
+            updated += written;
+            skipped += prices.size() + checked.size() - written;
+        }
+
+        cardsUpdated.increment(updated);
+        cardsUnchanged.increment(skipped);
+        cardsFailed.increment(failed);
+        runTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        System.out.println("Global price refresh: " + due.size() + " cards due, " + updated + " updated, "
+                + skipped + " unchanged, " + failed + " failed");
+        return new PriceRefreshResult(updated, failed, skipped);
+    }
+
+    /**
+     * Lock the owned rows, write (and record in the price history) prices only for cardIds
+     * where some row's prices differ, mark the rest checked (seeding their history if they
+     * have none), and apply each owner's change in collection value.
+     * Returns the number of cardIds written.
+     */
+    private int writeChunk(Map<String, TcgdexPrice> prices, List<String> checked, LocalDateTime now) {
+        Map<String, TcgdexPrice> changed = new LinkedHashMap<>();
+        // Sorted, so stats rows are locked in the same order by every writer
+        Map<Long, Double> valueDeltas = new TreeMap<>();
+        List<OwnedPrices> rows = writer.lockOwned(prices.keySet());
+        for (OwnedPrices row : rows) {
+            TcgdexPrice price = prices.get(row.cardId());
+            if (!row.differsFrom(price)) continue;
+            changed.put(row.cardId(), price);
+            double before = row.mid() != null ? row.mid() * row.quantity() : 0;
+            double after = price.mid() != null ? price.mid() * row.quantity() : 0;
+            valueDeltas.merge(row.userId(), after - before, Double::sum);
+        }
+        List<String> unchanged = new ArrayList<>(checked);
+        prices.keySet().stream().filter(id -> !changed.containsKey(id)).forEach(unchanged::add);
+
+        writer.setPrices(changed, now);
+        history.recordPrices(changed, now);
+        Map<String, TcgdexPrice> first = new LinkedHashMap<>(prices);
+        first.keySet().removeAll(changed.keySet());
+        history.seedPrices(first, now);
+        writer.markChecked(unchanged, now);
+        rowsUpdated.increment(rows.stream().filter(row -> changed.containsKey(row.cardId())).count());
+        // Also bumps the stats version, which the collection's cache validators follow
+        valueDeltas.forEach(stats::valueChanged);
+        return changed.size();
+    }
+}
@@ -0,0 +1,261 @@
+package com.pokemon.inventory.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Request hedging for idempotent upstream reads (TCGdex card details), to cut the tail
+ * of pages that wait on many of them.
+ *
+ * The first attempt runs on the caller's thread. If it has not finished after the
+ * recent latency percentile ({@code tcgdex.hedge.percentile}, e.g. p95), a second,
+ * identical attempt starts on a small pool; whichever succeeds first is returned and
+ * the other is cancelled, which aborts its HTTP exchange. A token bucket caps the
+ * extra load: every request earns {@code budget-ratio} of a hedge, so at most about
+ * 5% more upstream calls are made however slow upstream gets.
+ *
+ * The hedge is claimed with a compare-and-set on the same slot the first attempt closes
+ * when it finishes, so a hedge never starts after its request has been answered.
+ *
+ * Hedges do not take a TCGdex bulkhead permit: the first attempt holds the request's
+ * permit, and the hedge runs alongside it. Calls in flight upstream can so exceed
+ * {@code tcgdex.resilience.max-concurrent-calls} by at most {@code tcgdex.hedge.pool-size};
+ * {@code http.client.per-host-max} leaves room for that.
+ */
+@Component
+public class HedgedRequests {
+
+    /** One attempt at a request. {@code cancel} must make a running {@code call} return promptly. */
+    public record Attempt<T>(Callable<T> call, Runnable cancel) {
+    }
+
+    // Put in the hedge slot once no hedge may start any more
+    private static final Attempt<Object> CLOSED = new Attempt<>(() -> null, () -> {
+    });
+
+    private static final int WINDOW = 1024;
+    private static final double MAX_TOKENS = 10;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final double budgetRatio;
+    private final int minSamples;
+    private final long minDelayNanos;
+
+    private final ScheduledExecutorService timers;
+    private final ThreadPoolExecutor hedgePool;
+
+    // Recent successful attempt latencies, nanos; the percentile is recomputed every 64 samples
+    private final long[] latencies = new long[WINDOW];
+    private final AtomicLong samples = new AtomicLong();
+    private volatile long thresholdNanos = -1;
+
+    // Hedge budget: each request earns budgetRatio of a hedge, up to MAX_TOKENS saved up
+    private final AtomicLong requestCount = new AtomicLong();
+    private double tokens;
+    private long tokensCountedAt;
+
+    private final Counter requests;
+    private final Counter hedges;
+    private final Counter hedgeWins;
+    private final Counter budgetExhausted;
+
+    public HedgedRequests(MeterRegistry meters,
+                          @Value("${tcgdex.hedge.enabled:true}") boolean enabled,
+                          @Value("${tcgdex.hedge.percentile:0.95}") double percentile,
+                          @Value("${tcgdex.hedge.budget-ratio:0.05}") double budgetRatio,
+                          @Value("${tcgdex.hedge.min-samples:50}") int minSamples,
+                          @Value("${tcgdex.hedge.min-delay:PT0.05S}") Duration minDelay,
+                          @Value("${tcgdex.hedge.pool-size:8}") int poolSize) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.budgetRatio = budgetRatio;
+        this.minSamples = Math.min(minSamples, WINDOW);
+        this.minDelayNanos = minDelay.toNanos();
+
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threads = r -> {
+            Thread t = new Thread(r, "hedge-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.timers = Executors.newSingleThreadScheduledExecutor(threads);
+        // No queue: with every hedge thread busy, a hedge is skipped rather than delayed
+        this.hedgePool = new ThreadPoolExecutor(0, poolSize, 30, TimeUnit.SECONDS, new SynchronousQueue<>(), threads);
+
+        this.requests = Counter.builder("tcgdex.hedge.requests").register(meters);
+        this.hedges = Counter.builder("tcgdex.hedge.sent").register(meters);
+        this.hedgeWins = Counter.builder("tcgdex.hedge.wins").register(meters);
+        this.budgetExhausted = Counter.builder("tcgdex.hedge.budget-exhausted").register(meters);
+        Gauge.builder("tcgdex.hedge.threshold", this, h -> Math.max(h.thresholdNanos, 0) / 1e6)
+                .baseUnit("milliseconds").register(meters);
+        Gauge.builder("tcgdex.hedge.win-rate", this,
+                h -> h.hedges.count() == 0 ? 0 : h.hedgeWins.count() / h.hedges.count()).register(meters);
+    }
+
+    /**
+     * Run a request, hedging it once if it is slow. {@code attempts} creates a fresh,
+     * independent attempt each time it is called. Fails only if every attempt started fails.
+     */
+    public <T> T call(Supplier<Attempt<T>> attempts) {
+        Attempt<T> primary = attempts.get();
+        requests.increment();
+        requestCount.incrementAndGet();
+        long delay = enabled ? hedgeDelay() : -1;
+        if (delay < 0) {
+            Runnable unregister = FanOutExecutor.onAbort(primary.cancel());
+            try {
+                return run(primary, System.nanoTime());
+            } finally {
+                unregister.run();
+            }
+        }
+
+        AtomicBoolean decided = new AtomicBoolean();
+        // The hedge once claimed, or CLOSED once the request no longer wants one
+        AtomicReference<Attempt<T>> hedge = new AtomicReference<>();
+        CompletableFuture<T> hedgeResult = new CompletableFuture<>();
+        ScheduledFuture<?> timer = timers.schedule(
+                () -> startHedge(attempts, primary, decided, hedge, hedgeResult), delay, TimeUnit.NANOSECONDS);
+
+        // Past a fan-out deadline, both attempts are aborted and no hedge starts
+        Runnable unregister = FanOutExecutor.onAbort(() -> {
+            decided.set(true);
+            primary.cancel().run();
+            Attempt<T> second = hedge.getAndSet(closed());
+            if (second != null) second.cancel().run();
+        });
+        long start = System.nanoTime();
+        try {
+            T value = run(primary, start);
+            decided.set(true);
+            timer.cancel(false);
+            Attempt<T> loser = hedge.getAndSet(closed());
+            if (loser != null) loser.cancel().run();
+            return value;
+        } catch (RuntimeException e) {
+            timer.cancel(false);
+            Attempt<T> second = hedge.getAndSet(closed());
+            if (second == null || second == CLOSED) {
+                decided.set(true);
+                throw e;
+            }
+            // The hedge was started: it either already won (and cancelled us) or may still succeed
+            try {
+                return hedgeResult.join();
+            } catch (CompletionException hedgeFailed) {
+                throw e;
+            }
+        } finally {
+            unregister.run();
+        }
+    }
+
+    private <T> void startHedge(Supplier<Attempt<T>> attempts, Attempt<T> primary, AtomicBoolean decided,
+                                AtomicReference<Attempt<T>> hedge, CompletableFuture<T> hedgeResult) {
+        if (hedge.get() != null) return;
+        if (!takeToken()) {
+            budgetExhausted.increment();
+            return;
+        }
+        // Claimed only if the first attempt has not finished (or been aborted) meanwhile
+        Attempt<T> second = attempts.get();
+        if (!hedge.compareAndSet(null, second)) {
+            refundToken();
+            return;
+        }
+        try {
+            hedgePool.execute(() -> {
+                try {
+                    T value = run(second, System.nanoTime());
+                    if (decided.compareAndSet(false, true)) {
+                        hedgeWins.increment();
+                        primary.cancel().run();
+                    }
+                    hedgeResult.complete(value);
+                } catch (RuntimeException e) {
+                    hedgeResult.completeExceptionally(e);
+                }
+            });
+            hedges.increment();
+        } catch (RejectedExecutionException e) {
+            hedgeResult.completeExceptionally(e);
+            refundToken();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Attempt<T> closed() {
+        return (Attempt<T>) (Attempt<?>) CLOSED;
+    }
+
+    private <T> T run(Attempt<T> attempt, long start) {
+        T value;
+        try {
+            value = attempt.call().call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        record(System.nanoTime() - start);
+        return value;
+    }
+
+    // ── Threshold ─────────────────────────────────────────
+
+    /** Nanos to wait before hedging, or -1 while there are too few samples to tell what slow is. */
+    private long hedgeDelay() {
+        long threshold = thresholdNanos;
+        return threshold < 0 ? -1 : Math.max(threshold, minDelayNanos);
+    }
+
+    private void record(long nanos) {
+        long count = samples.incrementAndGet();
+        latencies[(int) ((count - 1) % WINDOW)] = nanos;
+        if (count == minSamples || (count > minSamples && count % 64 == 0)) {
+            int size = (int) Math.min(count, WINDOW);
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            thresholdNanos = sorted[Math.min(size - 1, (int) Math.ceil(percentile * size) - 1)];
+        }
+    }
+
+    // ── Budget ────────────────────────────────────────────
+
+    private synchronized boolean takeToken() {
+        long seen = requestCount.get();
+        tokens = Math.min(MAX_TOKENS, tokens + budgetRatio * (seen - tokensCountedAt));
+        tokensCountedAt = seen;
+        if (tokens < 1) return false;
+        tokens -= 1;
+        return true;
+    }
+
+    private synchronized void refundToken() {
+        tokens += 1;
+    }
+
+    public long thresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(thresholdNanos, 0));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timers.shutdownNow();
+        hedgePool.shutdownNow();
+    }
+}
@@ -0,0 +1,15 @@
+package com.pokemon.inventory.service;
+
+/**
+ * The work behind one job type. Handlers must be safe to re-run from the start:
+ * a job interrupted by a restart is resumed by running it again.
+ */
+@FunctionalInterface
+public interface JobHandler {
+
+    /**
+     * Run the job for {@code userId}. The returned value is stored as the job result (JSON).
+     * Throw {@link java.util.concurrent.CancellationException} to end the job as cancelled.
+     */
+    Object run(Long userId, JobProgress progress) throws Exception;
+}
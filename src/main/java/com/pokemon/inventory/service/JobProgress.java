@@ -0,0 +1,24 @@
+package com.pokemon.inventory.service;
+
+/**
+ * Progress sink handed to a running job. Implementations must be thread-safe:
+ * jobs may report from several worker threads at once.
+ */
+public interface JobProgress {
+
+    /** Progress sink for work that is not running as a job. */
+    JobProgress NONE = new JobProgress() {
+        @Override public void start(int total) {}
+        @Override public void advance(int processed, int errors) {}
+        @Override public boolean isCancelled() { return false; }
+    };
+
+    /** Set the number of work items. */
+    void start(int total);
+
+    /** Record {@code processed} more finished items, {@code errors} of which failed. */
+    void advance(int processed, int errors);
+
+    /** True once the job has been cancelled; long loops should check this and stop. */
+    boolean isCancelled();
+}
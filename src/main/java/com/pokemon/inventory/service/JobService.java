@@ -0,0 +1,281 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pokemon.inventory.model.Job;
+import com.pokemon.inventory.repository.JobRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs long collection operations in the background.
+ *
+ * Jobs run on a small dedicated pool with a bounded queue, separate from request threads
+ * and from {@link FanOutExecutor}. A user has at most one active job per type: submitting
+ * again while one is queued or running returns the existing job. Job state lives in the
+ * {@code jobs} table, so status survives a restart and interrupted jobs are resumed (or
+ * marked failed) on startup.
+ *
+ * Both are JVM-local: the active-job check is only serialised by {@link #submit} being
+ * synchronized, and startup resumes every active job it finds. That assumes a single
+ * instance; separate instances sharing the database could each queue a job for the same
+ * user and type, or re-run one still running elsewhere.
+ */
+@Service
+public class JobService {
+
+    private static final List<String> ACTIVE = List.of(Job.QUEUED, Job.RUNNING);
+
+    private final JobRepository repo;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ThreadPoolExecutor executor;
+    private final Map<String, JobHandler> handlers = new ConcurrentHashMap<>();
+    private final Map<String, Tracker> running = new ConcurrentHashMap<>();
+
+    @Value("${jobs.progress-interval:PT1S}")
+    private Duration progressInterval;
+
+    @Value("${jobs.resume-on-startup:true}")
+    private boolean resumeOnStartup;
+
+    public JobService(JobRepository repo,
+                      @Value("${jobs.pool-size:2}") int poolSize,
+                      @Value("${jobs.queue-capacity:100}") int queueCapacity) {
+        this.repo = repo;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "job-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /** Register the handler for a job type; called by the owning service at construction. */
+    public void register(String type, JobHandler handler) {
+        handlers.put(type, handler);
+    }
+
+    /**
+     * Queue a job, or return the user's job of this type that is already queued or running.
+     * Throws {@link RejectedExecutionException} if the job queue is full.
+     */
+    public synchronized Job submit(Long userId, String type) {
+        if (!handlers.containsKey(type)) throw new IllegalArgumentException("Unknown job type: " + type);
+
+        Optional<Job> active = repo.findFirstByUserIdAndTypeAndStatusIn(userId, type, ACTIVE);
+        if (active.isPresent()) return active.get();
+
+        Job job = new Job();
+        job.setId(UUID.randomUUID().toString());
+        job.setUserId(userId);
+        job.setType(type);
+        job = repo.save(job);
+        enqueue(job);
+        return job;
+    }
+
+    public Optional<Job> getJob(Long userId, String id) {
+        return repo.findByIdAndUserId(id, userId).map(this::withLiveProgress);
+    }
+
+    public List<Job> getJobs(Long userId) {
+        return repo.findTop20ByUserIdOrderByCreatedAtDesc(userId).stream().map(this::withLiveProgress).toList();
+    }
+
+    /**
+     * Cancel a job. A queued job is cancelled at once; a running job stops at its
+     * next cancellation check. Finished jobs are left as they are.
+     */
+    public Optional<Job> cancel(Long userId, String id) {
+        if (repo.findByIdAndUserId(id, userId).isEmpty()) return Optional.empty();
+        if (repo.cancelQueued(id, LocalDateTime.now()) == 0 && repo.requestCancel(id) > 0) {
+            Tracker tracker = running.get(id);
+            if (tracker != null) tracker.cancelled.set(true);
+        }
+        return getJob(userId, id);
+    }
+
+    /**
+     * Status body for the API: the job fields plus the parsed result and an ETA
+     * extrapolated from the rate so far.
+     */
+    public Map<String, Object> toStatus(Job job) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", job.getId());
+        body.put("type", job.getType());
+        body.put("status", job.getStatus());
+        body.put("processed", job.getProcessed());
+        body.put("total", job.getTotal());
+        body.put("errors", job.getErrors());
+        body.put("etaSeconds", etaSeconds(job));
+        body.put("cancelRequested", job.isCancelRequested());
+        body.put("message", job.getMessage());
+        body.put("result", parseResult(job.getResult()));
+        body.put("createdAt", job.getCreatedAt());
+        body.put("startedAt", job.getStartedAt());
+        body.put("finishedAt", job.getFinishedAt());
+        return body;
+    }
+
+    // ── Restart recovery ──────────────────────────────────
+
+    /**
+     * Jobs still queued or running belonged to the previous process. Re-run them if
+     * their handler is known (handlers are idempotent); otherwise report them as failed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverInterrupted() {
+        for (Job job : repo.findByStatusInOrderByCreatedAtAsc(ACTIVE)) {
+            if (resumeOnStartup && !job.isCancelRequested() && handlers.containsKey(job.getType())) {
+                job.setStatus(Job.QUEUED);
+                job.setProcessed(0);
+                job.setErrors(0);
+                job.setStartedAt(null);
+                job.setMessage("Resumed after restart");
+                enqueue(repo.save(job));
+                System.out.println("Resumed job " + job.getId() + " (" + job.getType() + ")");
+            } else {
+                String status = job.isCancelRequested() ? Job.CANCELLED : Job.FAILED;
+                repo.finish(job.getId(), status, "Interrupted by restart", null,
+                        job.getTotal(), job.getProcessed(), job.getErrors(), LocalDateTime.now());
+                System.out.println("Marked interrupted job " + job.getId() + " as " + status);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ── Execution ─────────────────────────────────────────
+
+    private void enqueue(Job job) {
+        try {
+            executor.execute(() -> execute(job.getId()));
+        } catch (RejectedExecutionException e) {
+            repo.finish(job.getId(), Job.FAILED, "Job queue is full", null, 0, 0, 0, LocalDateTime.now());
+            throw e;
+        }
+    }
+
+    private void execute(String id) {
+        // Loses to a cancel that arrived while the job was queued
+        if (repo.markRunning(id, LocalDateTime.now()) == 0) return;
+        Tracker tracker = new Tracker(id);
+        running.put(id, tracker);
+        // Read after registering the tracker so a cancel in between is not missed
+        Job job = repo.findById(id).orElseThrow();
+        if (job.isCancelRequested()) tracker.cancelled.set(true);
+        try {
+            Object result = handlers.get(job.getType()).run(job.getUserId(), tracker);
+            tracker.finish(Job.COMPLETED, null, mapper.writeValueAsString(result));
+        } catch (CancellationException e) {
+            tracker.finish(Job.CANCELLED, "Cancelled", null);
+        } catch (Exception e) {
+            System.out.println("Job " + id + " failed: " + e.getMessage());
+            tracker.finish(Job.FAILED, e.getMessage(), null);
+        } finally {
+            running.remove(id);
+        }
+    }
+
+    private Job withLiveProgress(Job job) {
+        Tracker tracker = running.get(job.getId());
+        if (tracker != null && Job.RUNNING.equals(job.getStatus())) {
+            job.setTotal(tracker.total.get());
+            job.setProcessed(tracker.processed.get());
+            job.setErrors(tracker.errors.get());
+        }
+        return job;
+    }
+
+    private Long etaSeconds(Job job) {
+        if (!Job.RUNNING.equals(job.getStatus()) || job.getStartedAt() == null
+                || job.getProcessed() == 0 || job.getTotal() <= job.getProcessed()) {
+            return null;
+        }
+        long elapsed = Duration.between(job.getStartedAt(), LocalDateTime.now()).toMillis();
+        return elapsed * (job.getTotal() - job.getProcessed()) / job.getProcessed() / 1000;
+    }
+
+    private Object parseResult(String result) {
+        if (result == null) return null;
+        try {
+            return mapper.readTree(result);
+        } catch (Exception e) {
+            return result;
+        }
+    }
+
+    /**
+     * Live progress for one running job. Counters are updated by any worker thread;
+     * they are written to the database at most once per {@code jobs.progress-interval}.
+     */
+    private class Tracker implements JobProgress {
+        final String id;
+        final AtomicInteger total = new AtomicInteger();
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final AtomicLong lastFlush = new AtomicLong();
+
+        Tracker(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public void start(int total) {
+            this.total.set(total);
+            flush();
+        }
+
+        @Override
+        public void advance(int processed, int errors) {
+            this.processed.addAndGet(processed);
+            this.errors.addAndGet(errors);
+            long now = System.nanoTime();
+            long last = lastFlush.get();
+            if (now - last >= progressInterval.toNanos() && lastFlush.compareAndSet(last, now)) {
+                flush();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        void flush() {
+            repo.updateProgress(id, total.get(), processed.get(), errors.get());
+        }
+
+        /**
+         * Record the outcome. If that write fails the job would stay RUNNING and block
+         * resubmits forever, so fall back to a fixed message without the result.
+         */
+        void finish(String status, String message, String result) {
+            if (message != null && message.length() > Job.MESSAGE_LENGTH) {
+                message = message.substring(0, Job.MESSAGE_LENGTH - 3) + "...";
+            }
+            try {
+                repo.finish(id, status, message, result, total.get(), processed.get(), errors.get(), LocalDateTime.now());
+            } catch (RuntimeException e) {
+                System.out.println("Could not record outcome of job " + id + ": " + e.getMessage());
+                repo.finish(id, Job.CANCELLED.equals(status) ? status : Job.FAILED, "Job outcome could not be saved",
+                        null, total.get(), processed.get(), errors.get(), LocalDateTime.now());
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.pokemon.inventory.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Shared outbound HTTP client (TCGdex, Claude vision).
+ *
+ * One Apache HttpClient with a connection pool, so fan-out calls reuse kept-alive
+ * connections instead of opening a new TCP/TLS connection per request. Pool limits are
+ * set globally and per host ({@code http.client.per-host-max=host=max,...}). Gzip
+ * responses are decoded by the client. Pool usage is published as the Micrometer
+ * {@code httpcomponents.httpclient.pool.*} metrics (leased, available, pending, max).
+ */
+@Component
+public class OutboundHttp {
+
+    private final PoolingHttpClientConnectionManager pool;
+    private final CloseableHttpClient client;
+    private final Duration leaseTimeout;
+
+    public OutboundHttp(MeterRegistry meters,
+                        @Value("${http.client.max-total:100}") int maxTotal,
+                        @Value("${http.client.max-per-route:20}") int maxPerRoute,
+                        @Value("${http.client.per-host-max:}") String perHostMax,
+                        @Value("${http.client.connect-timeout:PT10S}") Duration connectTimeout,
+                        @Value("${http.client.lease-timeout:PT10S}") Duration leaseTimeout,
+                        @Value("${http.client.keep-alive:PT30S}") Duration keepAlive) {
+        this.leaseTimeout = leaseTimeout;
+        this.pool = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        // Check connections idle this long before reuse, in case the server closed them
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        applyPerHostLimits(perHostMax);
+
+        this.client = HttpClients.custom()
+                .setConnectionManager(pool)
+                // Keep connections for the server's Keep-Alive timeout, capped at our own
+                .setKeepAliveStrategy((response, context) -> {
+                    TimeValue server = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    TimeValue max = TimeValue.of(keepAlive);
+                    return server.compareTo(max) < 0 ? server : max;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(keepAlive))
+                .build();
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(pool, "outbound").bindTo(meters);
+    }
+
+    /**
+     * A RestTemplate on the shared pool. {@code responseTimeout} bounds the wait for
+     * each response (the per-call read timeout); connect and lease timeouts are shared.
+     */
+    public RestTemplate restTemplate(Duration responseTimeout) {
+        RequestConfig config = requestConfig(responseTimeout);
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(client);
+        factory.setHttpContextFactory((method, uri) -> {
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(config);
+            return context;
+        });
+        return new RestTemplate(factory);
+    }
+
+    /**
+     * A GET on the shared pool that another thread can abort with {@code cancel()},
+     * which closes its connection. Run it with {@link #execute}.
+     */
+    public HttpGet cancellableGet(URI uri, Duration responseTimeout) {
+        HttpGet get = new HttpGet(uri);
+        get.setConfig(requestConfig(responseTimeout));
+        return get;
+    }
+
+    public <T> T execute(ClassicHttpRequest request, HttpClientResponseHandler<T> handler) throws IOException {
+        return client.execute(request, handler);
+    }
+
+    public PoolStats poolStats() {
+        return pool.getTotalStats();
+    }
+
+    @PreDestroy
+    public void close() {
+        client.close(CloseMode.GRACEFUL);
+    }
+
+    private RequestConfig requestConfig(Duration responseTimeout) {
+        return RequestConfig.custom()
+                .setResponseTimeout(Timeout.of(responseTimeout))
+                .setConnectionRequestTimeout(Timeout.of(leaseTimeout))
+                .build();
+    }
+
+    /** Entries are {@code host=max}, comma separated; the limit applies to http and https. */
+    private void applyPerHostLimits(String perHostMax) {
+        if (perHostMax == null || perHostMax.isBlank()) return;
+        for (String entry : perHostMax.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) throw new IllegalArgumentException("Bad http.client.per-host-max entry: " + entry);
+            int max = Integer.parseInt(parts[1].trim());
+            String host = parts[0].trim();
+            pool.setMaxPerRoute(new HttpRoute(new HttpHost("https", host, 443), null, true), max);
+            pool.setMaxPerRoute(new HttpRoute(new HttpHost("http", host, 80)), max);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.dto.DailyPrice;
+import com.pokemon.inventory.dto.TcgdexPrice;
+import com.pokemon.inventory.dto.ValuePoint;
+import com.pokemon.inventory.repository.PriceHistoryStore;
+import com.pokemon.inventory.repository.PriceHistoryStore.Rollup;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Price and collection value history.
+ *
+ * Price refreshes append every changed card price as a snapshot, and seed one for a card
+ * the first time it is priced, so its history starts then rather than at its first change.
+ * Every interval, a rollup turns the day's snapshots into one price_daily row per card, and
+ * copies each collection's current value from its stats row into the day's
+ * collection_value_daily row, so the last rollup of a day leaves that day's closing value.
+ * The first rollup after midnight also records the day before once more, catching changes
+ * made after its last rollup. Reads only ever touch the daily tables.
+ *
+ * A rollup is one transaction of upserts, so it can safely run on several instances, or
+ * again after a restart. The in-memory state below only saves repeated work.
+ *
+ * Storage stays bounded: snapshots are kept for {@code prices.history.raw-retention} (whole
+ * monthly partitions are dropped on PostgreSQL), and daily rows older than
+ * {@code prices.history.daily-retention} are thinned to the last one of each month.
+ */
+@Service
+public class PriceHistoryService implements CommandLineRunner {
+
+    /** Resolution of a value history: each point is the last value within its bucket. */
+    public enum Interval {
+        DAY, WEEK, MONTH;
+
+        public static Interval parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("interval must be day, week or month");
+            }
+        }
+
+        LocalDate bucket(LocalDate date) {
+            return switch (this) {
+                case DAY -> date;
+                case WEEK -> date.with(DayOfWeek.MONDAY);
+                case MONTH -> date.withDayOfMonth(1);
+            };
+        }
+    }
+
+    private final PriceHistoryStore store;
+    private final TransactionTemplate tx;
+
+    private final Counter snapshots;
+    private final Timer rollupTimer;
+
+    // Day the last rollup ran for; the first rollup of a day also finishes the day before
+    private LocalDate rolledUp;
+    // Day retention last ran, and the first month it has not thinned yet
+    private LocalDate compacted;
+    private YearMonth thinnedUntil;
+
+    @Value("${prices.history.rollup-enabled:true}")
+    private boolean rollupEnabled;
+
+    @Value("${prices.history.interval:PT1H}")
+    private Duration interval = Duration.ofHours(1);
+
+    @Value("${prices.history.raw-retention:P35D}")
+    private Duration rawRetention;
+
+    @Value("${prices.history.daily-retention:P365D}")
+    private Duration dailyRetention;
+
+    public PriceHistoryService(PriceHistoryStore store, PlatformTransactionManager transactionManager,
+                               MeterRegistry meters) {
+        this.store = store;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.snapshots = Counter.builder("prices.history.snapshots").register(meters);
+        this.rollupTimer = Timer.builder("prices.history.rollup").register(meters);
+    }
+
+    @Override
+    public void run(String... args) {
+        preparePartitions();
+    }
+
+    /** Append changed prices as snapshots. Joins the caller's transaction. */
+    public void recordPrices(Map<String, TcgdexPrice> pricesByCardId, LocalDateTime at) {
+        store.append(pricesByCardId, at);
+        snapshots.increment(pricesByCardId.size());
+    }
+
+    /**
+     * Record unchanged prices for cards that have no price history yet (priced when they
+     * were added, so a refresh sees no change). Joins the caller's transaction.
+     */
+    public void seedPrices(Map<String, TcgdexPrice> pricesByCardId, LocalDateTime at) {
+        store.seed(pricesByCardId, at);
+    }
+
+    // ── Reads ─────────────────────────────────────────────
+
+    /**
+     * A collection's value from {@code from} to {@code to}, one point per interval,
+     * dated by the bucket's first day. Only the daily rollup is read.
+     */
+    public List<ValuePoint> valueHistory(Long userId, LocalDate from, LocalDate to, Interval interval) {
+        if (from.isAfter(to)) throw new IllegalArgumentException("from must not be after to");
+        List<ValuePoint> daily = store.collectionValues(userId, from, to);
+        if (interval == Interval.DAY) return daily;
+
+        // Rows are in date order, so the last one put per bucket is its closing value
+        Map<LocalDate, ValuePoint> buckets = new LinkedHashMap<>();
+        for (ValuePoint point : daily) {
+            LocalDate bucket = interval.bucket(point.date());
+            buckets.put(bucket, new ValuePoint(bucket, point.totalValue(), point.totalCards()));
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * A card's daily prices from {@code from} to {@code to}. There are only points for
+     * days the price changed, opening with the one in force on {@code from}.
+     */
+    public List<DailyPrice> priceHistory(String cardId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) throw new IllegalArgumentException("from must not be after to");
+        return store.cardPrices(cardId, from, to);
+    }
+
+    // ── Rollup and retention ──────────────────────────────
+
+    @Scheduled(initialDelayString = "${prices.history.initial-delay:PT1M}",
+            fixedDelayString = "${prices.history.interval:PT1H}")
+    public void scheduledRollup() {
+        // Partitions are kept ahead even with rollups off, since refreshes keep appending
+        preparePartitions();
+        if (!rollupEnabled) return;
+        try {
+            rollup(LocalDateTime.now());
+        } catch (Exception e) {
+            System.out.println("Price history rollup failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Roll up {@code now}'s day (and the day before, on its first run of the day), then
+     * apply retention once a day. When this instance rolled up the day before and now runs
+     * within an interval after midnight, the day before's collection values are recorded
+     * again from the current stats. Otherwise (after a restart, or a late first run) they
+     * are left as last recorded, since the current stats may include much of today.
+     */
+    public synchronized void rollup(LocalDateTime now) {
+        long start = System.nanoTime();
+        LocalDate today = now.toLocalDate();
+        LocalDate yesterday = today.minusDays(1);
+        boolean firstToday = rolledUp == null || rolledUp.isBefore(today);
+        boolean rollover = rolledUp != null && rolledUp.isBefore(today)
+                && now.isBefore(today.atStartOfDay().plus(interval));
+        int[] counts = tx.execute(status -> {
+            int cards = firstToday ? store.rollupPrices(yesterday) : 0;
+            if (rollover) store.recordCollectionValues(yesterday);
+            cards += store.rollupPrices(today);
+            return new int[]{cards, store.recordCollectionValues(today)};
+        });
+        rolledUp = today;
+
+        if (!today.equals(compacted)) {
+            compact(now);
+            compacted = today;
+        }
+        rollupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        System.out.println("Price history rollup: " + counts[0] + " card prices, " + counts[1] + " collection values");
+    }
+
+    private void compact(LocalDateTime now) {
+        int dropped = tx.execute(status -> store.dropSnapshotsBefore(now.minus(rawRetention)));
+
+        // Months that ended before the daily retention cut-off
+        YearMonth until = YearMonth.from(now.minus(dailyRetention));
+        YearMonth month = thinnedUntil != null ? thinnedUntil : oldestMonth();
+        int thinned = 0;
+        for (; month != null && month.isBefore(until); month = month.plusMonths(1)) {
+            YearMonth thinning = month;
+            for (Rollup rollup : Rollup.values()) {
+                thinned += tx.execute(status -> store.thinMonth(rollup, thinning));
+            }
+        }
+        thinnedUntil = until;
+        if (dropped + thinned > 0) {
+            System.out.println("Price history retention: " + dropped + " snapshot partitions/rows dropped, "
+                    + thinned + " daily rows thinned");
+        }
+    }
+
+    private YearMonth oldestMonth() {
+        YearMonth oldest = null;
+        for (Rollup rollup : Rollup.values()) {
+            YearMonth month = store.oldestMonth(rollup);
+            if (month != null && (oldest == null || month.isBefore(oldest))) oldest = month;
+        }
+        return oldest;
+    }
+
+    private void preparePartitions() {
+        try {
+            store.preparePartitions(LocalDate.now());
+        } catch (RuntimeException e) {
+            System.out.println("Could not prepare price snapshot partitions: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.dto.PriceRefreshResult;
+import com.pokemon.inventory.dto.TcgdexCard;
+import com.pokemon.inventory.dto.TcgdexPrice;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.repository.CardRepository;
+import com.pokemon.inventory.service.TcgdexResilience.Traffic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Refreshes TCGPlayer prices for every card in a user's collection.
+ *
+ * Each distinct cardId is fetched once, with bounded parallelism, no matter how many
+ * rows own it. Rows are then updated in chunks, one transaction per chunk, so Hibernate
+ * can send the UPDATEs as JDBC batches (spring.jpa.properties.hibernate.jdbc.batch_size).
+ */
+@Service
+public class PriceRefreshService {
+
+    private final CardRepository repo;
+    private final TcgdexApiService tcgdex;
+    private final FanOutExecutor fanOut;
+    private final CollectionStatsService stats;
+    private final PriceHistoryService history;
+    private final TransactionTemplate tx;
+
+    @Value("${prices.refresh.concurrency:6}")
+    private int concurrency;
+
+    @Value("${prices.refresh.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${prices.refresh.deadline:PT10M}")
+    private Duration deadline;
+
+    public PriceRefreshService(CardRepository repo, TcgdexApiService tcgdex, FanOutExecutor fanOut,
+                               CollectionStatsService stats, PriceHistoryService history,
+                               PlatformTransactionManager transactionManager) {
+        this.repo = repo;
+        this.tcgdex = tcgdex;
+        this.fanOut = fanOut;
+        this.stats = stats;
+        this.history = history;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Rows whose card could not be fetched count as failed; rows whose card has no
+     * TCGPlayer price variant are left unchanged and count as skipped.
+     */
+    public PriceRefreshResult refresh(Long userId) {
+        return refresh(userId, JobProgress.NONE);
+    }
+
+    /**
+     * Same as {@link #refresh(Long)}, reporting one progress step per distinct cardId
+     * fetched. Throws {@link CancellationException} if the job is cancelled; chunks
+     * already written stay written.
+     */
+    public PriceRefreshResult refresh(Long userId, JobProgress progress) {
+        Map<String, List<Long>> rowsByCardId = new LinkedHashMap<>();
+        for (Object[] row : repo.findIdAndCardIdByUserId(userId)) {
+            rowsByCardId.computeIfAbsent((String) row[1], k -> new ArrayList<>()).add((Long) row[0]);
+        }
+
+        List<String> cardIds = new ArrayList<>(rowsByCardId.keySet());
+        progress.start(cardIds.size());
+        List<TcgdexCard> fetched = fanOut.map(Traffic.BACKGROUND, cardIds, concurrency, deadline, id -> {
+            if (progress.isCancelled()) throw new CancellationException();
+            TcgdexCard data = tcgdex.getLiveCardRecord(id);
+            progress.advance(1, 0);
+            return data;
+        }, (id, error) -> {
+            if (!(error instanceof CancellationException)) progress.advance(1, 1);
+            return null;
+        });
+        if (progress.isCancelled()) throw new CancellationException("Price refresh cancelled");
+
+        Map<String, TcgdexCard> dataByCardId = new HashMap<>();
+        int failed = 0;
+        List<Long> rowIds = new ArrayList<>();
+        for (int i = 0; i < cardIds.size(); i++) {
+            List<Long> rows = rowsByCardId.get(cardIds.get(i));
+            if (fetched.get(i) == null) {
+                failed += rows.size();
+            } else {
+                dataByCardId.put(cardIds.get(i), fetched.get(i));
+                rowIds.addAll(rows);
+            }
+        }
+
+        int updated = 0;
+        int skipped = 0;
+        for (int from = 0; from < rowIds.size(); from += chunkSize) {
+            if (progress.isCancelled()) throw new CancellationException("Price refresh cancelled");
+            List<Long> chunk = rowIds.subList(from, Math.min(from + chunkSize, rowIds.size()));
+            int[] counts = tx.execute(status -> writeChunk(userId, chunk, dataByCardId));
+            updated += counts[0];
+            skipped += counts[1];
+        }
+        return new PriceRefreshResult(updated, failed, skipped);
+    }
+
+    /**
+     * Apply prices to one chunk of rows, locked in id order like the global refresher's,
+     * so the value delta is computed from the quantities and prices being replaced.
+     * Changes are flushed as a batch on commit, together with the chunk's change to the
+     * collection value and the changed prices' history snapshots (or a first snapshot
+     * for unchanged prices with no history yet).
+     */
+    private int[] writeChunk(Long userId, List<Long> ids, Map<String, TcgdexCard> dataByCardId) {
+        int updated = 0;
+        int skipped = 0;
+        double valueDelta = 0;
+        Map<String, TcgdexPrice> changed = new LinkedHashMap<>();
+        Map<String, TcgdexPrice> unchanged = new LinkedHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Card card : repo.findAllForUpdate(ids)) {
+            card.setPricesCheckedAt(now);
+            double before = card.getPriceMid() != null ? card.getPriceMid() * card.getQuantity() : 0;
+            TcgdexCard data = dataByCardId.get(card.getCardId());
+            TcgdexPrice price = data.price();
+            if (price != null && !price.sameAs(card.getPriceLow(), card.getPriceMid(), card.getPriceHigh(),
+                    card.getPriceMarket())) {
+                changed.put(card.getCardId(), price);
+            } else if (price != null) {
+                unchanged.put(card.getCardId(), price);
+            }
+            if (TcgdexCardMapper.mapPricing(data, card)) {
+                card.setUpdatedAt(now);
+                valueDelta += (card.getPriceMid() != null ? card.getPriceMid() * card.getQuantity() : 0) - before;
+                updated++;
+            } else {
+                skipped++;
+            }
+        }
+        if (updated > 0) stats.valueChanged(userId, valueDelta);
+        history.recordPrices(changed, now);
+        unchanged.keySet().removeAll(changed.keySet());
+        history.seedPrices(unchanged, now);
+        return new int[]{updated, skipped};
+    }
+}
@@ -0,0 +1,159 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reference data that changes a few times a year (sets, rarities, types, categories),
+ * held as ready-to-send bytes so serving it does no JSON work and no upstream call.
+ *
+ * Each list is kept as its JSON bytes, a gzipped copy and an ETag derived from the
+ * content. Lists are loaded from the snapshot directory at startup and refreshed from
+ * {@link TcgdexApiService} in the background; a changed list is swapped in and written
+ * back to the snapshot. A list with no snapshot yet is fetched on first request.
+ */
+@Service
+public class ReferenceDataStore {
+
+    public static final String SETS = "sets";
+    public static final String RARITIES = "rarities";
+    public static final String TYPES = "types";
+    public static final String CATEGORIES = "categories";
+
+    /** One list, ready to send. {@code etag} is quoted, as sent in the header. */
+    public record Snapshot(byte[] json, byte[] gzipped, String etag) {
+    }
+
+    private final Map<String, Supplier<JsonNode>> loaders = new LinkedHashMap<>();
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Value("${reference.snapshot-dir:data/reference}")
+    private Path snapshotDir;
+
+    @Value("${reference.refresh-enabled:true}")
+    private boolean refreshEnabled;
+
+    public ReferenceDataStore(TcgdexApiService tcgdex) {
+        loaders.put(SETS, tcgdex::getSets);
+        loaders.put(RARITIES, tcgdex::getRarities);
+        loaders.put(TYPES, tcgdex::getTypes);
+        loaders.put(CATEGORIES, tcgdex::getCategories);
+    }
+
+    /** The list's current snapshot, fetching it first if there is none yet. */
+    public Snapshot get(String name) {
+        Snapshot snapshot = snapshots.get(name);
+        if (snapshot != null) return snapshot;
+        if (!loaders.containsKey(name)) throw new IllegalArgumentException("Unknown reference data: " + name);
+        synchronized (loaders) {
+            snapshot = snapshots.get(name);
+            return snapshot != null ? snapshot : refresh(name);
+        }
+    }
+
+    // ── Loading ───────────────────────────────────────────
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSnapshots() {
+        List<String> loaded = new ArrayList<>();
+        for (String name : loaders.keySet()) {
+            Path file = snapshotDir.resolve(name + ".json");
+            if (!Files.isRegularFile(file)) continue;
+            try {
+                byte[] json = Files.readAllBytes(file);
+                mapper.readTree(json);
+                snapshots.put(name, snapshot(json));
+                loaded.add(name);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Failed to load reference data snapshot " + file + ": " + e.getMessage());
+            }
+        }
+        System.out.println("Reference data loaded from snapshot: " + (loaded.isEmpty() ? "none" : String.join(", ", loaded)));
+    }
+
+    @Scheduled(initialDelayString = "${reference.initial-delay:PT20S}", fixedDelayString = "${reference.interval:PT6H}")
+    public void refreshAll() {
+        if (!refreshEnabled) return;
+        for (String name : loaders.keySet()) {
+            try {
+                refresh(name);
+            } catch (Exception e) {
+                // Keep serving the previous snapshot
+                System.out.println("Reference data refresh failed for " + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /** Fetch one list; if it changed, swap it in and persist it. */
+    Snapshot refresh(String name) {
+        byte[] json;
+        try {
+            json = mapper.writeValueAsBytes(loaders.get(name).get());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Snapshot current = snapshots.get(name);
+        if (current != null && Arrays.equals(current.json(), json)) return current;
+
+        Snapshot fresh = snapshot(json);
+        snapshots.put(name, fresh);
+        try {
+            save(name, json);
+        } catch (IOException e) {
+            System.out.println("Failed to write reference data snapshot for " + name + ": " + e.getMessage());
+        }
+        return fresh;
+    }
+
+    /** Write to a temp file next to the snapshot and move it into place, so readers never see half a file. */
+    private void save(String name, byte[] json) throws IOException {
+        Path dir = snapshotDir.toAbsolutePath();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, name, ".tmp");
+        try {
+            Files.write(tmp, json);
+            Files.move(tmp, dir.resolve(name + ".json"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static Snapshot snapshot(byte[] json) {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Snapshot(json, gzipped.toByteArray(), "\"" + hash(json) + "\"");
+    }
+
+    /** First 16 hex digits of the SHA-256: the same content always gets the same ETag, across restarts too. */
+    private static String hash(byte[] json) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
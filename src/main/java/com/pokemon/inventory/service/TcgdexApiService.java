@@ -1,19 +1,42 @@
 package com.pokemon.inventory.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pokemon.inventory.dto.TcgdexCard;
+import com.pokemon.inventory.model.CatalogCard;
+import com.pokemon.inventory.service.TcgdexResilience.Traffic;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class TcgdexApiService {
@@ -21,25 +44,110 @@ public class TcgdexApiService {
     @Value("${tcgdex.api.base-url}")
     private String baseUrl;
 
+    // Max detail fetches in flight for a single search page (1 = serial)
+    @Value("${tcgdex.search.detail-concurrency:8}")
+    private int detailConcurrency;
+
+    // Total time budget for a page's detail fetches before falling back to summaries
+    @Value("${tcgdex.search.page-deadline-ms:10000}")
+    private long pageDeadlineMs;
+
+    // Mirrored card pricing older than this is refetched live for card reads; search listings
+    // keep it, overlaid with cached pricing where there is some
+    @Value("${tcgdex.catalog.max-pricing-age:PT24H}")
+    private Duration mirrorPricingMaxAge = Duration.ofHours(24);
+
+    private final OutboundHttp http;
+    private final Duration responseTimeout;
     private final RestTemplate restTemplate;
+    private final FanOutExecutor fanOut;
+    private final TcgdexCardCache cardCache;
+    private final CatalogMirror catalog;
+    private final TcgdexResilience resilience;
+    private final HedgedRequests hedging;
     private final ObjectMapper mapper = new ObjectMapper();
 
-    public TcgdexApiService() {
-        var factory = new org.springframework.http.client.SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(10000);
-        factory.setReadTimeout(30000);
-        this.restTemplate = new RestTemplate(factory);
+    public TcgdexApiService(OutboundHttp http, FanOutExecutor fanOut, TcgdexCardCache cardCache, CatalogMirror catalog,
+                            TcgdexResilience resilience, HedgedRequests hedging,
+                            @Value("${tcgdex.http.response-timeout:PT30S}") Duration responseTimeout) {
+        this.http = http;
+        this.responseTimeout = responseTimeout;
+        this.restTemplate = http.restTemplate(responseTimeout);
+        this.fanOut = fanOut;
+        this.cardCache = cardCache;
+        this.catalog = catalog;
+        this.resilience = resilience;
+        this.hedging = hedging;
     }
 
-    private JsonNode apiGet(String url) {
-        ResponseEntity<String> response = restTemplate.getForEntity(java.net.URI.create(url), String.class);
-        try {
-            return mapper.readTree(response.getBody());
-        } catch (Exception e) {
+    /**
+     * GET for a user-facing read: falls back to the last good response for the URL,
+     * marked stale, when TCGdex fails or the circuit is open.
+     */
+    private JsonNode readThrough(String url) {
+        return resilience.readThrough(url, () -> fetch(url, JsonNode.class));
+    }
+
+    private JsonNode apiGet(String url, Traffic traffic) {
+        return apiGet(url, JsonNode.class, traffic);
+    }
+
+    /**
+     * GET a card detail, sending a second request if the first is slower than usual
+     * (see {@link HedgedRequests}). The losing request is aborted.
+     */
+    private JsonNode fetchHedged(String url) {
+        return hedging.call(() -> {
+            HttpGet get = http.cancellableGet(URI.create(url), responseTimeout);
+            get.setHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+            return new HedgedRequests.Attempt<>(() -> {
+                try {
+                    return http.execute(get, this::readJson);
+                } catch (IOException e) {
+                    throw new ResourceAccessException("I/O error on GET request for \"" + url + "\": " + e.getMessage(), e);
+                }
+            }, get::cancel);
+        });
+    }
+
+    /** Decode a JSON response, raising the same exceptions RestTemplate does for error statuses. */
+    private JsonNode readJson(ClassicHttpResponse response) throws IOException {
+        HttpStatusCode status = HttpStatusCode.valueOf(response.getCode());
+        if (status.isError()) {
+            byte[] body = response.getEntity() == null ? new byte[0] : EntityUtils.toByteArray(response.getEntity());
+            throw status.is4xxClientError()
+                    ? HttpClientErrorException.create(status, response.getReasonPhrase(), HttpHeaders.EMPTY, body, StandardCharsets.UTF_8)
+                    : HttpServerErrorException.create(status, response.getReasonPhrase(), HttpHeaders.EMPTY, body, StandardCharsets.UTF_8);
+        }
+        try (InputStream body = response.getEntity().getContent()) {
+            return mapper.readTree(body);
+        } catch (JsonProcessingException e) {
             throw new RuntimeException("Failed to parse TCGdex API response", e);
         }
     }
 
+    /**
+     * GET through the traffic's bulkhead and the circuit breaker, failing rather than
+     * serving stale data.
+     */
+    private <T> T apiGet(String url, Class<T> type, Traffic traffic) {
+        return resilience.call(traffic, () -> fetch(url, type));
+    }
+
+    /**
+     * GET and decode the response body as it streams in, without buffering it as a String.
+     */
+    private <T> T fetch(String url, Class<T> type) {
+        return restTemplate.execute(URI.create(url), HttpMethod.GET,
+                restTemplate.acceptHeaderRequestCallback(type), response -> {
+                    try (InputStream body = response.getBody()) {
+                        return mapper.readValue(body, type);
+                    } catch (JsonProcessingException e) {
+                        throw new RuntimeException("Failed to parse TCGdex API response", e);
+                    }
+                });
+    }
+
     public JsonNode searchCards(String q, String set, String rarity,
                                 String type, String category,
                                 int page, int pageSize) {
@@ -47,6 +155,12 @@ public class TcgdexApiService {
         System.out.println("=== SEARCH: q=" + q + " set=" + set + " rarity=" + rarity
                 + " type=" + type + " category=" + category + " ===");
 
+        if (catalog.isWarm()) {
+            JsonNode result = catalog.searchCards(q, set, rarity, type, category, page, pageSize);
+            result.get("data").forEach(card -> withCachedPricing((ObjectNode) card));
+            return result;
+        }
+
         // ─── Build query string using TCGDex filtering API ───────────
         StringBuilder url = new StringBuilder(baseUrl + "/cards?");
         List<String> params = new ArrayList<>();
@@ -76,7 +190,7 @@ public class TcgdexApiService {
         System.out.println("=== API URL: " + url + " ===");
 
         // ─── Fetch filtered results from API ─────────────────────────
-        JsonNode apiResult = apiGet(url.toString());
+        JsonNode apiResult = readThrough(url.toString());
         ArrayNode cards = mapper.createArrayNode();
 
         if (apiResult != null && apiResult.isArray()) {
@@ -88,16 +202,15 @@ public class TcgdexApiService {
         System.out.println("=== FILTERED CARDS: " + cards.size() + " ===");
 
         // ─── Fetch full details for each card on this page ───────────
+        // Runs concurrently; a card whose fetch fails or misses the deadline keeps its summary
+        List<JsonNode> summaries = new ArrayList<>();
+        cards.forEach(summaries::add);
+        List<JsonNode> details = fanOut.map(summaries, detailConcurrency, Duration.ofMillis(pageDeadlineMs),
+                resilience.inCallerContext(card -> getCard(card.get("id").asText())),
+                (card, error) -> card);
+
         ArrayNode pageData = mapper.createArrayNode();
-        for (JsonNode card : cards) {
-            try {
-                String cardId = card.get("id").asText();
-                JsonNode fullCard = apiGet(baseUrl + "/cards/" + cardId);
-                pageData.add(fullCard);
-            } catch (Exception e) {
-                pageData.add(card);
-            }
-        }
+        details.forEach(pageData::add);
 
         // ─── Build response ──────────────────────────────────────────
         ObjectNode result = mapper.createObjectNode();
@@ -112,43 +225,225 @@ public class TcgdexApiService {
 
     /**
      * Get full card details by ID (e.g. "base1-4", "swsh1-1").
+     * Served from the catalog mirror when warm, otherwise from the card cache.
+     *
+     * A mirrored card's pricing is only as fresh as its set's last sync, so it is replaced
+     * by cached pricing when there is some, and the card is fetched live once its sync is
+     * older than {@code tcgdex.catalog.max-pricing-age}. Should that fetch fail, the
+     * mirrored card is served marked stale; without a mirrored copy, the last good
+     * response is.
      */
     public JsonNode getCard(String cardId) {
-        return apiGet(baseUrl + "/cards/" + cardId);
+        if (catalog.isWarm()) {
+            var mirrored = catalog.findCardRecord(cardId);
+            if (mirrored.isPresent()) {
+                CatalogCard card = mirrored.get();
+                if (cardCache.cachedPricing(cardId) != null || !isPricingStale(card)) {
+                    return withCachedPricing((ObjectNode) parse(card.getPayload()));
+                }
+                try {
+                    return liveCard(cardId, true);
+                } catch (RuntimeException e) {
+                    markStale(card);
+                    return parse(card.getPayload());
+                }
+            }
+        }
+        return liveCard(cardId, true);
+    }
+
+    /**
+     * Get card details from the card cache or the live API, skipping the catalog mirror.
+     * Use this where pricing must be current rather than as of the last catalog sync:
+     * it fails rather than serving stale data.
+     */
+    public JsonNode getLiveCard(String cardId) {
+        return liveCard(cardId, false);
+    }
+
+    private JsonNode liveCard(String cardId, boolean staleFallback) {
+        return cardCache.get(cardId, id -> {
+            String url = baseUrl + "/cards/" + id;
+            return staleFallback
+                    ? resilience.readThrough(url, () -> fetchHedged(url))
+                    : resilience.call(() -> fetchHedged(url));
+        });
+    }
+
+    /**
+     * Typed counterpart of {@link #getCard}, for callers that map the card rather than
+     * pass it through. Mirrored payloads decode straight from their stored text while
+     * their pricing is fresh enough; the same pricing rules apply.
+     */
+    public TcgdexCard getCardRecord(String cardId) {
+        return getCardRecord(cardId, Traffic.INTERACTIVE);
+    }
+
+    /** {@link #getCardRecord(String)}, with live fetches through the bulkhead for {@code traffic}. */
+    public TcgdexCard getCardRecord(String cardId, Traffic traffic) {
+        if (catalog.isWarm()) {
+            var mirrored = catalog.findCardRecord(cardId);
+            if (mirrored.isPresent()) {
+                CatalogCard card = mirrored.get();
+                if (cardCache.cachedPricing(cardId) == null && !isPricingStale(card)) {
+                    return decode(card.getPayload());
+                }
+                try {
+                    return getLiveCardRecord(cardId, traffic);
+                } catch (RuntimeException e) {
+                    markStale(card);
+                    return decode(card.getPayload());
+                }
+            }
+        }
+        return getLiveCardRecord(cardId, traffic);
+    }
+
+    /**
+     * Typed counterpart of {@link #getLiveCard}, for the price refreshes: background
+     * traffic. A cached card is converted from the cache's tree; a miss is decoded from
+     * the response stream and not cached, since the refreshes read each card once.
+     */
+    public TcgdexCard getLiveCardRecord(String cardId) {
+        return getLiveCardRecord(cardId, Traffic.BACKGROUND);
+    }
+
+    private TcgdexCard getLiveCardRecord(String cardId, Traffic traffic) {
+        JsonNode cached = cardCache.getIfPresent(cardId);
+        if (cached != null) {
+            try {
+                return mapper.treeToValue(cached, TcgdexCard.class);
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Failed to decode cached TCGdex card " + cardId, e);
+            }
+        }
+        return apiGet(baseUrl + "/cards/" + cardId, TcgdexCard.class, traffic);
+    }
+
+    private boolean isPricingStale(CatalogCard card) {
+        return card.getSyncedAt() == null
+                || card.getSyncedAt().isBefore(LocalDateTime.now().minus(mirrorPricingMaxAge));
+    }
+
+    private static void markStale(CatalogCard card) {
+        if (card.getSyncedAt() != null) {
+            TcgdexResilience.markStale(card.getSyncedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    /** Replace a mirrored card's pricing with the cached one, when the card is cached. */
+    private JsonNode withCachedPricing(ObjectNode card) {
+        JsonNode pricing = card.has("id") ? cardCache.cachedPricing(card.get("id").asText()) : null;
+        if (pricing == null) return card;
+        if (pricing.isNull()) {
+            card.remove("pricing");
+        } else {
+            card.set("pricing", pricing);
+        }
+        return card;
+    }
+
+    private JsonNode parse(String payload) {
+        try {
+            return mapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to parse mirrored TCGdex card", e);
+        }
+    }
+
+    private TcgdexCard decode(String payload) {
+        try {
+            return mapper.readValue(payload, TcgdexCard.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to decode mirrored TCGdex card", e);
+        }
     }
 
     /**
      * List all available sets.
      */
     public JsonNode getSets() {
-        return apiGet(baseUrl + "/sets");
+        if (catalog.isWarm()) return catalog.getSets();
+        return readThrough(baseUrl + "/sets");
     }
 
     /**
      * Get full details for a specific set.
      */
     public JsonNode getSet(String setId) {
-        return apiGet(baseUrl + "/sets/" + setId);
+        if (catalog.isWarm()) {
+            var mirrored = catalog.findSet(setId);
+            if (mirrored.isPresent()) return mirrored.get();
+        }
+        return readThrough(baseUrl + "/sets/" + setId);
+    }
+
+    // ── Live API calls used by the catalog sync (background traffic) ──
+
+    public JsonNode fetchSets() {
+        return apiGet(baseUrl + "/sets", Traffic.BACKGROUND);
+    }
+
+    public JsonNode fetchSet(String setId) {
+        return apiGet(baseUrl + "/sets/" + setId, Traffic.BACKGROUND);
+    }
+
+    /**
+     * Card name → number of printings, from the full {@code /cards} list. The list is
+     * large, so names are counted as it streams in instead of building a tree.
+     */
+    public Map<String, Integer> fetchCardNameCounts() {
+        return resilience.call(Traffic.BACKGROUND, () -> restTemplate.execute(URI.create(baseUrl + "/cards"), HttpMethod.GET,
+                restTemplate.acceptHeaderRequestCallback(JsonNode.class), response -> {
+                    Map<String, Integer> counts = new HashMap<>();
+                    try (InputStream body = response.getBody(); JsonParser parser = mapper.getFactory().createParser(body)) {
+                        if (parser.nextToken() != JsonToken.START_ARRAY) {
+                            throw new RuntimeException("Expected a card list from TCGdex");
+                        }
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                String field = parser.currentName();
+                                if (parser.nextToken() == JsonToken.VALUE_STRING && "name".equals(field)) {
+                                    counts.merge(parser.getText(), 1, Integer::sum);
+                                } else {
+                                    parser.skipChildren();
+                                }
+                            }
+                        }
+                    } catch (JsonProcessingException e) {
+                        throw new RuntimeException("Failed to parse TCGdex API response", e);
+                    }
+                    return counts;
+                }));
+    }
+
+    /**
+     * Fetch a card straight from the API and refresh the card cache with it.
+     */
+    public JsonNode fetchCard(String cardId) {
+        JsonNode card = apiGet(baseUrl + "/cards/" + cardId, Traffic.BACKGROUND);
+        cardCache.put(cardId, card);
+        return card;
     }
 
     /**
      * List all available card rarities.
      */
     public JsonNode getRarities() {
-        return apiGet(baseUrl + "/rarities");
+        return readThrough(baseUrl + "/rarities");
     }
 
     /**
      * List all Pokémon types.
      */
     public JsonNode getTypes() {
-        return apiGet(baseUrl + "/types");
+        return readThrough(baseUrl + "/types");
     }
 
     /**
      * List all card categories (Pokémon, Trainer, Energy).
      */
     public JsonNode getCategories() {
-        return apiGet(baseUrl + "/categories");
+        return readThrough(baseUrl + "/categories");
     }
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Read-through cache for TCGdex card details, keyed by card id (e.g. "base1-4").
+ *
+ * Cards live in a size-bounded W-TinyLFU cache with one short TTL, set so prices stay
+ * fresh. TCGdex only serves a card whole, so a body kept longer than its pricing would
+ * never be read without a refetch; the mirror is what keeps card bodies long-term.
+ * Concurrent misses for the same id share one upstream call.
+ */
+@Component
+public class TcgdexCardCache {
+
+    private final Cache<String, ObjectNode> cards;
+    private final Map<String, CompletableFuture<JsonNode>> inflight = new ConcurrentHashMap<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter coalesced;
+
+    public TcgdexCardCache(MeterRegistry meters,
+                           @Value("${tcgdex.cache.max-cards:20000}") long maxCards,
+                           @Value("${tcgdex.cache.ttl:PT10M}") Duration ttl) {
+        this.hits = Counter.builder("tcgdex.cache.requests").tag("result", "hit").register(meters);
+        this.misses = Counter.builder("tcgdex.cache.requests").tag("result", "miss").register(meters);
+        this.evictions = Counter.builder("tcgdex.cache.evictions").register(meters);
+        this.coalesced = Counter.builder("tcgdex.cache.coalesced").register(meters);
+
+        this.cards = Caffeine.newBuilder()
+                .maximumSize(maxCards)
+                .expireAfterWrite(ttl)
+                .executor(Runnable::run)
+                .removalListener((String key, ObjectNode value, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE) evictions.increment();
+                })
+                .build();
+
+        Gauge.builder("tcgdex.cache.size", cards, Cache::estimatedSize).register(meters);
+    }
+
+    /**
+     * Return the card from cache, or load it with {@code loader} on a miss.
+     * Only one load per id runs at a time; other callers wait for its result.
+     */
+    public JsonNode get(String cardId, Function<String, JsonNode> loader) {
+        ObjectNode cached = cards.getIfPresent(cardId);
+        if (cached != null) {
+            hits.increment();
+            return copy(cached);
+        }
+        misses.increment();
+
+        CompletableFuture<JsonNode> mine = new CompletableFuture<>();
+        CompletableFuture<JsonNode> existing = inflight.putIfAbsent(cardId, mine);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+
+        try {
+            JsonNode full = loader.apply(cardId);
+            put(cardId, full);
+            mine.complete(full);
+            return full;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(cardId, mine);
+        }
+    }
+
+    /**
+     * Return the card if it is cached, without loading it.
+     */
+    public JsonNode getIfPresent(String cardId) {
+        ObjectNode cached = cards.getIfPresent(cardId);
+        if (cached != null) {
+            hits.increment();
+            return copy(cached);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * The card's cached pricing subtree (a null node if it has none), or null when it is not
+     * cached. Not counted as a cache read.
+     */
+    public JsonNode cachedPricing(String cardId) {
+        ObjectNode cached = cards.getIfPresent(cardId);
+        if (cached == null) return null;
+        JsonNode prices = cached.get("pricing");
+        return prices != null ? prices : NullNode.getInstance();
+    }
+
+    /**
+     * Store a freshly fetched card.
+     */
+    public void put(String cardId, JsonNode full) {
+        if (full == null || !full.isObject()) return;
+        cards.put(cardId, copy((ObjectNode) full));
+    }
+
+    public Map<String, Object> stats() {
+        cards.cleanUp();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", cards.estimatedSize());
+        stats.put("hits", (long) hits.count());
+        stats.put("misses", (long) misses.count());
+        stats.put("evictions", (long) evictions.count());
+        stats.put("coalesced", (long) coalesced.count());
+        return stats;
+    }
+
+    // Callers replace top-level fields (e.g. pricing), so each gets its own top-level object
+    private ObjectNode copy(ObjectNode card) {
+        ObjectNode copy = mapper.createObjectNode();
+        copy.setAll(card);
+        return copy;
+    }
+}
@@ -0,0 +1,67 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.dto.TcgdexCard;
+import com.pokemon.inventory.dto.TcgdexPrice;
+import com.pokemon.inventory.model.Card;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Maps decoded TCGdex cards onto {@link Card} entities.
+ */
+public final class TcgdexCardMapper {
+
+    private TcgdexCardMapper() {}
+
+    public static Card mapToEntity(TcgdexCard data) {
+        Card card = new Card();
+        card.setCardId(data.id());
+        card.setName(data.name());
+        card.setCategory(data.category());
+        card.setRarity(data.rarity());
+        card.setHp(data.hp());
+        card.setTypes(jsonArray(data.types()));
+        card.setSubtypes(data.stage() != null ? jsonArray(List.of(data.stage())) : "[]");
+
+        // Set info
+        if (data.set() != null) {
+            card.setSetId(data.set().id());
+            card.setSetName(data.set().name());
+            card.setSeries(data.set().series());
+        }
+
+        // Images: TCGdex gives a base URL, append quality suffix
+        if (data.image() != null) {
+            card.setImageSmall(data.image() + "/low.webp");
+            card.setImageLarge(data.image() + "/high.webp");
+        }
+
+        mapPricing(data, card);
+        return card;
+    }
+
+    /**
+     * Copy TCGPlayer prices onto the card. Returns false (card untouched) when the
+     * response has no usable price variant.
+     */
+    public static boolean mapPricing(TcgdexCard data, Card card) {
+        TcgdexPrice price = data.price();
+        if (price == null) return false;
+
+        card.setPriceLow(price.low());
+        card.setPriceMid(price.mid());
+        card.setPriceHigh(price.high());
+        card.setPriceMarket(price.market());
+        if (price.updated() != null) card.setPriceUpdatedAt(price.updated());
+        return true;
+    }
+
+    /** Compact JSON array of strings, the format the types/subtypes columns have always held. */
+    private static String jsonArray(List<String> values) {
+        if (values == null) return "[]";
+        return values.stream()
+                .map(v -> '"' + v.replace("\\", "\\\\").replace("\"", "\\\"") + '"')
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+}
@@ -0,0 +1,182 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a slow or failing TCGdex from taking the app down with it.
+ *
+ * Every upstream call passes a semaphore bulkhead, which caps the calls in flight, and
+ * a circuit breaker, which opens when too many recent calls failed or were slow and
+ * then fails fast until a few probe calls succeed. 4xx answers (an unknown card id) are
+ * the caller's problem, not upstream's, and do not count against the breaker.
+ *
+ * There are two bulkheads, so batch work cannot take the permits user requests need.
+ * {@link Traffic#INTERACTIVE} calls (searches, card pages, adding a card) are rejected at
+ * once when theirs is full instead of queueing servlet threads behind the read timeout.
+ * {@link Traffic#BACKGROUND} calls (price refreshes, imports, catalog sync) have their
+ * own, smaller bulkhead and wait up to {@code tcgdex.resilience.background.max-wait}
+ * for a permit, since their callers are pools that would otherwise just retry.
+ *
+ * Reads that may be served stale go through {@link #readThrough}: the last good body per
+ * URL is kept, and when the call fails or is rejected that body is returned instead.
+ * The oldest stale body's fetch time is recorded on the current request, and
+ * {@code StaleResponseAdvice} turns it into an {@value #STALE_HEADER} header.
+ */
+@Component
+public class TcgdexResilience {
+
+    /** Response header carrying the age in seconds of the oldest stale upstream data used. */
+    public static final String STALE_HEADER = "X-Data-Stale";
+
+    /** Request attribute holding the epoch millis of the oldest stale upstream data used. */
+    public static final String STALE_SINCE_ATTRIBUTE = TcgdexResilience.class.getName() + ".staleSince";
+
+    /** Which bulkhead an upstream call goes through. */
+    public enum Traffic {
+        INTERACTIVE, BACKGROUND
+    }
+
+    private record LastGood(JsonNode body, long fetchedAt) {
+    }
+
+    private final CircuitBreaker breaker;
+    private final Bulkhead bulkhead;
+    private final Bulkhead backgroundBulkhead;
+    private final Cache<String, LastGood> lastGood;
+    private final Counter staleServed;
+
+    public TcgdexResilience(MeterRegistry meters,
+                            @Value("${tcgdex.resilience.failure-rate-threshold:50}") float failureRateThreshold,
+                            @Value("${tcgdex.resilience.slow-call-threshold:PT5S}") Duration slowCallThreshold,
+                            @Value("${tcgdex.resilience.window-size:20}") int windowSize,
+                            @Value("${tcgdex.resilience.minimum-calls:10}") int minimumCalls,
+                            @Value("${tcgdex.resilience.open-duration:PT30S}") Duration openDuration,
+                            @Value("${tcgdex.resilience.max-concurrent-calls:16}") int maxConcurrentCalls,
+                            @Value("${tcgdex.resilience.background.max-concurrent-calls:8}") int backgroundMaxConcurrentCalls,
+                            @Value("${tcgdex.resilience.background.max-wait:PT5S}") Duration backgroundMaxWait,
+                            @Value("${tcgdex.resilience.stale.max-entries:5000}") long staleMaxEntries) {
+        CircuitBreakerRegistry breakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(windowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(slowCallThreshold)
+                .waitDurationInOpenState(openDuration)
+                .permittedNumberOfCallsInHalfOpenState(3)
+                .ignoreExceptions(HttpClientErrorException.class)
+                .build());
+        // No waiting for an interactive permit: a full bulkhead means upstream is already backed up
+        BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        this.breaker = breakers.circuitBreaker("tcgdex");
+        this.bulkhead = bulkheads.bulkhead("tcgdex");
+        this.backgroundBulkhead = bulkheads.bulkhead("tcgdex-background", BulkheadConfig.custom()
+                .maxConcurrentCalls(backgroundMaxConcurrentCalls)
+                .maxWaitDuration(backgroundMaxWait)
+                .build());
+        this.lastGood = Caffeine.newBuilder().maximumSize(staleMaxEntries).build();
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(breakers).bindTo(meters);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meters);
+        this.staleServed = Counter.builder("tcgdex.stale.served").register(meters);
+        Gauge.builder("tcgdex.stale.size", lastGood, Cache::estimatedSize).register(meters);
+    }
+
+    /** Run an interactive upstream call through its bulkhead and the circuit breaker. */
+    public <T> T call(Supplier<T> upstream) {
+        return call(Traffic.INTERACTIVE, upstream);
+    }
+
+    /** Run an upstream call through the bulkhead for its traffic and the circuit breaker. */
+    public <T> T call(Traffic traffic, Supplier<T> upstream) {
+        Bulkhead permits = traffic == Traffic.BACKGROUND ? backgroundBulkhead : bulkhead;
+        return permits.executeSupplier(() -> breaker.executeSupplier(upstream));
+    }
+
+    /**
+     * {@link #call} a GET, remembering the body as the last good response for the URL.
+     * If the call fails or is rejected and there is a last good response, that is
+     * returned and the request is marked stale; otherwise the failure is rethrown.
+     */
+    public JsonNode readThrough(String url, Supplier<JsonNode> upstream) {
+        try {
+            JsonNode body = call(upstream);
+            lastGood.put(url, new LastGood(body, System.currentTimeMillis()));
+            return body;
+        } catch (HttpClientErrorException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            LastGood stale = lastGood.getIfPresent(url);
+            if (stale == null) throw e;
+            staleServed.increment();
+            markStale(stale.fetchedAt());
+            System.out.println("TCGdex unavailable (" + reason(e) + "), serving stale " + url);
+            return stale.body();
+        }
+    }
+
+    /**
+     * Wrap work that runs on another thread (a fan-out worker) so stale reads it makes
+     * still mark the request that started it.
+     */
+    public <T, R> Function<T, R> inCallerContext(Function<T, R> work) {
+        RequestAttributes caller = RequestContextHolder.getRequestAttributes();
+        if (caller == null) return work;
+        return input -> {
+            RequestContextHolder.setRequestAttributes(caller);
+            try {
+                return work.apply(input);
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        };
+    }
+
+    public CircuitBreaker.State state() {
+        return breaker.getState();
+    }
+
+    /** Record on the current request, if any, that it used upstream data fetched at {@code fetchedAt}. */
+    public static void markStale(long fetchedAt) {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null) return;
+        synchronized (request) {
+            Object previous = request.getAttribute(STALE_SINCE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (previous instanceof Long since && since <= fetchedAt) return;
+            request.setAttribute(STALE_SINCE_ATTRIBUTE, fetchedAt, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private static String reason(RuntimeException e) {
+        if (e instanceof CallNotPermittedException) return "circuit open";
+        if (e instanceof BulkheadFullException) return "too many calls in flight";
+        return e.getMessage();
+    }
+}
@@ -0,0 +1,136 @@
+package com.pokemon.inventory.controller;
+
+import com.pokemon.inventory.config.SecurityConfig;
+import com.pokemon.inventory.dto.CollectionPage;
+import com.pokemon.inventory.model.CollectionStats;
+import com.pokemon.inventory.model.User;
+import com.pokemon.inventory.repository.UserRepository;
+import com.pokemon.inventory.service.CardService;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = PublicCollectionController.class,
+        properties = "http.cache.public-collection=public, max-age=30")
+@Import(SecurityConfig.class)
+class PublicCollectionControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private UserRepository userRepo;
+
+    @MockBean
+    private CardService cardService;
+
+    private static final LocalDateTime PROFILE_UPDATED = LocalDateTime.of(2026, 4, 1, 9, 0);
+
+    private final CollectionStats version = new CollectionStats();
+    private final User user = new User();
+
+    @BeforeEach
+    void setUp() {
+        user.setId(42L);
+        user.setUsername("ash");
+        user.setDisplayName("Ash");
+        user.setUpdatedAt(PROFILE_UPDATED);
+        Mockito.when(userRepo.findByUsername("ash")).thenReturn(Optional.of(user));
+
+        version.setUserId(42L);
+        version.setVersion(7);
+        version.setUpdatedAt(LocalDateTime.of(2026, 5, 1, 10, 0));
+        Mockito.when(cardService.getCollectionVersion(42L)).thenReturn(version);
+        Mockito.when(cardService.getStats(42L)).thenAnswer(inv -> new LinkedHashMap<>());
+        Mockito.when(cardService.getCollectionPage(eq(42L), any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(new CollectionPage(List.of(), 0, null));
+    }
+
+    @Test
+    @DisplayName("Responses carry an ETag, Last-Modified and the configured Cache-Control")
+    void setsValidators() throws Exception {
+        mvc.perform(get("/api/u/ash/stats"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag(7, PROFILE_UPDATED)))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("Cache-Control", "public, max-age=30"))
+                .andExpect(jsonPath("$.displayName").value("Ash"));
+    }
+
+    @Test
+    @DisplayName("A matching If-None-Match gets 304 without loading cards or stats")
+    void notModifiedSkipsLoading() throws Exception {
+        MvcResult first = mvc.perform(get("/api/u/ash/collection")).andExpect(status().isOk()).andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+        String lastModified = first.getResponse().getHeader("Last-Modified");
+        Mockito.clearInvocations(cardService);
+
+        mvc.perform(get("/api/u/ash/collection").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+        mvc.perform(get("/api/u/ash/stats").header("If-Modified-Since", lastModified))
+                .andExpect(status().isNotModified());
+
+        Mockito.verify(cardService, Mockito.never())
+                .getCollectionPage(any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
+        Mockito.verify(cardService, Mockito.never()).getStats(any());
+    }
+
+    @Test
+    @DisplayName("A write bumps the version, so the old ETag no longer matches")
+    void newVersionIsServed() throws Exception {
+        version.setVersion(8);
+        version.setUpdatedAt(version.getUpdatedAt().plusMinutes(1));
+
+        mvc.perform(get("/api/u/ash/stats").header("If-None-Match", etag(7, PROFILE_UPDATED)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag(8, PROFILE_UPDATED)));
+    }
+
+    @Test
+    @DisplayName("A profile change alone also invalidates the old ETag and moves Last-Modified")
+    void profileChangeIsServed() throws Exception {
+        MvcResult first = mvc.perform(get("/api/u/ash/collection")).andExpect(status().isOk()).andReturn();
+        String lastModified = first.getResponse().getHeader("Last-Modified");
+
+        LocalDateTime renamed = version.getUpdatedAt().plusDays(1);
+        user.setDisplayName("Ash Ketchum");
+        user.setUpdatedAt(renamed);
+
+        mvc.perform(get("/api/u/ash/collection").header("If-None-Match", first.getResponse().getHeader("ETag")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag(7, renamed)))
+                .andExpect(jsonPath("$.displayName").value("Ash Ketchum"));
+        mvc.perform(get("/api/u/ash/stats").header("If-Modified-Since", lastModified))
+                .andExpect(status().isOk());
+    }
+
+    private static String etag(long collectionVersion, LocalDateTime profileUpdated) {
+        return "\"42." + collectionVersion + "." + profileUpdated.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + "\"";
+    }
+
+    @Test
+    @DisplayName("Actuator endpoints other than health are not public")
+    void actuatorNeedsSession() throws Exception {
+        mvc.perform(get("/actuator/metrics")).andExpect(status().isUnauthorized());
+        mvc.perform(get("/actuator/metrics/tcgdex.hedge.sent")).andExpect(status().isUnauthorized());
+        mvc.perform(get("/actuator/health"))
+                .andExpect(result -> Assertions.assertNotEquals(401, result.getResponse().getStatus()));
+    }
+}
@@ -0,0 +1,121 @@
+package com.pokemon.inventory.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pokemon.inventory.config.SecurityConfig;
+import com.pokemon.inventory.service.*;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = CardController.class, properties = "http.cache.reference-data=public, max-age=60")
+@Import(SecurityConfig.class)
+class ReferenceDataEndpointsTest {
+
+    private static final byte[] JSON = "[\"Fire\",\"Water\"]".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] GZIPPED = {0x1f, (byte) 0x8b, 1, 2, 3};
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private ReferenceDataStore referenceData;
+
+    @MockBean
+    private CardService cardService;
+
+    @MockBean
+    private TcgdexApiService tcgdex;
+
+    @MockBean
+    private CardScanService cardScan;
+
+    @MockBean
+    private CollectionStreamWriter collectionStream;
+
+    @MockBean
+    private CardNameSuggestService nameSuggest;
+
+    @MockBean
+    private CollectionImportService importer;
+
+    @MockBean
+    private PriceHistoryService priceHistory;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(referenceData.get(ReferenceDataStore.TYPES))
+                .thenReturn(new ReferenceDataStore.Snapshot(JSON, GZIPPED, "\"abc123\""));
+    }
+
+    @Test
+    @DisplayName("Reference lists are served as stored bytes, gzipped when accepted, with an ETag")
+    void servesStoredBytes() throws Exception {
+        mvc.perform(get("/api/types"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(header().string("Cache-Control", "public, max-age=60"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$[1]").value("Water"));
+
+        mvc.perform(get("/api/types").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", "\"abc123-gz\""))
+                .andExpect(header().stringValues("Vary", Matchers.hasItem("Accept-Encoding")))
+                .andExpect(content().bytes(GZIPPED));
+        Mockito.verifyNoInteractions(tcgdex);
+    }
+
+    @Test
+    @DisplayName("A matching If-None-Match for the same encoding gets 304 with no body")
+    void notModified() throws Exception {
+        mvc.perform(get("/api/types").header("If-None-Match", "\"abc123\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(content().bytes(new byte[0]));
+
+        // Each encoding only revalidates against its own ETag
+        mvc.perform(get("/api/types").header("If-None-Match", "\"abc123-gz\"").header("Accept-Encoding", "gzip"))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"abc123-gz\""));
+        mvc.perform(get("/api/types").header("If-None-Match", "\"abc123\"").header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(GZIPPED));
+    }
+
+    @Test
+    @DisplayName("Upstream data served stale carries its age in a header; fresh data carries none")
+    void staleHeader() throws Exception {
+        Mockito.when(tcgdex.getCard("base1-4")).thenAnswer(call -> {
+            TcgdexResilience.markStale(System.currentTimeMillis() - 90_000);
+            return new ObjectMapper().readTree("{\"id\":\"base1-4\"}");
+        });
+        mvc.perform(get("/api/search/base1-4"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TcgdexResilience.STALE_HEADER, Matchers.either(Matchers.is("90")).or(Matchers.is("91"))))
+                .andExpect(jsonPath("$.id").value("base1-4"));
+
+        mvc.perform(get("/api/types"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(TcgdexResilience.STALE_HEADER));
+    }
+
+    @Test
+    @DisplayName("A list that cannot be loaded is a 500")
+    void failure() throws Exception {
+        Mockito.when(referenceData.get(ReferenceDataStore.SETS)).thenThrow(new IllegalStateException("down"));
+        mvc.perform(get("/api/sets"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.error").value("Failed to fetch sets"));
+    }
+}
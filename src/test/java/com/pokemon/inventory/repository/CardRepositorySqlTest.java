@@ -0,0 +1,111 @@
+package com.pokemon.inventory.repository;
+
+import com.pokemon.inventory.model.Card;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The PostgreSQL-only statements cannot run on H2, so their shape is checked here: that the
+ * queries use what the indexes are built on, and that the two stats queries line up.
+ */
+class CardRepositorySqlTest {
+
+    @Test
+    @DisplayName("The trigram search filters and ranks on exactly the expression its GIN index is built on")
+    void searchUsesIndexedExpression() {
+        String index = CardRepositoryCustomImpl.SEARCH_INDEXES.stream()
+                .filter(ddl -> ddl.contains("idx_cards_search_trgm")).findFirst().orElseThrow();
+        Assertions.assertEquals("CREATE INDEX IF NOT EXISTS idx_cards_search_trgm ON cards USING gin (("
+                + "lower(coalesce(name, '') || ' ' || coalesce(set_name, '') || ' ' || coalesce(series, '') || ' ' || "
+                + "coalesce(notes, ''))) gin_trgm_ops)", index);
+        Assertions.assertEquals("CREATE EXTENSION IF NOT EXISTS pg_trgm", CardRepositoryCustomImpl.SEARCH_INDEXES.get(0));
+
+        String indexed = group(index, "USING gin \\(\\((.*)\\) gin_trgm_ops\\)");
+        String document = CardRepositoryCustomImpl.SEARCH_DOCUMENT;
+        Assertions.assertEquals(indexed, document.replace("c.", ""));
+        String search = CardRepositoryCustomImpl.SEARCH_TRIGRAM;
+        Assertions.assertTrue(search.contains(":q <% " + document + " "), search);
+        Assertions.assertTrue(search.contains("word_similarity(:q, " + document + ")"), search);
+        Assertions.assertTrue(search.matches("SELECT c\\.id, .* AS score FROM cards c WHERE c\\.user_id = :userId AND .*"
+                + "ORDER BY score DESC, c\\.id LIMIT :limit"), search);
+    }
+
+    @Test
+    @DisplayName("The name prefix index covers the lower(name) prefix match of suggestions")
+    void prefixIndex() {
+        Assertions.assertTrue(CardRepositoryCustomImpl.SEARCH_INDEXES.contains(
+                "CREATE INDEX IF NOT EXISTS idx_cards_user_name_prefix ON cards (user_id, lower(name) text_pattern_ops)"));
+    }
+
+    @Test
+    @DisplayName("The card key index, the upsert's conflict target and the entity's unique index name the same columns")
+    void cardKeyIndexMatchesUpsert() {
+        String ddl = CardRepositoryCustomImpl.CARD_KEY_INDEX;
+        Assertions.assertTrue(ddl.startsWith("CREATE UNIQUE INDEX IF NOT EXISTS uk_cards_user_card_condition ON cards "), ddl);
+        List<String> indexed = columns(group(ddl, "ON cards \\(([^)]*)\\)"));
+        Assertions.assertEquals(List.of("user_id", "card_id", "condition"), indexed);
+        Assertions.assertEquals(indexed, columns(group(CardBatchWriter.ON_CONFLICT, "ON CONFLICT \\(([^)]*)\\)")));
+
+        Index entityIndex = Arrays.stream(Card.class.getAnnotation(Table.class).indexes())
+                .filter(i -> i.name().equals("uk_cards_user_card_condition")).findFirst().orElseThrow();
+        Assertions.assertTrue(entityIndex.unique());
+        Assertions.assertEquals(indexed, columns(entityIndex.columnList()).stream()
+                .map(c -> c.replaceAll("([A-Z])", "_$1").toLowerCase()).toList());
+    }
+
+    @Test
+    @DisplayName("The grouping-sets stats query returns the same columns, in the same row kinds, as the portable one")
+    void statsQueriesLineUp() {
+        String groupingSets = CardRepositoryCustomImpl.STATS_GROUPING_SETS;
+        String union = CardRepositoryCustomImpl.STATS_UNION;
+        List<String> grouped = selectList(groupingSets);
+        Assertions.assertEquals(8, grouped.size(), grouped.toString());
+        Assertions.assertEquals(grouped.size(), selectList(union).size());
+        for (String branch : union.split("UNION ALL ")) {
+            Assertions.assertEquals(grouped.size(), selectList(branch).size(), branch);
+        }
+        // Row kinds: 1 for a set group, 2 for a rarity group, 0 for the grand total
+        Assertions.assertEquals("CASE WHEN GROUPING(c.set_id) = 0 THEN 1 WHEN GROUPING(c.rarity) = 0 THEN 2 ELSE 0 END",
+                grouped.get(0));
+        Assertions.assertTrue(groupingSets.endsWith("GROUP BY GROUPING SETS ((), (c.set_id, c.set_name), (c.rarity))"));
+        Assertions.assertEquals(List.of("0", "1", "2"), Arrays.stream(union.split("UNION ALL "))
+                .map(branch -> selectList(branch).get(0)).toList());
+    }
+
+    private static String group(String text, String regex) {
+        Matcher m = Pattern.compile(regex).matcher(text);
+        Assertions.assertTrue(m.find(), "no match for " + regex + " in " + text);
+        return m.group(1);
+    }
+
+    private static List<String> columns(String list) {
+        return Arrays.stream(list.split(",")).map(String::trim).toList();
+    }
+
+    /** Top-level items between the first SELECT and its FROM. */
+    private static List<String> selectList(String sql) {
+        String body = sql.substring(sql.indexOf("SELECT ") + 7, sql.indexOf(" FROM "));
+        List<String> items = new ArrayList<>();
+        int depth = 0;
+        StringBuilder item = new StringBuilder();
+        for (char ch : body.toCharArray()) {
+            if (ch == '(') depth++;
+            if (ch == ')') depth--;
+            if (ch == ',' && depth == 0) {
+                items.add(item.toString().trim());
+                item.setLength(0);
+            } else {
+                item.append(ch);
+            }
+        }
+        items.add(item.toString().trim());
+        return items;
+    }
+}
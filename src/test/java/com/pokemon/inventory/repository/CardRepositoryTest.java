@@ -0,0 +1,217 @@
+package com.pokemon.inventory.repository;
+
+import com.pokemon.inventory.dto.CollectionPage;
+import com.pokemon.inventory.dto.CollectionSearchHit;
+import com.pokemon.inventory.dto.StatsRollup;
+import com.pokemon.inventory.model.Card;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Predicate;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class CardRepositoryTest {
+
+    private static final long USER = 1L;
+    private static final String[] NAMES = {"Pikachu", "charizard", "Bulbasaur", "Mew", "mewtwo", "Eevee", "Flareon", "Switch"};
+    private static final String[] SETS = {"Base Set", "jungle", "Fossil", null};
+    private static final String[] RARITIES = {"Common", "rare", "Rare Holo", null};
+    private static final String[] TYPES = {"[\"Fire\"]", "[\"Lightning\"]", "[\"Grass\",\"Psychic\"]", "[]", "[\"Fireball\"]"};
+
+    @Autowired
+    private CardRepository repo;
+
+    private List<Card> saved;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 12, 0);
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            Card card = new Card();
+            card.setUserId(i % 10 == 0 ? 2L : USER);
+            card.setCardId("set-" + i);
+            card.setName(NAMES[random.nextInt(NAMES.length)]);
+            card.setSetName(SETS[random.nextInt(SETS.length)]);
+            card.setSetId(card.getSetName() == null ? null : card.getSetName().toLowerCase().replace(' ', '-'));
+            card.setRarity(RARITIES[random.nextInt(RARITIES.length)]);
+            card.setTypes(TYPES[random.nextInt(TYPES.length)]);
+            card.setCategory(random.nextBoolean() ? "Pokemon" : "Trainer");
+            card.setQuantity(1 + random.nextInt(4));
+            card.setPriceMid(random.nextInt(4) == 0 ? null : random.nextInt(20) / 2.0);
+            // Few distinct timestamps so the id tie-breaker matters
+            card.setCreatedAt(base.plusMinutes(random.nextInt(20)));
+            cards.add(card);
+        }
+        saved = repo.saveAll(cards);
+    }
+
+    @Test
+    @DisplayName("Database filtering and sorting matches the in-memory comparator for every sort key")
+    void matchesInMemoryOrder() {
+        for (CollectionSort sort : CollectionSort.values()) {
+            for (String order : List.of("asc", "desc")) {
+                List<Card> expected = expected(CollectionFilter.none(), sort, order);
+                CollectionPage page = repo.findCollection(USER, CollectionFilter.none(), sort,
+                        CollectionSort.isAscending(order), null, null);
+                Assertions.assertEquals(ids(expected), ids(page.getCards()), sort + " " + order);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Filters translate to SQL with the same semantics as before")
+    void filtersMatch() {
+        List<CollectionFilter> filters = List.of(
+                new CollectionFilter("jungle", null, null, null, null),
+                new CollectionFilter(null, "rare", null, null, null),
+                new CollectionFilter(null, null, "Trainer", null, null),
+                new CollectionFilter(null, null, null, "Psychic", null),
+                new CollectionFilter(null, null, null, null, "MEW"),
+                new CollectionFilter("base-set", "Common", "Pokemon", "Fire", "a"));
+        for (CollectionFilter filter : filters) {
+            List<Card> expected = expected(filter, CollectionSort.NAME, "asc");
+            CollectionPage page = repo.findCollection(USER, filter, CollectionSort.NAME, true, null, null);
+            Assertions.assertEquals(ids(expected), ids(page.getCards()), filter.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("The type filter matches whole types only")
+    void typeFilterIsExact() {
+        List<Card> fire = repo.findCollection(USER, new CollectionFilter(null, null, null, "Fire", null),
+                CollectionSort.NAME, true, null, null).getCards();
+        Assertions.assertFalse(fire.isEmpty());
+        Assertions.assertTrue(fire.stream().allMatch(c -> c.getTypes().equals("[\"Fire\"]")));
+        Assertions.assertEquals(0, repo.findCollection(USER, new CollectionFilter(null, null, null, "Fir", null),
+                CollectionSort.NAME, true, null, null).getTotal());
+    }
+
+    @Test
+    @DisplayName("Walking keyset pages returns every card exactly once in order")
+    void keysetPagesCoverCollection() {
+        CollectionFilter filter = new CollectionFilter(null, null, null, null, null);
+        for (CollectionSort sort : CollectionSort.values()) {
+            for (String order : List.of("asc", "desc")) {
+                boolean ascending = CollectionSort.isAscending(order);
+                List<Card> walked = new ArrayList<>();
+                String cursor = null;
+                do {
+                    CollectionCursor after = cursor != null ? CollectionCursor.decode(cursor, sort, ascending) : null;
+                    CollectionPage page = repo.findCollection(USER, filter, sort, ascending, 7, after);
+                    Assertions.assertTrue(page.getCards().size() <= 7);
+                    Assertions.assertEquals(expected(filter, sort, order).size(), page.getTotal());
+                    walked.addAll(page.getCards());
+                    cursor = page.getNextCursor();
+                } while (cursor != null);
+                Assertions.assertEquals(ids(expected(filter, sort, order)), ids(walked), sort + " " + order);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A cursor issued for one sort is rejected for another")
+    void rejectsMismatchedCursor() {
+        String cursor = repo.findCollection(USER, CollectionFilter.none(), CollectionSort.NAME, true, 5, null).getNextCursor();
+
+        Assertions.assertNotNull(CollectionCursor.decode(cursor, CollectionSort.NAME, true));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> CollectionCursor.decode(cursor, CollectionSort.PRICE, true));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> CollectionCursor.decode(cursor, CollectionSort.NAME, false));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> CollectionCursor.decode("not-a-cursor", CollectionSort.NAME, true));
+    }
+
+    @Test
+    @DisplayName("The single-statement stats match the six separate aggregate queries")
+    void statsRollupMatchesAggregates() {
+        for (long user : new long[]{USER, 2L, 404L}) {
+            StatsRollup rollup = repo.computeStats(user);
+            Assertions.assertEquals(repo.countByUserId(user), rollup.getUniqueCards());
+            Assertions.assertEquals(repo.getTotalCards(user), rollup.getTotalCards());
+            Assertions.assertEquals(repo.getTotalSets(user), rollup.getTotalSets());
+            Assertions.assertEquals(repo.getTotalValue(user), rollup.getTotalValue(), 1e-9);
+            Assertions.assertEquals(rows(repo.getStatsBySet(user)), rows(rollup.getBySet()));
+            Assertions.assertEquals(rows(repo.getStatsByRarity(user)), rows(rollup.getByRarity()));
+            // Same ordering by total quantity
+            Assertions.assertEquals(repo.getStatsBySet(user).stream().map(r -> ((Number) r[3]).longValue()).toList(),
+                    rollup.getBySet().stream().map(r -> ((Number) r[3]).longValue()).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Search ranks exact names first and tolerates typos and partial words")
+    void searchRanksAndToleratesTypos() {
+        List<CollectionSearchHit> typo = repo.searchCollection(USER, "charzard", 100);
+        Assertions.assertEquals(count(c -> c.getName().equals("charizard")), typo.size());
+        Assertions.assertTrue(typo.stream().allMatch(h -> h.card().getName().equals("charizard") && h.score() >= 0.6));
+
+        List<CollectionSearchHit> mew = repo.searchCollection(USER, "mew", 100);
+        Assertions.assertEquals(count(c -> c.getName().toLowerCase().startsWith("mew")), mew.size());
+        int firstMewtwo = indexOf(mew, "mewtwo");
+        Assertions.assertTrue(firstMewtwo > 0);
+        Assertions.assertTrue(mew.subList(0, firstMewtwo).stream().allMatch(h -> h.card().getName().equals("Mew")));
+        Assertions.assertEquals(5, repo.searchCollection(USER, "mew", 5).size());
+
+        Card noted = saved.stream().filter(c -> c.getUserId() == USER).findFirst().orElseThrow();
+        noted.setNotes("Signed at Worlds");
+        repo.saveAndFlush(noted);
+        List<CollectionSearchHit> worlds = repo.searchCollection(USER, "world", 10);
+        Assertions.assertEquals(List.of(noted.getId()), worlds.stream().map(h -> h.card().getId()).toList());
+        Assertions.assertTrue(repo.searchCollection(USER, "zzzz", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Suggestions complete a prefix case-insensitively with distinct names")
+    void suggestsByPrefix() {
+        Assertions.assertEquals(Set.of("Mew", "mewtwo"), new HashSet<>(repo.suggestNames(USER, "ME", 10)));
+        Assertions.assertEquals(List.of("charizard"), repo.suggestNames(USER, "char", 10));
+        Assertions.assertEquals(1, repo.suggestNames(USER, "m", 1).size());
+        Assertions.assertTrue(repo.suggestNames(USER, "m%", 10).isEmpty());
+    }
+
+    private long count(Predicate<Card> match) {
+        return saved.stream().filter(c -> c.getUserId() == USER).filter(match).count();
+    }
+
+    private int indexOf(List<CollectionSearchHit> hits, String name) {
+        for (int i = 0; i < hits.size(); i++) {
+            if (hits.get(i).card().getName().equals(name)) return i;
+        }
+        return -1;
+    }
+
+    private Set<List<Object>> rows(List<Object[]> rows) {
+        Set<List<Object>> out = new HashSet<>();
+        for (Object[] row : rows) {
+            out.add(Arrays.stream(row).map(v -> v instanceof Number n ? (Object) n.longValue() : v).toList());
+        }
+        return out;
+    }
+
+    /**
+     * The pre-database implementation: load everything, filter and sort in Java.
+     */
+    private List<Card> expected(CollectionFilter f, CollectionSort sort, String order) {
+        Predicate<Card> match = c -> USER == c.getUserId()
+                && (f.set() == null || f.set().equals(c.getSetId()))
+                && (f.rarity() == null || f.rarity().equals(c.getRarity()))
+                && (f.category() == null || f.category().equals(c.getCategory()))
+                && (f.type() == null || (c.getTypes() != null && c.getTypes().contains("\"" + f.type() + "\"")))
+                && (f.q() == null || c.getName().toLowerCase().contains(f.q().toLowerCase()));
+        return saved.stream()
+                .sorted(Comparator.comparing(Card::getId))
+                .filter(match)
+                .sorted(sort.comparator(order))
+                .toList();
+    }
+
+    private List<Long> ids(List<Card> cards) {
+        return cards.stream().map(Card::getId).toList();
+    }
+}
@@ -0,0 +1,55 @@
+package com.pokemon.inventory.service;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+class CardNameIndexTest {
+
+    private final CardNameIndex index = CardNameIndex.build(Map.of(
+            "Charizard", 40,
+            "Charmander", 60,
+            "Dark Charizard", 2,
+            "Charizard ex", 12,
+            "Flabébé", 5,
+            "Pikachu", 150,
+            "Professor's Research", 30,
+            "Mr. Mime", 8));
+
+    @Test
+    @DisplayName("Names starting with the prefix come first, by printings, then word matches")
+    void ranksPrefixMatches() {
+        Assertions.assertEquals(List.of("Charmander", "Charizard", "Charizard ex", "Dark Charizard"),
+                index.suggest("char", 10));
+        Assertions.assertEquals(List.of("Charmander", "Charizard"), index.suggest("CHAR", 2));
+        Assertions.assertEquals(List.of("Charizard ex"), index.suggest("charizard e", 10));
+    }
+
+    @Test
+    @DisplayName("Matches any word start, ignoring case and accents")
+    void matchesWordsAndFoldsAccents() {
+        Assertions.assertEquals(List.of("Mr. Mime"), index.suggest("mime", 10));
+        Assertions.assertEquals(List.of("Professor's Research"), index.suggest("resea", 10));
+        Assertions.assertEquals(List.of("Flabébé"), index.suggest("flabebe", 10));
+        Assertions.assertEquals(List.of(), index.suggest("zard", 10));
+        Assertions.assertEquals(List.of(), index.suggest("  ", 10));
+    }
+
+    @Test
+    @DisplayName("The snapshot file round-trips the index")
+    void snapshotRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeTo(out);
+        CardNameIndex loaded = CardNameIndex.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        Assertions.assertEquals(index.size(), loaded.size());
+        Assertions.assertEquals(index.entryCount(), loaded.entryCount());
+        Assertions.assertEquals(index.suggest("c", 10), loaded.suggest("c", 10));
+        Assertions.assertThrows(IOException.class,
+                () -> CardNameIndex.readFrom(new ByteArrayInputStream(new byte[] {1, 2, 3})));
+    }
+}
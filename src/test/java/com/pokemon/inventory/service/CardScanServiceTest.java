@@ -0,0 +1,209 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pokemon.inventory.service.CatalogCardIndex.CardRow;
+import com.pokemon.inventory.service.CatalogCardIndex.SetRow;
+import com.pokemon.inventory.support.StubTcgdexServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+class CardScanServiceTest {
+
+    private static final String IDENTIFIED =
+            "{\"content\":[{\"type\":\"text\",\"text\":\"{\\\"cardName\\\":\\\"Charizard\\\",\\\"setName\\\":\\\"Base Set\\\"}\"}]}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private StubTcgdexServer stub;
+    private OutboundHttp http;
+    private CardScanService scan;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubTcgdexServer().json("/v1/messages", IDENTIFIED);
+        http = new OutboundHttp(new SimpleMeterRegistry(), 10, 4, "", Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(30));
+        ClaudeVisionService vision = new ClaudeVisionService(http, Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(vision, "apiKey", "test-key");
+        ReflectionTestUtils.setField(vision, "apiUrl", stub.baseUrl() + "/v1/messages");
+        ReflectionTestUtils.setField(vision, "model", "test-model");
+
+        CatalogMirror mirror = Mockito.mock(CatalogMirror.class);
+        Mockito.when(mirror.isWarm()).thenReturn(true);
+        Mockito.when(mirror.buildCardIndex()).thenReturn(CatalogCardIndex.build(
+                List.of(new CardRow("base1-4", "4", "Charizard", "base1"), new CardRow("base4-4", "4", "Charizard", "base4")),
+                List.of(new SetRow("base1", "Base Set", 102), new SetRow("base4", "Base Set 2", 130))));
+        CatalogCardResolver resolver = new CatalogCardResolver(mirror, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(resolver, "refreshEnabled", true);
+        resolver.refresh();
+
+        scan = new CardScanService(vision, resolver, new SimpleMeterRegistry(), 100, Duration.ofHours(1));
+        ReflectionTestUtils.setField(scan, "maxUploadBytes", 5_000_000);
+        ReflectionTestUtils.setField(scan, "maxPixels", 10_000_000L);
+        ReflectionTestUtils.setField(scan, "maxDimension", 512);
+        ReflectionTestUtils.setField(scan, "jpegQuality", 0.85f);
+        ReflectionTestUtils.setField(scan, "maxDistance", 4);
+        ReflectionTestUtils.setField(scan, "maxCandidates", 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+        http.close();
+    }
+
+    @Test
+    @DisplayName("Only a downscaled JPEG is sent, and rescans of the same or a near-identical photo are cached")
+    void downscalesAndCaches() throws IOException {
+        BufferedImage photo = card(2400, 3300, Color.ORANGE);
+        String upload = "data:image/png;base64," + base64(photo, "png");
+
+        JsonNode result = scan.scan(upload);
+        Assertions.assertEquals("Charizard", result.get("cardName").asText());
+        Assertions.assertEquals(1, stub.hits("/v1/messages"));
+        // Resolved against the catalog in the same response, best match first
+        Assertions.assertEquals("base1-4", result.path("candidates").get(0).path("cardId").asText());
+        Assertions.assertEquals(2, result.path("candidates").size());
+
+        JsonNode source = mapper.readTree(stub.lastBody("/v1/messages"))
+                .path("messages").get(0).path("content").get(0).path("source");
+        Assertions.assertEquals("image/jpeg", source.path("media_type").asText());
+        byte[] sent = Base64.getDecoder().decode(source.path("data").asText());
+        BufferedImage forwarded = ImageIO.read(new ByteArrayInputStream(sent));
+        Assertions.assertEquals(512, forwarded.getHeight());
+        Assertions.assertEquals(372, forwarded.getWidth());
+        Assertions.assertTrue(sent.length * 4 < upload.length(), "sent " + sent.length + " bytes");
+
+        // Same photo, and the same photo re-encoded as a smaller JPEG with a few pixels changed
+        scan.scan(upload);
+        BufferedImage edited = CardScanService.downscale(photo, 1200);
+        edited.setRGB(10, 10, Color.BLACK.getRGB());
+        scan.scan(base64(edited, "jpeg"));
+        Assertions.assertEquals(1, stub.hits("/v1/messages"));
+
+        scan.scan(base64(card(800, 1100, Color.BLUE), "png"));
+        Assertions.assertEquals(2, stub.hits("/v1/messages"));
+    }
+
+    @Test
+    @DisplayName("Failed identifications are not cached and unreadable uploads are rejected")
+    void rejectsBadInput() throws IOException {
+        stub.fail("/v1/messages", 1);
+        String upload = base64(card(600, 800, Color.GREEN), "png");
+        JsonNode failed = scan.scan(upload);
+        Assertions.assertTrue(failed.has("error"));
+        Assertions.assertFalse(failed.has("candidates"));
+        Assertions.assertEquals("Charizard", scan.scan(upload).get("cardName").asText());
+        Assertions.assertEquals(2, stub.hits("/v1/messages"));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> scan.scan(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> scan.scan("not base64!"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> scan.scan(Base64.getEncoder().encodeToString("plain text".getBytes())));
+        ReflectionTestUtils.setField(scan, "maxUploadBytes", 100);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> scan.scan(upload));
+    }
+
+    @Test
+    @DisplayName("Request bodies are streamed and an oversized image field is cut off while it is read")
+    void streamsRequestBody() throws IOException {
+        String upload = "data:image/png;base64," + base64(card(600, 800, Color.GREEN), "png");
+        String body = "{\"source\":{\"app\":\"web\"},\"image\":\"" + upload + "\"}";
+        JsonNode result = scan.scanRequest(new ByteArrayInputStream(body.getBytes(StandardCharsets.US_ASCII)));
+        Assertions.assertEquals("Charizard", result.get("cardName").asText());
+
+        ReflectionTestUtils.setField(scan, "maxUploadBytes", 10_000);
+        Assertions.assertEquals(16_024, scan.maxRequestBytes());
+        String huge = "{\"image\":\"" + "A".repeat(1_000_000) + "\"}";
+        IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> scan.scanRequest(new ByteArrayInputStream(huge.getBytes(StandardCharsets.US_ASCII))));
+        Assertions.assertTrue(e.getMessage().contains("10000 bytes"), e.getMessage());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> scan.scanRequest(new ByteArrayInputStream("[]".getBytes(StandardCharsets.US_ASCII))));
+        Assertions.assertEquals(1, stub.hits("/v1/messages"));
+    }
+
+    @Test
+    @DisplayName("Image dimensions are checked before decoding and large photos are decoded subsampled")
+    void boundsDecoding() throws IOException {
+        // A few kilobytes of PNG that would decode to 12 million pixels
+        BufferedImage bomb = new BufferedImage(3000, 4000, BufferedImage.TYPE_BYTE_BINARY);
+        String upload = base64(bomb, "png");
+        Assertions.assertTrue(upload.length() < 100_000);
+        IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class, () -> scan.scan(upload));
+        Assertions.assertTrue(e.getMessage().contains("pixels"), e.getMessage());
+        Assertions.assertEquals(0, stub.hits("/v1/messages"));
+
+        Assertions.assertEquals(1, CardScanService.subsampling(1500, 2000, 1024));
+        Assertions.assertEquals(3, CardScanService.subsampling(2400, 3300, 512));
+        Assertions.assertEquals(1, CardScanService.subsampling(300, 200, 512));
+    }
+
+    @Test
+    @DisplayName("Different cards in the same frame are not answered from each other's cache entry")
+    void sameFrameDifferentCards() throws IOException {
+        BufferedImage first = card(900, 1200, Color.ORANGE, 0x123456);
+        BufferedImage second = card(900, 1200, Color.ORANGE, 0x654321);
+        // Close enough in dHash alone to have been taken for each other
+        Assertions.assertTrue(Long.bitCount(CardScanService.dHash(CardScanService.downscale(first, 512))
+                ^ CardScanService.dHash(CardScanService.downscale(second, 512))) <= 4);
+
+        scan.scan(base64(first, "png"));
+        scan.scan(base64(second, "png"));
+        Assertions.assertEquals(2, stub.hits("/v1/messages"));
+        // Each is still cached for itself
+        scan.scan(base64(first, "png"));
+        scan.scan(base64(second, "jpeg"));
+        Assertions.assertEquals(2, stub.hits("/v1/messages"));
+    }
+
+    @Test
+    @DisplayName("dHash separates different images and tolerates rescaling")
+    void hashesPerceptually() {
+        BufferedImage orange = card(900, 1200, Color.ORANGE);
+        long hash = CardScanService.dHash(orange);
+        Assertions.assertTrue(Long.bitCount(hash ^ CardScanService.dHash(CardScanService.downscale(orange, 300))) <= 4);
+        Assertions.assertTrue(Long.bitCount(hash ^ CardScanService.dHash(card(900, 1200, Color.BLUE))) > 10);
+    }
+
+    /** A synthetic card: coloured frame, artwork gradient and text lines, varied by colour. */
+    private static BufferedImage card(int width, int height, Color frame) {
+        return card(width, height, frame, frame.getRGB());
+    }
+
+    /** The same frame and artwork colours, with the text lines laid out by {@code text}. */
+    private static BufferedImage card(int width, int height, Color frame, int text) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(frame);
+        g.fillRect(0, 0, width, height);
+        int seed = frame.getRGB();
+        g.setPaint(new GradientPaint(0, 0, new Color(seed & 0xFFFFFF), width, height / 2f, new Color(~seed & 0xFFFFFF)));
+        g.fillRect(width / 12, height / 10, width * 10 / 12, height * 4 / 10);
+        g.setColor(Color.DARK_GRAY);
+        for (int line = 0; line < 5; line++) {
+            int indent = ((text >> (line * 3)) & 7) * width / 40;
+            g.fillRect(width / 12 + indent, height * (11 + line) / 20, width / 2, height / 60);
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static String base64(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+}
@@ -0,0 +1,61 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.dto.ScanCandidate;
+import com.pokemon.inventory.service.CatalogCardIndex.CardRow;
+import com.pokemon.inventory.service.CatalogCardIndex.SetRow;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class CatalogCardIndexTest {
+
+    private final CatalogCardIndex index = CatalogCardIndex.build(List.of(
+            new CardRow("base1-4", "4", "Charizard", "base1"),
+            new CardRow("base4-4", "4", "Charizard", "base4"),
+            new CardRow("sv3-125", "125", "Charizard ex", "sv3"),
+            new CardRow("sv3-223", "223", "Charizard ex", "sv3"),
+            new CardRow("swsh9-TG05", "TG05", "Pikachu", "swsh9"),
+            new CardRow("base1-58", "58", "Pikachu", "base1"),
+            new CardRow("xy5-12", "12", "Flabébé", "xy5")
+    ), List.of(
+            new SetRow("base1", "Base Set", 102),
+            new SetRow("base4", "Base Set 2", 130),
+            new SetRow("sv3", "Obsidian Flames", 197),
+            new SetRow("swsh9", "Brilliant Stars", 172),
+            new SetRow("xy5", "Primal Clash", 160)));
+
+    @Test
+    @DisplayName("Set plus number picks the exact printing, even with zero padding or a set code")
+    void exactLookup() {
+        ScanCandidate best = index.resolve("Charizard", "Base Set", "004/102", 5).get(0);
+        Assertions.assertEquals("base1-4", best.cardId());
+        Assertions.assertEquals(1.0, best.score(), 1e-9);
+
+        Assertions.assertEquals("sv3-223", index.resolve("Charizard ex", "Obsidian Flames", "223/197", 5).get(0).cardId());
+        Assertions.assertEquals("sv3-223", index.resolve(null, "sv3", "223", 5).get(0).cardId());
+        Assertions.assertEquals("swsh9-TG05", index.resolve("Pikachu", null, "TG5/TG30", 5).get(0).cardId());
+    }
+
+    @Test
+    @DisplayName("Misread names and sets still rank the right card first")
+    void fuzzyMatch() {
+        List<ScanCandidate> candidates = index.resolve("Charizrd", "Base St 2", null, 5);
+        Assertions.assertEquals("base4-4", candidates.get(0).cardId());
+        Assertions.assertEquals("base1-4", candidates.get(1).cardId());
+
+        // The printed set size stands in for an unreadable set name
+        Assertions.assertEquals("base1-4", index.resolve("Charizard", null, "4/102", 5).get(0).cardId());
+        Assertions.assertEquals("xy5-12", index.resolve("Flabebe", null, null, 5).get(0).cardId());
+        Assertions.assertEquals(2, index.resolve("Charizard ex", null, null, 2).size());
+    }
+
+    @Test
+    @DisplayName("Nothing close enough means no candidates")
+    void noMatch() {
+        Assertions.assertEquals(List.of(), index.resolve("Mewtwo", "Fossil", "10/62", 5));
+        Assertions.assertEquals(List.of(), index.resolve(null, null, null, 5));
+        Assertions.assertEquals(List.of(), CatalogCardIndex.EMPTY.resolve("Charizard", "Base Set", "4/102", 5));
+    }
+}
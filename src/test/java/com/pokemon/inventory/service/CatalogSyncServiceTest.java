@@ -0,0 +1,204 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.pokemon.inventory.model.CatalogCard;
+import com.pokemon.inventory.repository.CatalogCardRepository;
+import com.pokemon.inventory.repository.CatalogSetRepository;
+import com.pokemon.inventory.support.StubTcgdexServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class CatalogSyncServiceTest {
+
+    private static final String[] CARD_IDS = {"base1-4", "base1-58", "base1-95", "base2-60", "base2-12"};
+
+    @Autowired
+    private CatalogSetRepository setRepo;
+
+    @Autowired
+    private CatalogCardRepository cardRepo;
+
+    private StubTcgdexServer stub;
+    private FanOutExecutor fanOut;
+    private OutboundHttp http;
+    private CatalogMirror mirror;
+    private TcgdexApiService tcgdex;
+    private CatalogCardResolver resolver;
+    private CatalogSyncService sync;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubTcgdexServer()
+                .fixture("/sets")
+                .fixture("/sets/base1")
+                .fixture("/sets/base2");
+        for (String id : CARD_IDS) stub.fixture("/cards/" + id);
+
+        fanOut = new FanOutExecutor(8, 4);
+        mirror = new CatalogMirror(setRepo, cardRepo);
+        http = new OutboundHttp(new SimpleMeterRegistry(), 100, 32, "", Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(30));
+        tcgdex = newTcgdex();
+
+        resolver = new CatalogCardResolver(mirror, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(resolver, "refreshEnabled", true);
+        sync = new CatalogSyncService(tcgdex, mirror, fanOut, resolver);
+        ReflectionTestUtils.setField(sync, "concurrency", 4);
+        ReflectionTestUtils.setField(sync, "refreshPerCycle", 0);
+    }
+
+    /** A TcgdexApiService over the shared mirror, with its own empty card cache. */
+    private TcgdexApiService newTcgdex() {
+        TcgdexCardCache cache = new TcgdexCardCache(new SimpleMeterRegistry(), 1_000, Duration.ofMinutes(10));
+        TcgdexApiService service = new TcgdexApiService(http, fanOut, cache, mirror,
+                new TcgdexResilience(new SimpleMeterRegistry(), 50, Duration.ofSeconds(5), 20, 10, Duration.ofSeconds(30), 64, 16, Duration.ofSeconds(5), 1_000),
+                new HedgedRequests(new SimpleMeterRegistry(), false, 0.95, 0.05, 50, Duration.ofMillis(50), 4),
+                Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(service, "baseUrl", stub.baseUrl());
+        ReflectionTestUtils.setField(service, "detailConcurrency", 4);
+        ReflectionTestUtils.setField(service, "pageDeadlineMs", 10_000L);
+        return service;
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        stub.close();
+        fanOut.shutdown();
+        http.close();
+    }
+
+    @Test
+    @DisplayName("Full load mirrors every set and card and warms the mirror")
+    void fullLoad() {
+        Assertions.assertFalse(mirror.isWarm());
+
+        Assertions.assertEquals(2, sync.fullLoad());
+
+        Assertions.assertTrue(mirror.isWarm());
+        Assertions.assertEquals(2, setRepo.count());
+        Assertions.assertEquals(CARD_IDS.length, cardRepo.count());
+        Assertions.assertEquals("Charizard", cardRepo.findById("base1-4").orElseThrow().getName());
+        Assertions.assertEquals("4", cardRepo.findById("base1-4").orElseThrow().getLocalId());
+    }
+
+    @Test
+    @DisplayName("A warm mirror serves reads without calling upstream")
+    void warmMirrorServesReads() {
+        sync.fullLoad();
+        stub.resetHits();
+
+        JsonNode card = tcgdex.getCard("base1-4");
+        JsonNode sets = tcgdex.getSets();
+        JsonNode set = tcgdex.getSet("base2");
+        JsonNode search = tcgdex.searchCards("pika", null, null, null, null, 1, 20);
+        JsonNode fire = tcgdex.searchCards(null, null, null, "Fire", null, 1, 20);
+        JsonNode jungle = tcgdex.searchCards(null, "base2", null, null, null, 1, 1);
+
+        Assertions.assertEquals(0, stub.totalHits());
+        Assertions.assertEquals(120, card.get("hp").asInt());
+        Assertions.assertEquals("base1", sets.get(0).get("id").asText());
+        Assertions.assertEquals(102, sets.get(0).get("cardCount").get("official").asInt());
+        Assertions.assertEquals("Jungle", set.get("name").asText());
+        Assertions.assertEquals(2, search.get("data").size());
+        Assertions.assertEquals(2, fire.get("totalCount").asInt());
+        Assertions.assertEquals(1, jungle.get("data").size());
+        Assertions.assertEquals(2, jungle.get("totalCount").asInt());
+    }
+
+    @Test
+    @DisplayName("Mirrored pricing gives way to cached pricing, and is refetched once its sync is older than the max age")
+    void boundsMirroredPricingAge() {
+        sync.fullLoad();
+        // Upstream's price moves after the sync
+        stub.json("/cards/base1-4", StubTcgdexServer.readFixture("/cards/base1-4").replace("399.99", "450.0"));
+        stub.resetHits();
+
+        TcgdexApiService reader = newTcgdex();
+        Assertions.assertEquals(399.99, midPrice(reader.getCard("base1-4")));
+        Assertions.assertEquals(0, stub.totalHits());
+
+        CatalogCard mirrored = cardRepo.findById("base1-4").orElseThrow();
+        mirrored.setSyncedAt(LocalDateTime.now().minusDays(2));
+        cardRepo.save(mirrored);
+        Assertions.assertEquals(450.0, midPrice(reader.getCard("base1-4")));
+        Assertions.assertEquals(1, stub.hits("/cards/base1-4"));
+
+        // Now cached, its pricing overlays the mirrored card and search listings
+        Assertions.assertEquals(450.0, midPrice(reader.getCard("base1-4")));
+        Assertions.assertEquals(450.0, reader.getCardRecord("base1-4").price().mid());
+        Assertions.assertEquals(450.0, midPrice(reader.searchCards("chariz", null, null, null, null, 1, 20).get("data").get(0)));
+        Assertions.assertEquals(1, stub.hits("/cards/base1-4"));
+
+        // Upstream down: the old mirrored card is served, marked stale as of its sync
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        stub.fail("/cards/base1-4", -1);
+        Assertions.assertEquals(399.99, midPrice(newTcgdex().getCard("base1-4")));
+        Assertions.assertNotNull(request.getAttribute(TcgdexResilience.STALE_SINCE_ATTRIBUTE));
+        Assertions.assertEquals(399.99, newTcgdex().getCardRecord("base1-4").price().mid());
+    }
+
+    private static double midPrice(JsonNode card) {
+        return card.get("pricing").get("tcgplayer").get("holofoil").get("midPrice").asDouble();
+    }
+
+    @Test
+    @DisplayName("A sync rebuilds the scan index, which resolves what a scan read to catalog card ids")
+    void resolvesScans() {
+        // Not built from a mirror that is still loading
+        resolver.refresh();
+        Assertions.assertEquals(0, resolver.getIndex().size());
+
+        sync.sync();
+        CatalogCardIndex index = resolver.getIndex();
+
+        Assertions.assertEquals(CARD_IDS.length, index.size());
+        Assertions.assertEquals("base1-4", index.resolve("Charizrd", "Base Set", "004/102", 5).get(0).cardId());
+        // The printed set size tells the two Pikachus apart
+        Assertions.assertEquals("base2-60", index.resolve("Pikachu", null, "60/64", 5).get(0).cardId());
+    }
+
+    @Test
+    @DisplayName("Incremental sync reloads only sets whose card count changed")
+    void incrementalSyncReloadsChangedSets() {
+        sync.fullLoad();
+        stub.resetHits();
+
+        // Upstream adds a card to Jungle
+        stub.json("/sets", StubTcgdexServer.readFixture("/sets").replace("\"total\":2,", "\"total\":3,"));
+        stub.json("/sets/base2", StubTcgdexServer.readFixture("/sets/base2")
+                .replace("\"total\":2,", "\"total\":3,")
+                .replace("\"cards\":[", "\"cards\":[{\"id\":\"base2-1\",\"localId\":\"1\",\"name\":\"Clefable\"},"));
+        stub.json("/cards/base2-1", "{\"id\":\"base2-1\",\"localId\":\"1\",\"name\":\"Clefable\",\"category\":\"Pokemon\",\"rarity\":\"Rare\",\"types\":[\"Colorless\"]}");
+
+        Assertions.assertEquals(1, sync.incrementalSync());
+
+        Assertions.assertEquals(0, stub.hits("/sets/base1"));
+        Assertions.assertEquals(1, stub.hits("/sets/base2"));
+        Assertions.assertTrue(cardRepo.existsById("base2-1"));
+        Assertions.assertEquals(3, setRepo.findById("base2").orElseThrow().getCardCountTotal());
+        Assertions.assertTrue(mirror.isWarm());
+    }
+
+    @Test
+    @DisplayName("A card whose fetch fails keeps its previously mirrored body")
+    void failedCardKeepsPreviousBody() {
+        sync.fullLoad();
+        stub.fail("/cards/base1-58", -1);
+
+        sync.syncSet("base1", 0);
+
+        Assertions.assertTrue(cardRepo.existsById("base1-58"));
+        Assertions.assertEquals(3, cardRepo.findBySetId("base1").size());
+    }
+}
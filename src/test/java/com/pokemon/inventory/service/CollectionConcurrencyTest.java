@@ -0,0 +1,205 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pokemon.inventory.dto.AddCardRequest;
+import com.pokemon.inventory.dto.TcgdexCard;
+import com.pokemon.inventory.dto.TcgdexPrice;
+import com.pokemon.inventory.dto.UpdateCardRequest;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.repository.CardBatchWriter;
+import com.pokemon.inventory.repository.CardPriceWriter;
+import com.pokemon.inventory.repository.CardRepository;
+import com.pokemon.inventory.repository.CollectionStatsRepository;
+import com.pokemon.inventory.repository.JobRepository;
+import com.pokemon.inventory.repository.PriceHistoryStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.pokemon.inventory.support.StubTcgdexServer;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Writes race on their own threads, so the test must not hold an uncommitted transaction
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CollectionConcurrencyTest {
+
+    private static final String[] CARD_IDS = {"base1-4", "base1-58"};
+
+    @Autowired
+    private CardRepository repo;
+
+    @Autowired
+    private CollectionStatsRepository statsRepo;
+
+    @Autowired
+    private JobRepository jobRepo;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcTemplate jdbc;
+    private JobService jobs;
+    private CardService cards;
+    private PriceRefreshService refresh;
+    private GlobalPriceRefresher globalRefresh;
+    private FanOutExecutor fanOut;
+    private ExecutorService writers;
+    // Mid price the live card reads return
+    private final AtomicReference<Double> liveMid = new AtomicReference<>(1.0);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        TcgdexApiService tcgdex = Mockito.mock(TcgdexApiService.class);
+        Map<String, TcgdexCard> fixtures = new HashMap<>();
+        for (String id : CARD_IDS) {
+            fixtures.put(id, mapper.readValue(StubTcgdexServer.readFixture("/cards/" + id), TcgdexCard.class));
+            Mockito.when(tcgdex.getCardRecord(id)).thenReturn(fixtures.get(id));
+        }
+        Mockito.when(tcgdex.getLiveCardRecord(Mockito.anyString())).thenAnswer(call -> {
+            TcgdexCard card = fixtures.get(call.<String>getArgument(0));
+            double mid = liveMid.get();
+            return new TcgdexCard(card.id(), card.localId(), card.name(), card.category(), card.rarity(), card.hp(),
+                    card.types(), card.stage(), card.image(), card.set(), new TcgdexPrice(mid - 1, mid, mid + 1, mid, null));
+        });
+        jdbc = new JdbcTemplate(dataSource);
+        jobs = new JobService(jobRepo, 1, 1);
+        fanOut = new FanOutExecutor(4, 4);
+        CollectionStatsService stats = new CollectionStatsService(statsRepo, repo, transactionManager);
+        PriceHistoryService history = new PriceHistoryService(new PriceHistoryStore(jdbc), transactionManager,
+                new SimpleMeterRegistry());
+        cards = new CardService(repo, new CardBatchWriter(jdbc), tcgdex, Mockito.mock(PriceRefreshService.class), jobs,
+                stats, transactionManager);
+
+        refresh = new PriceRefreshService(repo, tcgdex, fanOut, stats, history, transactionManager);
+        ReflectionTestUtils.setField(refresh, "concurrency", 2);
+        ReflectionTestUtils.setField(refresh, "chunkSize", 200);
+        ReflectionTestUtils.setField(refresh, "deadline", Duration.ofSeconds(30));
+        globalRefresh = new GlobalPriceRefresher(repo, new CardPriceWriter(jdbc), tcgdex, fanOut, stats, history,
+                transactionManager, new SimpleMeterRegistry());
+        // Every owned card is due on every run
+        ReflectionTestUtils.setField(globalRefresh, "maxAge", Duration.ZERO);
+        ReflectionTestUtils.setField(globalRefresh, "maxCardsPerRun", 100);
+        ReflectionTestUtils.setField(globalRefresh, "concurrency", 2);
+        ReflectionTestUtils.setField(globalRefresh, "chunkSize", 200);
+        ReflectionTestUtils.setField(globalRefresh, "deadline", Duration.ofSeconds(30));
+        writers = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writers.shutdownNow();
+        jobs.shutdown();
+        fanOut.shutdown();
+        for (String table : List.of("card_types", "card_subtypes", "cards", "collection_stats", "price_snapshots")) {
+            jdbc.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent first writes for a user create one stats row that counts both")
+    void concurrentFirstWrites() throws Exception {
+        for (long user = 100; user < 120; user++) {
+            long owner = user;
+            together(() -> add(owner, "base1-4", 1), () -> add(owner, "base1-58", 2));
+
+            Assertions.assertEquals(1, jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM collection_stats WHERE user_id = ?", Integer.class, owner));
+            Assertions.assertEquals(3L, cards.getStats(owner).get("total_cards"), "user " + owner);
+            Assertions.assertEquals(repo.getTotalValue(owner), (double) cards.getStats(owner).get("total_value"), 1e-9);
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent adds of the same card and condition end as one row with the summed quantity")
+    void concurrentAddsMerge() throws Exception {
+        for (long user = 200; user < 220; user++) {
+            long owner = user;
+            together(() -> add(owner, "base1-4", 2), () -> add(owner, "base1-4", 3));
+
+            List<Card> rows = repo.findByUserIdAndCardId(owner, "base1-4");
+            Assertions.assertEquals(1, rows.size(), "user " + owner);
+            Assertions.assertEquals(5, rows.get(0).getQuantity());
+            Assertions.assertEquals(5L, cards.getStats(owner).get("total_cards"));
+            Assertions.assertEquals(1L, cards.getStats(owner).get("unique_cards"));
+        }
+    }
+
+    @Test
+    @DisplayName("Editing or deleting a row while an add merges into it keeps the quantity and stats exact")
+    void updateAndDeleteDuringMerge() throws Exception {
+        for (long user = 400; user < 420; user++) {
+            long owner = user;
+            add(owner, "base1-4", 1);
+            Long id = repo.findByUserIdAndCardId(owner, "base1-4").get(0).getId();
+            UpdateCardRequest notes = new UpdateCardRequest();
+            notes.setNotes("binder " + owner);
+            together(() -> cards.updateCard(owner, id, notes), () -> add(owner, "base1-4", 2));
+
+            Assertions.assertEquals(3, repo.findById(id).orElseThrow().getQuantity(), "user " + owner);
+            Assertions.assertEquals(3L, cards.getStats(owner).get("total_cards"));
+
+            together(() -> cards.deleteCard(owner, id), () -> add(owner, "base1-4", 2));
+
+            Assertions.assertEquals((long) repo.getTotalCards(owner), cards.getStats(owner).get("total_cards"),
+                    "user " + owner);
+        }
+    }
+
+    @Test
+    @DisplayName("A user's price refresh racing the global refresh over the same rows keeps the value exact")
+    void concurrentRefreshes() throws Exception {
+        long owner = 300;
+        add(owner, "base1-4", 3);
+        add(owner, "base1-58", 2);
+        for (int run = 0; run < 20; run++) {
+            liveMid.set(10.0 + run);
+            together(() -> refresh.refresh(owner), globalRefresh::refreshDue);
+
+            Assertions.assertEquals(5 * (10.0 + run), repo.getTotalValue(owner), 1e-9);
+            Assertions.assertEquals(repo.getTotalValue(owner), (double) cards.getStats(owner).get("total_value"), 1e-9,
+                    "run " + run);
+        }
+    }
+
+    private void add(long userId, String cardId, int quantity) {
+        AddCardRequest request = new AddCardRequest();
+        request.setCardId(cardId);
+        request.setQuantity(quantity);
+        cards.addCard(userId, request);
+    }
+
+    /** Run both writes at the same moment on separate threads; fails if either does. */
+    private void together(Runnable first, Runnable second) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(2);
+        List<Future<?>> runs = List.of(
+                writers.submit(() -> awaitThen(start, first)),
+                writers.submit(() -> awaitThen(start, second)));
+        for (Future<?> run : runs) {
+            run.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static Void awaitThen(CyclicBarrier start, Runnable write) throws Exception {
+        start.await(10, TimeUnit.SECONDS);
+        write.run();
+        return null;
+    }
+}
@@ -0,0 +1,213 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.dto.CollectionImportResult;
+import com.pokemon.inventory.dto.CollectionImportResult.RowError;
+import com.pokemon.inventory.dto.TcgdexCard;
+import com.pokemon.inventory.dto.TcgdexPrice;
+import com.pokemon.inventory.dto.TcgdexSetRef;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.repository.*;
+import com.pokemon.inventory.service.TcgdexResilience.Traffic;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.HttpClientErrorException;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class CollectionImportServiceTest {
+
+    private static final long USER = 6L;
+
+    @Autowired
+    private CardRepository repo;
+
+    @Autowired
+    private CollectionStatsRepository statsRepo;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager em;
+
+    private final TcgdexApiService tcgdex = Mockito.mock(TcgdexApiService.class);
+    private final FanOutExecutor fanOut = new FanOutExecutor(4, 4);
+    private CollectionStatsService stats;
+    private CollectionImportService importer;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(tcgdex.getCardRecord(Mockito.anyString(), Mockito.eq(Traffic.BACKGROUND))).thenAnswer(call -> {
+            String id = call.getArgument(0);
+            if (id.startsWith("missing")) throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null);
+            return new TcgdexCard(id, "4", id.startsWith("base1") ? "Charizard" : "Pikachu", "Pokemon", "Rare", 120,
+                    List.of(id.startsWith("base1") ? "Fire" : "Lightning"), "Stage2", null,
+                    new TcgdexSetRef(id.substring(0, id.indexOf('-')), "Base Set", "Base"),
+                    new TcgdexPrice(1.0, 2.5, 4.0, 3.0, "2026-01-01"));
+        });
+        stats = new CollectionStatsService(statsRepo, repo, transactionManager);
+        importer = new CollectionImportService(tcgdex, fanOut, new CardBatchWriter(new JdbcTemplate(dataSource)),
+                stats, transactionManager);
+        ReflectionTestUtils.setField(importer, "chunkSize", 2);
+        ReflectionTestUtils.setField(importer, "concurrency", 4);
+        ReflectionTestUtils.setField(importer, "maxRows", 100);
+        ReflectionTestUtils.setField(importer, "lookupDeadline", Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        fanOut.shutdown();
+    }
+
+    @Test
+    @DisplayName("CSV rows are batch inserted with type rows and stats; bad rows are reported by row number")
+    void importsCsv() throws IOException {
+        String csv = "\uFEFFCard ID,Qty,Condition,Notes,Ignored\r\n"
+                + "base1-4,2,LP,\"first, \"\"best\"\" copy\",x\r\n"
+                + "jungle-60,,,,\r\n"
+                + "\r\n"
+                + "base1-4,1,NM,\"two\nlines\",\r\n"
+                + "missing-1,1,,,\r\n"
+                + ",3,,,\r\n"
+                + "jungle-60,none,,,\r\n";
+
+        CollectionImportResult result = importer.importCsv(USER, stream(csv));
+
+        Assertions.assertEquals(3, result.imported());
+        Assertions.assertEquals(3, result.failed());
+        Assertions.assertEquals(List.of(
+                new RowError(6, "missing-1", "Unknown card id"),
+                new RowError(7, null, "cardId is required"),
+                new RowError(8, "jungle-60", "quantity must be a whole number of at least 1")), sorted(result.errors()));
+        // Each distinct id is looked up once across chunks
+        Mockito.verify(tcgdex, Mockito.times(1)).getCardRecord("base1-4", Traffic.BACKGROUND);
+        Mockito.verify(tcgdex, Mockito.times(1)).getCardRecord("jungle-60", Traffic.BACKGROUND);
+
+        // The chunks joined this test's transaction, so flush the last stats update before clearing
+        em.flush();
+        em.clear();
+        List<Card> cards = collection(USER);
+        Assertions.assertEquals(3, cards.size());
+        Assertions.assertEquals("first, \"best\" copy", cards.get(0).getNotes());
+        Assertions.assertEquals("LP", cards.get(0).getCondition());
+        Assertions.assertEquals(2, cards.get(0).getQuantity());
+        Assertions.assertEquals("NM", cards.get(1).getCondition());
+        Assertions.assertEquals("two\nlines", cards.get(2).getNotes());
+        Assertions.assertEquals(2, repo.findCollection(USER, new CollectionFilter(null, null, null, "Fire", null),
+                CollectionSort.NAME, true, null, null).getTotal());
+
+        Map<String, Object> incremental = stats.getStats(USER);
+        stats.rebuild(USER);
+        Assertions.assertEquals(stats.getStats(USER), incremental);
+        Assertions.assertEquals(4L, ((Number) incremental.get("total_cards")).longValue());
+    }
+
+    @Test
+    @DisplayName("Rows for a card already held, in the upload or the collection, add to one row")
+    void mergesQuantities() throws IOException {
+        importer.importCsv(USER, stream("cardId,quantity,condition\nbase1-4,2,LP\n"));
+        CollectionImportResult result = importer.importCsv(USER,
+                stream("cardId,quantity,condition,notes\nbase1-4,1,LP,\nbase1-4,4,LP,x\nbase1-4,1,NM,\nbase1-4,3,LP,\n"));
+        Assertions.assertEquals(4, result.imported());
+
+        em.flush();
+        em.clear();
+        List<Card> cards = collection(USER);
+        Assertions.assertEquals(2, cards.size());
+        Assertions.assertEquals("LP", cards.get(0).getCondition());
+        Assertions.assertEquals(10, cards.get(0).getQuantity());
+        Assertions.assertEquals(1, cards.get(1).getQuantity());
+
+        Map<String, Object> incremental = stats.getStats(USER);
+        stats.rebuild(USER);
+        Assertions.assertEquals(stats.getStats(USER), incremental);
+        Assertions.assertEquals(11L, ((Number) incremental.get("total_cards")).longValue());
+    }
+
+    @Test
+    @DisplayName("A CSV or JSON export imports back as the same cards")
+    void exportRoundTrips() throws IOException {
+        importer.importJson(USER, stream("[{\"cardId\":\"base1-4\",\"quantity\":3,\"notes\":\"=HYPERLINK(1)\"},"
+                + "{\"cardId\":\"jungle-60\",\"condition\":\"MP\",\"notes\":\"a,b\"}]"));
+        em.clear();
+        CollectionStreamWriter writer = new CollectionStreamWriter(repo, Jackson2ObjectMapperBuilder.json().build(),
+                transactionManager);
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        writer.writeCsv(USER, csv);
+        Assertions.assertTrue(csv.toString(StandardCharsets.UTF_8).contains(",'=HYPERLINK(1),"), "Formulas are escaped");
+        Assertions.assertEquals(2, importer.importCsv(7L, new ByteArrayInputStream(csv.toByteArray())).imported());
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        writer.write(USER, null, null, null, null, null, "createdAt", "asc", json);
+        Assertions.assertEquals(2, importer.importJson(8L, new ByteArrayInputStream(json.toByteArray())).imported());
+
+        em.clear();
+        for (long user : new long[]{7L, 8L}) {
+            List<Card> copy = collection(user);
+            Assertions.assertEquals(List.of("base1-4", "jungle-60"), copy.stream().map(Card::getCardId).toList());
+            Assertions.assertEquals(3, copy.get(0).getQuantity());
+            Assertions.assertEquals("=HYPERLINK(1)", copy.get(0).getNotes());
+            Assertions.assertEquals("MP", copy.get(1).getCondition());
+            Assertions.assertEquals("a,b", copy.get(1).getNotes());
+        }
+    }
+
+    @Test
+    @DisplayName("Malformed input and the row limit stop the import but keep earlier chunks")
+    void stopsAtMalformedInputAndRowLimit() throws IOException {
+        CollectionImportResult broken = importer.importJson(USER,
+                stream("[{\"cardId\":\"base1-1\"},{\"cardId\":\"base1-2\"},7,{\"cardId\":\"base1-3\"},{\"cardId\":"));
+        Assertions.assertEquals(3, broken.imported());
+        Assertions.assertEquals(1, broken.failed());
+        Assertions.assertEquals(new RowError(3, null, "Expected an object"), broken.errors().get(0));
+        Assertions.assertTrue(broken.errors().get(1).error().startsWith("Malformed input"));
+
+        ReflectionTestUtils.setField(importer, "maxRows", 3);
+        CollectionImportResult limited = importer.importCsv(USER, stream("cardId\nbase1-1\nbase1-2\nbase1-3\nbase1-4\nbase1-5\n"));
+        Assertions.assertEquals(3, limited.imported());
+        Assertions.assertEquals(5, limited.errors().get(0).row());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> importer.importCsv(USER, stream("name,qty\nx,1\n")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> importer.importJson(USER, stream("{\"data\":[]}")));
+        em.clear();
+        // The second import added to the rows of the first
+        List<Card> cards = collection(USER);
+        Assertions.assertEquals(3, cards.size());
+        Assertions.assertTrue(cards.stream().allMatch(card -> card.getQuantity() == 2));
+    }
+
+    private List<Card> collection(long userId) {
+        return repo.findCollection(userId, new CollectionFilter(null, null, null, null, null),
+                CollectionSort.CREATED_AT, true, null, null).getCards().stream()
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .toList();
+    }
+
+    private static List<RowError> sorted(List<RowError> errors) {
+        return errors.stream().sorted((a, b) -> Integer.compare(a.row(), b.row())).toList();
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,245 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pokemon.inventory.dto.AddCardRequest;
+import com.pokemon.inventory.dto.TcgdexCard;
+import com.pokemon.inventory.dto.UpdateCardRequest;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.repository.CardBatchWriter;
+import com.pokemon.inventory.repository.CardRepository;
+import com.pokemon.inventory.repository.CollectionStatsRepository;
+import com.pokemon.inventory.repository.JobRepository;
+import com.pokemon.inventory.support.StubTcgdexServer;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import java.util.*;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class CollectionStatsServiceTest {
+
+    private static final long USER = 5L;
+    private static final String[] CARD_IDS = {"base1-4", "base1-58", "base1-95", "base2-60", "base2-12"};
+
+    @Autowired
+    private CardRepository repo;
+
+    @Autowired
+    private CollectionStatsRepository statsRepo;
+
+    @Autowired
+    private JobRepository jobRepo;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CollectionStatsService stats;
+    private CardService cards;
+    private JobService jobs;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        TcgdexApiService tcgdex = Mockito.mock(TcgdexApiService.class);
+        for (String id : CARD_IDS) {
+            Mockito.when(tcgdex.getCardRecord(id))
+                    .thenReturn(mapper.readValue(StubTcgdexServer.readFixture("/cards/" + id), TcgdexCard.class));
+        }
+        jobs = new JobService(jobRepo, 1, 1);
+        stats = new CollectionStatsService(statsRepo, repo, transactionManager);
+        cards = new CardService(repo, new CardBatchWriter(new JdbcTemplate(dataSource)), tcgdex, Mockito.mock(PriceRefreshService.class), jobs, stats, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobs.shutdown();
+    }
+
+    @Test
+    @DisplayName("Incremental updates match a from-scratch aggregate after every add, update and delete")
+    void incrementalMatchesAggregates() {
+        Random random = new Random(11);
+        List<Long> owned = new ArrayList<>();
+        for (int step = 0; step < 120; step++) {
+            int op = owned.isEmpty() ? 0 : random.nextInt(3);
+            if (op == 0) {
+                AddCardRequest request = new AddCardRequest();
+                request.setCardId(CARD_IDS[random.nextInt(CARD_IDS.length)]);
+                request.setQuantity(1 + random.nextInt(4));
+                // Adding a card already held merges into its row
+                Long id = cards.addCard(USER, request).getId();
+                if (!owned.contains(id)) owned.add(id);
+            } else if (op == 1) {
+                UpdateCardRequest request = new UpdateCardRequest();
+                request.setQuantity(1 + random.nextInt(6));
+                cards.updateCard(USER, owned.get(random.nextInt(owned.size())), request);
+            } else {
+                cards.deleteCard(USER, owned.remove(random.nextInt(owned.size())));
+            }
+            assertMatches(aggregate(USER), cards.getStats(USER), "step " + step);
+        }
+    }
+
+    @Test
+    @DisplayName("Adding a card already held in that condition adds to its quantity instead of a new row")
+    void addMergesQuantity() {
+        AddCardRequest request = new AddCardRequest();
+        request.setCardId("base1-4");
+        request.setQuantity(2);
+        request.setNotes("binder");
+        Card first = cards.addCard(USER, request);
+
+        request.setQuantity(3);
+        request.setNotes("ignored");
+        Card merged = cards.addCard(USER, request);
+        Assertions.assertEquals(first.getId(), merged.getId());
+        Assertions.assertEquals(5, merged.getQuantity());
+        Assertions.assertEquals("binder", merged.getNotes());
+
+        request.setCondition("LP");
+        Assertions.assertNotEquals(first.getId(), cards.addCard(USER, request).getId());
+        Assertions.assertEquals(2, repo.findByUserIdAndCardId(USER, "base1-4").size());
+        assertMatches(aggregate(USER), cards.getStats(USER), "after merge");
+        Assertions.assertEquals(8L, cards.getStats(USER).get("total_cards"));
+        Assertions.assertEquals(2L, cards.getStats(USER).get("unique_cards"));
+    }
+
+    @Test
+    @DisplayName("Changing a row to a condition already held merges it into that row")
+    void updateMergesIntoHeldCondition() {
+        AddCardRequest request = new AddCardRequest();
+        request.setCardId("base1-4");
+        request.setQuantity(2);
+        request.setNotes("binder");
+        Card nearMint = cards.addCard(USER, request);
+        request.setCondition("LP");
+        request.setQuantity(3);
+        request.setNotes("box");
+        Card played = cards.addCard(USER, request);
+
+        UpdateCardRequest update = new UpdateCardRequest();
+        update.setCondition("NM");
+        Card merged = cards.updateCard(USER, played.getId(), update);
+
+        Assertions.assertEquals(nearMint.getId(), merged.getId());
+        Assertions.assertEquals(5, merged.getQuantity());
+        Assertions.assertEquals("binder", merged.getNotes());
+        Assertions.assertEquals(List.of(nearMint.getId()),
+                repo.findByUserIdAndCardId(USER, "base1-4").stream().map(Card::getId).toList());
+        assertMatches(aggregate(USER), cards.getStats(USER), "after merge");
+
+        // A condition not yet held just moves the row
+        update.setCondition("HP");
+        update.setQuantity(4);
+        Assertions.assertEquals(nearMint.getId(), cards.updateCard(USER, nearMint.getId(), update).getId());
+        assertMatches(aggregate(USER), cards.getStats(USER), "after move");
+        Assertions.assertEquals(4L, cards.getStats(USER).get("total_cards"));
+    }
+
+    @Test
+    @DisplayName("Rebuild repairs a summary that has drifted from the cards table")
+    void rebuildFixesDrift() {
+        AddCardRequest request = new AddCardRequest();
+        request.setCardId("base1-4");
+        request.setQuantity(2);
+        Card card = cards.addCard(USER, request);
+
+        // A write that bypasses CardService leaves the summary stale
+        card.setQuantity(9);
+        repo.saveAndFlush(card);
+        Assertions.assertEquals(2L, cards.getStats(USER).get("total_cards"));
+
+        long before = statsRepo.findById(USER).orElseThrow().getVersion();
+        Assertions.assertEquals(1, stats.rebuildAll());
+        assertMatches(aggregate(USER), cards.getStats(USER), "after rebuild");
+        Assertions.assertTrue(statsRepo.findById(USER).orElseThrow().getVersion() > before);
+    }
+
+    @Test
+    @DisplayName("Many small price deltas leave the total value exact")
+    void valueDoesNotDrift() {
+        AddCardRequest request = new AddCardRequest();
+        request.setCardId("base1-58");
+        request.setQuantity(1);
+        cards.addCard(USER, request);
+        double start = (double) cards.getStats(USER).get("total_value");
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < 1_000; i++) {
+            tx.executeWithoutResult(status -> stats.valueChanged(USER, 0.1));
+        }
+        for (int i = 0; i < 1_000; i++) {
+            tx.executeWithoutResult(status -> stats.valueChanged(USER, -0.07));
+        }
+        Assertions.assertEquals(start + 30.0, (double) cards.getStats(USER).get("total_value"), 0.0);
+    }
+
+    @Test
+    @DisplayName("An empty collection has zeroed stats")
+    void emptyCollection() {
+        Map<String, Object> empty = cards.getStats(USER);
+        Assertions.assertEquals(0L, empty.get("unique_cards"));
+        Assertions.assertEquals(0.0, empty.get("total_value"));
+        Assertions.assertEquals(List.of(), empty.get("bySet"));
+    }
+
+    /**
+     * The original six-query getStats.
+     */
+    private Map<String, Object> aggregate(Long userId) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("unique_cards", repo.countByUserId(userId));
+        result.put("total_cards", repo.getTotalCards(userId));
+        result.put("total_sets", repo.getTotalSets(userId));
+        result.put("total_value", repo.getTotalValue(userId));
+        List<Map<String, Object>> bySet = new ArrayList<>();
+        for (Object[] row : repo.getStatsBySet(userId)) {
+            bySet.add(Map.of("set_name", row[0] != null ? row[0] : "Unknown", "set_id", row[1] != null ? row[1] : "",
+                    "cards", row[2], "total", row[3]));
+        }
+        result.put("bySet", bySet);
+        List<Map<String, Object>> byRarity = new ArrayList<>();
+        for (Object[] row : repo.getStatsByRarity(userId)) {
+            byRarity.add(Map.of("rarity", row[0] != null ? row[0] : "Unknown", "cards", row[1], "total", row[2]));
+        }
+        result.put("byRarity", byRarity);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertMatches(Map<String, Object> expected, Map<String, Object> actual, String context) {
+        Assertions.assertEquals(expected.keySet(), actual.keySet(), context);
+        for (String key : List.of("unique_cards", "total_cards", "total_sets")) {
+            Assertions.assertEquals(((Number) expected.get(key)).longValue(), ((Number) actual.get(key)).longValue(), context + " " + key);
+        }
+        Assertions.assertEquals((double) expected.get("total_value"), (double) actual.get("total_value"), 1e-6, context);
+        for (String key : List.of("bySet", "byRarity")) {
+            List<Map<String, Object>> exp = (List<Map<String, Object>>) expected.get(key);
+            List<Map<String, Object>> act = (List<Map<String, Object>>) actual.get(key);
+            Assertions.assertEquals(normalize(exp), normalize(act), context + " " + key);
+            // Both are ordered by total quantity, largest first
+            Assertions.assertEquals(exp.stream().map(m -> ((Number) m.get("total")).longValue()).toList(),
+                    act.stream().map(m -> ((Number) m.get("total")).longValue()).toList(), context + " " + key);
+        }
+    }
+
+    private Set<Map<String, Object>> normalize(List<Map<String, Object>> groups) {
+        Set<Map<String, Object>> out = new HashSet<>();
+        for (Map<String, Object> group : groups) {
+            Map<String, Object> copy = new HashMap<>(group);
+            copy.replaceAll((k, v) -> v instanceof Number n ? n.longValue() : v);
+            out.add(copy);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,86 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.repository.CardRepository;
+import com.pokemon.inventory.repository.CollectionFilter;
+import com.pokemon.inventory.repository.CollectionSort;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class CollectionStreamWriterTest {
+
+    private static final long USER = 4L;
+
+    @Autowired
+    private CardRepository repo;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Configured like the application's ObjectMapper (ISO dates etc.)
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private CollectionStreamWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 40; i++) {
+            Card card = new Card();
+            card.setUserId(i % 4 == 0 ? 99L : USER);
+            card.setCardId("base1-" + i);
+            card.setName(i % 3 == 0 ? "Mew " + i : "Pikachu " + i);
+            card.setSetId(i % 2 == 0 ? "base1" : "jungle");
+            card.setQuantity(1 + i % 3);
+            card.setPriceMid(i % 5 == 0 ? null : i * 0.5);
+            repo.save(card);
+        }
+        em.flush();
+        em.clear();
+        writer = new CollectionStreamWriter(repo, mapper, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Streamed output is the same JSON as the buffered response")
+    void matchesBufferedJson() throws Exception {
+        for (String[] params : List.of(
+                new String[]{null, null, "createdAt", "desc"},
+                new String[]{"jungle", null, "name", "asc"},
+                new String[]{null, "mew", "price", "desc"})) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writer.write(USER, params[0], null, null, null, params[1], params[2], params[3], out);
+
+            List<Card> cards = repo.findCollection(USER, new CollectionFilter(params[0], null, null, null, params[1]),
+                    CollectionSort.fromParam(params[2]), CollectionSort.isAscending(params[3]), null, null).getCards();
+            Map<String, Object> buffered = new LinkedHashMap<>();
+            buffered.put("cards", cards);
+            buffered.put("total", cards.size());
+
+            Assertions.assertEquals(mapper.writeValueAsString(buffered), out.toString("UTF-8"), String.join(",", List.of(
+                    String.valueOf(params[0]), String.valueOf(params[1]), params[2], params[3])));
+        }
+    }
+
+    @Test
+    @DisplayName("Streamed cards are not kept in the persistence context")
+    void detachesCards() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(USER, null, null, null, null, null, "name", "asc", out);
+
+        Assertions.assertEquals(30, mapper.readTree(out.toByteArray()).path("total").asInt());
+        Assertions.assertEquals(0, em.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+}
@@ -0,0 +1,123 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.repository.*;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class DataMigrationServiceTest {
+
+    private static final long USER = 3L;
+
+    @Autowired
+    private CardRepository repo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private CollectionStatsRepository statsRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager em;
+
+    private DataMigrationService migration;
+
+    @BeforeEach
+    void setUp() {
+        CollectionStatsService stats = new CollectionStatsService(statsRepo, repo, transactionManager);
+        migration = new DataMigrationService(repo, userRepo, new BCryptPasswordEncoder(), stats, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Cards stored before the type tables existed are backfilled and become filterable")
+    void backfillsTypes() {
+        save("[\"Fire\"]", "[\"Stage2\"]");
+        save("[\"Grass\",\"Psychic\"]", "[]");
+        save("[]", "[]");
+        save("not json", "[]");
+        em.flush();
+        // As if the rows predate card_types/card_subtypes
+        em.createNativeQuery("DELETE FROM card_types").executeUpdate();
+        em.createNativeQuery("DELETE FROM card_subtypes").executeUpdate();
+        em.clear();
+        Assertions.assertEquals(0, count("Psychic"));
+
+        // Malformed types are visited once and left without rows
+        Assertions.assertEquals(3, migration.backfillTypes());
+        em.flush();
+        em.clear();
+
+        Assertions.assertEquals(1, count("Fire"));
+        Assertions.assertEquals(1, count("Psychic"));
+        Assertions.assertEquals(1, ((Number) em.createNativeQuery(
+                "SELECT COUNT(*) FROM card_subtypes WHERE subtype_name = 'Stage2'").getSingleResult()).intValue());
+        Assertions.assertEquals(1, migration.backfillTypes());
+    }
+
+    @Test
+    @DisplayName("Duplicate rows for one card and condition are merged before the unique index is created")
+    void compactsDuplicates() {
+        // As if the rows predate the unique index
+        em.createNativeQuery("ALTER TABLE cards DROP CONSTRAINT uk_cards_user_card_condition").executeUpdate();
+        Card first = save("base1-4", "NM", 2, "binder");
+        save("base1-4", "NM", 3, null);
+        save("base1-4", "NM", 1, "trade");
+        save("base1-4", "LP", 1, null);
+        save("base1-58", "NM", 4, null);
+        em.flush();
+        em.clear();
+
+        Assertions.assertEquals(2, migration.compactDuplicates());
+        em.flush();
+        em.clear();
+        repo.ensureCardKeyIndex();
+
+        Card kept = repo.findById(first.getId()).orElseThrow();
+        Assertions.assertEquals(6, kept.getQuantity());
+        Assertions.assertEquals("binder\ntrade", kept.getNotes());
+        Assertions.assertEquals(3, repo.findByUserId(USER).size());
+        Assertions.assertEquals(11L, statsRepo.findById(USER).orElseThrow().getTotalCards());
+        Assertions.assertEquals(0, migration.compactDuplicates());
+
+        // The index is back, so another duplicate is rejected
+        Assertions.assertThrows(RuntimeException.class, () -> {
+            save("base1-4", "NM", 1, null);
+            em.flush();
+        });
+    }
+
+    private long count(String type) {
+        return repo.findCollection(USER, new CollectionFilter(null, null, null, type, null),
+                CollectionSort.NAME, true, null, null).getTotal();
+    }
+
+    private Card save(String cardId, String condition, int quantity, String notes) {
+        Card card = new Card();
+        card.setCardId(cardId);
+        card.setName(cardId);
+        card.setUserId(USER);
+        card.setCondition(condition);
+        card.setQuantity(quantity);
+        card.setNotes(notes);
+        return repo.save(card);
+    }
+
+    private void save(String types, String subtypes) {
+        Card card = new Card();
+        card.setCardId("x-" + types.hashCode());
+        card.setName("Card");
+        card.setUserId(USER);
+        card.setTypes(types);
+        card.setSubtypes(subtypes);
+        repo.save(card);
+    }
+}
@@ -0,0 +1,62 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.service.TcgdexResilience.Traffic;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+class FanOutExecutorTest {
+
+    private FanOutExecutor fanOut;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        fanOut = new FanOutExecutor(2, 1);
+        callers = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        fanOut.shutdown();
+    }
+
+    @Test
+    @DisplayName("Results keep input order and failed items get their fallback")
+    void mapsInOrder() {
+        List<String> out = fanOut.map(List.of(1, 2, 3, 4), 2, Duration.ofSeconds(5), i -> {
+            if (i == 3) throw new IllegalStateException("boom");
+            return "item " + i;
+        }, (i, error) -> "fallback " + i);
+
+        Assertions.assertEquals(List.of("item 1", "item 2", "fallback 3", "item 4"), out);
+    }
+
+    @Test
+    @DisplayName("A background run that fills its pool does not hold up interactive fan-outs")
+    void backgroundDoesNotQueueInteractive() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<List<Integer>> background = callers.submit(() -> fanOut.map(Traffic.BACKGROUND, List.of(1, 2, 3), 3,
+                Duration.ofSeconds(10), i -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return i;
+                }, (i, error) -> null));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // The background pool's one thread is busy; the interactive pool is not
+        List<Integer> search = fanOut.map(List.of(1, 2), 2, Duration.ofSeconds(1), i -> i * 10, (i, error) -> null);
+        Assertions.assertEquals(List.of(10, 20), search);
+
+        release.countDown();
+        Assertions.assertEquals(List.of(1, 2, 3), background.get(5, TimeUnit.SECONDS));
+    }
+}
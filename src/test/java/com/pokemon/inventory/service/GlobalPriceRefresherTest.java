@@ -0,0 +1,194 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.dto.PriceRefreshResult;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.repository.CardPriceWriter;
+import com.pokemon.inventory.repository.CardRepository;
+import com.pokemon.inventory.repository.CollectionStatsRepository;
+import com.pokemon.inventory.repository.PriceHistoryStore;
+import com.pokemon.inventory.support.StubTcgdexServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class GlobalPriceRefresherTest {
+
+    private static final String[] CONDITIONS = {"NM", "LP", "MP", "HP", "DMG"};
+
+    @Autowired
+    private CardRepository repo;
+
+    @Autowired
+    private CollectionStatsRepository statsRepo;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private StubTcgdexServer stub;
+    private FanOutExecutor fanOut;
+    private OutboundHttp http;
+    private CollectionStatsService stats;
+    private GlobalPriceRefresher refresher;
+    private int saved;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubTcgdexServer();
+        for (String id : new String[]{"base1-4", "base1-58", "base1-95", "base2-60", "base2-12"}) {
+            stub.fixture("/cards/" + id);
+        }
+        fanOut = new FanOutExecutor(8, 4);
+        http = new OutboundHttp(new SimpleMeterRegistry(), 100, 32, "", Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(30));
+        // A zero TTL, so every pass really goes upstream
+        TcgdexCardCache cache = new TcgdexCardCache(new SimpleMeterRegistry(), 1_000, Duration.ZERO);
+        TcgdexApiService tcgdex = new TcgdexApiService(http, fanOut, cache, Mockito.mock(CatalogMirror.class),
+                new TcgdexResilience(new SimpleMeterRegistry(), 50, Duration.ofSeconds(5), 20, 10, Duration.ofSeconds(30), 64, 16, Duration.ofSeconds(5), 1_000),
+                new HedgedRequests(new SimpleMeterRegistry(), false, 0.95, 0.05, 50, Duration.ofMillis(50), 4),
+                Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(tcgdex, "baseUrl", stub.baseUrl());
+
+        stats = new CollectionStatsService(statsRepo, repo, transactionManager);
+        PriceHistoryService history = new PriceHistoryService(new PriceHistoryStore(new JdbcTemplate(dataSource)),
+                transactionManager, new SimpleMeterRegistry());
+        refresher = new GlobalPriceRefresher(repo, new CardPriceWriter(new JdbcTemplate(dataSource)), tcgdex, fanOut,
+                stats, history, transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(refresher, "maxAge", Duration.ofHours(6));
+        ReflectionTestUtils.setField(refresher, "maxCardsPerRun", 100);
+        ReflectionTestUtils.setField(refresher, "concurrency", 4);
+        ReflectionTestUtils.setField(refresher, "chunkSize", 2);
+        ReflectionTestUtils.setField(refresher, "deadline", Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+        fanOut.shutdown();
+        http.close();
+    }
+
+    @Test
+    @DisplayName("Each cardId is fetched once across all users and every owning row and collection value follows")
+    void fansOutAcrossUsers() {
+        for (long user = 1; user <= 3; user++) {
+            save("base1-4", user, (int) user);
+            save("base1-4", user, 1);
+        }
+        save("base1-58", 1L, 1);
+        save("base1-58", 2L, 4);
+        save("base2-60", 3L, 1);
+        for (long user = 1; user <= 3; user++) {
+            Assertions.assertEquals(0.0, stats.getStats(user).get("total_value"));
+        }
+
+        PriceRefreshResult result = refreshAndClear();
+
+        Assertions.assertEquals(3, result.getUpdated());
+        Assertions.assertEquals(1, stub.hits("/cards/base1-4"));
+        Assertions.assertEquals(1, stub.hits("/cards/base1-58"));
+        Assertions.assertEquals(1, stub.hits("/cards/base2-60"));
+        for (Card card : repo.findAll()) {
+            Assertions.assertNotNull(card.getPriceMid(), card.getCardId());
+            Assertions.assertNotNull(card.getPricesCheckedAt());
+        }
+        Assertions.assertEquals(399.99, repo.findByUserIdAndCardId(2L, "base1-4").get(0).getPriceMid());
+        for (long user = 1; user <= 3; user++) {
+            Assertions.assertEquals(repo.getTotalValue(user), (double) stats.getStats(user).get("total_value"), 1e-9);
+        }
+        // Two copies of base1-4 and one base1-58
+        Assertions.assertEquals(399.99 * 2 + 6.0, (double) stats.getStats(1L).get("total_value"), 1e-9);
+        // One price history snapshot per cardId, not per row
+        Assertions.assertEquals(3, new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM price_snapshots", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Cards checked within max-age are not fetched again; unchanged prices are only marked checked")
+    void respectsMaxAge() {
+        save("base1-4", 1L, 1);
+        save("base1-58", 2L, 1);
+        refreshAndClear();
+        stub.resetHits();
+
+        Assertions.assertEquals(0, refreshAndClear().getUpdated() + refreshAndClear().getSkipped());
+        Assertions.assertEquals(0, stub.totalHits());
+
+        ReflectionTestUtils.setField(refresher, "maxAge", Duration.ZERO);
+        long version = statsRepo.findById(1L).orElseThrow().getVersion();
+        // Cards priced before they had any history get a first snapshot, once
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("DELETE FROM price_snapshots");
+        PriceRefreshResult again = refreshAndClear();
+        Assertions.assertEquals(0, again.getUpdated());
+        Assertions.assertEquals(2, again.getSkipped());
+        Assertions.assertEquals(2, stub.totalHits());
+        Assertions.assertEquals(version, statsRepo.findById(1L).orElseThrow().getVersion());
+        Assertions.assertEquals(2, jdbc.queryForObject("SELECT COUNT(*) FROM price_snapshots", Integer.class));
+        refreshAndClear();
+        Assertions.assertEquals(2, jdbc.queryForObject("SELECT COUNT(*) FROM price_snapshots", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Never-checked and most-owned cards go first; failed fetches are retried, priceless cards are not")
+    void ordersByStalenessAndPopularity() {
+        save("base1-4", 1L, 1);
+        save("base1-58", 1L, 1);
+        save("base1-58", 2L, 1);
+        save("base1-58", 3L, 1);
+        ReflectionTestUtils.setField(refresher, "maxCardsPerRun", 1);
+
+        refreshAndClear();
+        Assertions.assertEquals(1, stub.hits("/cards/base1-58"));
+        Assertions.assertEquals(0, stub.hits("/cards/base1-4"));
+        refreshAndClear();
+        Assertions.assertEquals(1, stub.hits("/cards/base1-4"));
+
+        ReflectionTestUtils.setField(refresher, "maxCardsPerRun", 100);
+        stub.fail("/cards/base2-12", -1);
+        save("base2-12", 1L, 1);
+        save("base1-95", 1L, 1);
+        PriceRefreshResult result = refreshAndClear();
+        Assertions.assertEquals(1, result.getFailed());
+        Assertions.assertEquals(1, result.getSkipped());
+        Assertions.assertNull(repo.findByUserIdAndCardId(1L, "base2-12").get(0).getPricesCheckedAt());
+        Assertions.assertNotNull(repo.findByUserIdAndCardId(1L, "base1-95").get(0).getPricesCheckedAt());
+
+        stub.recover("/cards/base2-12");
+        Assertions.assertEquals(1, refreshAndClear().getUpdated());
+        Assertions.assertEquals(1, stub.hits("/cards/base1-95"));
+    }
+
+    private PriceRefreshResult refreshAndClear() {
+        em.flush();
+        PriceRefreshResult result = refresher.refreshDue();
+        // Rows were updated over JDBC; drop the stale entities
+        em.flush();
+        em.clear();
+        return result;
+    }
+
+    private Card save(String cardId, long userId, int quantity) {
+        Card card = new Card();
+        card.setCardId(cardId);
+        card.setName(cardId);
+        card.setUserId(userId);
+        card.setQuantity(quantity);
+        // Rows sharing a (user, cardId) need distinct conditions
+        card.setCondition(CONDITIONS[saved++ % CONDITIONS.length]);
+        return repo.save(card);
+    }
+}
@@ -0,0 +1,160 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.support.StubTcgdexServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class HedgedRequestsTest {
+
+    private StubTcgdexServer stub;
+    private FanOutExecutor fanOut;
+    private OutboundHttp http;
+    private SimpleMeterRegistry meters;
+    private HedgedRequests hedging;
+    private TcgdexApiService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubTcgdexServer();
+        for (int i = 1; i <= 100; i++) {
+            stub.json("/cards/base1-" + i, "{\"id\":\"base1-" + i + "\",\"name\":\"Card " + i + "\"}");
+        }
+        fanOut = new FanOutExecutor(8, 4);
+        http = new OutboundHttp(new SimpleMeterRegistry(), 100, 32, "", Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(30));
+        useHedging(Duration.ofMillis(20));
+    }
+
+    /** p95 of the last samples once 20 are in, never hedging sooner than {@code minDelay}. */
+    private void useHedging(Duration minDelay) {
+        if (hedging != null) hedging.shutdown();
+        meters = new SimpleMeterRegistry();
+        hedging = new HedgedRequests(meters, true, 0.95, 0.05, 20, minDelay, 4);
+        TcgdexCardCache cache = new TcgdexCardCache(new SimpleMeterRegistry(), 1_000, Duration.ofMinutes(10));
+        service = new TcgdexApiService(http, fanOut, cache, Mockito.mock(CatalogMirror.class),
+                new TcgdexResilience(new SimpleMeterRegistry(), 50, Duration.ofSeconds(5), 20, 10, Duration.ofSeconds(30), 64, 16, Duration.ofSeconds(5), 1_000),
+                hedging, Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(service, "baseUrl", stub.baseUrl());
+    }
+
+    @AfterEach
+    void tearDown() {
+        hedging.shutdown();
+        stub.close();
+        fanOut.shutdown();
+        http.close();
+    }
+
+    @Test
+    @DisplayName("A request slower than the recent p95 is hedged; the first answer wins and the loser is aborted")
+    void hedgesSlowRequest() throws Exception {
+        // Late enough that the first attempt always reaches the stub first, and gets the slow answer
+        useHedging(Duration.ofMillis(200));
+        // Enough requests to earn hedges even if warm-up itself needed one
+        warmUp(80);
+        double sentBefore = count("tcgdex.hedge.sent");
+        double winsBefore = count("tcgdex.hedge.wins");
+
+        stub.latencies("/cards/base1-99", 2_000, 0);
+        long start = System.nanoTime();
+        Assertions.assertEquals("Card 99", service.getLiveCard("base1-99").get("name").asText());
+        Assertions.assertTrue(System.nanoTime() - start < 1_000_000_000L, "waited for the slow attempt");
+
+        Assertions.assertEquals(2, stub.hits("/cards/base1-99"));
+        Assertions.assertEquals(1, count("tcgdex.hedge.sent") - sentBefore);
+        Assertions.assertEquals(1, count("tcgdex.hedge.wins") - winsBefore);
+        Assertions.assertTrue(meters.get("tcgdex.hedge.win-rate").gauge().value() > 0);
+
+        // The slow attempt's connection was closed rather than left waiting for its response
+        long deadline = System.currentTimeMillis() + 500;
+        while (http.poolStats().getLeased() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(0, http.poolStats().getLeased());
+    }
+
+    @Test
+    @DisplayName("When upstream slows down across the board, hedges stay within the 5% budget")
+    void staysWithinBudget() {
+        warmUp(40);
+        double sentBefore = count("tcgdex.hedge.sent");
+        stub.defaultLatency(60);
+        for (int i = 41; i <= 80; i++) {
+            service.getLiveCard("base1-" + i);
+        }
+
+        // 80 requests earn 4 hedges at 5%
+        double sent = count("tcgdex.hedge.sent");
+        Assertions.assertTrue(sent - sentBefore >= 1 && sent <= 4, "hedges sent: " + sent);
+        Assertions.assertTrue(count("tcgdex.hedge.budget-exhausted") > 0);
+        // A hedge cancelled before it was sent never reaches upstream
+        Assertions.assertTrue(stub.totalHits() <= 40 + sent - sentBefore);
+    }
+
+    @Test
+    @DisplayName("A request answered just as its hedge is due starts no hedge")
+    void noHedgeAfterAnswer() throws Exception {
+        HedgedRequests claiming = new HedgedRequests(meters, true, 0.95, 1.0, 1, Duration.ofMillis(20), 2);
+        try {
+            claiming.call(() -> new HedgedRequests.Attempt<>(() -> "warm", () -> {
+            }));
+            CountDownLatch hedgeDue = new CountDownLatch(1);
+            AtomicBoolean answered = new AtomicBoolean();
+            AtomicInteger attempts = new AtomicInteger();
+            AtomicInteger hedgesRun = new AtomicInteger();
+            String value = claiming.call(() -> {
+                if (attempts.getAndIncrement() == 0) {
+                    return new HedgedRequests.Attempt<>(() -> {
+                        hedgeDue.await(5, TimeUnit.SECONDS);
+                        return "primary";
+                    }, () -> {
+                    });
+                }
+                // The hedge's attempt is being made: let the first attempt answer before it is claimed
+                hedgeDue.countDown();
+                long deadline = System.currentTimeMillis() + 2_000;
+                while (!answered.get() && System.currentTimeMillis() < deadline) {
+                    Thread.onSpinWait();
+                }
+                return new HedgedRequests.Attempt<>(() -> "hedge " + hedgesRun.incrementAndGet(), () -> {
+                });
+            });
+            answered.set(true);
+            Thread.sleep(200);
+
+            Assertions.assertEquals("primary", value);
+            Assertions.assertEquals(2, attempts.get());
+            Assertions.assertEquals(0, hedgesRun.get());
+            Assertions.assertEquals(0, count("tcgdex.hedge.sent"));
+        } finally {
+            claiming.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("No hedging until enough latencies are known to tell what slow is")
+    void needsSamples() {
+        stub.latencies("/cards/base1-1", 300);
+        service.getLiveCard("base1-1");
+        Assertions.assertEquals(1, stub.hits("/cards/base1-1"));
+        Assertions.assertEquals(0, count("tcgdex.hedge.sent"));
+    }
+
+    private void warmUp(int cards) {
+        for (int i = 1; i <= cards; i++) {
+            service.getLiveCard("base1-" + i);
+        }
+        stub.resetHits();
+    }
+
+    private double count(String counter) {
+        return meters.get(counter).counter().count();
+    }
+}
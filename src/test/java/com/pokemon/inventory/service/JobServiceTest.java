@@ -0,0 +1,173 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.model.Job;
+import com.pokemon.inventory.repository.JobRepository;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Jobs run on their own threads, so the test must not hold an uncommitted transaction
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JobServiceTest {
+
+    private static final long USER = 3L;
+
+    @Autowired
+    private JobRepository repo;
+
+    private JobService jobs;
+
+    @BeforeEach
+    void setUp() {
+        jobs = new JobService(repo, 2, 10);
+        ReflectionTestUtils.setField(jobs, "progressInterval", Duration.ZERO);
+        ReflectionTestUtils.setField(jobs, "resumeOnStartup", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobs.shutdown();
+        repo.deleteAll();
+    }
+
+    @Test
+    @DisplayName("A second submit while the first is active returns the same job")
+    void dedupesActiveJobs() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        jobs.register("test", (userId, progress) -> {
+            runs.incrementAndGet();
+            progress.start(4);
+            progress.advance(3, 1);
+            release.await(5, TimeUnit.SECONDS);
+            progress.advance(1, 0);
+            return Map.of("done", true);
+        });
+
+        Job first = jobs.submit(USER, "test");
+        Job second = jobs.submit(USER, "test");
+        Job otherUser = jobs.submit(USER + 1, "test");
+        Assertions.assertEquals(first.getId(), second.getId());
+        Assertions.assertNotEquals(first.getId(), otherUser.getId());
+
+        awaitProgress(first.getId(), 3);
+        Map<String, Object> running = jobs.toStatus(jobs.getJob(USER, first.getId()).orElseThrow());
+        Assertions.assertEquals(Job.RUNNING, running.get("status"));
+        Assertions.assertEquals(4, running.get("total"));
+        Assertions.assertEquals(1, running.get("errors"));
+
+        release.countDown();
+        Job done = awaitFinished(first.getId());
+        Assertions.assertEquals(Job.COMPLETED, done.getStatus());
+        Assertions.assertEquals(4, done.getProcessed());
+        Assertions.assertEquals("{\"done\":true}", done.getResult());
+        awaitFinished(otherUser.getId());
+        Assertions.assertEquals(2, runs.get());
+
+        // Once finished, a new submit starts a new job
+        Assertions.assertNotEquals(first.getId(), jobs.submit(USER, "test").getId());
+        Assertions.assertTrue(jobs.getJob(USER + 1, first.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Cancelling a running job stops it at its next check")
+    void cancelsRunningJob() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        jobs.register("test", (userId, progress) -> {
+            progress.start(1_000);
+            started.countDown();
+            for (int i = 0; i < 1_000; i++) {
+                if (progress.isCancelled()) throw new CancellationException();
+                progress.advance(1, 0);
+                Thread.sleep(5);
+            }
+            return null;
+        });
+
+        Job job = jobs.submit(USER, "test");
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(jobs.cancel(USER, job.getId()).orElseThrow().isCancelRequested());
+
+        Job done = awaitFinished(job.getId());
+        Assertions.assertEquals(Job.CANCELLED, done.getStatus());
+        Assertions.assertTrue(done.getProcessed() < 1_000);
+        Assertions.assertTrue(jobs.cancel(USER + 1, job.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("A handler failing with a long message still ends the job, so a resubmit starts a new one")
+    void failsWithLongMessage() throws Exception {
+        jobs.register("test", (userId, progress) -> {
+            throw new IllegalStateException("x".repeat(400));
+        });
+
+        Job job = jobs.submit(USER, "test");
+        Job failed = awaitFinished(job.getId());
+        Assertions.assertEquals(Job.FAILED, failed.getStatus());
+        Assertions.assertEquals(Job.MESSAGE_LENGTH, failed.getMessage().length());
+        Assertions.assertNotEquals(job.getId(), jobs.submit(USER, "test").getId());
+    }
+
+    @Test
+    @DisplayName("Jobs left active by a previous process are resumed, or failed if their type is unknown")
+    void recoversInterruptedJobs() throws Exception {
+        jobs.register("test", (userId, progress) -> {
+            progress.start(2);
+            progress.advance(2, 0);
+            return Map.of("user", userId);
+        });
+        Job resumable = interrupted("resumable", "test");
+        Job unknown = interrupted("unknown", "retired-type");
+
+        jobs.recoverInterrupted();
+
+        Job resumed = awaitFinished(resumable.getId());
+        Assertions.assertEquals(Job.COMPLETED, resumed.getStatus());
+        Assertions.assertEquals(2, resumed.getProcessed());
+        Assertions.assertEquals("Resumed after restart", resumed.getMessage());
+
+        Job failed = repo.findById(unknown.getId()).orElseThrow();
+        Assertions.assertEquals(Job.FAILED, failed.getStatus());
+        Assertions.assertEquals("Interrupted by restart", failed.getMessage());
+    }
+
+    private Job interrupted(String id, String type) {
+        Job job = new Job();
+        job.setId(id);
+        job.setUserId(USER);
+        job.setType(type);
+        job.setStatus(Job.RUNNING);
+        job.setProcessed(5);
+        job.setTotal(10);
+        return repo.save(job);
+    }
+
+    private void awaitProgress(String id, int processed) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (jobs.getJob(USER, id).orElseThrow().getProcessed() < processed) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "job made no progress");
+            Thread.sleep(10);
+        }
+    }
+
+    private Job awaitFinished(String id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (true) {
+            Job job = repo.findById(id).orElseThrow();
+            if (!job.isActive()) return job;
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "job did not finish");
+            Thread.sleep(10);
+        }
+    }
+}
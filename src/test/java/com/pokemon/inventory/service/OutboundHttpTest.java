@@ -0,0 +1,108 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pokemon.inventory.support.StubTcgdexServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+class OutboundHttpTest {
+
+    // Bursts shaped like search-page fan-outs: each round is one page of detail fetches
+    private static final int ROUNDS = 25;
+    private static final int CONCURRENCY = 16;
+
+    private StubTcgdexServer stub;
+    private FanOutExecutor fanOut;
+    private SimpleMeterRegistry meters;
+    private OutboundHttp http;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubTcgdexServer().fixture("/cards/base1-4").defaultLatency(2);
+        fanOut = new FanOutExecutor(CONCURRENCY, 4);
+        meters = new SimpleMeterRegistry();
+        http = new OutboundHttp(meters, 100, CONCURRENCY, "", Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+        fanOut.shutdown();
+        http.close();
+    }
+
+    @Test
+    @DisplayName("Benchmark: the pooled client reuses connections where the old factory opens new ones")
+    void pooledClientReusesConnections() {
+        SimpleClientHttpRequestFactory simpleFactory = new SimpleClientHttpRequestFactory();
+        simpleFactory.setConnectTimeout(10000);
+        simpleFactory.setReadTimeout(30000);
+        RestTemplate simple = new RestTemplate(simpleFactory);
+        RestTemplate pooled = http.restTemplate(Duration.ofSeconds(30));
+
+        long[] simpleRun = run(simple);
+        long[] pooledRun = run(pooled);
+        System.out.printf("%d rounds of %d parallel GETs: simple %d connections in %d ms, pooled %d connections in %d ms%n",
+                ROUNDS, CONCURRENCY, simpleRun[0], simpleRun[1], pooledRun[0], pooledRun[1]);
+
+        Assertions.assertTrue(pooledRun[0] <= CONCURRENCY, "pool opened " + pooledRun[0] + " connections");
+        Assertions.assertTrue(pooledRun[0] < simpleRun[0]);
+    }
+
+    @Test
+    @DisplayName("Gzip responses are requested and decoded transparently")
+    void decodesGzip() throws Exception {
+        stub.gzip(true);
+        String body = http.restTemplate(Duration.ofSeconds(5))
+                .getForObject(URI.create(stub.baseUrl() + "/cards/base1-4"), String.class);
+
+        Assertions.assertEquals(1, stub.gzipped());
+        ObjectMapper mapper = new ObjectMapper();
+        Assertions.assertEquals(mapper.readTree(StubTcgdexServer.readFixture("/cards/base1-4")), mapper.readTree(body));
+    }
+
+    @Test
+    @DisplayName("Pool leased, available and pending counts are published as metrics")
+    void publishesPoolMetrics() {
+        http.restTemplate(Duration.ofSeconds(5)).getForObject(URI.create(stub.baseUrl() + "/cards/base1-4"), String.class);
+
+        Assertions.assertEquals(1, meters.get("httpcomponents.httpclient.pool.total.connections")
+                .tag("state", "available").gauge().value());
+        Assertions.assertEquals(0, meters.get("httpcomponents.httpclient.pool.total.connections")
+                .tag("state", "leased").gauge().value());
+        Assertions.assertEquals(0, meters.get("httpcomponents.httpclient.pool.total.pending").gauge().value());
+        Assertions.assertEquals(100, meters.get("httpcomponents.httpclient.pool.total.max").gauge().value());
+        Assertions.assertEquals(1, http.poolStats().getAvailable());
+    }
+
+    /**
+     * Returns {connections opened, elapsed ms} for a warm run. Between rounds all
+     * connections go idle; the JDK keep-alive cache keeps only a few of them per host
+     * (http.maxConnections, default 5), the pool keeps them all.
+     */
+    private long[] run(RestTemplate client) {
+        List<Integer> page = new ArrayList<>();
+        for (int i = 0; i < CONCURRENCY; i++) page.add(i);
+        URI uri = URI.create(stub.baseUrl() + "/cards/base1-4");
+
+        // Warm up (class loading, JIT) before measuring
+        fanOut.map(page, CONCURRENCY, Duration.ofSeconds(30), i -> client.getForObject(uri, String.class), (i, e) -> null);
+        stub.resetConnections();
+
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            List<String> bodies = fanOut.map(page, CONCURRENCY, Duration.ofSeconds(30),
+                    i -> client.getForObject(uri, String.class), (i, e) -> null);
+            Assertions.assertFalse(bodies.contains(null), "some requests failed");
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        return new long[]{stub.connections(), elapsedMs};
+    }
+}
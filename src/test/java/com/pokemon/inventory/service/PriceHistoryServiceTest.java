@@ -0,0 +1,206 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.dto.DailyPrice;
+import com.pokemon.inventory.dto.TcgdexPrice;
+import com.pokemon.inventory.dto.ValuePoint;
+import com.pokemon.inventory.model.CollectionStats;
+import com.pokemon.inventory.repository.CollectionStatsRepository;
+import com.pokemon.inventory.repository.PriceHistoryStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class PriceHistoryServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 10);
+
+    @Autowired
+    private CollectionStatsRepository statsRepo;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcTemplate jdbc;
+    private PriceHistoryService history;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        history = new PriceHistoryService(new PriceHistoryStore(jdbc), transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(history, "rawRetention", Duration.ofDays(35));
+        ReflectionTestUtils.setField(history, "dailyRetention", Duration.ofDays(365));
+    }
+
+    @Test
+    @DisplayName("A day's snapshots roll up to its last prices; card history carries the price in force into the range")
+    void rollsUpByDay() {
+        record(DAY.minusDays(1).atTime(23, 0), "base1-4", 300.0);
+        record(DAY.atTime(8, 0), "base1-4", 390.0);
+        record(DAY.atTime(9, 0), "base1-4", 410.0);
+        record(DAY.atTime(12, 0), "base1-4", 400.0);
+        record(DAY.atTime(12, 0), "base1-58", 6.0);
+
+        // The day's first rollup also finishes the day before
+        history.rollup(DAY.atTime(13, 0));
+        Map<String, Object> row = jdbc.queryForMap(
+                "SELECT * FROM price_daily WHERE card_id = 'base1-4' AND price_date = ?", DAY);
+        Assertions.assertEquals(400.0, row.get("PRICE_MID"));
+        Assertions.assertEquals(390.0, row.get("MID_MIN"));
+        Assertions.assertEquals(410.0, row.get("MID_MAX"));
+        Assertions.assertEquals(3, row.get("SAMPLES"));
+        Assertions.assertEquals(3, count("price_daily"));
+
+        // A later rollup the same day picks up new snapshots
+        record(DAY.atTime(18, 0), "base1-4", 420.0);
+        history.rollup(DAY.atTime(19, 0));
+        Assertions.assertEquals(3, count("price_daily"));
+
+        List<DailyPrice> prices = history.priceHistory("base1-4", DAY.minusDays(1), DAY);
+        Assertions.assertEquals(List.of(300.0, 420.0), prices.stream().map(DailyPrice::mid).toList());
+        prices = history.priceHistory("base1-4", DAY.plusDays(5), DAY.plusDays(9));
+        Assertions.assertEquals(List.of(DAY), prices.stream().map(DailyPrice::date).toList());
+    }
+
+    @Test
+    @DisplayName("Collection values are kept per day and downsampled to the last value of each week or month")
+    void valueHistory() {
+        CollectionStats stats = new CollectionStats();
+        stats.setUserId(1L);
+        for (int day = 0; day < 14; day++) {
+            stats.setTotalValue(100 + day);
+            stats.setTotalCards(10 + day);
+            statsRepo.save(stats);
+            em.flush();
+            history.rollup(DAY.plusDays(day).atTime(10, 0));
+            // A later rollup replaces the day's value
+            stats.setTotalValue(200 + day);
+            statsRepo.save(stats);
+            em.flush();
+            history.rollup(DAY.plusDays(day).atTime(23, 0));
+        }
+
+        List<ValuePoint> daily = history.valueHistory(1L, DAY, DAY.plusDays(13), PriceHistoryService.Interval.DAY);
+        Assertions.assertEquals(14, daily.size());
+        Assertions.assertEquals(new ValuePoint(DAY, 200, 10), daily.get(0));
+        Assertions.assertTrue(history.valueHistory(2L, DAY, DAY.plusDays(13), PriceHistoryService.Interval.DAY).isEmpty());
+
+        // 2026-03-10 is a Tuesday: weeks start on the 9th, 16th and 23rd
+        List<ValuePoint> weekly = history.valueHistory(1L, DAY, DAY.plusDays(13), PriceHistoryService.Interval.WEEK);
+        Assertions.assertEquals(List.of(
+                new ValuePoint(LocalDate.of(2026, 3, 9), 205, 15),
+                new ValuePoint(LocalDate.of(2026, 3, 16), 212, 22),
+                new ValuePoint(LocalDate.of(2026, 3, 23), 213, 23)), weekly);
+        Assertions.assertEquals(List.of(new ValuePoint(LocalDate.of(2026, 3, 1), 213, 23)),
+                history.valueHistory(1L, DAY, DAY.plusDays(13), PriceHistoryService.Interval.MONTH));
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> history.valueHistory(1L, DAY, DAY.minusDays(1), PriceHistoryService.Interval.DAY));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PriceHistoryService.Interval.parse("hour"));
+    }
+
+    @Test
+    @DisplayName("The first rollup after midnight records the day before's closing value again; a restart does not")
+    void rolloverRecordsYesterday() {
+        CollectionStats stats = new CollectionStats();
+        stats.setUserId(1L);
+        stats.setTotalValue(100);
+        statsRepo.save(stats);
+        em.flush();
+        history.rollup(DAY.atTime(23, 0));
+
+        // Changed after the day's last rollup
+        stats.setTotalValue(150);
+        statsRepo.save(stats);
+        em.flush();
+        history.rollup(DAY.plusDays(1).atTime(0, 30));
+        Assertions.assertEquals(List.of(150.0, 150.0), history.valueHistory(1L, DAY, DAY.plusDays(1),
+                PriceHistoryService.Interval.DAY).stream().map(ValuePoint::totalValue).toList());
+
+        // Another instance, or this one restarted, rolls up later the same day: nothing collides,
+        // and the day before is left as recorded
+        stats.setTotalValue(175);
+        statsRepo.save(stats);
+        em.flush();
+        record(DAY.plusDays(1).atTime(9, 0), "base1-4", 12.0);
+        PriceHistoryService other = new PriceHistoryService(new PriceHistoryStore(jdbc), transactionManager,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(other, "rawRetention", Duration.ofDays(35));
+        ReflectionTestUtils.setField(other, "dailyRetention", Duration.ofDays(365));
+        other.rollup(DAY.plusDays(1).atTime(13, 0));
+        history.rollup(DAY.plusDays(1).atTime(13, 30));
+        Assertions.assertEquals(List.of(150.0, 175.0), history.valueHistory(1L, DAY, DAY.plusDays(1),
+                PriceHistoryService.Interval.DAY).stream().map(ValuePoint::totalValue).toList());
+        Assertions.assertEquals(1, count("price_daily"));
+    }
+
+    @Test
+    @DisplayName("A card's first price seeds its history; later seeds of it are ignored")
+    void seedsFirstPrice() {
+        history.seedPrices(Map.of("base1-4", new TcgdexPrice(1.0, 2.0, 3.0, 2.5, null)), DAY.atTime(8, 0));
+        history.seedPrices(Map.of("base1-4", new TcgdexPrice(1.0, 2.0, 3.0, 2.5, null)), DAY.atTime(9, 0));
+        jdbc.update("INSERT INTO price_daily (card_id, price_date, price_mid, samples) VALUES ('base1-58', ?, 6.0, 1)",
+                DAY.minusDays(400));
+        history.seedPrices(Map.of("base1-58", new TcgdexPrice(null, 7.0, null, null, null)), DAY.atTime(9, 0));
+        Assertions.assertEquals(1, count("price_snapshots"));
+
+        history.rollup(DAY.atTime(10, 0));
+        Assertions.assertEquals(List.of(2.0), history.priceHistory("base1-4", DAY.minusDays(1), DAY)
+                .stream().map(DailyPrice::mid).toList());
+    }
+
+    @Test
+    @DisplayName("Old snapshots are dropped and daily rows past retention are thinned to the last of each month")
+    void boundsStorage() {
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        for (LocalDate day = start; day.isBefore(start.plusDays(90)); day = day.plusDays(1)) {
+            jdbc.update("INSERT INTO price_daily (card_id, price_date, price_mid, samples) VALUES ('base1-4', ?, ?, 1)",
+                    day, (double) day.getDayOfYear());
+            jdbc.update("INSERT INTO collection_value_daily (user_id, value_date, total_value, total_cards, unique_cards) "
+                    + "VALUES (1, ?, ?, 1, 1)", day, (double) day.getDayOfYear());
+        }
+        record(DAY.minusDays(40).atTime(12, 0), "base1-4", 1.0);
+        record(DAY.minusDays(2).atTime(12, 0), "base1-4", 2.0);
+
+        // January and February 2025 are past a year old, March is not yet entirely
+        history.rollup(LocalDate.of(2026, 3, 20).atTime(12, 0));
+        Assertions.assertEquals(List.of(LocalDate.of(2025, 1, 31), LocalDate.of(2025, 2, 28)),
+                jdbc.queryForList("SELECT price_date FROM price_daily WHERE price_date < '2025-03-01' ORDER BY price_date",
+                        LocalDate.class));
+        Assertions.assertEquals(31, jdbc.queryForObject(
+                "SELECT COUNT(*) FROM price_daily WHERE price_date >= '2025-03-01' AND price_date < '2025-04-01'", Integer.class));
+        Assertions.assertEquals(2 + 31, jdbc.queryForObject(
+                "SELECT COUNT(*) FROM collection_value_daily WHERE value_date < '2025-04-01'", Integer.class));
+        Assertions.assertEquals(1, count("price_snapshots"));
+
+        // Thinned months read as month-end points
+        List<ValuePoint> values = history.valueHistory(1L, start, LocalDate.of(2025, 3, 2), PriceHistoryService.Interval.DAY);
+        Assertions.assertEquals(List.of(31.0, 59.0, 60.0, 61.0), values.stream().map(ValuePoint::totalValue).toList());
+    }
+
+    private void record(LocalDateTime at, String cardId, double mid) {
+        history.recordPrices(Map.of(cardId, new TcgdexPrice(mid - 1, mid, mid + 1, mid, null)), at);
+    }
+
+    private int count(String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
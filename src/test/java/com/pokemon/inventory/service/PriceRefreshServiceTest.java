@@ -0,0 +1,168 @@
+package com.pokemon.inventory.service;
+
+import com.pokemon.inventory.dto.PriceRefreshResult;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.repository.CardRepository;
+import com.pokemon.inventory.repository.CollectionStatsRepository;
+import com.pokemon.inventory.repository.PriceHistoryStore;
+import com.pokemon.inventory.support.StubTcgdexServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class PriceRefreshServiceTest {
+
+    private static final long USER = 7L;
+    private static final String[] CONDITIONS = {"NM", "LP", "MP", "HP", "DMG"};
+
+    @Autowired
+    private CardRepository repo;
+
+    @Autowired
+    private CollectionStatsRepository statsRepo;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private StubTcgdexServer stub;
+    private FanOutExecutor fanOut;
+    private OutboundHttp http;
+    private PriceRefreshService refresh;
+    private CollectionStatsService stats;
+    private int saved;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubTcgdexServer();
+        for (String id : new String[]{"base1-4", "base1-58", "base1-95", "base2-60", "base2-12"}) {
+            stub.fixture("/cards/" + id);
+        }
+        fanOut = new FanOutExecutor(8, 4);
+        TcgdexCardCache cache = new TcgdexCardCache(new SimpleMeterRegistry(), 1_000, Duration.ofMinutes(10));
+        http = new OutboundHttp(new SimpleMeterRegistry(), 100, 32, "", Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(30));
+        TcgdexApiService tcgdex = new TcgdexApiService(http, fanOut, cache, Mockito.mock(CatalogMirror.class),
+                new TcgdexResilience(new SimpleMeterRegistry(), 50, Duration.ofSeconds(5), 20, 10, Duration.ofSeconds(30), 64, 16, Duration.ofSeconds(5), 1_000),
+                new HedgedRequests(new SimpleMeterRegistry(), false, 0.95, 0.05, 50, Duration.ofMillis(50), 4),
+                Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(tcgdex, "baseUrl", stub.baseUrl());
+
+        stats = new CollectionStatsService(statsRepo, repo, transactionManager);
+        PriceHistoryService history = new PriceHistoryService(new PriceHistoryStore(new JdbcTemplate(dataSource)),
+                transactionManager, new SimpleMeterRegistry());
+        refresh = new PriceRefreshService(repo, tcgdex, fanOut, stats, history, transactionManager);
+        ReflectionTestUtils.setField(refresh, "concurrency", 4);
+        ReflectionTestUtils.setField(refresh, "chunkSize", 3);
+        ReflectionTestUtils.setField(refresh, "deadline", Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+        fanOut.shutdown();
+        http.close();
+    }
+
+    @Test
+    @DisplayName("Each cardId is fetched once and every owning row is updated")
+    void dedupesByCardId() {
+        Card first = save("base1-4", USER);
+        Card second = save("base1-4", USER);
+        save("base1-58", USER);
+        save("base1-58", USER);
+        save("base1-58", USER);
+        save("base2-60", USER);
+        save("base1-4", 99L);
+
+        PriceRefreshResult result = refresh.refresh(USER);
+
+        Assertions.assertEquals(6, result.getUpdated());
+        Assertions.assertEquals(0, result.getFailed());
+        Assertions.assertEquals(0, result.getSkipped());
+        Assertions.assertEquals(1, stub.hits("/cards/base1-4"));
+        Assertions.assertEquals(1, stub.hits("/cards/base1-58"));
+        Assertions.assertEquals(399.99, repo.findById(first.getId()).orElseThrow().getPriceMid());
+        Assertions.assertEquals(399.99, repo.findById(second.getId()).orElseThrow().getPriceMid());
+        // base2-60 has normal and reverse-holofoil prices; normal wins
+        Assertions.assertEquals(1.25, repo.findByUserIdAndCardId(USER, "base2-60").get(0).getPriceMid());
+    }
+
+    @Test
+    @DisplayName("The stats summary's total value follows the refreshed prices")
+    void updatesStatsValue() {
+        save("base1-4", USER).setQuantity(2);
+        save("base2-60", USER);
+        Assertions.assertEquals(0.0, stats.getStats(USER).get("total_value"));
+
+        refresh.refresh(USER);
+
+        Assertions.assertEquals(399.99 * 2 + 1.25, (double) stats.getStats(USER).get("total_value"), 1e-9);
+        Assertions.assertEquals(repo.getTotalValue(USER), (double) stats.getStats(USER).get("total_value"), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Failed fetches and cards without prices are reported, not swallowed")
+    void reportsFailedAndSkipped() {
+        stub.fail("/cards/base2-12", -1);
+        save("base2-12", USER);
+        save("base2-12", USER);
+        save("base1-95", USER);
+        Card priced = save("base1-58", USER);
+
+        PriceRefreshResult result = refresh.refresh(USER);
+
+        Assertions.assertEquals(1, result.getUpdated());
+        Assertions.assertEquals(2, result.getFailed());
+        Assertions.assertEquals(1, result.getSkipped());
+        Assertions.assertEquals(6.0, repo.findById(priced.getId()).orElseThrow().getPriceMid());
+    }
+
+    @Test
+    @DisplayName("Progress counts one step per distinct cardId and cancellation stops the refresh")
+    void reportsProgressAndCancels() {
+        stub.fail("/cards/base2-12", -1);
+        Card priced = save("base1-58", USER);
+        save("base1-58", USER);
+        save("base2-12", USER);
+        int[] counts = new int[3];
+        JobProgress progress = new JobProgress() {
+            @Override public synchronized void start(int total) { counts[0] = total; }
+            @Override public synchronized void advance(int processed, int errors) { counts[1] += processed; counts[2] += errors; }
+            @Override public boolean isCancelled() { return false; }
+        };
+
+        refresh.refresh(USER, progress);
+        Assertions.assertArrayEquals(new int[]{2, 2, 1}, counts);
+
+        JobProgress cancelled = new JobProgress() {
+            @Override public void start(int total) {}
+            @Override public void advance(int processed, int errors) {}
+            @Override public boolean isCancelled() { return true; }
+        };
+        repo.findById(priced.getId()).orElseThrow().setPriceMid(null);
+        Assertions.assertThrows(CancellationException.class, () -> refresh.refresh(USER, cancelled));
+        Assertions.assertEquals(0, stub.hits("/cards/base1-58") - 1);
+    }
+
+    private Card save(String cardId, long userId) {
+        Card card = new Card();
+        card.setCardId(cardId);
+        card.setName(cardId);
+        card.setUserId(userId);
+        // Rows sharing a cardId need distinct conditions
+        card.setCondition(CONDITIONS[saved++ % CONDITIONS.length]);
+        return repo.save(card);
+    }
+}
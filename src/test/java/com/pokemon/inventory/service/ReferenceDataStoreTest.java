@@ -0,0 +1,86 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+class ReferenceDataStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TcgdexApiService tcgdex = Mockito.mock(TcgdexApiService.class);
+    private ReferenceDataStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Mockito.when(tcgdex.getSets()).thenReturn(mapper.readTree("[{\"id\":\"base1\",\"name\":\"Base Set\"}]"));
+        Mockito.when(tcgdex.getRarities()).thenReturn(mapper.readTree("[\"Common\",\"Rare\"]"));
+        Mockito.when(tcgdex.getTypes()).thenReturn(mapper.readTree("[\"Fire\"]"));
+        Mockito.when(tcgdex.getCategories()).thenReturn(mapper.readTree("[\"Pokemon\"]"));
+        store = store();
+    }
+
+    @Test
+    @DisplayName("Startup serves the persisted snapshot without calling upstream")
+    void loadsSnapshot() throws IOException {
+        Files.writeString(dir.resolve("rarities.json"), "[\"Common\"]");
+        Files.writeString(dir.resolve("types.json"), "not json");
+        store.loadSnapshots();
+
+        ReferenceDataStore.Snapshot rarities = store.get(ReferenceDataStore.RARITIES);
+        Assertions.assertEquals("[\"Common\"]", new String(rarities.json(), StandardCharsets.UTF_8));
+        Assertions.assertArrayEquals(rarities.json(), gunzip(rarities.gzipped()));
+        Mockito.verify(tcgdex, Mockito.never()).getRarities();
+
+        // A corrupt snapshot is skipped and the list is fetched on first use
+        Assertions.assertEquals("[\"Fire\"]", new String(store.get(ReferenceDataStore.TYPES).json(), StandardCharsets.UTF_8));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> store.get("pokemon"));
+    }
+
+    @Test
+    @DisplayName("A refresh swaps in and persists changed lists; unchanged lists keep their ETag")
+    void refreshes() throws IOException {
+        store.refreshAll();
+        String setsTag = store.get(ReferenceDataStore.SETS).etag();
+        String raritiesTag = store.get(ReferenceDataStore.RARITIES).etag();
+
+        Mockito.when(tcgdex.getRarities()).thenReturn(mapper.readTree("[\"Common\",\"Rare\",\"Rare Holo\"]"));
+        Mockito.when(tcgdex.getTypes()).thenThrow(new IllegalStateException("upstream down"));
+        store.refreshAll();
+
+        Assertions.assertEquals(setsTag, store.get(ReferenceDataStore.SETS).etag());
+        Assertions.assertNotEquals(raritiesTag, store.get(ReferenceDataStore.RARITIES).etag());
+        Assertions.assertEquals("[\"Fire\"]", new String(store.get(ReferenceDataStore.TYPES).json(), StandardCharsets.UTF_8));
+
+        // A restart picks up the latest lists, with the same ETags
+        ReferenceDataStore restarted = store();
+        restarted.loadSnapshots();
+        Assertions.assertEquals(store.get(ReferenceDataStore.RARITIES).etag(),
+                restarted.get(ReferenceDataStore.RARITIES).etag());
+        Assertions.assertEquals(4, Files.list(dir).count());
+    }
+
+    private ReferenceDataStore store() {
+        ReferenceDataStore created = new ReferenceDataStore(tcgdex);
+        ReflectionTestUtils.setField(created, "snapshotDir", dir);
+        ReflectionTestUtils.setField(created, "refreshEnabled", true);
+        return created;
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+}
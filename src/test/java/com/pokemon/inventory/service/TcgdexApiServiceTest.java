@@ -0,0 +1,203 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.pokemon.inventory.support.StubTcgdexServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+class TcgdexApiServiceTest {
+
+    private static final int PAGE_SIZE = 20;
+    private static final long DETAIL_LATENCY_MS = 50;
+
+    private StubTcgdexServer stub;
+    private FanOutExecutor fanOut;
+    private OutboundHttp http;
+    private TcgdexCardCache cache;
+    private TcgdexApiService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubTcgdexServer();
+        List<String> summaries = new ArrayList<>();
+        for (int i = 1; i <= PAGE_SIZE; i++) {
+            String id = "base1-" + i;
+            summaries.add("{\"id\":\"" + id + "\",\"name\":\"Card " + i + "\"}");
+            stub.json("/cards/" + id, "{\"id\":\"" + id + "\",\"name\":\"Card " + i + "\",\"hp\":" + (i * 10)
+                    + ",\"pricing\":{\"tcgplayer\":{\"normal\":{\"midPrice\":" + i + ".5}}}}");
+            stub.latency("/cards/" + id, DETAIL_LATENCY_MS);
+        }
+        stub.json("/cards", "[" + String.join(",", summaries) + "]");
+
+        fanOut = new FanOutExecutor(32, 4);
+        cache = newCache(1_000, Duration.ofMinutes(10));
+        http = new OutboundHttp(new SimpleMeterRegistry(), 100, 32, "", Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(30));
+        service = new TcgdexApiService(http, fanOut, cache, Mockito.mock(CatalogMirror.class),
+                new TcgdexResilience(new SimpleMeterRegistry(), 50, Duration.ofSeconds(5), 20, 10, Duration.ofSeconds(30), 64, 16, Duration.ofSeconds(5), 1_000),
+                new HedgedRequests(new SimpleMeterRegistry(), false, 0.95, 0.05, 50, Duration.ofMillis(50), 4),
+                Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(service, "baseUrl", stub.baseUrl());
+        ReflectionTestUtils.setField(service, "detailConcurrency", 8);
+        ReflectionTestUtils.setField(service, "pageDeadlineMs", 10_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+        fanOut.shutdown();
+        http.close();
+    }
+
+    @Test
+    @DisplayName("Parallel detail fetch keeps the upstream order")
+    void keepsOrder() {
+        JsonNode result = service.searchCards(null, null, null, null, null, 1, PAGE_SIZE);
+
+        JsonNode data = result.get("data");
+        Assertions.assertEquals(PAGE_SIZE, data.size());
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Assertions.assertEquals("base1-" + (i + 1), data.get(i).get("id").asText());
+            Assertions.assertTrue(data.get(i).has("hp"), "Expected full card details");
+        }
+    }
+
+    @Test
+    @DisplayName("Failed detail fetch falls back to the summary node")
+    void failedDetailFallsBackToSummary() {
+        stub.fail("/cards/base1-3", -1);
+
+        JsonNode data = service.searchCards(null, null, null, null, null, 1, PAGE_SIZE).get("data");
+
+        Assertions.assertEquals(PAGE_SIZE, data.size());
+        Assertions.assertEquals("base1-3", data.get(2).get("id").asText());
+        Assertions.assertFalse(data.get(2).has("hp"), "Failed card should keep its summary");
+        Assertions.assertTrue(data.get(3).has("hp"));
+    }
+
+    @Test
+    @DisplayName("Detail fetches still running at the page deadline fall back to summaries and are aborted")
+    void deadlineReturnsPartialResults() throws Exception {
+        stub.latency("/cards/base1-5", 20_000);
+        ReflectionTestUtils.setField(service, "pageDeadlineMs", 500L);
+
+        JsonNode data = service.searchCards(null, null, null, null, null, 1, PAGE_SIZE).get("data");
+
+        Assertions.assertEquals(PAGE_SIZE, data.size());
+        Assertions.assertFalse(data.get(4).has("hp"), "Slow card should keep its summary");
+        Assertions.assertTrue(data.get(0).has("hp"));
+        Assertions.assertNull(cache.getIfPresent("base1-5"));
+
+        // The slow fetch's connection was closed, not left waiting out its response
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (http.poolStats().getLeased() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(0, http.poolStats().getLeased());
+    }
+
+    @Test
+    @DisplayName("Page latency: serial vs parallel detail fetch")
+    void serialVersusParallelLatency() {
+        ReflectionTestUtils.setField(service, "detailConcurrency", 1);
+        long serialMs = timePage();
+
+        ReflectionTestUtils.setField(service, "cardCache", newCache(1_000, Duration.ofMinutes(10)));
+        ReflectionTestUtils.setField(service, "detailConcurrency", 8);
+        long parallelMs = timePage();
+
+        System.out.println("Search page of " + PAGE_SIZE + " cards with " + DETAIL_LATENCY_MS
+                + "ms detail latency: serial=" + serialMs + "ms parallel=" + parallelMs + "ms");
+        Assertions.assertTrue(serialMs >= PAGE_SIZE * DETAIL_LATENCY_MS);
+        Assertions.assertTrue(parallelMs * 3 < serialMs, "Parallel fetch should be several times faster");
+    }
+
+    // ── Card cache ──────────────────────────────────────
+
+    @Test
+    @DisplayName("Searching then fetching the same card makes no extra upstream call")
+    void searchThenGetIsServedFromCache() {
+        service.searchCards(null, null, null, null, null, 1, PAGE_SIZE);
+        int afterSearch = stub.totalHits();
+
+        JsonNode card = service.getCard("base1-4");
+
+        Assertions.assertEquals(afterSearch, stub.totalHits());
+        Assertions.assertEquals(40, card.get("hp").asInt());
+        Assertions.assertEquals(4.5, card.at("/pricing/tcgplayer/normal/midPrice").asDouble());
+        Assertions.assertEquals(1L, cache.stats().get("hits"));
+    }
+
+    @Test
+    @DisplayName("Concurrent misses for one card make a single upstream call")
+    void concurrentMissesAreCoalesced() throws Exception {
+        stub.latency("/cards/base1-7", 300);
+        ExecutorService callers = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<JsonNode>> results = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                results.add(callers.submit(() -> service.getCard("base1-7")));
+            }
+            for (Future<JsonNode> result : results) {
+                Assertions.assertEquals("base1-7", result.get(5, TimeUnit.SECONDS).get("id").asText());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        Assertions.assertEquals(1, stub.hits("/cards/base1-7"));
+    }
+
+    @Test
+    @DisplayName("An expired card is refetched whole")
+    void expiredCardIsRefetched() throws Exception {
+        cache = newCache(1_000, Duration.ofMillis(100));
+        ReflectionTestUtils.setField(service, "cardCache", cache);
+
+        service.getCard("base1-2");
+        service.getCard("base1-2");
+        Assertions.assertEquals(1, stub.hits("/cards/base1-2"));
+
+        Thread.sleep(200);
+        Assertions.assertNull(cache.cachedPricing("base1-2"));
+        service.getCard("base1-2");
+        Assertions.assertEquals(2, stub.hits("/cards/base1-2"));
+    }
+
+    @Test
+    @DisplayName("The size-bounded cache evicts and counts evictions")
+    void evictionsAreCounted() {
+        cache = newCache(2, Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(service, "cardCache", cache);
+
+        for (int i = 1; i <= 10; i++) service.getCard("base1-" + i);
+
+        Assertions.assertTrue((long) cache.stats().get("evictions") > 0);
+        Assertions.assertEquals(10L, cache.stats().get("misses"));
+    }
+
+    @Test
+    @DisplayName("Card names are counted from the streamed card list")
+    void countsCardNames() {
+        stub.json("/cards", "[{\"id\":\"a-1\",\"name\":\"Pikachu\",\"image\":\"x\"},"
+                + "{\"id\":\"b-2\",\"localId\":\"2\",\"name\":\"Pikachu\"},{\"id\":\"c-3\",\"name\":\"Mew\",\"extra\":{\"name\":\"no\"}}]");
+
+        Assertions.assertEquals(Map.of("Pikachu", 2, "Mew", 1), service.fetchCardNameCounts());
+    }
+
+    private TcgdexCardCache newCache(long maxCards, Duration ttl) {
+        return new TcgdexCardCache(new SimpleMeterRegistry(), maxCards, ttl);
+    }
+
+    private long timePage() {
+        long start = System.nanoTime();
+        service.searchCards(null, null, null, null, null, 1, PAGE_SIZE);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,71 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pokemon.inventory.dto.TcgdexCard;
+import com.pokemon.inventory.model.Card;
+import com.pokemon.inventory.support.StubTcgdexServer;
+import org.junit.jupiter.api.*;
+
+class TcgdexCardMapperTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Recorded cards decode to the same entity fields the tree mapping produced")
+    void mapsRecordedCards() throws Exception {
+        Card pikachu = TcgdexCardMapper.mapToEntity(fixture("base2-60"));
+        Assertions.assertEquals("base2-60", pikachu.getCardId());
+        Assertions.assertEquals("Pikachu", pikachu.getName());
+        Assertions.assertEquals("Pokemon", pikachu.getCategory());
+        Assertions.assertEquals("Common", pikachu.getRarity());
+        Assertions.assertEquals(50, pikachu.getHp());
+        Assertions.assertEquals("[\"Lightning\"]", pikachu.getTypes());
+        Assertions.assertEquals("[\"Basic\"]", pikachu.getSubtypes());
+        Assertions.assertEquals("base2", pikachu.getSetId());
+        Assertions.assertEquals("Jungle", pikachu.getSetName());
+        Assertions.assertEquals("https://assets.tcgdex.net/en/base/base2/60/low.webp", pikachu.getImageSmall());
+        Assertions.assertEquals("https://assets.tcgdex.net/en/base/base2/60/high.webp", pikachu.getImageLarge());
+        // normal wins over reverse-holofoil
+        Assertions.assertEquals(0.5, pikachu.getPriceLow());
+        Assertions.assertEquals(1.25, pikachu.getPriceMid());
+        Assertions.assertEquals(9.0, pikachu.getPriceHigh());
+        Assertions.assertEquals(1.1, pikachu.getPriceMarket());
+        Assertions.assertEquals("2026-10-01T20:04:00.000Z", pikachu.getPriceUpdatedAt());
+
+        Assertions.assertEquals(399.99, TcgdexCardMapper.mapToEntity(fixture("base1-4")).getPriceMid());
+
+        Card trainer = TcgdexCardMapper.mapToEntity(fixture("base1-95"));
+        Assertions.assertNull(trainer.getHp());
+        Assertions.assertEquals("[]", trainer.getTypes());
+        Assertions.assertEquals("[]", trainer.getSubtypes());
+        Assertions.assertNull(trainer.getPriceMid());
+        Assertions.assertFalse(TcgdexCardMapper.mapPricing(fixture("base1-95"), trainer));
+    }
+
+    @Test
+    @DisplayName("Variant selection skips null variants and unknown blocks, and reads the updated time in any position")
+    void selectsPriceVariant() throws Exception {
+        TcgdexCard card = mapper.readValue("""
+                {"id":"x-1","set":{"id":"x","series":{"id":"s","name":"Sword & Shield"}},
+                 "pricing":{"cardmarket":{"avg":3.0,"normal":{"midPrice":99}},
+                            "tcgplayer":{"normal":null,"1st-edition":{"midPrice":50},
+                                         "reverse-holofoil":{"midPrice":4.0},
+                                         "holofoil":{"lowPrice":"2.5","midPrice":3.5,"highPrice":null,"extra":[1]},
+                                         "updated":"2026-10-02"}}}
+                """, TcgdexCard.class);
+
+        Assertions.assertEquals("Sword & Shield", card.set().series());
+        Assertions.assertEquals(2.5, card.price().low());
+        Assertions.assertEquals(3.5, card.price().mid());
+        Assertions.assertNull(card.price().high());
+        Assertions.assertEquals("2026-10-02", card.price().updated());
+
+        Assertions.assertNull(mapper.readValue("{\"pricing\":{\"tcgplayer\":{\"updated\":\"x\"}}}", TcgdexCard.class).price());
+        Assertions.assertNull(mapper.readValue("{\"pricing\":null}", TcgdexCard.class).price());
+        Assertions.assertEquals("Base", mapper.readValue("{\"set\":{\"series\":\"Base\"}}", TcgdexCard.class).set().series());
+    }
+
+    private TcgdexCard fixture(String id) throws Exception {
+        return mapper.readValue(StubTcgdexServer.readFixture("/cards/" + id), TcgdexCard.class);
+    }
+}
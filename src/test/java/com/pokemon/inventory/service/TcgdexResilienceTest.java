@@ -0,0 +1,233 @@
+package com.pokemon.inventory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.pokemon.inventory.support.StubTcgdexServer;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+class TcgdexResilienceTest {
+
+    private static final String RARITIES = "[\"Common\",\"Uncommon\",\"Rare\"]";
+
+    private StubTcgdexServer stub;
+    private FanOutExecutor fanOut;
+    private OutboundHttp http;
+    private TcgdexResilience resilience;
+    private TcgdexApiService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubTcgdexServer().json("/rarities", RARITIES).json("/types", "[\"Fire\",\"Water\"]");
+        for (int i = 1; i <= 6; i++) {
+            stub.json("/cards/base1-" + i, "{\"id\":\"base1-" + i + "\",\"name\":\"Card " + i + "\"}");
+        }
+        fanOut = new FanOutExecutor(8, 4);
+        http = new OutboundHttp(new SimpleMeterRegistry(), 100, 32, "", Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(30));
+        // Small window, slow calls over 200 ms, at most 2 interactive and 1 background call
+        // in flight, open for the rest of the test
+        resilience = new TcgdexResilience(new SimpleMeterRegistry(), 50, Duration.ofMillis(200), 4, 4,
+                Duration.ofHours(1), 2, 1, Duration.ofSeconds(2), 100);
+        service = newService(resilience);
+    }
+
+    private TcgdexApiService newService(TcgdexResilience resilience) {
+        TcgdexCardCache cache = new TcgdexCardCache(new SimpleMeterRegistry(), 1_000, Duration.ofMinutes(10));
+        TcgdexApiService service = new TcgdexApiService(http, fanOut, cache, Mockito.mock(CatalogMirror.class), resilience,
+                new HedgedRequests(new SimpleMeterRegistry(), false, 0.95, 0.05, 50, Duration.ofMillis(50), 4), Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(service, "baseUrl", stub.baseUrl());
+        ReflectionTestUtils.setField(service, "detailConcurrency", 8);
+        ReflectionTestUtils.setField(service, "pageDeadlineMs", 10_000L);
+        return service;
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        stub.close();
+        fanOut.shutdown();
+        http.close();
+    }
+
+    @Test
+    @DisplayName("A failing upstream is answered from the last good response and the request is marked stale")
+    void servesStale() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        long before = System.currentTimeMillis();
+        Assertions.assertEquals(3, service.getRarities().size());
+        Assertions.assertNull(request.getAttribute(TcgdexResilience.STALE_SINCE_ATTRIBUTE));
+
+        stub.fail("/rarities", -1);
+        JsonNode stale = service.getRarities();
+        Assertions.assertEquals("Uncommon", stale.get(1).asText());
+        Assertions.assertEquals(2, stub.hits("/rarities"));
+        long since = (Long) request.getAttribute(TcgdexResilience.STALE_SINCE_ATTRIBUTE);
+        Assertions.assertTrue(since >= before && since <= System.currentTimeMillis());
+
+        // Nothing to fall back on: the failure surfaces
+        stub.fail("/types", 1);
+        Assertions.assertThrows(HttpServerErrorException.class, service::getTypes);
+
+        // Once upstream recovers, fresh data is served again
+        stub.recover("/rarities");
+        request.removeAttribute(TcgdexResilience.STALE_SINCE_ATTRIBUTE);
+        service.getRarities();
+        Assertions.assertNull(request.getAttribute(TcgdexResilience.STALE_SINCE_ATTRIBUTE));
+    }
+
+    @Test
+    @DisplayName("Repeated failures open the circuit, after which calls fail fast without reaching upstream")
+    void opensOnFailures() {
+        service.getRarities();
+        stub.fail("/types", -1);
+        // With the successful call, 3 of the last 4 calls failed
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertThrows(HttpServerErrorException.class, service::getTypes);
+        }
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, resilience.state());
+
+        stub.resetHits();
+        Assertions.assertThrows(CallNotPermittedException.class, service::getTypes);
+        Assertions.assertEquals(3, service.getRarities().size());
+        Assertions.assertEquals(0, stub.totalHits());
+    }
+
+    @Test
+    @DisplayName("Slow responses open the circuit too, and stale data is then served without waiting")
+    void opensOnSlowCalls() {
+        service.getRarities();
+        stub.defaultLatency(300);
+        for (int i = 0; i < 3; i++) {
+            service.getTypes();
+        }
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, resilience.state());
+
+        long start = System.nanoTime();
+        Assertions.assertEquals(3, service.getRarities().size());
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    @DisplayName("Live card reads fail rather than serve stale data; card reads fall back to it")
+    void liveCardFailsFast() {
+        service.getCard("base1-1");
+        stub.fail("/cards/base1-1", -1);
+        TcgdexApiService fresh = newService(resilience);
+        // Same resilience (and so the same last good responses), empty card cache
+        Assertions.assertThrows(HttpServerErrorException.class, () -> fresh.getLiveCard("base1-1"));
+        Assertions.assertEquals("Card 1", fresh.getCard("base1-1").get("name").asText());
+    }
+
+    @Test
+    @DisplayName("Unknown ids (404) do not count against upstream health")
+    void ignoresClientErrors() {
+        for (int i = 0; i < 8; i++) {
+            Assertions.assertThrows(HttpClientErrorException.class, () -> service.getLiveCard("nope-1"));
+        }
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, resilience.state());
+    }
+
+    @Test
+    @DisplayName("The bulkhead caps calls in flight and rejects the rest at once")
+    void capsConcurrency() throws Exception {
+        stub.defaultLatency(500);
+        ExecutorService callers = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<JsonNode>> calls = new ArrayList<>();
+            for (int i = 1; i <= 6; i++) {
+                String id = "base1-" + i;
+                calls.add(callers.submit(() -> service.getLiveCard(id)));
+            }
+            int served = 0;
+            int rejected = 0;
+            for (Future<JsonNode> call : calls) {
+                try {
+                    call.get(5, TimeUnit.SECONDS);
+                    served++;
+                } catch (ExecutionException e) {
+                    Assertions.assertInstanceOf(BulkheadFullException.class, e.getCause());
+                    rejected++;
+                }
+            }
+            Assertions.assertEquals(2, served);
+            Assertions.assertEquals(4, rejected);
+            Assertions.assertEquals(2, stub.totalHits());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("A price refresh running while a search is in flight neither takes nor waits for its permits")
+    void refreshDuringSearch() throws Exception {
+        // Lenient breaker so the slow stub does not open it
+        TcgdexApiService service = newService(new TcgdexResilience(new SimpleMeterRegistry(), 50, Duration.ofSeconds(5),
+                20, 10, Duration.ofHours(1), 2, 1, Duration.ofSeconds(5), 100));
+        stub.json("/cards", "[{\"id\":\"base1-1\",\"name\":\"Card 1\"},{\"id\":\"base1-2\",\"name\":\"Card 2\"}]");
+        stub.latency("/cards/base1-1", 600).latency("/cards/base1-2", 600)
+                .latency("/cards/base1-3", 200).latency("/cards/base1-4", 200).latency("/cards/base1-5", 200);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            // The search's two detail fetches hold both interactive permits
+            Future<JsonNode> search = callers.submit(() -> service.searchCards(null, null, null, null, null, 1, 2));
+            while (stub.hits("/cards/base1-1") + stub.hits("/cards/base1-2") < 2) Thread.sleep(5);
+
+            // Background reads get their own permit; the ones that find it busy wait for it
+            List<Future<String>> refresh = new ArrayList<>();
+            for (int i = 3; i <= 5; i++) {
+                String id = "base1-" + i;
+                refresh.add(callers.submit(() -> service.getLiveCardRecord(id).name()));
+            }
+            for (int i = 0; i < refresh.size(); i++) {
+                Assertions.assertEquals("Card " + (i + 3), refresh.get(i).get(5, TimeUnit.SECONDS));
+            }
+
+            // Every detail was fetched in full, none rejected back to its summary
+            JsonNode data = search.get(5, TimeUnit.SECONDS).get("data");
+            Assertions.assertEquals(2, data.size());
+            Assertions.assertEquals(1, stub.hits("/cards/base1-1"));
+            Assertions.assertEquals(1, stub.hits("/cards/base1-2"));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Background calls wait a bounded time for a permit and are then rejected")
+    void backgroundWaitIsBounded() throws Exception {
+        TcgdexApiService service = newService(new TcgdexResilience(new SimpleMeterRegistry(), 50, Duration.ofSeconds(5),
+                20, 10, Duration.ofHours(1), 2, 1, Duration.ofMillis(100), 100));
+        stub.latency("/cards/base1-1", 800);
+        ExecutorService callers = Executors.newFixedThreadPool(1);
+        try {
+            Future<?> busy = callers.submit(() -> service.getLiveCardRecord("base1-1"));
+            while (stub.hits("/cards/base1-1") == 0) Thread.sleep(5);
+
+            long start = System.nanoTime();
+            Assertions.assertThrows(BulkheadFullException.class, () -> service.getLiveCardRecord("base1-2"));
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assertions.assertTrue(waited >= 90 && waited < 600, "waited " + waited + " ms");
+            // Interactive reads are unaffected
+            Assertions.assertEquals(3, service.getRarities().size());
+            busy.get(5, TimeUnit.SECONDS);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.pokemon.inventory.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Minimal in-process stand-in for the TCGdex API (and other JSON APIs, such as the
+ * vision endpoint).
+ *
+ * Routes are matched on the request path (without query string). Each route can be
+ * given a fixed latency or be made to fail, and every hit is counted so tests can
+ * assert how many upstream calls were made. Client ports are recorded too, which
+ * gives the number of TCP connections clients opened.
+ */
+public class StubTcgdexServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Map<String, Function<String, String>> routes = new ConcurrentHashMap<>();
+    private final Map<String, Long> latencyMs = new ConcurrentHashMap<>();
+    private final Map<String, Queue<Long>> nextLatenciesMs = new ConcurrentHashMap<>();
+    private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> lastBodies = new ConcurrentHashMap<>();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger gzipped = new AtomicInteger();
+    private volatile long defaultLatencyMs;
+    private volatile boolean gzip;
+
+    public StubTcgdexServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /** Serve a fixed JSON body on an exact path. */
+    public StubTcgdexServer json(String path, String body) {
+        routes.put(path, query -> body);
+        return this;
+    }
+
+    /** Serve a JSON body computed from the query string on an exact path. */
+    public StubTcgdexServer json(String path, Function<String, String> body) {
+        routes.put(path, body);
+        return this;
+    }
+
+    /**
+     * Serve a recorded fixture from {@code src/test/resources/tcgdex}, e.g.
+     * {@code fixture("/sets/base1")} serves {@code tcgdex/sets/base1.json}.
+     */
+    public StubTcgdexServer fixture(String path) {
+        return json(path, readFixture(path));
+    }
+
+    public static String readFixture(String path) {
+        try (InputStream in = StubTcgdexServer.class.getResourceAsStream("/tcgdex" + path + ".json")) {
+            if (in == null) throw new IllegalArgumentException("No fixture for " + path);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Delay every response on this path. */
+    public StubTcgdexServer latency(String path, long millis) {
+        latencyMs.put(path, millis);
+        return this;
+    }
+
+    /** Delay the next hits on this path by these amounts, in order; later hits use the usual latency. */
+    public StubTcgdexServer latencies(String path, long... millis) {
+        Queue<Long> queue = nextLatenciesMs.computeIfAbsent(path, k -> new ConcurrentLinkedQueue<>());
+        for (long m : millis) queue.add(m);
+        return this;
+    }
+
+    /** Delay every response that has no path-specific latency. */
+    public StubTcgdexServer defaultLatency(long millis) {
+        this.defaultLatencyMs = millis;
+        return this;
+    }
+
+    /** Answer this path with a 500 (-1 = always, otherwise the next {@code times} hits). */
+    public StubTcgdexServer fail(String path, int times) {
+        failures.put(path, times);
+        return this;
+    }
+
+    public StubTcgdexServer recover(String path) {
+        failures.remove(path);
+        return this;
+    }
+
+    public int hits(String path) {
+        AtomicInteger n = hits.get(path);
+        return n == null ? 0 : n.get();
+    }
+
+    /** Body of the last request on this path (e.g. a POST), or null. */
+    public String lastBody(String path) {
+        byte[] body = lastBodies.get(path);
+        return body == null ? null : new String(body, StandardCharsets.UTF_8);
+    }
+
+    public int totalHits() {
+        return hits.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    public void resetHits() {
+        hits.clear();
+    }
+
+    /** Gzip response bodies for clients that send {@code Accept-Encoding: gzip}. */
+    public StubTcgdexServer gzip(boolean enabled) {
+        this.gzip = enabled;
+        return this;
+    }
+
+    /** Number of responses sent gzip-compressed. */
+    public int gzipped() {
+        return gzipped.get();
+    }
+
+    /** Distinct client connections seen since the last {@link #resetConnections()}. */
+    public int connections() {
+        return clientPorts.size();
+    }
+
+    public void resetConnections() {
+        clientPorts.clear();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getRawQuery();
+        hits.computeIfAbsent(path, k -> new AtomicInteger()).incrementAndGet();
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        lastBodies.put(path, exchange.getRequestBody().readAllBytes());
+        try {
+            Queue<Long> next = nextLatenciesMs.get(path);
+            Long scheduled = next == null ? null : next.poll();
+            long delay = scheduled != null ? scheduled : latencyMs.getOrDefault(path, defaultLatencyMs);
+            if (delay > 0) Thread.sleep(delay);
+
+            Integer remaining = failures.get(path);
+            if (remaining != null && remaining != 0) {
+                if (remaining > 0) failures.put(path, remaining - 1);
+                send(exchange, 500, "{\"error\":\"stub failure\"}");
+                return;
+            }
+
+            Function<String, String> route = routes.get(path);
+            if (route == null) {
+                send(exchange, 404, "{\"error\":\"not found\"}");
+                return;
+            }
+            send(exchange, 200, route.apply(query));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (gzip && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream zip = new GZIPOutputStream(compressed)) {
+                zip.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            gzipped.incrementAndGet();
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}